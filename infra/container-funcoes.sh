@@ -0,0 +1,77 @@
+#!/bin/bash
+# Funções compartilhadas por treinar-cds.sh e medir-cold-start.sh (usar com source)
+#
+# Executam o pacote em um contêiner da imagem oficial do Azure Functions para Java 21, com o pacote montado
+# em /home/site/wwwroot: mesmos caminhos do worker Java e do aplicativo que no Function App, condição para
+# que o arquivo CDS gravado no treinamento seja aceito em produção (a JVM recusa o arquivo se o classpath
+# ou a JDK mudarem). O storage é um Azurite em outro contêiner.
+
+IMAGEM_FUNCOES="${IMAGEM_FUNCOES:-mcr.microsoft.com/azure-functions/java:4-java21}"
+IMAGEM_AZURITE="${IMAGEM_AZURITE:-mcr.microsoft.com/azure-storage/azurite}"
+REDE="feedback-platform-cds"
+CONTEINER_AZURITE="feedback-platform-azurite"
+CONTEINER_FUNCOES="feedback-platform-funcoes"
+PORTA="${PORTA:-7071}"
+CHAVE_MESTRA="chave-local-$(openssl rand -hex 8)"
+CDS_ARQUIVO_NOME="feedback-platform.jsa"
+CDS_ARQUIVO_REMOTO="/home/site/wwwroot/${CDS_ARQUIVO_NOME}"
+STORAGE_AZURITE="DefaultEndpointsProtocol=http;AccountName=devstoreaccount1;AccountKey=Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==;BlobEndpoint=http://${CONTEINER_AZURITE}:10000/devstoreaccount1;QueueEndpoint=http://${CONTEINER_AZURITE}:10001/devstoreaccount1;TableEndpoint=http://${CONTEINER_AZURITE}:10002/devstoreaccount1;"
+
+agora_ms() { date +%s%3N; }
+
+iniciar_azurite() {
+    docker network create "$REDE" >/dev/null 2>&1
+    docker rm -f "$CONTEINER_AZURITE" >/dev/null 2>&1
+    docker run -d --rm --name "$CONTEINER_AZURITE" --network "$REDE" "$IMAGEM_AZURITE" \
+        azurite --silent --blobHost 0.0.0.0 --queueHost 0.0.0.0 --tableHost 0.0.0.0 >/dev/null || return 1
+    sleep 3
+}
+
+parar_azurite() {
+    docker rm -f "$CONTEINER_AZURITE" >/dev/null 2>&1
+    docker network rm "$REDE" >/dev/null 2>&1
+}
+
+# iniciar_funcoes <diretório do pacote> <argumentos da JVM> [ro]
+# A chave mestra é gravada em um diretório de segredos temporário (as funções HTTP exigem chave)
+iniciar_funcoes() {
+    local pacote="$1" argumentos="$2" modo="${3:-rw}"
+    SEGREDOS=$(mktemp -d)
+    cat > "$SEGREDOS/host.json" <<JSON
+{"masterKey": {"name": "master", "value": "${CHAVE_MESTRA}", "encrypted": false}, "functionKeys": []}
+JSON
+    docker rm -f "$CONTEINER_FUNCOES" >/dev/null 2>&1
+    docker run -d --name "$CONTEINER_FUNCOES" --network "$REDE" -p "${PORTA}:80" \
+        -v "$(cd "$pacote" && pwd):/home/site/wwwroot:${modo}" \
+        -v "$SEGREDOS:/azure-functions-host/Secrets" \
+        -e AzureWebJobsScriptRoot=/home/site/wwwroot \
+        -e AzureWebJobsSecretStorageType=files \
+        -e AzureFunctionsJobHost__Logging__Console__IsEnabled=true \
+        -e FUNCTIONS_WORKER_RUNTIME=java \
+        -e AzureWebJobsStorage="$STORAGE_AZURITE" \
+        -e languageWorkers__java__arguments="$argumentos" \
+        "$IMAGEM_FUNCOES" >/dev/null
+}
+
+# Espera o primeiro 201 do POST /api/avaliacao; imprime o tempo em ms desde <início> (vazio se não houver em 60 s)
+esperar_primeira_avaliacao() {
+    local inicio="$1" status
+    for _ in $(seq 1 600); do
+        status=$(curl -s -o /dev/null -w "%{http_code}" -X POST "http://localhost:${PORTA}/api/avaliacao?code=${CHAVE_MESTRA}" \
+            -H "Content-Type: application/json" -d '{"descricao": "Medição de cold start", "nota": 8}' 2>/dev/null)
+        if [ "$status" = "201" ]; then
+            echo $(( $(agora_ms) - inicio ))
+            return 0
+        fi
+        sleep 0.1
+    done
+    return 1
+}
+
+# Para o host com SIGTERM e espera o worker Java encerrar normalmente (necessário para gravar o arquivo CDS)
+parar_funcoes() {
+    docker stop -t 60 "$CONTEINER_FUNCOES" >/dev/null 2>&1
+    docker logs "$CONTEINER_FUNCOES" > /tmp/feedback-platform-funcoes.log 2>&1
+    docker rm -f "$CONTEINER_FUNCOES" >/dev/null 2>&1
+    [ -n "$SEGREDOS" ] && rm -rf "$SEGREDOS"
+}
@@ -0,0 +1,67 @@
+#!/bin/bash
+# Mede o cold start: tempo entre iniciar o host e o primeiro 201 do POST /api/avaliacao
+#
+# Uso: infra/medir-cold-start.sh [execucoes]
+#   MODO=padrao    JVM sem argumentos extras
+#   MODO=cds       JVM com o arquivo AppCDS do pacote (mesmos argumentos do perfil Maven cold-start);
+#                  o arquivo deve ter sido gerado no empacotamento: mvn -Pcold-start clean package -DskipTests
+#
+# Cada execução usa um contêiner novo da imagem oficial do Azure Functions, com o pacote montado somente
+# leitura em /home/site/wwwroot: nada do que uma execução grava chega à próxima, como em uma instância nova
+# do Function App. No modo cds a JVM roda com -Xshare:on e falha se o arquivo não puder ser usado, em vez de
+# cair silenciosamente para a execução sem CDS.
+#
+# Pré-requisitos: Docker e o projeto empacotado (mvn clean package -DskipTests)
+
+EXECUCOES="${1:-5}"
+MODO="${MODO:-padrao}"
+
+cd "$(dirname "$0")/.." || exit 1
+source infra/container-funcoes.sh
+
+SCRIPT_ROOT=$(ls -d target/azure-functions/feedback-platform-*/ 2>/dev/null | head -1)
+if [ -z "$SCRIPT_ROOT" ]; then
+    echo "❌ Pacote não encontrado; execute: mvn clean package -DskipTests"
+    exit 1
+fi
+
+case "$MODO" in
+    padrao) ARGUMENTOS="" ;;
+    cds)
+        if [ ! -s "${SCRIPT_ROOT}${CDS_ARQUIVO_NOME}" ]; then
+            echo "❌ Arquivo CDS ausente no pacote; execute: mvn -Pcold-start clean package -DskipTests"
+            exit 1
+        fi
+        ARGUMENTOS="-Xshare:on -XX:SharedArchiveFile=${CDS_ARQUIVO_REMOTO}"
+        ;;
+    *) echo "❌ MODO inválido: $MODO (use padrao ou cds)"; exit 1 ;;
+esac
+
+iniciar_azurite || { echo "❌ Não foi possível iniciar o Azurite"; exit 1; }
+trap 'parar_funcoes; parar_azurite' EXIT
+
+TEMPOS=()
+for i in $(seq 1 "$EXECUCOES"); do
+    inicio=$(agora_ms)
+    iniciar_funcoes "$SCRIPT_ROOT" "$ARGUMENTOS" ro
+    tempo=$(esperar_primeira_avaliacao "$inicio")
+    parar_funcoes
+
+    if [ -z "$tempo" ]; then
+        echo "❌ Execução $i: sem 201 em 60 s (veja /tmp/feedback-platform-funcoes.log)"
+        continue
+    fi
+    echo "   Execução $i: ${tempo} ms"
+    TEMPOS+=("$tempo")
+done
+
+if [ ${#TEMPOS[@]} -eq 0 ]; then
+    exit 1
+fi
+ORDENADOS=($(printf '%s\n' "${TEMPOS[@]}" | sort -n))
+N=${#ORDENADOS[@]}
+echo ""
+echo "📊 Modo $MODO, $N execuções até o primeiro 201:"
+echo "   mínimo:  ${ORDENADOS[0]} ms"
+echo "   mediana: ${ORDENADOS[$((N / 2))]} ms"
+echo "   máximo:  ${ORDENADOS[$((N - 1))]} ms"
@@ -0,0 +1,52 @@
+#!/bin/bash
+# Gera o arquivo AppCDS do worker Java no empacotamento (perfil Maven cold-start)
+#
+# Uso: infra/treinar-cds.sh <diretório do pacote>   (ex.: target/azure-functions/feedback-platform-...)
+#
+# Execução de treinamento: sobe o pacote na imagem oficial do Azure Functions com
+# -XX:ArchiveClassesAtExit, exercita os caminhos da ingestão e do relatório e encerra o worker; a JVM grava
+# as classes carregadas em <pacote>/feedback-platform.jsa. O arquivo vai no pacote publicado e, no Function
+# App, fica em /home/site/wwwroot (persistente e somente leitura), referenciado por -XX:SharedArchiveFile.
+#
+# Pré-requisitos: Docker e o pacote gerado por azure-functions:package
+
+PACOTE="$1"
+REQUISICOES="${REQUISICOES:-50}"
+
+if [ -z "$PACOTE" ] || [ ! -f "$PACOTE/host.json" ]; then
+    echo "❌ Pacote não encontrado: '$PACOTE' (execute azure-functions:package antes)"
+    exit 1
+fi
+
+source "$(dirname "$0")/container-funcoes.sh"
+
+rm -f "$PACOTE/$CDS_ARQUIVO_NOME"
+iniciar_azurite || { echo "❌ Não foi possível iniciar o Azurite"; exit 1; }
+trap 'parar_funcoes; parar_azurite' EXIT
+
+echo "🏋️ Treinamento CDS: $PACOTE"
+iniciar_funcoes "$PACOTE" "-XX:ArchiveClassesAtExit=${CDS_ARQUIVO_REMOTO}"
+if ! tempo=$(esperar_primeira_avaliacao "$(agora_ms)"); then
+    echo "❌ Sem 201 em 60 s (veja /tmp/feedback-platform-funcoes.log)"
+    exit 1
+fi
+echo "   Primeira avaliação em ${tempo} ms"
+
+# Exercita os caminhos de uma instância recém-criada: avaliações (inclusive críticas), lote e relatório
+BASE="http://localhost:${PORTA}/api"
+for i in $(seq 1 "$REQUISICOES"); do
+    curl -s -o /dev/null -X POST "${BASE}/avaliacao?code=${CHAVE_MESTRA}" -H "Content-Type: application/json" \
+        -d "{\"descricao\": \"Treinamento CDS $i: aula muito boa, material claro\", \"nota\": $(( i % 11 ))}"
+done
+curl -s -o /dev/null -X POST "${BASE}/avaliacoes/batch?code=${CHAVE_MESTRA}" -H "Content-Type: application/json" \
+    -d '[{"descricao": "Treinamento CDS lote", "nota": 9}, {"descricao": "Treinamento CDS lote", "nota": 2}]'
+curl -s -o /dev/null "${BASE}/relatorio?code=${CHAVE_MESTRA}"
+
+parar_funcoes
+trap parar_azurite EXIT
+
+if [ ! -s "$PACOTE/$CDS_ARQUIVO_NOME" ]; then
+    echo "❌ Arquivo CDS não foi gravado (o worker não encerrou normalmente? veja /tmp/feedback-platform-funcoes.log)"
+    exit 1
+fi
+echo "✅ Arquivo CDS: $PACOTE/$CDS_ARQUIVO_NOME ($(du -h "$PACOTE/$CDS_ARQUIVO_NOME" | cut -f1))"
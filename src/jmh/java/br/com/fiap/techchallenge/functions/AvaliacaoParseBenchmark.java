@@ -0,0 +1,84 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse do JSON + validação de uma avaliação, como no início do {@link AvaliacaoFunction}
+ * Compara o caminho original (ObjectMapper.readValue + Validator) com o {@link LeitorAvaliacao}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvaliacaoParseBenchmark {
+
+    private static final String JSON_VALIDO = "{\"descricao\": \"O atendimento foi excelente e o curso muito completo\", \"nota\": 9}";
+    private static final String JSON_INVALIDO = "{\"descricao\": \"\", \"nota\": 15}";
+
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private LeitorAvaliacao leitor;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        validator = Validation.byDefaultProvider().configure()
+                .messageInterpolator(new ParameterMessageInterpolator())
+                .buildValidatorFactory()
+                .getValidator();
+        leitor = new LeitorAvaliacao(objectMapper, validator);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Avaliacao>> parseEValidar() throws Exception {
+        return validator.validate(objectMapper.readValue(JSON_VALIDO, Avaliacao.class));
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Avaliacao>> parseEValidarInvalida() throws Exception {
+        return validator.validate(objectMapper.readValue(JSON_INVALIDO, Avaliacao.class));
+    }
+
+    @Benchmark
+    public void leitorRapido(Blackhole blackhole) throws Exception {
+        Avaliacao avaliacao = leitor.ler(JSON_VALIDO);
+        blackhole.consume(avaliacao);
+        blackhole.consume(leitor.validar(avaliacao));
+    }
+
+    @Benchmark
+    public String leitorRapidoInvalida() throws Exception {
+        return leitor.validar(leitor.ler(JSON_INVALIDO));
+    }
+
+    @Benchmark
+    public String escreverResposta() throws Exception {
+        Avaliacao avaliacao = leitor.ler(JSON_VALIDO);
+        avaliacao.inicializar();
+        return leitor.escrever(avaliacao);
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.fiap.techchallenge.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classificação de urgência por nota (notas variadas para não favorecer um único desvio)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvaliacaoBenchmark {
+
+    private static final int AVALIACOES = 1024;
+
+    private Avaliacao[] avaliacoes;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(42);
+        avaliacoes = new Avaliacao[AVALIACOES];
+        for (int i = 0; i < AVALIACOES; i++) {
+            avaliacoes[i] = Avaliacao.builder().descricao("Avaliação " + i).nota(random.nextInt(11)).build();
+        }
+    }
+
+    @Benchmark
+    public Avaliacao.NivelUrgencia calcularUrgencia() {
+        Avaliacao avaliacao = avaliacoes[proxima];
+        proxima = (proxima + 1) & (AVALIACOES - 1);
+        avaliacao.calcularUrgencia(3);
+        return avaliacao.getUrgencia();
+    }
+}
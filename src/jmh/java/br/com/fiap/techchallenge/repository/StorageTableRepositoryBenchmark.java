@@ -0,0 +1,65 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.service.CorpusSintetico;
+import com.azure.data.tables.models.TableEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão TableEntity → Avaliacao, executada para cada linha lida do Table Storage
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageTableRepositoryBenchmark {
+
+    private static final int ENTIDADES = 1024;
+
+    private StorageTableRepository repository;
+    private TableEntity[] entidades;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        repository = new StorageTableRepository(null);
+        repository.particionamento = EstrategiaParticionamento.DIA;
+
+        LocalDateTime fim = LocalDateTime.now();
+        List<Avaliacao> avaliacoes = CorpusSintetico.avaliacoes(ENTIDADES, fim.minusDays(7), fim, 42);
+        entidades = new TableEntity[ENTIDADES];
+        for (int i = 0; i < ENTIDADES; i++) {
+            Avaliacao avaliacao = avaliacoes.get(i);
+            // Mesmo formato gravado por toTableEntity
+            entidades[i] = new TableEntity(repository.particionamento.partitionKey(avaliacao.getDataHora()),
+                    EstrategiaParticionamento.rowKey(avaliacao.getDataHora(), avaliacao.getId()))
+                    .addProperty("descricao", avaliacao.getDescricao())
+                    .addProperty("nota", avaliacao.getNota())
+                    .addProperty("urgencia", avaliacao.getUrgencia().toString())
+                    .addProperty("dataHora", avaliacao.getDataHora().toString());
+        }
+    }
+
+    @Benchmark
+    public Avaliacao fromTableEntity() {
+        TableEntity entidade = entidades[proxima];
+        proxima = (proxima + 1) & (ENTIDADES - 1);
+        return repository.fromTableEntity(entidade);
+    }
+}
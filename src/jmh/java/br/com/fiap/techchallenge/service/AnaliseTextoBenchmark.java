@@ -0,0 +1,78 @@
+package br.com.fiap.techchallenge.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análise de palavras e frases recorrentes sobre corpora de 1k, 100k e 1M descrições
+ * Modos: EXATO (sequencial), PARALELO (pool com limiar baixo) e APROXIMADO (sketches Space-Saving).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AnaliseTextoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int descricoes;
+
+    @Param({"EXATO", "PARALELO", "APROXIMADO"})
+    String modo;
+
+    private List<String> corpus;
+    private AnaliseTextoService service;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        corpus = CorpusSintetico.descricoes(descricoes, 42);
+        service = new AnaliseTextoService();
+        service.paralelismo = modo.equals("PARALELO") ? 0 : 1;
+        service.limiarParalelo = 1000;
+        service.tamanhoBloco = 5000;
+        service.aproximado = modo.equals("APROXIMADO");
+        service.capacidadeSketch = 1000;
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        service.encerrar();
+    }
+
+    @Benchmark
+    public Map<String, Long> palavras() {
+        return service.analisarPalavrasRecorrentes(corpus);
+    }
+
+    @Benchmark
+    public Map<String, Long> frases() {
+        return service.analisarFrasesRecorrentes(corpus);
+    }
+
+    /**
+     * Caminho do relatório: palavras e frases em um único acumulador
+     */
+    @Benchmark
+    public Map<String, Long> acumuladorCompleto() {
+        AnaliseTextoService.AcumuladorTexto acumulador = service.novoAcumulador();
+        corpus.forEach(acumulador::adicionar);
+        acumulador.palavrasRecorrentes();
+        return acumulador.frasesRecorrentes();
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Corpus sintético de avaliações em português para os benchmarks
+ * Frases montadas a partir de modelos e de um vocabulário com frequência enviesada (poucos termos muito comuns,
+ * cauda longa de termos raros e variações com erros de digitação), gerado de forma determinística pela semente.
+ */
+public final class CorpusSintetico {
+
+    private static final String[] MODELOS = {
+            "O %s foi %s e o %s estava %s",
+            "Achei o %s muito %s, mas o %s %s",
+            "%s! O %s chegou %s e o %s foi %s",
+            "Não gostei do %s, %s demais. O %s também %s",
+            "Atendimento %s, %s %s, recomendo o %s %s",
+            "Produto %s, entrega %s. %s %s com o %s"
+    };
+
+    private static final String[] SUBSTANTIVOS = {
+            "atendimento", "produto", "professor", "curso", "conteúdo", "suporte", "sistema", "aplicativo",
+            "material", "prazo", "entrega", "plataforma", "vídeo", "exercício", "instrutor", "certificado",
+            "pagamento", "acesso", "chat", "módulo", "site", "preço", "tutor", "projeto", "avaliação"
+    };
+
+    private static final String[] QUALIFICADORES = {
+            "excelente", "ótimo", "bom", "ruim", "péssimo", "lento", "rápido", "confuso", "claro", "demorado",
+            "incrível", "fraco", "completo", "incompleto", "caro", "barato", "difícil", "fácil", "atencioso",
+            "desorganizado", "organizado", "instável", "estável", "travando", "desatualizado", "útil"
+    };
+
+    private CorpusSintetico() {
+    }
+
+    public static List<String> descricoes(int quantidade, long semente) {
+        Random random = new Random(semente);
+        List<String> descricoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            descricoes.add(descricao(random));
+        }
+        return descricoes;
+    }
+
+    /**
+     * Avaliações com notas, urgências e datas distribuídas em [inicio, fim)
+     */
+    public static List<Avaliacao> avaliacoes(int quantidade, LocalDateTime inicio, LocalDateTime fim, long semente) {
+        Random random = new Random(semente);
+        long segundos = Math.max(1, ChronoUnit.SECONDS.between(inicio, fim));
+        List<Avaliacao> avaliacoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Avaliacao avaliacao = Avaliacao.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()).toString())
+                    .descricao(descricao(random))
+                    .nota(random.nextInt(11))
+                    .dataHora(inicio.plusSeconds((long) (random.nextDouble() * segundos)))
+                    .build();
+            avaliacao.calcularUrgencia(3);
+            avaliacoes.add(avaliacao);
+        }
+        return avaliacoes;
+    }
+
+    private static String descricao(Random random) {
+        String modelo = MODELOS[random.nextInt(MODELOS.length)];
+        Object[] termos = new Object[5];
+        for (int i = 0; i < termos.length; i++) {
+            termos[i] = i % 2 == 0 ? termo(SUBSTANTIVOS, random) : termo(QUALIFICADORES, random);
+        }
+        return String.format(modelo, termos);
+    }
+
+    /**
+     * Termo com distribuição enviesada; 2% das vezes com um erro de digitação (aumenta o vocabulário)
+     */
+    private static String termo(String[] vocabulario, Random random) {
+        String termo = vocabulario[(int) (vocabulario.length * Math.pow(random.nextDouble(), 2.5))];
+        if (random.nextInt(50) == 0) {
+            int posicao = random.nextInt(termo.length());
+            return termo.substring(0, posicao) + (char) ('a' + random.nextInt(26)) + termo.substring(posicao + 1);
+        }
+        return termo;
+    }
+}
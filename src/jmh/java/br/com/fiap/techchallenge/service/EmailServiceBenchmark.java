@@ -0,0 +1,53 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem do HTML do e-mail do relatório semanal (sem envio)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailServiceBenchmark {
+
+    private EmailService emailService;
+    private RelatorioSemanal relatorio;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emailService = new EmailService();
+
+        LocalDateTime fim = LocalDateTime.now();
+        LocalDateTime inicio = fim.minusDays(7);
+        AnaliseTextoService analiseTextoService = new AnaliseTextoService();
+        analiseTextoService.paralelismo = 1;
+        AgregadorAvaliacoes agregador = new AgregadorAvaliacoes(inicio, fim, analiseTextoService.novoAcumulador());
+        for (Avaliacao avaliacao : CorpusSintetico.avaliacoes(1000, inicio, fim, 42)) {
+            agregador.registrar(avaliacao);
+        }
+        relatorio = agregador.gerarRelatorio();
+    }
+
+    @Benchmark
+    public String construirEmailRelatorio() {
+        return emailService.construirEmailRelatorio(relatorio);
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Geração do relatório semanal (caminho sem rollups) sobre um repositório em memória
+ * Mede a agregação em passagem única + análise de texto, sem I/O do Table Storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RelatorioServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    int avaliacoes;
+
+    private RelatorioService relatorioService;
+    private AnaliseTextoService analiseTextoService;
+
+    /**
+     * Repositório que percorre uma lista em memória em vez do Table Storage
+     */
+    static final class RepositorioEmMemoria extends StorageTableRepository {
+
+        private final List<Avaliacao> avaliacoes;
+
+        RepositorioEmMemoria(List<Avaliacao> avaliacoes) {
+            super(null);
+            this.avaliacoes = avaliacoes;
+        }
+
+        @Override
+        public long percorrerAvaliacoesPorPeriodo(LocalDateTime inicio, LocalDateTime fim, Consumer<Avaliacao> consumidor) {
+            avaliacoes.forEach(consumidor);
+            return avaliacoes.size();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        LocalDateTime fim = LocalDateTime.now();
+        List<Avaliacao> dados = CorpusSintetico.avaliacoes(avaliacoes, fim.minusDays(7), fim, 42);
+        analiseTextoService = new AnaliseTextoService();
+        analiseTextoService.paralelismo = 1;
+        relatorioService = new RelatorioService(new RepositorioEmMemoria(dados), null, analiseTextoService, null);
+        relatorioService.usarAgregados = false;
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        analiseTextoService.encerrar();
+    }
+
+    @Benchmark
+    public RelatorioSemanal gerarRelatorioSemanal() {
+        return relatorioService.gerarRelatorioSemanal();
+    }
+}
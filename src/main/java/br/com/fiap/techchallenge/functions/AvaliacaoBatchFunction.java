@@ -0,0 +1,259 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.ResultadoItemLote;
+import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import br.com.fiap.techchallenge.service.AgregadoService;
+import br.com.fiap.techchallenge.service.TelemetriaService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import com.microsoft.azure.functions.annotation.QueueOutput;
+import io.quarkus.runtime.Startup;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Azure Function para receber avaliações em lote
+ * Endpoint: POST /api/avaliacoes/batch
+ *
+ * Responsabilidades:
+ * - Validar cada item do array recebido
+ * - Calcular nível de urgência dos itens válidos
+ * - Persistir em transações agrupadas por partição (até 100 por transação)
+ * - Atualizar os rollups horários com os itens persistidos
+ * - Enfileirar notificação para os itens críticos persistidos
+ * - Retornar o resultado de cada item
+ */
+@Startup
+@ApplicationScoped
+public class AvaliacaoBatchFunction {
+
+    private static final Logger LOG = Logger.getLogger(AvaliacaoBatchFunction.class);
+    private static final int URGENCIA_CRITICA_THRESHOLD = 3;
+    private static final int MAX_ITENS_LOTE = 1000;
+    private static final TypeReference<List<Avaliacao>> TIPO_LOTE = new TypeReference<>() {
+    };
+
+    private final StorageTableRepository repository;
+    private final AgregadoService agregadoService;
+    private final TelemetriaService telemetria;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    public AvaliacaoBatchFunction(StorageTableRepository repository, AgregadoService agregadoService, Validator validator, TelemetriaService telemetria) {
+        this.repository = repository;
+        this.agregadoService = agregadoService;
+        this.validator = validator;
+        this.telemetria = telemetria;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    /**
+     * HTTP POST /api/avaliacoes/batch
+     * Recebe um array de avaliações em formato JSON
+     *
+     * Payload esperado:
+     * [
+     *   { "descricao": "string (obrigatório)", "nota": integer 0-10 (obrigatório) },
+     *   ...
+     * ]
+     *
+     * Resposta: 201 se todos os itens foram criados, 207 se algum item foi rejeitado
+     */
+    @FunctionName("AvaliacaoBatchHandler")
+    public HttpResponseMessage run(
+            @HttpTrigger(
+                    name = "req",
+                    methods = {HttpMethod.POST},
+                    authLevel = AuthorizationLevel.FUNCTION,
+                    route = "avaliacoes/batch"
+            ) HttpRequestMessage<Optional<String>> request,
+            @QueueOutput(
+                    name = "notificacoes",
+                    queueName = NotificacaoCriticaFunction.FILA_NOTIFICACOES_CRITICAS,
+                    connection = NotificacaoCriticaFunction.CONEXAO_STORAGE
+            ) OutputBinding<List<String>> notificacoes,
+            final ExecutionContext context) {
+
+        LOG.info("=== Iniciando processamento de lote de avaliações ===");
+
+        try {
+            // 1. Parse do JSON
+            String body = request.getBody().orElse(null);
+            if (body == null || body.isBlank()) {
+                LOG.warn("Body vazio recebido");
+                return criarRespostaErro(request, 400, "Body da requisição é obrigatório");
+            }
+
+            List<Avaliacao> itens;
+            try {
+                itens = objectMapper.readValue(body, TIPO_LOTE);
+            } catch (JsonProcessingException e) {
+                LOG.warnf("JSON de lote inválido: %s", e.getOriginalMessage());
+                return criarRespostaErro(request, 400, "Body deve ser um array de avaliações");
+            }
+
+            if (itens == null || itens.isEmpty()) {
+                return criarRespostaErro(request, 400, "Lote de avaliações vazio");
+            }
+            if (itens.size() > MAX_ITENS_LOTE) {
+                return criarRespostaErro(request, 400, "Lote excede o limite de " + MAX_ITENS_LOTE + " avaliações");
+            }
+            LOG.infof("Lote parseado - %d avaliações", itens.size());
+
+            // 2. Validação, inicialização e cálculo de urgência de cada item
+            ResultadoItemLote[] resultados = new ResultadoItemLote[itens.size()];
+            Map<String, Integer> indicePorId = new LinkedHashMap<>();
+            List<Avaliacao> validas = new ArrayList<>();
+
+            for (int i = 0; i < itens.size(); i++) {
+                Avaliacao avaliacao = itens.get(i);
+                if (avaliacao == null) {
+                    resultados[i] = rejeitado(i, null, "Item nulo");
+                    continue;
+                }
+
+                Set<ConstraintViolation<Avaliacao>> violations = validator.validate(avaliacao);
+                if (!violations.isEmpty()) {
+                    String erros = violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(Collectors.joining(", "));
+                    resultados[i] = rejeitado(i, avaliacao.getId(), "Erro de validação: " + erros);
+                    continue;
+                }
+
+                avaliacao.inicializar();
+                if (indicePorId.putIfAbsent(avaliacao.getId(), i) != null) {
+                    resultados[i] = rejeitado(i, avaliacao.getId(), "ID duplicado no lote");
+                    continue;
+                }
+                avaliacao.calcularUrgencia(URGENCIA_CRITICA_THRESHOLD);
+                validas.add(avaliacao);
+            }
+            LOG.infof("Validação do lote concluída - %d válidas, %d rejeitadas", validas.size(), itens.size() - validas.size());
+
+            // 3. Persiste em transações por partição
+            Map<String, String> falhas = repository.salvarAvaliacoesEmLote(validas);
+
+            // 4. Monta resultados e enfileira as notificações dos itens críticos persistidos
+            List<String> notificacoesCriticas = new ArrayList<>();
+            List<Avaliacao> persistidas = new ArrayList<>();
+            int criadas = 0;
+            for (Avaliacao avaliacao : validas) {
+                int indice = indicePorId.get(avaliacao.getId());
+                String falha = falhas.get(avaliacao.getId());
+                if (falha != null) {
+                    resultados[indice] = ResultadoItemLote.builder()
+                            .indice(indice)
+                            .id(avaliacao.getId())
+                            .status(500)
+                            .erro(falha)
+                            .build();
+                    continue;
+                }
+
+                criadas++;
+                persistidas.add(avaliacao);
+                resultados[indice] = ResultadoItemLote.builder()
+                        .indice(indice)
+                        .id(avaliacao.getId())
+                        .status(201)
+                        .urgencia(avaliacao.getUrgencia())
+                        .build();
+
+                if (avaliacao.getUrgencia() == Avaliacao.NivelUrgencia.CRITICO) {
+                    LOG.warnf("Avaliação CRÍTICA no lote - enfileirando notificação: %s", avaliacao.getId());
+                    notificacoesCriticas.add(objectMapper.writeValueAsString(avaliacao));
+                    telemetria.contador("AvaliacaoCritica");
+                }
+                telemetria.metrica("NotaAvaliacao", avaliacao.getNota());
+            }
+
+            // Atualiza os rollups horários (uma escrita por hora distinta do lote); falha não afeta as avaliações
+            // já persistidas, e o evento RollupFalhou indica que os dias devem ser reconstruídos (ver AgregadoService.reconstruirDia)
+            try {
+                agregadoService.registrarLote(persistidas);
+            } catch (Exception e) {
+                LOG.errorf("Erro ao atualizar rollups do lote (dias %s): %s", diasDoLote(persistidas), e.getMessage());
+                telemetria.excecao(e);
+                telemetria.evento("RollupFalhou");
+            }
+
+            if (!notificacoesCriticas.isEmpty()) {
+                notificacoes.setValue(notificacoesCriticas);
+            }
+
+            // 5. Registra métrica
+            telemetria.evento("LoteAvaliacoesRecebido");
+            telemetria.metrica("TamanhoLoteAvaliacoes", itens.size());
+
+            LOG.infof("=== Lote processado - %d de %d avaliações criadas ===", criadas, itens.size());
+
+            // 6. Retorna o resultado por item
+            Map<String, Object> resposta = new LinkedHashMap<>();
+            resposta.put("total", itens.size());
+            resposta.put("criadas", criadas);
+            resposta.put("rejeitadas", itens.size() - criadas);
+            resposta.put("resultados", resultados);
+
+            return request.createResponseBuilder(criadas == itens.size() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                    .header("Content-Type", "application/json")
+                    .body(objectMapper.writeValueAsString(resposta))
+                    .build();
+
+        } catch (Exception e) {
+            LOG.errorf("Erro ao processar lote de avaliações: %s", e.getMessage());
+            telemetria.excecao(e);
+            return criarRespostaErro(request, 500, "Erro interno: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Dias das avaliações do lote, para indicar no log o que reconstruir após uma falha nos rollups
+     */
+    private static Set<LocalDate> diasDoLote(List<Avaliacao> avaliacoes) {
+        return avaliacoes.stream()
+                .filter(avaliacao -> avaliacao.getDataHora() != null)
+                .map(avaliacao -> avaliacao.getDataHora().toLocalDate())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private ResultadoItemLote rejeitado(int indice, String id, String erro) {
+        return ResultadoItemLote.builder()
+                .indice(indice)
+                .id(id)
+                .status(400)
+                .erro(erro)
+                .build();
+    }
+
+    /**
+     * Cria resposta de erro padronizada
+     */
+    private HttpResponseMessage criarRespostaErro(HttpRequestMessage<?> request, int status, String mensagem) {
+        String json = String.format("{\"erro\": \"%s\"}", mensagem);
+        return request.createResponseBuilder(HttpStatus.valueOf(status))
+                .header("Content-Type", "application/json")
+                .body(json)
+                .build();
+    }
+}
@@ -1,23 +1,33 @@
 package br.com.fiap.techchallenge.functions;
 
 import br.com.fiap.techchallenge.model.Avaliacao;
-import br.com.fiap.techchallenge.repository.StorageTableRepository;
-import br.com.fiap.techchallenge.service.EmailService;
+import br.com.fiap.techchallenge.model.RegistroIdempotencia;
+import br.com.fiap.techchallenge.repository.StorageIndisponivelException;
+import br.com.fiap.techchallenge.repository.StorageTableAsyncRepository;
+import br.com.fiap.techchallenge.service.AgregadoService;
+import br.com.fiap.techchallenge.service.ControleAdmissao;
+import br.com.fiap.techchallenge.service.HistogramaLatencia;
+import br.com.fiap.techchallenge.service.IdempotenciaService;
+import br.com.fiap.techchallenge.service.Latencias;
+import br.com.fiap.techchallenge.service.TelemetriaService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.microsoft.applicationinsights.TelemetryClient;
 import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.AuthorizationLevel;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.HttpTrigger;
+import com.microsoft.azure.functions.annotation.QueueOutput;
+import io.quarkus.runtime.Startup;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Azure Function para receber e processar avaliações
@@ -27,28 +37,71 @@ import java.util.stream.Collectors;
  * - Validar dados de entrada
  * - Calcular nível de urgência
  * - Persistir no Azure Storage Tables
- * - Enviar notificação se crítico
+ * - Atualizar os rollups horários usados pelo relatório
+ * - Enfileirar notificação se crítico (enviada pelo NotificacaoCriticaFunction)
  * - Registrar telemetria
+ * <p>
+ * Tudo o que a requisição espera corre dentro do prazo (avaliacao.prazo-ms), em um {@link EscopoRequisicao}:
+ * etapas independentes rodam simultaneamente. A reserva da chave de idempotência vai ao storage enquanto a urgência
+ * e o JSON da resposta são preparados; a persistência condiciona a resposta 201 (504 se o prazo terminar antes).
+ * O rollup horário roda em uma virtual thread enquanto a notificação e as métricas são registradas, e é aguardado
+ * pelo restante do prazo antes da resposta, como no envio em lote: o relatório lê os rollups, e uma atualização
+ * perdida subcontaria o período (prazo excedido ou falha emitem o evento RollupFalhou).
+ * A telemetria é pré-agregada em memória pelo {@link TelemetriaService}.
+ * <p>
+ * Com o header Idempotency-Key (ou um id informado no payload), repetições da mesma requisição recebem
+ * a resposta 201 original, sem nova gravação nem nova notificação (ver {@link IdempotenciaService}).
+ * A chave só é concluída depois da notificação e do rollup; se a original gravou a avaliação sem executá-los
+ * (504 com a gravação concluindo depois), a repetição os executa antes de devolver a resposta.
+ * <p>
+ * Antes de qualquer processamento, o {@link ControleAdmissao} limita a concorrência (e, opcionalmente,
+ * a taxa por cliente): acima dos limites a resposta é um 429 imediato com Retry-After.
+ * <p>
+ * Cada estágio registra sua duração em um {@link HistogramaLatencia} (percentis em /api/metrics).
  */
+@Startup
 @ApplicationScoped
 public class AvaliacaoFunction {
 
     private static final Logger LOG = Logger.getLogger(AvaliacaoFunction.class);
     private static final int URGENCIA_CRITICA_THRESHOLD = 3;
+    private static final String HEADER_IDEMPOTENCIA = "Idempotency-Key";
+    private static final String HEADER_CHAVE_API = "x-functions-key";
+    private static final String HEADER_IP_ORIGEM = "x-forwarded-for";
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
 
-    private final StorageTableRepository repository;
-    private final EmailService emailService;
-    private final Validator validator;
-    private final ObjectMapper objectMapper;
-    //private final TelemetryClient telemetryClient;
+    // Latência por estágio (exposta em /api/metrics)
+    private static final HistogramaLatencia LATENCIA_ADMISSAO = Latencias.estagio("avaliacao_admissao");
+    private static final HistogramaLatencia LATENCIA_PARSE = Latencias.estagio("avaliacao_parse");
+    private static final HistogramaLatencia LATENCIA_VALIDACAO = Latencias.estagio("avaliacao_validacao");
+    private static final HistogramaLatencia LATENCIA_IDEMPOTENCIA = Latencias.estagio("avaliacao_idempotencia");
+    private static final HistogramaLatencia LATENCIA_INICIALIZACAO = Latencias.estagio("avaliacao_inicializacao");
+    private static final HistogramaLatencia LATENCIA_SERIALIZACAO = Latencias.estagio("avaliacao_serializacao");
+    private static final HistogramaLatencia LATENCIA_PERSISTENCIA = Latencias.estagio("avaliacao_persistencia");
+    private static final HistogramaLatencia LATENCIA_EFEITOS = Latencias.estagio("avaliacao_efeitos");
+    private static final HistogramaLatencia LATENCIA_ROLLUP = Latencias.estagio("avaliacao_rollup");
+    private static final HistogramaLatencia LATENCIA_TOTAL = Latencias.estagio("avaliacao_total");
 
-    public AvaliacaoFunction(StorageTableRepository repository, EmailService emailService, Validator validator) {
+    private final StorageTableAsyncRepository repository;
+    private final AgregadoService agregadoService;
+    private final IdempotenciaService idempotencia;
+    private final ControleAdmissao controleAdmissao;
+    private final TelemetriaService telemetria;
+    private final LeitorAvaliacao leitor;
+
+    @ConfigProperty(name = "avaliacao.prazo-ms", defaultValue = "10000")
+    long prazoMs;
+
+    public AvaliacaoFunction(StorageTableAsyncRepository repository, AgregadoService agregadoService, IdempotenciaService idempotencia,
+                             ControleAdmissao controleAdmissao, Validator validator, TelemetriaService telemetria) {
         this.repository = repository;
-        this.emailService = emailService;
-        this.validator = validator;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        //this.telemetryClient = new TelemetryClient();
+        this.agregadoService = agregadoService;
+        this.idempotencia = idempotencia;
+        this.controleAdmissao = controleAdmissao;
+        this.telemetria = telemetria;
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        this.leitor = new LeitorAvaliacao(objectMapper, validator);
     }
 
     /**
@@ -60,6 +113,8 @@ public class AvaliacaoFunction {
      *   "descricao": "string (obrigatório)",
      *   "nota": integer 0-10 (obrigatório)
      * }
+     *
+     * Header opcional: Idempotency-Key (até 255 caracteres)
      */
     @FunctionName("AvaliacaoHandler")
     public HttpResponseMessage run(
@@ -69,13 +124,37 @@ public class AvaliacaoFunction {
                     authLevel = AuthorizationLevel.FUNCTION,
                     route = "avaliacao"
             ) HttpRequestMessage<Optional<String>> request,
+            @QueueOutput(
+                    name = "notificacao",
+                    queueName = NotificacaoCriticaFunction.FILA_NOTIFICACOES_CRITICAS,
+                    connection = NotificacaoCriticaFunction.CONEXAO_STORAGE
+            ) OutputBinding<String> notificacao,
             final ExecutionContext context) {
 
-        TelemetryClient telemetryClient = new TelemetryClient();
+        long inicio = System.nanoTime();
+        try (ControleAdmissao.Admissao admissao = controleAdmissao.admitir(cliente(request))) {
+            LATENCIA_ADMISSAO.registrar(inicio);
+            if (!admissao.isAdmitida()) {
+                LOG.warnf("Requisição rejeitada pelo controle de admissão: %s", admissao.getMotivo());
+                return request.createResponseBuilder(HttpStatusType.custom(429))
+                        .header("Content-Type", "application/json")
+                        .header("Retry-After", Long.toString(admissao.getRetryAfterSegundos()))
+                        .body(String.format("{\"erro\": \"%s\"}", admissao.getMotivo()))
+                        .build();
+            }
+            return processar(request, notificacao);
+        } finally {
+            LATENCIA_TOTAL.registrar(inicio);
+        }
+    }
+
+    private HttpResponseMessage processar(HttpRequestMessage<Optional<String>> request, OutputBinding<String> notificacao) {
+        long t = System.nanoTime();
 
         LOG.info("=== Iniciando processamento de avaliação ===");
 
-        try {
+        // Subtarefas da requisição (virtual threads e estágios assíncronos), todas limitadas ao prazo
+        try (EscopoRequisicao escopo = new EscopoRequisicao(Instant.now().plusMillis(prazoMs))) {
             // 1. Parse do JSON
             String body = request.getBody().orElse(null);
             if (body == null || body.isBlank()) {
@@ -83,54 +162,264 @@ public class AvaliacaoFunction {
                 return criarRespostaErro(request, 400, "Body da requisição é obrigatório");
             }
 
-            Avaliacao avaliacao = objectMapper.readValue(body, Avaliacao.class);
+            Avaliacao avaliacao = leitor.ler(body);
+            t = LATENCIA_PARSE.registrar(t);
             LOG.infof("Avaliação parseada - Nota: %d", avaliacao.getNota());
 
             // 2. Validação
-            Set<ConstraintViolation<Avaliacao>> violations = validator.validate(avaliacao);
-            if (!violations.isEmpty()) {
-                String erros = violations.stream()
-                        .map(ConstraintViolation::getMessage)
-                        .collect(Collectors.joining(", "));
+            String erros = leitor.validar(avaliacao);
+            t = LATENCIA_VALIDACAO.registrar(t);
+            if (erros != null) {
                 LOG.warnf("Validação falhou: %s", erros);
                 return criarRespostaErro(request, 400, "Erro de validação: " + erros);
             }
 
-            // 3. Inicializa e calcula urgência
+            // 3. Idempotência: repetição de uma requisição já concluída nesta instância devolve a resposta original
+            String chave = chaveIdempotencia(request, avaliacao);
+            String hashCorpo = null;
+            if (chave != null) {
+                if (chave.length() > TAMANHO_MAXIMO_CHAVE) {
+                    return criarRespostaErro(request, 400, "Idempotency-Key deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres");
+                }
+                chave = IdempotenciaService.hashChave(chave);
+                hashCorpo = IdempotenciaService.hashConteudo(avaliacao);
+                Optional<RegistroIdempotencia> concluida = idempotencia.buscarConcluida(chave);
+                t = LATENCIA_IDEMPOTENCIA.registrar(t);
+                if (concluida.isPresent()) {
+                    return responderRepeticao(request, concluida.get(), hashCorpo);
+                }
+            }
+
+            // 4. Inicializa (id e data/hora identificam a avaliação na reserva da chave) e inicia a reserva
+            //    (inserção condicional, só a primeira requisição com a chave grava e notifica); a ida ao storage
+            //    corre enquanto a urgência e o JSON da resposta são preparados
             avaliacao.inicializar();
+            Future<RegistroIdempotencia> reservaEmCurso = chave != null
+                    ? idempotencia.reservar(chave, hashCorpo, avaliacao).toCompletableFuture()
+                    : null;
             avaliacao.calcularUrgencia(URGENCIA_CRITICA_THRESHOLD);
+            t = LATENCIA_INICIALIZACAO.registrar(t);
             LOG.infof("Urgência calculada: %s", avaliacao.getUrgencia());
 
-            // 4. Persiste no Azure Storage Tables
-            repository.salvarAvaliacao(avaliacao);
-            LOG.info("Avaliação persistida com sucesso");
+            // JSON da resposta, também usado como payload da notificação e guardado com a chave de idempotência
+            String json = leitor.escrever(avaliacao);
+            t = LATENCIA_SERIALIZACAO.registrar(t);
 
-            // 5. Verifica se é crítico e envia notificação
-            if (avaliacao.getUrgencia() == Avaliacao.NivelUrgencia.CRITICO) {
-                LOG.warn("Avaliação CRÍTICA detectada - enviando notificação");
-                emailService.enviarNotificacaoCritica(avaliacao);
-                telemetryClient.trackEvent("AvaliacaoCritica");
+            // 5. Conclusão da reserva e persistência no Azure Storage Tables, dentro do prazo
+            RegistroIdempotencia reserva = null;
+            try {
+                if (reservaEmCurso != null) {
+                    reserva = escopo.aguardar(reservaEmCurso);
+                    if (reserva.getSituacao() == RegistroIdempotencia.Situacao.EFEITOS_PENDENTES) {
+                        return concluirEfeitosPendentes(request, reserva, hashCorpo, notificacao, escopo);
+                    }
+                    if (reserva.getSituacao() != RegistroIdempotencia.Situacao.RESERVADA) {
+                        return responderRepeticao(request, reserva, hashCorpo);
+                    }
+                }
+                escopo.aguardar(repository.salvarAvaliacao(avaliacao).toCompletableFuture());
+            } catch (TimeoutException e) {
+                // A reserva é mantida: a gravação pode ainda concluir; a repetição verifica a avaliação antes de gravar
+                // e, se ela foi gravada, executa a notificação e o rollup
+                LOG.errorf("Prazo de %d ms excedido ao persistir avaliação %s", prazoMs, avaliacao.getId());
+                telemetria.evento("AvaliacaoPrazoExcedido");
+                return criarRespostaErro(request, 504, "Tempo limite excedido ao persistir avaliação");
+            } catch (Exception e) {
+                // Só libera uma chave reservada por esta requisição (com efeitos pendentes, a avaliação já está gravada)
+                if (reserva != null && reserva.getSituacao() == RegistroIdempotencia.Situacao.RESERVADA) {
+                    idempotencia.liberar(reserva.getChave());
+                }
+                throw e;
             }
+            LATENCIA_PERSISTENCIA.registrar(t);
+            LOG.info("Avaliação persistida com sucesso");
 
-            // 6. Registra métrica
-            telemetryClient.trackEvent("AvaliacaoRecebida");
-            telemetryClient.trackMetric("NotaAvaliacao", avaliacao.getNota());
+            // 6-8. Notificação, rollup e métricas
+            executarEfeitos(avaliacao, json, notificacao, escopo);
+
+            // 9. Conclui a chave: repetições recebem a resposta original sem executar os efeitos de novo
+            if (reserva != null) {
+                concluirIdempotencia(reserva, json, escopo);
+            }
 
             LOG.info("=== Avaliação processada com sucesso ===");
 
-            // 7. Retorna resposta de sucesso
+            // 10. Retorna resposta de sucesso
             return request.createResponseBuilder(HttpStatus.CREATED)
                     .header("Content-Type", "application/json")
-                    .body(avaliacao)
+                    .body(json)
                     .build();
 
         } catch (Exception e) {
+            StorageIndisponivelException indisponivel = StorageIndisponivelException.naCadeia(e);
+            if (indisponivel != null) {
+                // Storage sobrecarregado ou disjuntor aberto: o cliente deve tentar de novo mais tarde
+                LOG.warnf("Storage indisponível: %s", indisponivel.getMessage());
+                return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header("Content-Type", "application/json")
+                        .header("Retry-After", Long.toString(indisponivel.getRetryAfterSegundos()))
+                        .body("{\"erro\": \"Serviço temporariamente indisponível\"}")
+                        .build();
+            }
             LOG.errorf("Erro ao processar avaliação: %s", e.getMessage());
-            telemetryClient.trackException(e);
+            telemetria.excecao(e);
             return criarRespostaErro(request, 500, "Erro interno: " + e.getMessage());
         }
     }
 
+    /**
+     * Efeitos de uma avaliação persistida: notificação, rollup horário e métricas
+     * O rollup roda em uma subtarefa (virtual thread) enquanto a notificação e as métricas são registradas,
+     * e é aguardado até o prazo da requisição.
+     */
+    private void executarEfeitos(Avaliacao avaliacao, String json, OutputBinding<String> notificacao, EscopoRequisicao escopo) {
+        long t = System.nanoTime();
+        boolean critica = avaliacao.getUrgencia() == Avaliacao.NivelUrgencia.CRITICO;
+
+        // 6. Atualiza o rollup horário antes de responder (falha ou prazo excedido não afetam a avaliação já
+        //    persistida; o evento RollupFalhou indica que o dia deve ser reconstruído, ver AgregadoService.reconstruirDia)
+        Future<Void> rollup = escopo.iniciar(() -> {
+            agregadoService.registrar(avaliacao);
+            return null;
+        });
+
+        // 7. Verifica se é crítico e enfileira a notificação (outbox)
+        //    O e-mail é enviado fora do caminho da requisição, com reprocessamento em caso de falha;
+        //    a mensagem é entregue à fila pelo runtime após o retorno do handler
+        if (critica) {
+            LOG.warn("Avaliação CRÍTICA detectada - enfileirando notificação");
+            notificacao.setValue(json);
+        }
+
+        // 8. Registra métrica (agregada em memória, publicada por intervalo)
+        if (critica) {
+            telemetria.contador("AvaliacaoCritica");
+        }
+        telemetria.contador("AvaliacaoRecebida");
+        telemetria.metrica("NotaAvaliacao", avaliacao.getNota());
+        LATENCIA_EFEITOS.registrar(t);
+
+        try {
+            escopo.aguardar(rollup);
+        } catch (TimeoutException e) {
+            LOG.errorf("Prazo de %d ms excedido ao atualizar rollup da avaliação %s", prazoMs, avaliacao.getId());
+            telemetria.evento("RollupFalhou");
+        } catch (Exception e) {
+            LOG.errorf("Erro ao atualizar rollup da avaliação %s: %s", avaliacao.getId(), e.getMessage());
+            telemetria.excecao(e);
+            telemetria.evento("RollupFalhou");
+        }
+        LATENCIA_ROLLUP.registrar(t);
+    }
+
+    /**
+     * Repetição de uma requisição cuja avaliação foi gravada sem a notificação e o rollup (a original respondeu 504
+     * e a gravação concluiu depois): executa os efeitos com a avaliação gravada e devolve a resposta dela
+     */
+    private HttpResponseMessage concluirEfeitosPendentes(HttpRequestMessage<?> request, RegistroIdempotencia reserva, String hashCorpo,
+                                                         OutputBinding<String> notificacao, EscopoRequisicao escopo) throws Exception {
+        if (IdempotenciaService.classificarRepeticao(reserva, hashCorpo) == IdempotenciaService.Repeticao.PAYLOAD_DIFERENTE) {
+            return responderRepeticao(request, reserva, hashCorpo);
+        }
+        Avaliacao gravada = reserva.getAvaliacao();
+        LOG.warnf("Repetição da chave %s: avaliação %s gravada sem os efeitos; executando-os", reserva.getChave(), gravada.getId());
+        String json = leitor.escrever(gravada);
+        executarEfeitos(gravada, json, notificacao, escopo);
+        concluirIdempotencia(reserva, json, escopo);
+        telemetria.contador("AvaliacaoRepetida");
+        return respostaRepetida(request, json);
+    }
+
+    /**
+     * Registra a resposta na chave de idempotência, dentro do prazo da requisição
+     * Uma falha não afeta a resposta: só faz uma repetição posterior executar os efeitos de novo.
+     */
+    private void concluirIdempotencia(RegistroIdempotencia reserva, String json, EscopoRequisicao escopo) {
+        try {
+            escopo.aguardar(idempotencia.concluir(reserva, json).toCompletableFuture());
+        } catch (Exception e) {
+            LOG.warnf("Não foi possível concluir a chave de idempotência %s: %s", reserva.getChave(), e.getMessage());
+        }
+    }
+
+    /**
+     * Chave de idempotência da requisição: o header Idempotency-Key ou, na falta dele, o id informado no payload
+     *
+     * @return null se a requisição não tiver chave
+     */
+    private static String chaveIdempotencia(HttpRequestMessage<?> request, Avaliacao avaliacao) {
+        String chave = header(request, HEADER_IDEMPOTENCIA);
+        if (chave != null) {
+            return "chave:" + chave;
+        }
+        return avaliacao.getId() != null && !avaliacao.getId().isBlank() ? "id:" + avaliacao.getId() : null;
+    }
+
+    /**
+     * Cliente da requisição para o limite de taxa: a chave de API ou, na falta dela, o IP de origem
+     */
+    private static String cliente(HttpRequestMessage<?> request) {
+        String chaveApi = header(request, HEADER_CHAVE_API);
+        if (chaveApi != null) {
+            return "chave:" + chaveApi;
+        }
+        String ips = header(request, HEADER_IP_ORIGEM);
+        if (ips != null) {
+            int virgula = ips.indexOf(',');
+            return "ip:" + (virgula >= 0 ? ips.substring(0, virgula).trim() : ips);
+        }
+        return null;
+    }
+
+    /**
+     * Valor de um header (nome sem distinção de maiúsculas), ou null se ausente ou em branco
+     */
+    private static String header(HttpRequestMessage<?> request, String nome) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (nome.equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isBlank()) {
+                return header.getValue().trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resposta a uma repetição: a resposta 201 original, 409 se a original ainda está em curso
+     * ou 422 se a chave foi usada com outro payload
+     */
+    private HttpResponseMessage responderRepeticao(HttpRequestMessage<?> request, RegistroIdempotencia registro, String hashCorpo) {
+        return switch (IdempotenciaService.classificarRepeticao(registro, hashCorpo)) {
+            case EM_ANDAMENTO -> {
+                LOG.warnf("Requisição com a chave %s ainda em processamento", registro.getChave());
+                yield request.createResponseBuilder(HttpStatus.CONFLICT)
+                        .header("Content-Type", "application/json")
+                        .header("Retry-After", "1")
+                        .body("{\"erro\": \"Requisição com a mesma Idempotency-Key em processamento\"}")
+                        .build();
+            }
+            case PAYLOAD_DIFERENTE -> {
+                LOG.warnf("Chave %s reutilizada com outro payload", registro.getChave());
+                yield request.createResponseBuilder(HttpStatusType.custom(422))
+                        .header("Content-Type", "application/json")
+                        .body("{\"erro\": \"Idempotency-Key já utilizada com outro payload\"}")
+                        .build();
+            }
+            case RESPOSTA_ORIGINAL -> {
+                LOG.infof("Repetição da chave %s: devolvendo a resposta original", registro.getChave());
+                telemetria.contador("AvaliacaoRepetida");
+                yield respostaRepetida(request, registro.getResposta());
+            }
+        };
+    }
+
+    private HttpResponseMessage respostaRepetida(HttpRequestMessage<?> request, String json) {
+        return request.createResponseBuilder(HttpStatus.CREATED)
+                .header("Content-Type", "application/json")
+                .header("Idempotent-Replayed", "true")
+                .body(json)
+                .build();
+    }
+
     /**
      * Cria resposta de erro padronizada
      */
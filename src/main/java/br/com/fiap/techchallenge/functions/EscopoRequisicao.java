@@ -0,0 +1,70 @@
+package br.com.fiap.techchallenge.functions;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Escopo das subtarefas de uma requisição, com o prazo da requisição
+ * <p>
+ * Subtarefas bloqueantes rodam em virtual threads ({@link #iniciar(Callable)}); estágios assíncronos do storage
+ * já correm no event loop do SDK. Ambos são aguardados no máximo até o prazo ({@link #aguardar(Future)}):
+ * uma subtarefa que não termina a tempo é cancelada (interrompida).
+ * <p>
+ * Equivalente, sem recursos em preview, ao StructuredTaskScope (preview no Java 21): o escopo é aberto em um
+ * try-with-resources e, ao fechar, interrompe as subtarefas ainda em curso; nenhuma sobrevive à requisição.
+ */
+final class EscopoRequisicao implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Instant prazo;
+
+    EscopoRequisicao(Instant prazo) {
+        this.prazo = prazo;
+    }
+
+    /**
+     * Inicia uma subtarefa bloqueante em uma virtual thread
+     */
+    <T> Future<T> iniciar(Callable<T> subtarefa) {
+        return executor.submit(subtarefa);
+    }
+
+    /**
+     * Aguarda uma subtarefa ou estágio assíncrono até o prazo da requisição, propagando a causa original em caso
+     * de falha
+     *
+     * @throws TimeoutException se o prazo terminar antes (a subtarefa é cancelada)
+     */
+    <T> T aguardar(Future<T> subtarefa) throws Exception {
+        try {
+            return subtarefa.get(restanteNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception causa ? causa : e;
+        } catch (TimeoutException e) {
+            subtarefa.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Tempo restante até o prazo (zero se já terminou)
+     */
+    long restanteNanos() {
+        return Math.max(0, Duration.between(Instant.now(), prazo).toNanos());
+    }
+
+    /**
+     * Interrompe as subtarefas ainda em curso (sem esperar por elas: já foram aguardadas ou abandonadas por prazo)
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,191 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Leitura, validação e escrita de uma avaliação no caminho rápido do POST /api/avaliacao
+ * <p>
+ * O payload usual ({"descricao": "...", "nota": n}) é lido com um {@link JsonParser} em streaming,
+ * sem reflexão. Qualquer outra forma (campos extras, tipos inesperados, JSON inválido) é relida pelo
+ * {@link ObjectReader} pré-construído, que produz exatamente o mesmo resultado e as mesmas exceções de antes.
+ * <p>
+ * As regras de validação rápidas são derivadas uma única vez, na construção, dos metadados de Bean Validation
+ * de {@link Avaliacao}; se as anotações mudarem de forma não suportada, o caminho rápido é desligado.
+ * Avaliações inválidas sempre passam pelo {@link Validator}, garantindo mensagens de erro idênticas.
+ */
+public final class LeitorAvaliacao {
+
+    private static final Logger LOG = Logger.getLogger(LeitorAvaliacao.class);
+    private static final String CAMPO_DESCRICAO = "descricao";
+    private static final String CAMPO_NOTA = "nota";
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader leitorCompleto;
+    private final ObjectWriter escritor;
+    private final Validator validator;
+
+    // Regras rápidas (derivadas das anotações); validacaoRapida == false desliga o atalho
+    private final boolean validacaoRapida;
+    private final long notaMinima;
+    private final long notaMaxima;
+
+    public LeitorAvaliacao(ObjectMapper objectMapper, Validator validator) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.leitorCompleto = objectMapper.readerFor(Avaliacao.class);
+        this.escritor = objectMapper.writerFor(Avaliacao.class).without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.validator = validator;
+
+        Map<String, Set<ConstraintDescriptor<?>>> regras = regras(validator.getConstraintsForClass(Avaliacao.class));
+        Long minimo = atributo(regras.get(CAMPO_NOTA), Min.class);
+        Long maximo = atributo(regras.get(CAMPO_NOTA), Max.class);
+        this.validacaoRapida = regras.keySet().equals(Set.of(CAMPO_DESCRICAO, CAMPO_NOTA))
+                && tipos(regras.get(CAMPO_DESCRICAO)).equals(Set.of(NotBlank.class))
+                && tipos(regras.get(CAMPO_NOTA)).equals(Set.of(NotNull.class, Min.class, Max.class))
+                && minimo != null && maximo != null;
+        this.notaMinima = minimo != null ? minimo : 0;
+        this.notaMaxima = maximo != null ? maximo : 0;
+        if (!validacaoRapida) {
+            LOG.warn("Restrições de Avaliacao diferentes das suportadas pela validação rápida; usando apenas o Validator");
+        }
+    }
+
+    /**
+     * Lê uma avaliação do JSON, pelo parser em streaming ou, para payloads fora do formato usual, pelo ObjectReader
+     */
+    public Avaliacao ler(String json) throws IOException {
+        Avaliacao avaliacao = lerRapido(json);
+        return avaliacao != null ? avaliacao : leitorCompleto.readValue(json);
+    }
+
+    /**
+     * Valida a avaliação
+     *
+     * @return null se válida; caso contrário, as mensagens de erro do Validator separadas por vírgula
+     */
+    public String validar(Avaliacao avaliacao) {
+        if (validacaoRapida && descricaoValida(avaliacao.getDescricao()) && notaValida(avaliacao.getNota())) {
+            return null;
+        }
+        Set<ConstraintViolation<Avaliacao>> violations = validator.validate(avaliacao);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Serializa a avaliação (datas em ISO-8601) com o writer pré-construído
+     */
+    public String escrever(Avaliacao avaliacao) throws JsonProcessingException {
+        return escritor.writeValueAsString(avaliacao);
+    }
+
+    /**
+     * Lê o formato usual {"descricao": string, "nota": int} (em qualquer ordem)
+     *
+     * @return null se o payload tiver outra forma, para que o ObjectReader decida
+     */
+    private Avaliacao lerRapido(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String descricao = null;
+            Integer nota = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String campo = parser.currentName();
+                JsonToken valor = parser.nextToken();
+                if (CAMPO_DESCRICAO.equals(campo)) {
+                    if (valor == JsonToken.VALUE_STRING) {
+                        descricao = parser.getText();
+                    } else if (valor == JsonToken.VALUE_NULL) {
+                        descricao = null;
+                    } else {
+                        return null;
+                    }
+                } else if (CAMPO_NOTA.equals(campo)) {
+                    if (valor == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+                        nota = parser.getIntValue();
+                    } else if (valor == JsonToken.VALUE_NULL) {
+                        nota = null;
+                    } else {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                return null;
+            }
+            return Avaliacao.builder()
+                    .descricao(descricao)
+                    .nota(nota)
+                    .build();
+        } catch (JsonProcessingException e) {
+            // JSON malformado: o ObjectReader relê e lança a mesma exceção de antes
+            return null;
+        }
+    }
+
+    private static boolean descricaoValida(String descricao) {
+        // Mesmo critério do @NotBlank do Hibernate Validator (trim, não isBlank)
+        return descricao != null && !descricao.trim().isEmpty();
+    }
+
+    private boolean notaValida(Integer nota) {
+        return nota != null && nota >= notaMinima && nota <= notaMaxima;
+    }
+
+    private static Map<String, Set<ConstraintDescriptor<?>>> regras(BeanDescriptor descritor) {
+        if (!descritor.getConstraintDescriptors().isEmpty()) {
+            return Map.of(); // Restrições de classe não são suportadas pelo atalho
+        }
+        return descritor.getConstrainedProperties().stream()
+                .collect(Collectors.toMap(PropertyDescriptor::getPropertyName, PropertyDescriptor::getConstraintDescriptors));
+    }
+
+    private static Set<Class<? extends Annotation>> tipos(Set<ConstraintDescriptor<?>> descritores) {
+        return descritores == null ? Set.of() : descritores.stream()
+                .map(descritor -> descritor.getAnnotation().annotationType())
+                .collect(Collectors.toSet());
+    }
+
+    private static Long atributo(Set<ConstraintDescriptor<?>> descritores, Class<? extends Annotation> tipo) {
+        if (descritores == null) {
+            return null;
+        }
+        return descritores.stream()
+                .filter(descritor -> descritor.getAnnotation().annotationType() == tipo)
+                .map(descritor -> (Long) descritor.getAttributes().get("value"))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.service.Latencias;
+import br.com.fiap.techchallenge.service.TelemetriaService;
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.HttpMethod;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Azure Function que expõe as métricas da instância no formato texto do Prometheus
+ * Endpoint: GET /api/metrics
+ * <p>
+ * - feedback_estagio_latencia_segundos: summary por estágio (p50, p99 e p999 da janela recente, soma e contagem)
+ * - feedback_estagio_latencia_segundos_max: maior latência da janela recente por estágio
+ * - feedback_*: medidores da {@link TelemetriaService} (limites de concorrência, disjuntor etc.)
+ * <p>
+ * As métricas são da instância que atende a requisição; com várias instâncias, cada coleta vê uma delas.
+ */
+@ApplicationScoped
+public class MetricasFunction {
+
+    static final String METRICA_LATENCIA = "feedback_estagio_latencia_segundos";
+    private static final String PREFIXO = "feedback_";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final TelemetriaService telemetria;
+
+    public MetricasFunction(TelemetriaService telemetria) {
+        this.telemetria = telemetria;
+    }
+
+    @FunctionName("MetricasHandler")
+    public HttpResponseMessage run(
+            @HttpTrigger(
+                    name = "req",
+                    methods = {HttpMethod.GET},
+                    authLevel = AuthorizationLevel.FUNCTION,
+                    route = "metrics"
+            ) HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        StringBuilder corpo = new StringBuilder(8192);
+        Latencias.exportarPrometheus(corpo, METRICA_LATENCIA);
+        for (Map.Entry<String, Double> medidor : telemetria.lerMedidores().entrySet()) {
+            String nome = PREFIXO + snakeCase(medidor.getKey());
+            corpo.append("# TYPE ").append(nome).append(" gauge\n")
+                    .append(nome).append(' ').append(String.format(Locale.ROOT, "%.6f", medidor.getValue())).append('\n');
+        }
+
+        return request.createResponseBuilder(HttpStatus.OK)
+                .header("Content-Type", CONTENT_TYPE)
+                .body(corpo.toString())
+                .build();
+    }
+
+    /**
+     * AdmissaoEmCurso -> admissao_em_curso
+     */
+    static String snakeCase(String nome) {
+        StringBuilder resultado = new StringBuilder(nome.length() + 8);
+        for (int i = 0; i < nome.length(); i++) {
+            char c = nome.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    resultado.append('_');
+                }
+                resultado.append(Character.toLowerCase(c));
+            } else if (Character.isLetterOrDigit(c)) {
+                resultado.append(c);
+            } else {
+                resultado.append('_');
+            }
+        }
+        return resultado.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import br.com.fiap.techchallenge.service.AgregadoService;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Azure Function administrativa para migrar avaliações da partição legada
+ * Endpoint: POST /api/admin/migrar-particoes (requer chave de administrador)
+ * <p>
+ * Move as linhas gravadas na partição única "Java" para as partições por dia/hora,
+ * de modo que passem a ser encontradas pelas consultas por período.
+ * Em seguida reconstrói os rollups horários dos dias encerrados que receberam avaliações migradas
+ * (o dia corrente fica para POST /api/admin/reconstruir-agregados, depois de encerrado).
+ */
+@ApplicationScoped
+public class MigracaoParticoesFunction {
+
+    private static final Logger LOG = Logger.getLogger(MigracaoParticoesFunction.class);
+
+    private final StorageTableRepository repository;
+    private final AgregadoService agregadoService;
+
+    public MigracaoParticoesFunction(StorageTableRepository repository, AgregadoService agregadoService) {
+        this.repository = repository;
+        this.agregadoService = agregadoService;
+    }
+
+    @FunctionName("MigracaoParticoesHandler")
+    public HttpResponseMessage run(
+            @HttpTrigger(
+                    name = "req",
+                    methods = {HttpMethod.POST},
+                    authLevel = AuthorizationLevel.ADMIN,
+                    route = "admin/migrar-particoes"
+            ) HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        LOG.info("=== Iniciando migração da partição legada ===");
+
+        try {
+            Map<LocalDate, Integer> migradasPorDia = repository.migrarParticaoLegada();
+            int migradas = migradasPorDia.values().stream().mapToInt(Integer::intValue).sum();
+
+            // As avaliações migradas não passaram pelos rollups
+            LocalDate hoje = LocalDate.now();
+            int diasReconstruidos = 0;
+            for (LocalDate dia : migradasPorDia.keySet()) {
+                if (dia.isBefore(hoje)) {
+                    agregadoService.reconstruirDia(dia);
+                    diasReconstruidos++;
+                } else {
+                    LOG.warnf("Avaliações migradas para %s: reconstrua os rollups do dia depois de encerrado", dia);
+                }
+            }
+
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .body(String.format("{\"migradas\": %d, \"diasReconstruidos\": %d}", migradas, diasReconstruidos))
+                    .build();
+        } catch (Exception e) {
+            LOG.errorf("Erro na migração de partições (reconstrua os rollups dos dias migrados com /api/admin/reconstruir-agregados): %s", e.getMessage());
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .header("Content-Type", "application/json")
+                    .body(String.format("{\"erro\": \"%s\"}", "Erro interno: " + e.getMessage()))
+                    .build();
+        }
+    }
+}
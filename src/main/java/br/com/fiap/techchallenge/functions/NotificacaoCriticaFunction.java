@@ -0,0 +1,78 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.service.AgrupadorAlertasCriticos;
+import br.com.fiap.techchallenge.service.HistogramaLatencia;
+import br.com.fiap.techchallenge.service.Latencias;
+import br.com.fiap.techchallenge.service.TelemetriaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.annotation.BindingName;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.QueueTrigger;
+import io.quarkus.runtime.Startup;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Azure Function com Queue Trigger para envio das notificações críticas
+ * Consome a fila "notificacoes-criticas" (outbox) alimentada pelos endpoints de avaliação
+ * <p>
+ * Responsabilidades:
+ * - Desserializar a avaliação crítica da mensagem
+ * - Enviar o e-mail de alerta via SendGrid, agrupando rajadas em um digest por janela (AgrupadorAlertasCriticos)
+ * - Propagar falhas para que o runtime reprocesse a mensagem
+ *   (até maxDequeueCount em host.json; depois ela vai para a fila "notificacoes-criticas-poison")
+ */
+@Startup
+@ApplicationScoped
+public class NotificacaoCriticaFunction {
+
+    public static final String FILA_NOTIFICACOES_CRITICAS = "notificacoes-criticas";
+    public static final String CONEXAO_STORAGE = "AzureWebJobsStorage";
+
+    private static final Logger LOG = Logger.getLogger(NotificacaoCriticaFunction.class);
+    // Da entrega ao agrupador até o envio do e-mail que contém a avaliação (inclui a espera da janela de digest)
+    private static final HistogramaLatencia LATENCIA_NOTIFICACAO = Latencias.estagio("notificacao_email");
+
+    private final AgrupadorAlertasCriticos agrupador;
+    private final TelemetriaService telemetria;
+    private final ObjectMapper objectMapper;
+
+    public NotificacaoCriticaFunction(AgrupadorAlertasCriticos agrupador, TelemetriaService telemetria) {
+        this.agrupador = agrupador;
+        this.telemetria = telemetria;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @FunctionName("NotificacaoCriticaHandler")
+    public void run(
+            @QueueTrigger(
+                    name = "mensagem",
+                    queueName = FILA_NOTIFICACOES_CRITICAS,
+                    connection = CONEXAO_STORAGE
+            ) String mensagem,
+            @BindingName("DequeueCount") long tentativa,
+            final ExecutionContext context) throws Exception {
+
+        Avaliacao avaliacao = objectMapper.readValue(mensagem, Avaliacao.class);
+        LOG.infof("Processando notificação crítica da avaliação %s (tentativa %d)", avaliacao.getId(), tentativa);
+
+        long inicio = System.nanoTime();
+        try {
+            // Aguarda o e-mail (imediato ou digest da janela) que contém esta avaliação
+            agrupador.notificar(avaliacao).get();
+            LATENCIA_NOTIFICACAO.registrar(inicio);
+            telemetria.contador("NotificacaoCriticaEnviada");
+        } catch (Exception e) {
+            Exception causa = e instanceof ExecutionException && e.getCause() instanceof Exception c ? c : e;
+            LOG.errorf("Falha ao enviar notificação crítica %s (tentativa %d): %s", avaliacao.getId(), tentativa, causa.getMessage());
+            telemetria.excecao(causa);
+            throw causa;
+        }
+    }
+}
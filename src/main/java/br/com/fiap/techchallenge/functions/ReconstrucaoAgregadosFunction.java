@@ -0,0 +1,93 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.service.AgregadoService;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Azure Function administrativa para reconstruir os rollups horários a partir das avaliações
+ * Endpoint: POST /api/admin/reconstruir-agregados?inicio=2024-05-01&fim=2024-05-07 (requer chave de administrador)
+ * <p>
+ * Preenche a tabela agregados para avaliações gravadas antes da ativação dos rollups (backfill) e corrige
+ * dias cujos rollups divergem das avaliações. Os dias do intervalo (inclusivo) devem estar encerrados;
+ * a operação é idempotente e pode ser repetida.
+ */
+@ApplicationScoped
+public class ReconstrucaoAgregadosFunction {
+
+    private static final Logger LOG = Logger.getLogger(ReconstrucaoAgregadosFunction.class);
+
+    private final AgregadoService agregadoService;
+
+    @ConfigProperty(name = "agregados.reconstrucao.max-dias", defaultValue = "31")
+    long maxDias;
+
+    public ReconstrucaoAgregadosFunction(AgregadoService agregadoService) {
+        this.agregadoService = agregadoService;
+    }
+
+    @FunctionName("ReconstrucaoAgregadosHandler")
+    public HttpResponseMessage run(
+            @HttpTrigger(
+                    name = "req",
+                    methods = {HttpMethod.POST},
+                    authLevel = AuthorizationLevel.ADMIN,
+                    route = "admin/reconstruir-agregados"
+            ) HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        LocalDate inicio;
+        LocalDate fim;
+        try {
+            inicio = LocalDate.parse(request.getQueryParameters().getOrDefault("inicio", ""));
+            fim = LocalDate.parse(request.getQueryParameters().getOrDefault("fim", ""));
+        } catch (DateTimeParseException e) {
+            return criarRespostaErro(request, 400, "Parâmetros inicio e fim são obrigatórios (datas ISO, ex.: 2024-05-01)");
+        }
+        if (fim.isBefore(inicio)) {
+            return criarRespostaErro(request, 400, "O início do intervalo deve ser anterior ou igual ao fim");
+        }
+        if (!fim.isBefore(LocalDate.now())) {
+            return criarRespostaErro(request, 400, "Só dias encerrados podem ser reconstruídos (fim anterior a hoje)");
+        }
+        if (ChronoUnit.DAYS.between(inicio, fim) + 1 > maxDias) {
+            return criarRespostaErro(request, 400, "Intervalo máximo por chamada: " + maxDias + " dias");
+        }
+
+        LOG.infof("=== Reconstruindo rollups de %s a %s ===", inicio, fim);
+        long avaliacoes = 0;
+        int dias = 0;
+        try {
+            for (LocalDate dia = inicio; !dia.isAfter(fim); dia = dia.plusDays(1)) {
+                avaliacoes += agregadoService.reconstruirDia(dia);
+                dias++;
+            }
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .body(String.format("{\"dias\": %d, \"avaliacoes\": %d}", dias, avaliacoes))
+                    .build();
+        } catch (Exception e) {
+            // Os dias anteriores já foram reconstruídos; a chamada pode ser repetida a partir do dia que falhou
+            LOG.errorf("Erro ao reconstruir rollups de %s: %s", inicio.plusDays(dias), e.getMessage());
+            return criarRespostaErro(request, 500, "Erro ao reconstruir " + inicio.plusDays(dias) + ": " + e.getMessage());
+        }
+    }
+
+    private HttpResponseMessage criarRespostaErro(HttpRequestMessage<?> request, int status, String mensagem) {
+        String json = String.format("{\"erro\": \"%s\"}", mensagem);
+        return request.createResponseBuilder(HttpStatus.valueOf(status))
+                .header("Content-Type", "application/json")
+                .body(json)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import br.com.fiap.techchallenge.repository.StorageIndisponivelException;
+import br.com.fiap.techchallenge.service.RelatorioConsultaService;
+import br.com.fiap.techchallenge.service.TelemetriaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.microsoft.azure.functions.ExecutionContext;
+import com.microsoft.azure.functions.HttpMethod;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+import com.microsoft.azure.functions.annotation.AuthorizationLevel;
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.functions.annotation.HttpTrigger;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Azure Function para consulta de relatórios sob demanda
+ * Endpoint: GET /api/relatorio?inicio=&fim=
+ * <p>
+ * Parâmetros (opcionais): data (2024-05-01) ou data e hora (2024-05-01T08:00); uma data em "fim" inclui o dia inteiro.
+ * Sem parâmetros, o período são os últimos 7 dias. Os limites são alinhados à hora.
+ * <p>
+ * Os resultados vêm do cache do {@link RelatorioConsultaService}; períodos encerrados são lidos da tabela relatorios,
+ * sem nova varredura das avaliações.
+ */
+@ApplicationScoped
+public class RelatorioConsultaFunction {
+
+    private static final Logger LOG = Logger.getLogger(RelatorioConsultaFunction.class);
+
+    private final RelatorioConsultaService consultaService;
+    private final TelemetriaService telemetria;
+    private final ObjectWriter escritor;
+
+    @ConfigProperty(name = "relatorio.consulta.max-dias", defaultValue = "366")
+    long maxDias;
+
+    public RelatorioConsultaFunction(RelatorioConsultaService consultaService, TelemetriaService telemetria) {
+        this.consultaService = consultaService;
+        this.telemetria = telemetria;
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        this.escritor = objectMapper.writerFor(RelatorioSemanal.class).without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @FunctionName("RelatorioConsultaHandler")
+    public HttpResponseMessage run(
+            @HttpTrigger(
+                    name = "req",
+                    methods = {HttpMethod.GET},
+                    authLevel = AuthorizationLevel.FUNCTION,
+                    route = "relatorio"
+            ) HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        RelatorioConsultaService.Periodo periodo;
+        try {
+            LocalDateTime fim = lerLimite(request.getQueryParameters().get("fim"), true);
+            LocalDateTime inicio = lerLimite(request.getQueryParameters().get("inicio"), false);
+            if (fim == null) {
+                fim = LocalDateTime.now();
+            }
+            if (inicio == null) {
+                inicio = fim.minusDays(7);
+            }
+            periodo = RelatorioConsultaService.Periodo.normalizado(inicio, fim);
+        } catch (DateTimeParseException e) {
+            return criarRespostaErro(request, 400, "Parâmetros inicio/fim devem ser datas ISO (2024-05-01 ou 2024-05-01T08:00)");
+        }
+        if (!periodo.inicio().isBefore(periodo.fim())) {
+            return criarRespostaErro(request, 400, "O início do período deve ser anterior ao fim (com precisão de hora)");
+        }
+        if (Duration.between(periodo.inicio(), periodo.fim()).toDays() > maxDias) {
+            return criarRespostaErro(request, 400, "Período máximo: " + maxDias + " dias");
+        }
+
+        try {
+            RelatorioSemanal relatorio = consultaService.consultar(periodo);
+            telemetria.contador("RelatorioConsultado");
+            return request.createResponseBuilder(HttpStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .body(escritor.writeValueAsString(relatorio))
+                    .build();
+        } catch (Exception e) {
+            StorageIndisponivelException indisponivel = StorageIndisponivelException.naCadeia(e);
+            if (indisponivel != null) {
+                LOG.warnf("Storage indisponível: %s", indisponivel.getMessage());
+                return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header("Content-Type", "application/json")
+                        .header("Retry-After", Long.toString(indisponivel.getRetryAfterSegundos()))
+                        .body("{\"erro\": \"Serviço temporariamente indisponível\"}")
+                        .build();
+            }
+            LOG.errorf("Erro ao consultar relatório: %s", e.getMessage());
+            telemetria.excecao(e);
+            return criarRespostaErro(request, 500, "Erro interno ao gerar relatório");
+        }
+    }
+
+    /**
+     * Lê um limite do período: data e hora, ou só a data (início do dia; no fim, início do dia seguinte)
+     *
+     * @return null se o parâmetro não foi informado
+     */
+    static LocalDateTime lerLimite(String valor, boolean fim) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        String texto = valor.trim();
+        if (texto.indexOf('T') < 0) {
+            LocalDate data = LocalDate.parse(texto);
+            return (fim ? data.plusDays(1) : data).atStartOfDay();
+        }
+        return LocalDateTime.parse(texto);
+    }
+
+    private HttpResponseMessage criarRespostaErro(HttpRequestMessage<?> request, int status, String mensagem) {
+        String json = String.format("{\"erro\": \"%s\"}", mensagem);
+        return request.createResponseBuilder(HttpStatus.valueOf(status))
+                .header("Content-Type", "application/json")
+                .body(json)
+                .build();
+    }
+}
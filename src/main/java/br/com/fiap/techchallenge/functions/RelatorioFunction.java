@@ -1,10 +1,10 @@
 package br.com.fiap.techchallenge.functions;
 
 import br.com.fiap.techchallenge.model.RelatorioSemanal;
-import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import br.com.fiap.techchallenge.repository.StorageTableAsyncRepository;
 import br.com.fiap.techchallenge.service.EmailService;
 import br.com.fiap.techchallenge.service.RelatorioService;
-import com.microsoft.applicationinsights.TelemetryClient;
+import br.com.fiap.techchallenge.service.TelemetriaService;
 import com.microsoft.azure.functions.ExecutionContext;
 import com.microsoft.azure.functions.annotation.FunctionName;
 import com.microsoft.azure.functions.annotation.TimerTrigger;
@@ -28,14 +28,15 @@ public class RelatorioFunction {
     private static final Logger LOG = Logger.getLogger(RelatorioFunction.class);
 
     private final RelatorioService relatorioService;
-    private final StorageTableRepository repository;
+    private final StorageTableAsyncRepository repository;
     private final EmailService emailService;
-    //private final TelemetryClient telemetryClient = new TelemetryClient();
+    private final TelemetriaService telemetria;
 
-    public RelatorioFunction(RelatorioService relatorioService, StorageTableRepository repository, EmailService emailService) {
+    public RelatorioFunction(RelatorioService relatorioService, StorageTableAsyncRepository repository, EmailService emailService, TelemetriaService telemetria) {
         this.relatorioService = relatorioService;
         this.repository = repository;
         this.emailService = emailService;
+        this.telemetria = telemetria;
     }
 
     /**
@@ -53,21 +54,21 @@ public class RelatorioFunction {
             ) String timerInfo,
             final ExecutionContext context) {
 
-        TelemetryClient telemetryClient = new TelemetryClient();
-
         LOG.info("=== Iniciando geração de relatório semanal ===");
         LOG.infof("Timer Info: %s", timerInfo);
 
         try {
-            // 1. Gera relatório com métricas
-            RelatorioSemanal relatorio = relatorioService.gerarRelatorioSemanal();
-            LOG.infof("Relatório gerado - ID: %s", relatorio.getId());
-            LOG.infof("Total avaliações: %d, Média: %.2f",
-                    relatorio.getTotalAvaliacoes(),
-                    relatorio.getMediaNotas());
-
-            // 2. Persiste relatório no Azure Storage Tables
-            repository.salvarRelatorio(relatorio);
+            // 1. Gera relatório com métricas e 2. persiste no Azure Storage Tables (leitura e escrita assíncronas)
+            RelatorioSemanal relatorio = relatorioService.gerarRelatorioSemanalAsync()
+                    .thenCompose(gerado -> {
+                        LOG.infof("Relatório gerado - ID: %s", gerado.getId());
+                        LOG.infof("Total avaliações: %d, Média: %.2f",
+                                gerado.getTotalAvaliacoes(),
+                                gerado.getMediaNotas());
+                        return repository.salvarRelatorio(gerado).thenApply(v -> gerado);
+                    })
+                    .toCompletableFuture()
+                    .join();
             LOG.info("Relatório persistido com sucesso");
 
             // 3. Envia e-mail resumo para administradores
@@ -75,15 +76,15 @@ public class RelatorioFunction {
             LOG.info("E-mail de relatório enviado");
 
             // 4. Registra telemetria
-            telemetryClient.trackEvent("RelatorioSemanalGerado");
-            telemetryClient.trackMetric("TotalAvaliacoesSemanal", relatorio.getTotalAvaliacoes());
-            telemetryClient.trackMetric("MediaNotasSemanal", relatorio.getMediaNotas());
+            telemetria.evento("RelatorioSemanalGerado");
+            telemetria.metrica("TotalAvaliacoesSemanal", relatorio.getTotalAvaliacoes());
+            telemetria.metrica("MediaNotasSemanal", relatorio.getMediaNotas());
 
             LOG.info("=== Relatório semanal processado com sucesso ===");
 
         } catch (Exception e) {
             LOG.errorf("Erro ao gerar relatório semanal: %s", e.getMessage());
-            telemetryClient.trackException(e);
+            telemetria.excecao(e);
             throw new RuntimeException("Falha na geração do relatório semanal", e);
         }
     }
@@ -0,0 +1,110 @@
+package br.com.fiap.techchallenge.model;
+
+import java.util.Arrays;
+
+/**
+ * Agregado de notas de um intervalo de tempo (hora, dia ou semana)
+ * Mantém contagem, soma, mínimo, máximo, histograma de notas e contagem por urgência.
+ * <p>
+ * Agregados são combináveis: o agregado de um dia é a combinação dos agregados de suas horas,
+ * o que permite manter rollups atualizados na ingestão sem reprocessar avaliações.
+ */
+public class AgregadoNotas {
+
+    public static final int NOTA_MAXIMA = 10;
+    private static final Avaliacao.NivelUrgencia[] NIVEIS = Avaliacao.NivelUrgencia.values();
+
+    private long total;
+    private long soma;
+    private int minimo = Integer.MAX_VALUE;
+    private int maximo = Integer.MIN_VALUE;
+    private final long[] histograma = new long[NOTA_MAXIMA + 1];
+    private final long[] urgencias = new long[NIVEIS.length];
+
+    /**
+     * Registra a nota e a urgência de uma avaliação
+     */
+    public void registrar(Avaliacao avaliacao) {
+        int nota = avaliacao.getNota() != null ? avaliacao.getNota() : 0;
+        Avaliacao.NivelUrgencia urgencia = avaliacao.getUrgencia() != null ? avaliacao.getUrgencia() : Avaliacao.NivelUrgencia.NORMAL;
+        total++;
+        soma += nota;
+        minimo = Math.min(minimo, nota);
+        maximo = Math.max(maximo, nota);
+        histograma[Math.max(0, Math.min(NOTA_MAXIMA, nota))]++;
+        urgencias[urgencia.ordinal()]++;
+    }
+
+    /**
+     * Soma outro agregado a este
+     */
+    public void combinar(AgregadoNotas outro) {
+        if (outro.isVazio()) {
+            return;
+        }
+        total += outro.total;
+        soma += outro.soma;
+        minimo = Math.min(minimo, outro.minimo);
+        maximo = Math.max(maximo, outro.maximo);
+        for (int i = 0; i < histograma.length; i++) {
+            histograma[i] += outro.histograma[i];
+        }
+        for (int i = 0; i < urgencias.length; i++) {
+            urgencias[i] += outro.urgencias[i];
+        }
+    }
+
+    public boolean isVazio() {
+        return total == 0;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getSoma() {
+        return soma;
+    }
+
+    /**
+     * Menor nota registrada (0 se vazio)
+     */
+    public int getMinimo() {
+        return isVazio() ? 0 : minimo;
+    }
+
+    /**
+     * Maior nota registrada (0 se vazio)
+     */
+    public int getMaximo() {
+        return isVazio() ? 0 : maximo;
+    }
+
+    public long getHistograma(int nota) {
+        return histograma[nota];
+    }
+
+    public long getUrgencia(Avaliacao.NivelUrgencia nivel) {
+        return urgencias[nivel.ordinal()];
+    }
+
+    /**
+     * Restaura um agregado a partir dos valores persistidos
+     */
+    public static AgregadoNotas restaurar(long total, long soma, int minimo, int maximo, long[] histograma, long[] urgencias) {
+        AgregadoNotas agregado = new AgregadoNotas();
+        agregado.total = total;
+        agregado.soma = soma;
+        agregado.minimo = total > 0 ? minimo : Integer.MAX_VALUE;
+        agregado.maximo = total > 0 ? maximo : Integer.MIN_VALUE;
+        System.arraycopy(histograma, 0, agregado.histograma, 0, agregado.histograma.length);
+        System.arraycopy(urgencias, 0, agregado.urgencias, 0, agregado.urgencias.length);
+        return agregado;
+    }
+
+    @Override
+    public String toString() {
+        return "AgregadoNotas(total=" + total + ", soma=" + soma + ", minimo=" + getMinimo() + ", maximo=" + getMaximo()
+                + ", histograma=" + Arrays.toString(histograma) + ", urgencias=" + Arrays.toString(urgencias) + ")";
+    }
+}
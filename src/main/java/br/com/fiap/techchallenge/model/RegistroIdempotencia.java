@@ -0,0 +1,56 @@
+package br.com.fiap.techchallenge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de uma chave de idempotência do POST /api/avaliacao
+ * Guarda o hash do payload original e a resposta 201 devolvida a ele, para que repetições da mesma
+ * requisição recebam a mesma resposta sem nova gravação nem nova notificação
+ * A reserva só é marcada como concluída depois dos efeitos da avaliação (notificação e rollup).
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroIdempotencia {
+
+    /**
+     * Hash (SHA-256) da chave informada pelo cliente
+     */
+    private String chave;
+
+    /**
+     * Hash (SHA-256) do payload da requisição original
+     */
+    private String hashCorpo;
+
+    /**
+     * Corpo da resposta 201 original (registrado quando a requisição conclui)
+     */
+    private String resposta;
+
+    private Situacao situacao;
+
+    /**
+     * Avaliação gravada pela requisição original, quando seus efeitos ainda precisam ser executados
+     * (situação EFEITOS_PENDENTES)
+     */
+    private Avaliacao avaliacao;
+
+    public enum Situacao {
+        /** Chave reservada por esta requisição: a avaliação deve ser gravada */
+        RESERVADA,
+        /** A requisição original já gravou a avaliação e executou os efeitos: devolver a resposta original */
+        CONCLUIDA,
+        /**
+         * A requisição original gravou a avaliação mas não executou os efeitos (ex.: respondeu 504 e a gravação
+         * concluiu depois): esta requisição assumiu a chave e deve enfileirar a notificação e atualizar o rollup
+         */
+        EFEITOS_PENDENTES,
+        /** A requisição original ainda está gravando a avaliação ou executando os efeitos */
+        EM_ANDAMENTO
+    }
+}
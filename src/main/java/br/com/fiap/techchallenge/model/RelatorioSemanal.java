@@ -1,5 +1,6 @@
 package br.com.fiap.techchallenge.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -49,6 +50,12 @@ public class RelatorioSemanal {
     @JsonProperty("notaMaisBaixa")
     private Integer notaMaisBaixa;
 
+    @JsonProperty("percentisNotas")
+    private Map<String, Integer> percentisNotas;
+
+    @JsonProperty("nps")
+    private Double nps;
+
     @JsonProperty("palavrasRecorrentes")
     private Map<String, Long> palavrasRecorrentes;
 
@@ -58,14 +65,17 @@ public class RelatorioSemanal {
     @JsonProperty("avaliacoesPorDia")
     private Map<String, Long> avaliacoesPorDia;
 
+    @JsonIgnore
     public Map<String, Long> getAvaliacoesPorUrgencia() {
         return this.contagemPorUrgencia; // Mapeia para o campo existente
     }
 
+    @JsonIgnore
     public List<String> getPalavrasMaisRecorrentes() {
         return new ArrayList<>(this.palavrasRecorrentes.keySet()); // Converte o Map para List
     }
 
+    @JsonIgnore
     public List<String> getFrasesMaisRecorrentes() {
         return new ArrayList<>(this.frasesRecorrentes.keySet()); // Converte o Map para List
     }
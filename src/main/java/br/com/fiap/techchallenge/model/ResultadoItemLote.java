@@ -0,0 +1,35 @@
+package br.com.fiap.techchallenge.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado do processamento de um item no envio em lote de avaliações
+ * Indica, para cada posição do array recebido, se a avaliação foi criada ou o motivo da rejeição
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoItemLote {
+
+    @JsonProperty("indice")
+    private int indice;
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("status")
+    private int status;
+
+    @JsonProperty("urgencia")
+    private Avaliacao.NivelUrgencia urgencia;
+
+    @JsonProperty("erro")
+    private String erro;
+}
@@ -0,0 +1,276 @@
+package br.com.fiap.techchallenge.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Resumo aproximado de frequências com memória fixa (algoritmo Space-Saving)
+ * Mantém no máximo {@code capacidade} itens monitorados; ao chegar um item novo com o resumo cheio,
+ * ele substitui o item de menor contagem e herda essa contagem como erro.
+ * <p>
+ * Garantias (N = ocorrências registradas, k = capacidade):
+ * - a contagem de cada item é um limite superior da frequência real, e contagem - erro um limite inferior;
+ * - em um único fluxo, erro ≤ N/k; todo item com frequência real > N/k está no resumo;
+ * - itens ausentes têm frequência real ≤ {@link #getLimiteAusentes()}.
+ * <p>
+ * Resumos são combináveis com {@link #combinar(List, int)} (ex.: resumos diários → semana): os limites
+ * continuam válidos e, combinando resumos de fluxo único de uma só vez, o erro dos itens segue ≤ N/k.
+ * A forma serializada ({@link #serializar()}) tem versão de formato e é comprimida com GZIP.
+ * Não é thread-safe.
+ */
+public final class SketchFrequencias {
+
+    public static final int VERSAO_FORMATO = 1;
+
+    // Maior contagem primeiro; empates em ordem alfabética
+    private static final Comparator<Item> ORDEM_RESULTADO = Comparator
+            .comparingLong(Item::contagem).reversed()
+            .thenComparing(Item::texto);
+
+    /**
+     * Item monitorado: contagem estimada (limite superior) e erro máximo da estimativa
+     */
+    public record Item(String texto, long contagem, long erro) {
+    }
+
+    private final int capacidade;
+    private final Map<String, Integer> indice;
+    private final String[] itens;
+    private final long[] contagens;
+    private final long[] erros;
+    // Min-heap de posições por contagem, com a posição de cada item no heap
+    private final int[] heap;
+    private final int[] posicaoHeap;
+    private int tamanho;
+    private long total;
+    private long limiteAusentes;
+
+    public SketchFrequencias(int capacidade) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade do sketch deve ser positiva: " + capacidade);
+        }
+        this.capacidade = capacidade;
+        this.indice = new HashMap<>(Math.min(capacidade, 1 << 16) * 2);
+        this.itens = new String[capacidade];
+        this.contagens = new long[capacidade];
+        this.erros = new long[capacidade];
+        this.heap = new int[capacidade];
+        this.posicaoHeap = new int[capacidade];
+    }
+
+    /**
+     * Registra uma ocorrência do item
+     */
+    public void registrar(String item) {
+        total++;
+        Integer posicao = indice.get(item);
+        if (posicao != null) {
+            contagens[posicao]++;
+            descer(posicaoHeap[posicao]);
+            return;
+        }
+
+        if (tamanho < capacidade) {
+            inserir(item, limiteAusentes + 1, limiteAusentes);
+            return;
+        }
+
+        // Resumo cheio: o novo item ocupa o lugar do menos frequente
+        int menor = heap[0];
+        long base = Math.max(limiteAusentes, contagens[menor]);
+        limiteAusentes = base;
+        indice.remove(itens[menor]);
+        indice.put(item, menor);
+        itens[menor] = item;
+        contagens[menor] = base + 1;
+        erros[menor] = base;
+        descer(0);
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Ocorrências registradas (N)
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Limite superior da frequência real de qualquer item fora do resumo
+     */
+    public long getLimiteAusentes() {
+        return limiteAusentes;
+    }
+
+    /**
+     * Itens monitorados, da maior para a menor contagem (empates em ordem alfabética)
+     */
+    public List<Item> itens() {
+        List<Item> lista = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            lista.add(new Item(itens[i], contagens[i], erros[i]));
+        }
+        lista.sort(ORDEM_RESULTADO);
+        return lista;
+    }
+
+    /**
+     * Os k itens de maior contagem estimada com pelo menos {@code minimoOcorrencias}
+     */
+    public Map<String, Long> maisFrequentes(int k, long minimoOcorrencias) {
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        for (Item item : itens()) {
+            if (resultado.size() == k) {
+                break;
+            }
+            if (item.contagem() >= minimoOcorrencias) {
+                resultado.put(item.texto(), item.contagem());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Combina vários resumos em um novo resumo com a capacidade informada
+     * A estimativa de cada item é a soma das estimativas em cada resumo (o limite de ausentes quando
+     * o item não está nele); mantêm-se os itens de maior contagem.
+     */
+    public static SketchFrequencias combinar(List<SketchFrequencias> sketches, int capacidade) {
+        Map<String, long[]> candidatos = new HashMap<>();
+        long limiteSoma = sketches.stream().mapToLong(SketchFrequencias::getLimiteAusentes).sum();
+        long total = sketches.stream().mapToLong(SketchFrequencias::getTotal).sum();
+
+        for (SketchFrequencias sketch : sketches) {
+            for (int i = 0; i < sketch.tamanho; i++) {
+                // [contagem, erro] partindo do pior caso "ausente em todos os resumos"
+                long[] valores = candidatos.computeIfAbsent(sketch.itens[i], t -> new long[]{limiteSoma, limiteSoma});
+                valores[0] += sketch.contagens[i] - sketch.limiteAusentes;
+                valores[1] += sketch.erros[i] - sketch.limiteAusentes;
+            }
+        }
+
+        List<Item> ordenados = new ArrayList<>(candidatos.size());
+        candidatos.forEach((texto, valores) -> ordenados.add(new Item(texto, valores[0], valores[1])));
+        ordenados.sort(ORDEM_RESULTADO);
+
+        SketchFrequencias combinado = new SketchFrequencias(capacidade);
+        combinado.total = total;
+        combinado.limiteAusentes = limiteSoma;
+        for (int i = 0; i < ordenados.size(); i++) {
+            Item item = ordenados.get(i);
+            if (i < capacidade) {
+                combinado.inserir(item.texto(), item.contagem(), item.erro());
+            } else {
+                // Itens descartados passam a ser cobertos pelo limite de ausentes
+                combinado.limiteAusentes = Math.max(combinado.limiteAusentes, item.contagem());
+                break;
+            }
+        }
+        return combinado;
+    }
+
+    /**
+     * Serializa o resumo (versão do formato + itens, comprimidos com GZIP)
+     */
+    public byte[] serializar() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(VERSAO_FORMATO);
+            out.writeInt(capacidade);
+            out.writeLong(total);
+            out.writeLong(limiteAusentes);
+            out.writeInt(tamanho);
+            for (int i = 0; i < tamanho; i++) {
+                out.writeUTF(itens[i]);
+                out.writeLong(contagens[i]);
+                out.writeLong(erros[i]);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao serializar sketch de frequências", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SketchFrequencias desserializar(byte[] dados) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(dados)))) {
+            int versao = in.readByte();
+            if (versao != VERSAO_FORMATO) {
+                throw new IllegalArgumentException("Versão de sketch não suportada: " + versao);
+            }
+            SketchFrequencias sketch = new SketchFrequencias(in.readInt());
+            sketch.total = in.readLong();
+            sketch.limiteAusentes = in.readLong();
+            int tamanho = in.readInt();
+            for (int i = 0; i < tamanho; i++) {
+                sketch.inserir(in.readUTF(), in.readLong(), in.readLong());
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao desserializar sketch de frequências", e);
+        }
+    }
+
+    private void inserir(String item, long contagem, long erro) {
+        int posicao = tamanho++;
+        indice.put(item, posicao);
+        itens[posicao] = item;
+        contagens[posicao] = contagem;
+        erros[posicao] = erro;
+        heap[posicao] = posicao;
+        posicaoHeap[posicao] = posicao;
+        subir(posicao);
+    }
+
+    private void subir(int i) {
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (contagens[heap[pai]] <= contagens[heap[i]]) {
+                return;
+            }
+            trocar(i, pai);
+            i = pai;
+        }
+    }
+
+    private void descer(int i) {
+        while (true) {
+            int esquerdo = 2 * i + 1;
+            if (esquerdo >= tamanho) {
+                return;
+            }
+            int menor = esquerdo + 1 < tamanho && contagens[heap[esquerdo + 1]] < contagens[heap[esquerdo]] ? esquerdo + 1 : esquerdo;
+            if (contagens[heap[i]] <= contagens[heap[menor]]) {
+                return;
+            }
+            trocar(i, menor);
+            i = menor;
+        }
+    }
+
+    private void trocar(int i, int j) {
+        int a = heap[i];
+        int b = heap[j];
+        heap[i] = b;
+        heap[j] = a;
+        posicaoHeap[b] = i;
+        posicaoHeap[a] = j;
+    }
+}
@@ -0,0 +1,435 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.model.AgregadoNotas;
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.SketchFrequencias;
+import com.azure.data.tables.TableClient;
+import com.azure.data.tables.models.ListEntitiesOptions;
+import com.azure.data.tables.models.TableEntity;
+import com.azure.data.tables.models.TableEntityUpdateMode;
+import com.azure.data.tables.models.TableServiceException;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Repositório dos agregados (rollups) de avaliações no Azure Storage Tables
+ * <p>
+ * Layout da tabela "agregados":
+ * - Hora:   PartitionKey "H_yyyy-MM-dd", RowKey "HH_s{shard}" (contadores fragmentados por shard)
+ * - Dia:    PartitionKey "D", RowKey "yyyy-MM-dd"
+ * - Semana: PartitionKey "S", RowKey "yyyy-MM-dd" da segunda-feira, com a contagem de cada dia
+ * - Texto:  PartitionKey "T", RowKey "yyyy-MM-dd", sketches serializados de palavras e frases do dia
+ * <p>
+ * Dia, semana e texto são materializados na primeira leitura e gravados condicionalmente ao ETag lido;
+ * uma avaliação atrasada os marca como inválidos ("invalida"), o que descarta uma materialização em curso.
+ * <p>
+ * As linhas horárias são atualizadas na ingestão com substituição condicional por ETag;
+ * o shard aleatório reduz a disputa entre escritas simultâneas na mesma hora.
+ * As chamadas passam pela {@link ResilienciaStorage}.
+ */
+@ApplicationScoped
+public class AgregadoRepository {
+
+    private static final Logger LOG = Logger.getLogger(AgregadoRepository.class);
+    static final String TABLE_AGREGADOS = "agregados";
+    private static final String PREFIXO_PARTICAO_HORA = "H_";
+    private static final String PARTITION_KEY_DIA = "D";
+    private static final String PARTITION_KEY_SEMANA = "S";
+    private static final String PARTITION_KEY_TEXTO = "T";
+    // Limite de uma propriedade binária no Table Storage
+    private static final int MAX_BYTES_PROPRIEDADE = 64 * 1024;
+    private static final int MAX_TENTATIVAS_CONCORRENCIA = 10;
+    private static final String PROPRIEDADE_OPERACOES = "ops";
+    private static final String PROPRIEDADE_INVALIDA = "invalida";
+    private static final int MAX_OPERACOES_RECENTES = 8;
+    private static final Avaliacao.NivelUrgencia[] NIVEIS = Avaliacao.NivelUrgencia.values();
+
+    @ConfigProperty(name = "agregados.shards", defaultValue = "4")
+    int shards;
+
+    private final StorageTableRepository storageTableRepository;
+    private final ResilienciaStorage resiliencia;
+
+    public AgregadoRepository(StorageTableRepository storageTableRepository, ResilienciaStorage resiliencia) {
+        this.storageTableRepository = storageTableRepository;
+        this.resiliencia = resiliencia;
+    }
+
+    /**
+     * Agregado de uma semana (segunda a domingo) com a contagem de cada dia
+     */
+    public record AgregadoSemana(AgregadoNotas notas, long[] contagemPorDia) {
+    }
+
+    /**
+     * Sketches de palavras e frases das descrições de um dia
+     */
+    public record SketchesTexto(SketchFrequencias palavras, SketchFrequencias frases) {
+    }
+
+    /**
+     * Soma o agregado informado à linha de uma hora (em um shard aleatório)
+     * Usa leitura + inserção ou substituição condicional por ETag, repetindo com nova leitura em caso de conflito.
+     * <p>
+     * As escritas não passam pelas retentativas da {@link ResilienciaStorage}: repetir uma escrita aplicada cuja
+     * resposta se perdeu somaria o delta duas vezes. Cada escrita grava seu identificador na linha
+     * (últimos {@value #MAX_OPERACOES_RECENTES}); após uma falha de resultado incerto, a releitura mostra se ela
+     * foi aplicada.
+     */
+    public void incrementarHora(LocalDateTime hora, AgregadoNotas delta) {
+        TableClient client = obterTabela();
+        String partitionKey = PREFIXO_PARTICAO_HORA + hora.toLocalDate();
+        String rowKey = String.format("%02d_s%d", hora.getHour(), ThreadLocalRandom.current().nextInt(Math.max(1, shards)));
+        String operacao = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        RuntimeException ultimoErro = null;
+
+        for (int tentativa = 1; tentativa <= MAX_TENTATIVAS_CONCORRENCIA; tentativa++) {
+            TableEntity atual = buscar(partitionKey, rowKey).orElse(null);
+            if (atual != null && operacoesRecentes(atual).contains(operacao)) {
+                return; // A escrita anterior, de resultado incerto, foi aplicada
+            }
+
+            AgregadoNotas combinado = atual != null ? ler(atual) : new AgregadoNotas();
+            combinado.combinar(delta);
+            TableEntity escrita = registrarOperacao(escrever(atual != null ? atual : new TableEntity(partitionKey, rowKey), combinado), operacao);
+            try {
+                if (atual == null) {
+                    resiliencia.executarAcaoNaoIdempotente(TABLE_AGREGADOS, () -> client.createEntity(escrita));
+                } else {
+                    resiliencia.executarNaoIdempotente(TABLE_AGREGADOS,
+                            () -> client.updateEntityWithResponse(escrita, TableEntityUpdateMode.REPLACE, true, null, null));
+                }
+                return;
+            } catch (TableServiceException e) {
+                int status = status(e);
+                if (status != 404 && status != 409 && status != 412 && !ResilienciaStorage.resultadoIncerto(e)) {
+                    throw e;
+                }
+                // Conflito (outra escrita venceu) ou resultado incerto: relê e decide
+                LOG.debugf("Escrita em %s/%s não confirmada (status %d, tentativa %d)", partitionKey, rowKey, status, tentativa);
+                ultimoErro = e;
+            } catch (RuntimeException e) {
+                if (!ResilienciaStorage.resultadoIncerto(e)) {
+                    throw e;
+                }
+                LOG.debugf("Escrita em %s/%s com resultado incerto (tentativa %d): %s", partitionKey, rowKey, tentativa, e.getMessage());
+                ultimoErro = e;
+            }
+        }
+        throw new IllegalStateException("Não foi possível atualizar o agregado " + partitionKey + "/" + rowKey
+                + " após " + MAX_TENTATIVAS_CONCORRENCIA + " tentativas", ultimoErro);
+    }
+
+    /**
+     * Busca os agregados horários de um dia, já combinando os shards
+     *
+     * @return mapa de hora (0-23) para agregado
+     */
+    public Map<Integer, AgregadoNotas> buscarHoras(LocalDate dia) {
+        ListEntitiesOptions options = new ListEntitiesOptions()
+                .setFilter(String.format("PartitionKey eq '%s%s'", PREFIXO_PARTICAO_HORA, dia));
+
+        // Poucas linhas (24 horas x shards): a leitura completa é repetida em caso de falha
+        return resiliencia.executar(TABLE_AGREGADOS, () -> {
+            Map<Integer, AgregadoNotas> porHora = new TreeMap<>();
+            for (TableEntity entity : obterTabela().listEntities(options, null, null)) {
+                int hora = Integer.parseInt(entity.getRowKey().substring(0, 2));
+                porHora.computeIfAbsent(hora, h -> new AgregadoNotas()).combinar(ler(entity));
+            }
+            return porHora;
+        });
+    }
+
+    /**
+     * Leitura de uma linha materializada (dia, semana ou texto): o valor, se a linha existir e for válida,
+     * e a versão lida, à qual a gravação da materialização é condicionada
+     */
+    public static final class Leitura<T> {
+
+        private final T valor;
+        private final TableEntity linha;
+
+        private Leitura(T valor, TableEntity linha) {
+            this.valor = valor;
+            this.linha = linha;
+        }
+
+        /**
+         * Leitura de uma linha inexistente: sem valor, e a materialização é gravada por inserção
+         */
+        public static <T> Leitura<T> ausente() {
+            return new Leitura<>(null, null);
+        }
+
+        public Optional<T> valor() {
+            return Optional.ofNullable(valor);
+        }
+    }
+
+    /**
+     * Linhas horárias de um dia lidas para a reconstrução, com os ETags da leitura
+     */
+    public static final class HorasLidas {
+
+        private final LocalDate dia;
+        private final List<TableEntity> linhas;
+
+        private HorasLidas(LocalDate dia, List<TableEntity> linhas) {
+            this.dia = dia;
+            this.linhas = linhas;
+        }
+    }
+
+    public Leitura<AgregadoNotas> buscarDia(LocalDate dia) {
+        return buscarMaterializado(PARTITION_KEY_DIA, dia.toString(), this::ler);
+    }
+
+    /**
+     * Grava o rollup de um dia, se a linha não mudou desde a leitura (ver {@link #salvarSeInalterada})
+     */
+    public boolean salvarDia(Leitura<AgregadoNotas> lida, LocalDate dia, AgregadoNotas agregado) {
+        return salvarSeInalterada(escrever(linhaMaterializada(lida, PARTITION_KEY_DIA, dia.toString()), agregado));
+    }
+
+    public Leitura<AgregadoSemana> buscarSemana(LocalDate segunda) {
+        return buscarMaterializado(PARTITION_KEY_SEMANA, segunda.toString(), entity -> {
+            long[] porDia = new long[7];
+            for (int i = 0; i < porDia.length; i++) {
+                porDia[i] = numero(entity.getProperty("d" + i));
+            }
+            return new AgregadoSemana(ler(entity), porDia);
+        });
+    }
+
+    /**
+     * Grava o rollup de uma semana, se a linha não mudou desde a leitura (ver {@link #salvarSeInalterada})
+     */
+    public boolean salvarSemana(Leitura<AgregadoSemana> lida, LocalDate segunda, AgregadoSemana semana) {
+        TableEntity entity = escrever(linhaMaterializada(lida, PARTITION_KEY_SEMANA, segunda.toString()), semana.notas());
+        for (int i = 0; i < semana.contagemPorDia().length; i++) {
+            entity.addProperty("d" + i, semana.contagemPorDia()[i]);
+        }
+        return salvarSeInalterada(entity);
+    }
+
+    /**
+     * Busca os sketches de texto de um dia (sem valor se não existirem, estiverem invalidados ou tiverem
+     * outra versão de formato)
+     */
+    public Leitura<SketchesTexto> buscarTextoDia(LocalDate dia) {
+        return buscarMaterializado(PARTITION_KEY_TEXTO, dia.toString(),
+                entity -> numero(entity.getProperty("versao")) != SketchFrequencias.VERSAO_FORMATO ? null : new SketchesTexto(
+                        SketchFrequencias.desserializar((byte[]) entity.getProperty("palavras")),
+                        SketchFrequencias.desserializar((byte[]) entity.getProperty("frases"))));
+    }
+
+    /**
+     * Grava os sketches de texto de um dia, se a linha não mudou desde a leitura (ver {@link #salvarSeInalterada})
+     *
+     * @return false se algum sketch serializado exceder o limite de uma propriedade ou a linha tiver mudado (não é gravado)
+     */
+    public boolean salvarTextoDia(Leitura<SketchesTexto> lida, LocalDate dia, SketchesTexto sketches) {
+        byte[] palavras = sketches.palavras().serializar();
+        byte[] frases = sketches.frases().serializar();
+        if (palavras.length > MAX_BYTES_PROPRIEDADE || frases.length > MAX_BYTES_PROPRIEDADE) {
+            LOG.warnf("Sketches de texto de %s excedem %d bytes (%d/%d); reduza analise-texto.capacidade-sketch",
+                    dia, MAX_BYTES_PROPRIEDADE, palavras.length, frases.length);
+            return false;
+        }
+        return salvarSeInalterada(linhaMaterializada(lida, PARTITION_KEY_TEXTO, dia.toString())
+                .addProperty("versao", SketchFrequencias.VERSAO_FORMATO)
+                .addProperty("palavras", palavras)
+                .addProperty("frases", frases));
+    }
+
+    /**
+     * Marca como inválidos os rollups diário e semanal e os sketches de texto que cobrem o dia, para que sejam
+     * recalculados na próxima leitura. Necessário quando uma avaliação chega para um dia já fechado.
+     * <p>
+     * A marca (e não a remoção) muda o ETag mesmo de uma linha ainda inexistente: uma materialização em curso,
+     * calculada antes da avaliação atrasada, falha na gravação condicional em vez de gravar o valor antigo.
+     */
+    public void invalidarDia(LocalDate dia, LocalDate segunda) {
+        invalidar(PARTITION_KEY_DIA, dia.toString());
+        invalidar(PARTITION_KEY_SEMANA, segunda.toString());
+        invalidar(PARTITION_KEY_TEXTO, dia.toString());
+    }
+
+    /**
+     * Lê as linhas horárias de um dia (todos os shards) para uma reconstrução
+     */
+    public HorasLidas lerHoras(LocalDate dia) {
+        ListEntitiesOptions options = new ListEntitiesOptions()
+                .setFilter(String.format("PartitionKey eq '%s%s'", PREFIXO_PARTICAO_HORA, dia));
+        return resiliencia.executar(TABLE_AGREGADOS, () -> {
+            List<TableEntity> linhas = new ArrayList<>();
+            obterTabela().listEntities(options, null, null).forEach(linhas::add);
+            return new HorasLidas(dia, linhas);
+        });
+    }
+
+    /**
+     * Substitui as linhas horárias lidas pelos agregados informados (reconstrução a partir das avaliações)
+     * Cada hora passa a ficar no shard 0; os demais shards da hora são zerados. As escritas são condicionais
+     * ao ETag da leitura e gravam valores absolutos: se alguma linha mudou desde a leitura, nada mais é gravado
+     * e a reconstrução deve ser repetida com uma nova leitura.
+     *
+     * @param porHora agregado de cada hora (0-23) do dia
+     * @return false se alguma linha mudou desde a leitura
+     */
+    public boolean substituirHoras(HorasLidas lidas, Map<Integer, AgregadoNotas> porHora) {
+        String partitionKey = PREFIXO_PARTICAO_HORA + lidas.dia;
+        Map<String, TableEntity> existentes = new TreeMap<>();
+        lidas.linhas.forEach(linha -> existentes.put(linha.getRowKey(), linha));
+
+        for (int hora = 0; hora < 24; hora++) {
+            AgregadoNotas agregado = porHora.getOrDefault(hora, new AgregadoNotas());
+            String principal = String.format("%02d_s0", hora);
+            TableEntity linhaPrincipal = existentes.get(principal);
+            if (linhaPrincipal != null || !agregado.isVazio()) {
+                if (!salvarSeInalterada(escrever(linhaPrincipal != null ? linhaPrincipal : new TableEntity(partitionKey, principal), agregado))) {
+                    return false;
+                }
+            }
+            String prefixo = String.format("%02d_", hora);
+            for (TableEntity linha : existentes.values()) {
+                if (linha.getRowKey().startsWith(prefixo) && !linha.getRowKey().equals(principal)
+                        && !salvarSeInalterada(escrever(linha, new AgregadoNotas()))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private <T> Leitura<T> buscarMaterializado(String partitionKey, String rowKey, Function<TableEntity, T> leitor) {
+        return buscar(partitionKey, rowKey)
+                .map(entity -> new Leitura<>(Boolean.TRUE.equals(entity.getProperty(PROPRIEDADE_INVALIDA)) ? null : leitor.apply(entity), entity))
+                .orElseGet(Leitura::ausente);
+    }
+
+    /**
+     * Entidade a gravar na materialização: a linha lida (com seu ETag) ou uma nova, se não existia
+     */
+    private static TableEntity linhaMaterializada(Leitura<?> lida, String partitionKey, String rowKey) {
+        return lida.linha != null ? lida.linha.addProperty(PROPRIEDADE_INVALIDA, false) : new TableEntity(partitionKey, rowKey);
+    }
+
+    /**
+     * Grava uma linha só se ela não mudou desde a leitura: substituição condicional ao ETag da entidade lida,
+     * ou inserção (que falha se a linha passou a existir) para uma entidade nova
+     *
+     * @return false se a linha mudou desde a leitura ou o resultado da escrita é incerto (nada a fazer: a próxima
+     * leitura recalcula ou encontra o valor gravado)
+     */
+    private boolean salvarSeInalterada(TableEntity entity) {
+        TableClient client = obterTabela();
+        try {
+            if (entity.getETag() == null) {
+                resiliencia.executarAcaoNaoIdempotente(TABLE_AGREGADOS, () -> client.createEntity(entity));
+            } else {
+                resiliencia.executarNaoIdempotente(TABLE_AGREGADOS,
+                        () -> client.updateEntityWithResponse(entity, TableEntityUpdateMode.REPLACE, true, null, null));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            int status = e instanceof TableServiceException tse ? status(tse) : 0;
+            if (status != 404 && status != 409 && status != 412 && !ResilienciaStorage.resultadoIncerto(e)) {
+                throw e;
+            }
+            LOG.debugf("Linha %s/%s não gravada: mudou desde a leitura (status %d)", entity.getPartitionKey(), entity.getRowKey(), status);
+            return false;
+        }
+    }
+
+    private void invalidar(String partitionKey, String rowKey) {
+        TableEntity marca = new TableEntity(partitionKey, rowKey).addProperty(PROPRIEDADE_INVALIDA, true);
+        // Merge: cria a linha se ausente e mantém os valores (ignorados enquanto a marca estiver presente)
+        resiliencia.executarAcao(TABLE_AGREGADOS, () -> obterTabela().upsertEntity(marca));
+    }
+
+    private Optional<TableEntity> buscar(String partitionKey, String rowKey) {
+        try {
+            return Optional.of(resiliencia.executar(TABLE_AGREGADOS, () -> obterTabela().getEntity(partitionKey, rowKey)));
+        } catch (TableServiceException e) {
+            if (status(e) == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private TableClient obterTabela() {
+        return storageTableRepository.obterTabela(TABLE_AGREGADOS);
+    }
+
+    /**
+     * Grava os valores do agregado nas propriedades da entidade (preservando o ETag de entidades lidas)
+     */
+    private TableEntity escrever(TableEntity entity, AgregadoNotas agregado) {
+        entity.addProperty("total", agregado.getTotal())
+                .addProperty("soma", agregado.getSoma())
+                .addProperty("minimo", agregado.getMinimo())
+                .addProperty("maximo", agregado.getMaximo());
+        for (int nota = 0; nota <= AgregadoNotas.NOTA_MAXIMA; nota++) {
+            entity.addProperty("n" + nota, agregado.getHistograma(nota));
+        }
+        for (Avaliacao.NivelUrgencia nivel : NIVEIS) {
+            entity.addProperty("u_" + nivel, agregado.getUrgencia(nivel));
+        }
+        return entity;
+    }
+
+    private AgregadoNotas ler(TableEntity entity) {
+        long[] histograma = new long[AgregadoNotas.NOTA_MAXIMA + 1];
+        for (int nota = 0; nota < histograma.length; nota++) {
+            histograma[nota] = numero(entity.getProperty("n" + nota));
+        }
+        long[] urgencias = new long[NIVEIS.length];
+        for (Avaliacao.NivelUrgencia nivel : NIVEIS) {
+            urgencias[nivel.ordinal()] = numero(entity.getProperty("u_" + nivel));
+        }
+        return AgregadoNotas.restaurar(
+                numero(entity.getProperty("total")),
+                numero(entity.getProperty("soma")),
+                (int) numero(entity.getProperty("minimo")),
+                (int) numero(entity.getProperty("maximo")),
+                histograma,
+                urgencias);
+    }
+
+    /**
+     * Identificadores das últimas escritas aplicadas à linha
+     */
+    private static List<String> operacoesRecentes(TableEntity entity) {
+        Object operacoes = entity.getProperty(PROPRIEDADE_OPERACOES);
+        return operacoes == null || operacoes.toString().isEmpty() ? List.of() : Arrays.asList(operacoes.toString().split(","));
+    }
+
+    private static TableEntity registrarOperacao(TableEntity entity, String operacao) {
+        List<String> operacoes = new ArrayList<>(operacoesRecentes(entity));
+        operacoes.add(operacao);
+        List<String> recentes = operacoes.subList(Math.max(0, operacoes.size() - MAX_OPERACOES_RECENTES), operacoes.size());
+        return entity.addProperty(PROPRIEDADE_OPERACOES, String.join(",", recentes));
+    }
+
+    private static long numero(Object valor) {
+        return valor instanceof Number numero ? numero.longValue() : 0L;
+    }
+
+    private static int status(TableServiceException e) {
+        return e.getResponse() != null ? e.getResponse().getStatusCode() : 0;
+    }
+}
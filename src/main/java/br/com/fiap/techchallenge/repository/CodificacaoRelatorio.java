@@ -0,0 +1,207 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import com.azure.data.tables.models.TableEntity;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Formato de armazenamento dos mapas de um {@link RelatorioSemanal} (avaliações por dia, palavras e frases
+ * recorrentes, percentis e contagem por urgência)
+ * <p>
+ * Versão 2 (propriedade {@value #PROPRIEDADE_VERSAO}): os mapas são serializados juntos pelo Jackson, em JSON
+ * com chaves curtas, e gravados como binário na propriedade {@value #PROPRIEDADE_DADOS}. O primeiro byte indica a
+ * codificação: JSON puro ou, a partir de {@value #LIMIAR_COMPRESSAO} bytes, JSON comprimido com GZIP.
+ * Se o resultado passar do limite de 64KB por propriedade do Table Storage, continua em dados_1, dados_2...
+ * <p>
+ * Linhas sem versão são do formato legado (strings JSON montadas à mão e propriedades percentil_* / contagem_*)
+ * e continuam legíveis por {@link #lerLegado(Map)}.
+ */
+final class CodificacaoRelatorio {
+
+    static final int VERSAO = 2;
+    static final String PROPRIEDADE_VERSAO = "versao";
+    static final String PROPRIEDADE_DADOS = "dados";
+    static final int LIMIAR_COMPRESSAO = 1024;
+
+    private static final int MAX_BYTES_PROPRIEDADE = 64 * 1024;
+    // Limite de 1MB por entidade, com folga para as demais propriedades
+    private static final int MAX_BYTES_DADOS = 15 * MAX_BYTES_PROPRIEDADE;
+    private static final byte CODIFICACAO_JSON = 1;
+    private static final byte CODIFICACAO_JSON_GZIP = 2;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectWriter ESCRITOR = OBJECT_MAPPER.writerFor(Mapas.class);
+    private static final ObjectReader LEITOR = OBJECT_MAPPER.readerFor(Mapas.class);
+    private static final ObjectReader LEITOR_CONTAGENS = OBJECT_MAPPER.readerForMapOf(Long.class);
+
+    private CodificacaoRelatorio() {
+    }
+
+    /**
+     * Mapas do relatório, com chaves curtas no JSON
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    record Mapas(@JsonProperty("d") Map<String, Long> avaliacoesPorDia,
+                 @JsonProperty("p") Map<String, Long> palavrasRecorrentes,
+                 @JsonProperty("f") Map<String, Long> frasesRecorrentes,
+                 @JsonProperty("n") Map<String, Integer> percentisNotas,
+                 @JsonProperty("u") Map<String, Long> contagemPorUrgencia) {
+
+        static Mapas de(RelatorioSemanal relatorio) {
+            return new Mapas(relatorio.getAvaliacoesPorDia(), relatorio.getPalavrasRecorrentes(), relatorio.getFrasesRecorrentes(),
+                    relatorio.getPercentisNotas(), relatorio.getContagemPorUrgencia());
+        }
+
+        /**
+         * Preenche o relatório (mapas ausentes ficam vazios, preservando a ordem gravada)
+         */
+        void aplicar(RelatorioSemanal relatorio) {
+            relatorio.setAvaliacoesPorDia(copia(avaliacoesPorDia));
+            relatorio.setPalavrasRecorrentes(copia(palavrasRecorrentes));
+            relatorio.setFrasesRecorrentes(copia(frasesRecorrentes));
+            relatorio.setPercentisNotas(copia(percentisNotas));
+            relatorio.setContagemPorUrgencia(copia(contagemPorUrgencia));
+        }
+
+        private static <V> Map<String, V> copia(Map<String, V> mapa) {
+            return mapa != null ? new LinkedHashMap<>(mapa) : new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Grava os mapas do relatório na entidade (versão, e dados em uma ou mais propriedades binárias)
+     *
+     * @throws IllegalStateException se os dados não couberem em uma entidade
+     */
+    static void escrever(RelatorioSemanal relatorio, TableEntity entity) {
+        byte[] dados = codificar(Mapas.de(relatorio));
+        if (dados.length > MAX_BYTES_DADOS) {
+            throw new IllegalStateException("Relatório excede o tamanho máximo de uma entidade: " + dados.length + " bytes");
+        }
+        entity.addProperty(PROPRIEDADE_VERSAO, VERSAO);
+        for (int parte = 0, inicio = 0; inicio < dados.length; parte++, inicio += MAX_BYTES_PROPRIEDADE) {
+            entity.addProperty(nomeParte(parte), Arrays.copyOfRange(dados, inicio, Math.min(dados.length, inicio + MAX_BYTES_PROPRIEDADE)));
+        }
+    }
+
+    /**
+     * Lê os mapas de uma entidade gravada na versão atual
+     *
+     * @throws IllegalStateException se a versão for desconhecida ou os dados estiverem corrompidos
+     */
+    static Mapas ler(Map<String, Object> propriedades) {
+        Object versao = propriedades.get(PROPRIEDADE_VERSAO);
+        if (!(versao instanceof Number numero) || numero.intValue() != VERSAO) {
+            throw new IllegalStateException("Versão de relatório não suportada: " + versao);
+        }
+        List<byte[]> partes = new ArrayList<>();
+        int tamanho = 0;
+        for (int parte = 0; propriedades.get(nomeParte(parte)) instanceof byte[] bytes; parte++) {
+            partes.add(bytes);
+            tamanho += bytes.length;
+        }
+        if (partes.isEmpty()) {
+            return new Mapas(null, null, null, null, null);
+        }
+        byte[] dados = new byte[tamanho];
+        int posicao = 0;
+        for (byte[] parte : partes) {
+            System.arraycopy(parte, 0, dados, posicao, parte.length);
+            posicao += parte.length;
+        }
+        return decodificar(dados);
+    }
+
+    /**
+     * Lê os mapas de uma linha do formato legado (sem versão)
+     * Entradas ilegíveis (o escape antigo de aspas gerava JSON inválido) resultam em mapas vazios.
+     */
+    static Mapas lerLegado(Map<String, Object> propriedades) {
+        Map<String, Integer> percentis = new LinkedHashMap<>();
+        Map<String, Long> contagemPorUrgencia = new LinkedHashMap<>();
+        propriedades.forEach((nome, valor) -> {
+            if (nome.startsWith("percentil_") && valor instanceof Number numero) {
+                percentis.put(nome.substring("percentil_".length()), numero.intValue());
+            } else if (nome.startsWith("contagem_") && valor instanceof Number numero) {
+                contagemPorUrgencia.put(nome.substring("contagem_".length()), numero.longValue());
+            }
+        });
+        return new Mapas(contagensLegado(propriedades.get("avaliacoesPorDia")),
+                contagensLegado(propriedades.get("palavrasRecorrentes")),
+                contagensLegado(propriedades.get("frasesRecorrentes")),
+                percentis, contagemPorUrgencia);
+    }
+
+    static boolean versionado(Map<String, Object> propriedades) {
+        return propriedades.containsKey(PROPRIEDADE_VERSAO);
+    }
+
+    static byte[] codificar(Mapas mapas) {
+        try {
+            byte[] json = ESCRITOR.writeValueAsBytes(mapas);
+            if (json.length < LIMIAR_COMPRESSAO) {
+                return comCabecalho(CODIFICACAO_JSON, json, json.length);
+            }
+            ByteArrayOutputStream comprimido = new ByteArrayOutputStream(json.length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido)) {
+                gzip.write(json);
+            }
+            return comCabecalho(CODIFICACAO_JSON_GZIP, comprimido.toByteArray(), comprimido.size());
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao codificar relatório", e);
+        }
+    }
+
+    static Mapas decodificar(byte[] dados) {
+        try {
+            return switch (dados[0]) {
+                case CODIFICACAO_JSON -> LEITOR.readValue(dados, 1, dados.length - 1);
+                case CODIFICACAO_JSON_GZIP -> {
+                    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(dados, 1, dados.length - 1))) {
+                        yield LEITOR.readValue(gzip);
+                    }
+                }
+                default -> throw new IllegalStateException("Codificação de relatório desconhecida: " + dados[0]);
+            };
+        } catch (IOException e) {
+            throw new IllegalStateException("Dados de relatório corrompidos", e);
+        }
+    }
+
+    private static byte[] comCabecalho(byte codificacao, byte[] conteudo, int tamanho) {
+        byte[] dados = new byte[tamanho + 1];
+        dados[0] = codificacao;
+        System.arraycopy(conteudo, 0, dados, 1, tamanho);
+        return dados;
+    }
+
+    private static String nomeParte(int parte) {
+        return parte == 0 ? PROPRIEDADE_DADOS : PROPRIEDADE_DADOS + '_' + parte;
+    }
+
+    private static Map<String, Long> contagensLegado(Object json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return LEITOR_CONTAGENS.readValue(json.toString());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
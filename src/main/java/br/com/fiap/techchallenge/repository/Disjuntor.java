@@ -0,0 +1,95 @@
+package br.com.fiap.techchallenge.repository;
+
+/**
+ * Disjuntor (circuit breaker) das chamadas ao storage
+ * <p>
+ * Fechado: as chamadas passam. Após {@code limiteFalhas} falhas transitórias consecutivas, abre por
+ * {@code aberturaNanos}: as chamadas falham na hora, sem ir ao storage. Vencido o prazo, fica semiaberto
+ * e deixa passar uma única chamada de sonda: sucesso fecha o disjuntor, falha o reabre.
+ * Thread-safe; as seções críticas são curtas e não bloqueiam.
+ */
+final class Disjuntor {
+
+    enum Estado {
+        FECHADO, SEMIABERTO, ABERTO
+    }
+
+    private final int limiteFalhas;
+    private final long aberturaNanos;
+
+    private Estado estado = Estado.FECHADO;
+    private int falhasConsecutivas;
+    private long abertoAte;
+    private boolean sondaEmCurso;
+
+    Disjuntor(int limiteFalhas, long aberturaNanos) {
+        this.limiteFalhas = Math.max(1, limiteFalhas);
+        this.aberturaNanos = aberturaNanos;
+    }
+
+    /**
+     * Indica se uma chamada pode ser feita; no estado semiaberto, apenas a primeira (sonda) pode
+     */
+    synchronized boolean permitir(long agora) {
+        switch (estado) {
+            case FECHADO:
+                return true;
+            case ABERTO:
+                if (agora - abertoAte < 0) {
+                    return false;
+                }
+                estado = Estado.SEMIABERTO;
+                sondaEmCurso = true;
+                return true;
+            default:
+                if (sondaEmCurso) {
+                    return false;
+                }
+                sondaEmCurso = true;
+                return true;
+        }
+    }
+
+    /**
+     * O storage respondeu (inclusive com erros não transitórios, como 404 ou 409)
+     */
+    synchronized void sucesso() {
+        falhasConsecutivas = 0;
+        sondaEmCurso = false;
+        estado = Estado.FECHADO;
+    }
+
+    /**
+     * Falha transitória
+     *
+     * @return true se esta falha abriu o disjuntor
+     */
+    synchronized boolean falha(long agora) {
+        sondaEmCurso = false;
+        falhasConsecutivas++;
+        if (estado == Estado.SEMIABERTO || (estado == Estado.FECHADO && falhasConsecutivas >= limiteFalhas)) {
+            estado = Estado.ABERTO;
+            abertoAte = agora + aberturaNanos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A chamada de sonda foi cancelada antes de terminar: libera a vaga para outra sonda
+     */
+    synchronized void cancelado() {
+        sondaEmCurso = false;
+    }
+
+    /**
+     * Tempo até o disjuntor aceitar uma sonda (0 se não estiver aberto)
+     */
+    synchronized long restanteNanos(long agora) {
+        return estado == Estado.ABERTO ? Math.max(0, abertoAte - agora) : 0;
+    }
+
+    synchronized Estado getEstado() {
+        return estado;
+    }
+}
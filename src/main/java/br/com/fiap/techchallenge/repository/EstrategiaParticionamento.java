@@ -0,0 +1,91 @@
+package br.com.fiap.techchallenge.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estratégia de particionamento da tabela de avaliações
+ * Distribui as escritas em partições por dia ou por hora, evitando uma partição única "quente"
+ * <p>
+ * As chaves geradas são ordenáveis lexicograficamente, o que permite consultas por período
+ * como varreduras de intervalo em PartitionKey/RowKey.
+ */
+public enum EstrategiaParticionamento {
+
+    DIA(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+    HORA(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH"));
+
+    /**
+     * Formato fixo do prefixo temporal do RowKey (largura constante para ordenação lexicográfica)
+     */
+    private static final DateTimeFormatter ROW_KEY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final DateTimeFormatter DIA_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final char SEPARADOR_ROW_KEY = '_';
+
+    private final DateTimeFormatter formatter;
+
+    EstrategiaParticionamento(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    /**
+     * Gera a PartitionKey do bucket de tempo da avaliação
+     */
+    public String partitionKey(LocalDateTime dataHora) {
+        return dataHora.format(formatter);
+    }
+
+    /**
+     * Gera o RowKey: instante da avaliação seguido do ID (ex.: 2024-05-10T14:03:27.120_<uuid>)
+     */
+    public static String rowKey(LocalDateTime dataHora, String id) {
+        return dataHora.format(ROW_KEY_FORMATTER) + SEPARADOR_ROW_KEY + id;
+    }
+
+    /**
+     * Extrai o ID da avaliação de um RowKey (aceita também RowKeys legados, que são o próprio ID)
+     */
+    public static String idDoRowKey(String rowKey) {
+        int separador = rowKey.indexOf(SEPARADOR_ROW_KEY);
+        return separador >= 0 ? rowKey.substring(separador + 1) : rowKey;
+    }
+
+    /**
+     * Monta o filtro OData de um período [inicio, fim) como varredura de intervalo
+     * <p>
+     * Os limites de PartitionKey usam o dia (que precede lexicograficamente as partições horárias
+     * do mesmo dia), então o filtro funciona mesmo com partições criadas por estratégias diferentes.
+     * O RowKey restringe o instante exato nas partições das bordas. Um fim à meia-noite exclui as partições
+     * do próprio dia, para que subintervalos diários não percorram a partição do dia seguinte.
+     */
+    public static String filtroPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        LocalDate diaLimite = fim.toLocalTime().equals(LocalTime.MIDNIGHT) ? fim.toLocalDate() : fim.toLocalDate().plusDays(1);
+        return String.format("PartitionKey ge '%s' and PartitionKey lt '%s' and RowKey ge '%s' and RowKey lt '%s'",
+                inicio.format(DIA_FORMATTER),
+                diaLimite.format(DIA_FORMATTER),
+                inicio.format(ROW_KEY_FORMATTER),
+                fim.format(ROW_KEY_FORMATTER));
+    }
+
+    /**
+     * Divide o período [inicio, fim) nos limites de cada dia: [inicio, meia-noite seguinte, ..., fim]
+     * O subintervalo i é [limites[i], limites[i + 1]); cada um cobre as partições de um único dia.
+     */
+    public static List<LocalDateTime> limitesDiarios(LocalDateTime inicio, LocalDateTime fim) {
+        List<LocalDateTime> limites = new ArrayList<>();
+        limites.add(inicio);
+        LocalDateTime cursor = inicio.toLocalDate().plusDays(1).atStartOfDay();
+        while (cursor.isBefore(fim)) {
+            limites.add(cursor);
+            cursor = cursor.plusDays(1);
+        }
+        if (fim.isAfter(inicio)) {
+            limites.add(fim);
+        }
+        return limites;
+    }
+}
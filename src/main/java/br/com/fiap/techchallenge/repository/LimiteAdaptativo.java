@@ -0,0 +1,142 @@
+package br.com.fiap.techchallenge.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limite de concorrência adaptativo (AIMD) das chamadas ao storage
+ * <p>
+ * Cada resposta bem-sucedida com o limite em uso aumenta o limite em 1/limite (cerca de +1 por "janela" de chamadas);
+ * uma resposta de limitação de taxa (429/503) o reduz pela metade, no máximo uma vez por intervalo de redução,
+ * para que uma rajada de rejeições simultâneas conte como um único sinal. Assim a aplicação converge para
+ * a vazão que o storage aceita, sem amplificar a sobrecarga.
+ * <p>
+ * Usa {@link ReentrantLock} (e não monitores) porque as chamadas também partem de virtual threads.
+ */
+final class LimiteAdaptativo {
+
+    private static final double FATOR_REDUCAO = 0.5;
+    private static final long INTERVALO_REDUCAO_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition vagaLiberada = lock.newCondition();
+    private final double minimo;
+    private final double maximo;
+
+    private double limite;
+    private int emCurso;
+    private long ultimaReducao;
+
+    LimiteAdaptativo(int inicial, int minimo, int maximo) {
+        this.minimo = Math.max(1, minimo);
+        this.maximo = Math.max(this.minimo, maximo);
+        this.limite = Math.min(this.maximo, Math.max(this.minimo, inicial));
+        this.ultimaReducao = System.nanoTime() - INTERVALO_REDUCAO_NANOS;
+    }
+
+    /**
+     * Ocupa uma vaga se houver, sem esperar
+     */
+    boolean tentarAdquirir() {
+        lock.lock();
+        try {
+            if (emCurso < (int) limite) {
+                emCurso++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ocupa uma vaga, esperando no máximo {@code esperaNanos} por uma
+     *
+     * @return false se não houve vaga no prazo (ou a thread foi interrompida)
+     */
+    boolean adquirir(long esperaNanos) {
+        lock.lock();
+        try {
+            while (emCurso >= (int) limite) {
+                if (esperaNanos <= 0) {
+                    return false;
+                }
+                esperaNanos = vagaLiberada.awaitNanos(esperaNanos);
+            }
+            emCurso++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void liberar() {
+        lock.lock();
+        try {
+            emCurso--;
+            vagaLiberada.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aumento aditivo; só cresce quando o limite está sendo usado (evita inflar o limite em períodos ociosos)
+     */
+    void aumentar() {
+        lock.lock();
+        try {
+            if (emCurso + 1 >= (int) limite / 2) {
+                int anterior = (int) limite;
+                limite = Math.min(maximo, limite + 1 / limite);
+                if ((int) limite > anterior) {
+                    vagaLiberada.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Redução multiplicativa após limitação de taxa do storage
+     *
+     * @return true se o limite foi reduzido
+     */
+    boolean reduzir(long agora) {
+        lock.lock();
+        try {
+            if (agora - ultimaReducao < INTERVALO_REDUCAO_NANOS) {
+                return false;
+            }
+            ultimaReducao = agora;
+            limite = Math.max(minimo, limite * FATOR_REDUCAO);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    double getLimite() {
+        lock.lock();
+        try {
+            return limite;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getEmCurso() {
+        lock.lock();
+        try {
+            return emCurso;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
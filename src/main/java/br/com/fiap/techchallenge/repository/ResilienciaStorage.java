@@ -0,0 +1,339 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.service.TelemetriaService;
+import com.azure.core.exception.HttpResponseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Camada de resiliência das chamadas ao Azure Storage Tables, compartilhada pelos repositórios
+ * <p>
+ * Cada chamada passa por:
+ * <ol>
+ *   <li>um {@link Disjuntor}: com o storage falhando seguidamente, as chamadas falham na hora
+ *       ({@link StorageIndisponivelException}) em vez de acumular;</li>
+ *   <li>um {@link LimiteAdaptativo} (AIMD): limita as chamadas simultâneas e reduz o limite quando o storage
+ *       sinaliza limitação de taxa (429/503 ServerBusy);</li>
+ *   <li>retentativas classificadas: limitação de taxa e falhas transitórias (5xx, 408, E/S) são repetidas com
+ *       backoff exponencial e jitter completo (respeitando o Retry-After do storage); erros de requisição
+ *       (400, 404, 409, 412...) nunca são repetidos. Escritas condicionais usam
+ *       {@link #executarNaoIdempotente(String, Supplier)} (ou a versão assíncrona), que não repete falhas transitórias.</li>
+ * </ol>
+ * As retentativas do pipeline HTTP do SDK ficam desligadas ({@link StorageTableRepository#novoClientBuilder()}),
+ * para que esta seja a única camada a repetir chamadas e a sobrecarga não seja amplificada.
+ * Limite, ocupação, estado do disjuntor, retentativas e rejeições são publicados na telemetria.
+ */
+@ApplicationScoped
+public class ResilienciaStorage {
+
+    private static final Logger LOG = Logger.getLogger(ResilienciaStorage.class);
+
+    enum Classe {
+        /** Limitação de taxa do storage (429/503): repete e reduz o limite de concorrência */
+        LIMITACAO,
+        /** Falha transitória (5xx, timeout, E/S): repete */
+        TRANSITORIA,
+        /** Limite de concorrência local sem vaga: repete, sem contar como falha do storage */
+        LOCAL,
+        /** Erro da requisição ou disjuntor aberto: não repete */
+        DEFINITIVA
+    }
+
+    @ConfigProperty(name = "storage.resiliencia.max-tentativas", defaultValue = "4")
+    int maxTentativas;
+
+    @ConfigProperty(name = "storage.resiliencia.espera-base-ms", defaultValue = "100")
+    long esperaBaseMs;
+
+    @ConfigProperty(name = "storage.resiliencia.espera-maxima-ms", defaultValue = "5000")
+    long esperaMaximaMs;
+
+    @ConfigProperty(name = "storage.resiliencia.disjuntor.falhas", defaultValue = "5")
+    int falhasDisjuntor;
+
+    @ConfigProperty(name = "storage.resiliencia.disjuntor.abertura-s", defaultValue = "30")
+    int aberturaDisjuntorSegundos;
+
+    @ConfigProperty(name = "storage.resiliencia.concorrencia.inicial", defaultValue = "32")
+    int concorrenciaInicial;
+
+    @ConfigProperty(name = "storage.resiliencia.concorrencia.minima", defaultValue = "2")
+    int concorrenciaMinima;
+
+    @ConfigProperty(name = "storage.resiliencia.concorrencia.maxima", defaultValue = "256")
+    int concorrenciaMaxima;
+
+    @ConfigProperty(name = "storage.resiliencia.concorrencia.espera-ms", defaultValue = "2000")
+    long esperaVagaMs;
+
+    private final TelemetriaService telemetria;
+    private Disjuntor disjuntor;
+    private LimiteAdaptativo limite;
+
+    public ResilienciaStorage(TelemetriaService telemetria) {
+        this.telemetria = telemetria;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        disjuntor = new Disjuntor(falhasDisjuntor, TimeUnit.SECONDS.toNanos(aberturaDisjuntorSegundos));
+        limite = new LimiteAdaptativo(concorrenciaInicial, concorrenciaMinima, concorrenciaMaxima);
+        telemetria.medidor("StorageLimiteConcorrencia", limite::getLimite);
+        telemetria.medidor("StorageEmCurso", limite::getEmCurso);
+        telemetria.medidor("StorageDisjuntorEstado", () -> disjuntor.getEstado().ordinal());
+    }
+
+    /**
+     * Executa uma chamada síncrona ao storage com disjuntor, limite adaptativo e retentativas
+     * A chamada deve ser idempotente ou segura para repetir (uma leitura completa, uma escrita única).
+     *
+     * @param operacao nome da operação, para logs
+     */
+    public <T> T executar(String operacao, Supplier<T> chamada) {
+        return executar(operacao, chamada, true);
+    }
+
+    /**
+     * Executa uma escrita que não pode ser repetida às cegas (inserção, substituição condicional por ETag)
+     * Só repete quando a chamada certamente não foi aplicada: sem vaga no limite local ou limitação de taxa
+     * (429/503 ServerBusy, rejeitadas pelo storage antes de aplicar). Uma falha transitória (5xx, timeout, E/S)
+     * é propagada sem repetir, pois a escrita pode ter sido aplicada e só a resposta perdida: uma repetição
+     * voltaria como 409/412. Cabe ao chamador verificar o resultado (ver {@link #resultadoIncerto(Throwable)}).
+     */
+    public <T> T executarNaoIdempotente(String operacao, Supplier<T> chamada) {
+        return executar(operacao, chamada, false);
+    }
+
+    /**
+     * Versão sem retorno de {@link #executarNaoIdempotente(String, Supplier)}
+     */
+    public void executarAcaoNaoIdempotente(String operacao, Runnable chamada) {
+        executar(operacao, () -> {
+            chamada.run();
+            return null;
+        }, false);
+    }
+
+    /**
+     * Falha após a qual não se sabe se a escrita foi aplicada no storage (5xx, timeout, E/S)
+     */
+    public static boolean resultadoIncerto(Throwable erro) {
+        return classificar(erro) == Classe.TRANSITORIA;
+    }
+
+    private <T> T executar(String operacao, Supplier<T> chamada, boolean idempotente) {
+        for (int tentativa = 1; ; tentativa++) {
+            verificarDisjuntor(System.nanoTime());
+            RuntimeException erro;
+            if (!limite.adquirir(TimeUnit.MILLISECONDS.toNanos(esperaVagaMs))) {
+                disjuntor.cancelado();
+                telemetria.contador("StorageSemVaga");
+                erro = new SemVagaException();
+            } else {
+                try {
+                    T resultado = chamada.get();
+                    registrarSucesso();
+                    return resultado;
+                } catch (RuntimeException e) {
+                    erro = e;
+                    registrarFalha(operacao, classificar(e));
+                } finally {
+                    limite.liberar();
+                }
+            }
+
+            Classe classe = classificar(erro);
+            if (classe == Classe.DEFINITIVA || (classe == Classe.TRANSITORIA && !idempotente) || tentativa >= maxTentativas) {
+                throw esgotado(operacao, classe, erro);
+            }
+            long espera = espera(tentativa, erro);
+            LOG.debugf("Storage: %s falhou (%s, tentativa %d); repetindo em %d ms", operacao, classe, tentativa,
+                    TimeUnit.NANOSECONDS.toMillis(espera));
+            telemetria.contador("StorageRetentativa");
+            try {
+                TimeUnit.NANOSECONDS.sleep(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw erro;
+            }
+        }
+    }
+
+    /**
+     * Executa uma chamada síncrona sem retorno
+     */
+    public void executarAcao(String operacao, Runnable chamada) {
+        executar(operacao, () -> {
+            chamada.run();
+            return null;
+        });
+    }
+
+    /**
+     * Versão assíncrona de {@link #executar(String, Supplier)}: a chamada é refeita (novo Mono) a cada tentativa,
+     * e a espera entre tentativas não ocupa thread
+     */
+    public <T> Mono<T> executarAsync(String operacao, Supplier<Mono<T>> chamada) {
+        return executarAsync(operacao, chamada, true);
+    }
+
+    /**
+     * Versão assíncrona de {@link #executarNaoIdempotente(String, Supplier)}: falhas transitórias são propagadas
+     * sem repetir, e cabe ao chamador verificar se a escrita foi aplicada
+     */
+    public <T> Mono<T> executarNaoIdempotenteAsync(String operacao, Supplier<Mono<T>> chamada) {
+        return executarAsync(operacao, chamada, false);
+    }
+
+    private <T> Mono<T> executarAsync(String operacao, Supplier<Mono<T>> chamada, boolean idempotente) {
+        return Mono.defer(() -> tentativaAsync(operacao, chamada))
+                .retryWhen(Retry.from(sinais -> sinais.concatMap(sinal -> {
+                    Throwable erro = sinal.failure();
+                    long tentativa = sinal.totalRetries() + 1;
+                    Classe classe = classificar(erro);
+                    if (classe == Classe.DEFINITIVA || (classe == Classe.TRANSITORIA && !idempotente) || tentativa >= maxTentativas) {
+                        return Mono.<Long>error(esgotado(operacao, classe, erro));
+                    }
+                    telemetria.contador("StorageRetentativa");
+                    return Mono.delay(Duration.ofNanos(espera(tentativa, erro)));
+                })));
+    }
+
+    private <T> Mono<T> tentativaAsync(String operacao, Supplier<Mono<T>> chamada) {
+        try {
+            verificarDisjuntor(System.nanoTime());
+        } catch (StorageIndisponivelException e) {
+            return Mono.error(e);
+        }
+        if (!limite.tentarAdquirir()) {
+            disjuntor.cancelado();
+            telemetria.contador("StorageSemVaga");
+            return Mono.error(new SemVagaException());
+        }
+        return Mono.defer(chamada)
+                .doOnSuccess(resultado -> registrarSucesso())
+                .doOnError(e -> registrarFalha(operacao, classificar(e)))
+                .doOnCancel(disjuntor::cancelado)
+                .doFinally(sinal -> limite.liberar());
+    }
+
+    private void verificarDisjuntor(long agora) {
+        if (!disjuntor.permitir(agora)) {
+            telemetria.contador("StorageDisjuntorRejeitada");
+            throw new StorageIndisponivelException("Storage indisponível (disjuntor aberto)",
+                    TimeUnit.NANOSECONDS.toSeconds(disjuntor.restanteNanos(agora)) + 1, null);
+        }
+    }
+
+    private void registrarSucesso() {
+        disjuntor.sucesso();
+        limite.aumentar();
+    }
+
+    private void registrarFalha(String operacao, Classe classe) {
+        long agora = System.nanoTime();
+        switch (classe) {
+            case LIMITACAO -> {
+                telemetria.contador("StorageLimitacao");
+                if (limite.reduzir(agora)) {
+                    LOG.warnf("Storage limitando a taxa (%s); limite de concorrência reduzido para %.1f", operacao, limite.getLimite());
+                }
+                abrirSeNecessario(operacao, agora);
+            }
+            case TRANSITORIA -> {
+                telemetria.contador("StorageFalhaTransitoria");
+                abrirSeNecessario(operacao, agora);
+            }
+            // O storage respondeu: erro da requisição não indica indisponibilidade
+            default -> disjuntor.sucesso();
+        }
+    }
+
+    private void abrirSeNecessario(String operacao, long agora) {
+        if (disjuntor.falha(agora)) {
+            LOG.errorf("Disjuntor do storage aberto por %d s após falhas consecutivas (última em %s)", aberturaDisjuntorSegundos, operacao);
+            telemetria.evento("StorageDisjuntorAberto");
+        }
+    }
+
+    /**
+     * Erro final de uma chamada sem mais tentativas: limitação de taxa esgotada vira {@link StorageIndisponivelException}
+     */
+    private RuntimeException esgotado(String operacao, Classe classe, Throwable erro) {
+        if (classe == Classe.LIMITACAO || classe == Classe.LOCAL) {
+            LOG.warnf("Storage sobrecarregado: %s desistiu após %d tentativas", operacao, maxTentativas);
+            return new StorageIndisponivelException("Storage sobrecarregado", TimeUnit.MILLISECONDS.toSeconds(esperaMaximaMs), erro);
+        }
+        return erro instanceof RuntimeException runtime ? runtime : new RuntimeException(erro);
+    }
+
+    /**
+     * Backoff exponencial com jitter completo: aleatório em [0, min(máximo, base * 2^(tentativa-1))],
+     * nunca menor que o Retry-After informado pelo storage
+     */
+    private long espera(long tentativa, Throwable erro) {
+        long maximaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+        long tetoNanos = Math.min(maximaNanos, TimeUnit.MILLISECONDS.toNanos(esperaBaseMs) << Math.min(tentativa - 1, 20));
+        long espera = ThreadLocalRandom.current().nextLong(tetoNanos + 1);
+        telemetria.metrica("StorageEsperaRetentativaMs", TimeUnit.NANOSECONDS.toMillis(espera));
+        return Math.min(maximaNanos, Math.max(espera, retryAfterNanos(erro)));
+    }
+
+    private static long retryAfterNanos(Throwable erro) {
+        if (erro instanceof HttpResponseException http && http.getResponse() != null) {
+            String retryAfter = http.getResponse().getHeaderValue("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    return TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+                } catch (NumberFormatException e) {
+                    return 0; // Formato de data HTTP: usa o backoff calculado
+                }
+            }
+        }
+        return 0;
+    }
+
+    static Classe classificar(Throwable erro) {
+        if (erro instanceof SemVagaException) {
+            return Classe.LOCAL;
+        }
+        if (erro instanceof StorageIndisponivelException) {
+            return Classe.DEFINITIVA;
+        }
+        if (erro instanceof HttpResponseException http) {
+            int status = http.getResponse() != null ? http.getResponse().getStatusCode() : 0;
+            return switch (status) {
+                case 429, 503 -> Classe.LIMITACAO;
+                case 0, 408, 500, 502, 504 -> Classe.TRANSITORIA;
+                default -> Classe.DEFINITIVA;
+            };
+        }
+        for (Throwable atual = erro; atual != null; atual = atual.getCause()) {
+            if (atual instanceof IOException || atual instanceof UncheckedIOException || atual instanceof TimeoutException) {
+                return Classe.TRANSITORIA;
+            }
+        }
+        return Classe.DEFINITIVA;
+    }
+
+    /**
+     * Nenhuma vaga no limite de concorrência (local; não é falha do storage)
+     */
+    private static final class SemVagaException extends RuntimeException {
+        SemVagaException() {
+            super("Limite de concorrência do storage atingido", null, false, false);
+        }
+    }
+}
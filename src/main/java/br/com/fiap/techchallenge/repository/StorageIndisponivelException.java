@@ -0,0 +1,35 @@
+package br.com.fiap.techchallenge.repository;
+
+/**
+ * O storage está indisponível ou sobrecarregado e a chamada não foi feita (disjuntor aberto)
+ * ou esgotou as retentativas sob limitação de taxa
+ * Os handlers HTTP respondem 503 com Retry-After em vez de 500.
+ */
+public class StorageIndisponivelException extends RuntimeException {
+
+    private final long retryAfterSegundos;
+
+    public StorageIndisponivelException(String mensagem, long retryAfterSegundos, Throwable causa) {
+        super(mensagem, causa);
+        this.retryAfterSegundos = Math.max(1, retryAfterSegundos);
+    }
+
+    /**
+     * Segundos sugeridos ao cliente antes de tentar de novo
+     */
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+
+    /**
+     * Procura a exceção na cadeia de causas (as camadas acima a embrulham em RuntimeException)
+     */
+    public static StorageIndisponivelException naCadeia(Throwable erro) {
+        for (Throwable atual = erro; atual != null; atual = atual.getCause()) {
+            if (atual instanceof StorageIndisponivelException indisponivel) {
+                return indisponivel;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,388 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RegistroIdempotencia;
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import com.azure.core.http.rest.PagedFlux;
+import com.azure.core.http.rest.PagedResponse;
+import com.azure.data.tables.TableAsyncClient;
+import com.azure.data.tables.TableServiceAsyncClient;
+import com.azure.data.tables.models.ListEntitiesOptions;
+import com.azure.data.tables.models.TableEntity;
+import com.azure.data.tables.models.TableEntityUpdateMode;
+import com.azure.data.tables.models.TableServiceException;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.jboss.logging.Logger;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Repositório assíncrono do Azure Storage Tables, sobre o {@link TableServiceAsyncClient}
+ * <p>
+ * As operações retornam {@link CompletionStage} sem ocupar uma thread durante a ida ao storage:
+ * a E/S corre no event loop do cliente HTTP do SDK. Usa o mesmo layout de chaves e as mesmas conversões
+ * do {@link StorageTableRepository}, que continua responsável por provisionar as tabelas na inicialização.
+ * As chamadas passam pela {@link ResilienciaStorage}; as varreduras são repetidas página a página.
+ */
+@ApplicationScoped
+public class StorageTableAsyncRepository {
+
+    private static final Logger LOG = Logger.getLogger(StorageTableAsyncRepository.class);
+    private static final String PROPRIEDADE_EFEITOS_CONCLUIDOS = "efeitosConcluidos";
+
+    private final StorageTableRepository storageTableRepository;
+    private final ResilienciaStorage resiliencia;
+    private final Map<String, TableAsyncClient> tabelas = new ConcurrentHashMap<>();
+    private volatile TableServiceAsyncClient serviceClient;
+
+    public StorageTableAsyncRepository(StorageTableRepository storageTableRepository, ResilienciaStorage resiliencia) {
+        this.storageTableRepository = storageTableRepository;
+        this.resiliencia = resiliencia;
+    }
+
+    /**
+     * Salva uma avaliação (uma única requisição ao storage)
+     * Um 409 após retentativa, com a mesma avaliação já gravada, indica que a tentativa anterior foi aplicada.
+     */
+    public CompletionStage<Void> salvarAvaliacao(Avaliacao avaliacao) {
+        TableEntity entity = storageTableRepository.toTableEntity(avaliacao);
+        return executar(StorageTableRepository.TABLE_AVALIACOES, tableClient -> tableClient.createEntity(entity))
+                .onErrorResume(TableServiceException.class, e -> status(e) == 409
+                        ? executar(StorageTableRepository.TABLE_AVALIACOES, tableClient -> tableClient.getEntity(entity.getPartitionKey(), entity.getRowKey()))
+                                .flatMap(gravada -> StorageTableRepository.mesmoConteudo(gravada, entity) ? Mono.<Void>empty() : Mono.error(e))
+                        : Mono.error(e))
+                .doOnSuccess(v -> LOG.debugf("Avaliação salva (assíncrono): %s", avaliacao.getId()))
+                .onErrorMap(e -> new RuntimeException("Erro ao salvar avaliação", e))
+                .toFuture();
+    }
+
+    /**
+     * Percorre as avaliações de um período página a página, entregando cada uma ao consumidor
+     * A próxima página de cada subintervalo só é pedida depois que o consumidor processou a atual (contrapressão):
+     * a memória usada depende do paralelismo da consulta, não do volume do período.
+     *
+     * @return estágio concluído com a quantidade de avaliações percorridas
+     */
+    public CompletionStage<Long> percorrerAvaliacoesPorPeriodo(LocalDateTime inicio, LocalDateTime fim, Consumer<Avaliacao> consumidor) {
+        return percorrerAvaliacoesPorPeriodo(inicio, fim, StorageTableRepository.COLUNAS_AVALIACAO, consumidor);
+    }
+
+    /**
+     * Percorre as avaliações de um período lendo só as colunas informadas
+     * <p>
+     * Os subintervalos diários (ver {@link StorageTableRepository#percorrerAvaliacoesPorPeriodo(LocalDateTime, LocalDateTime, List, Consumer)})
+     * são varridos simultaneamente, com contrapressão em cada um; o flatMap entrega as páginas ao consumidor
+     * uma de cada vez, em ordem qualquer.
+     *
+     * @return estágio concluído com a quantidade de avaliações percorridas
+     */
+    public CompletionStage<Long> percorrerAvaliacoesPorPeriodo(LocalDateTime inicio, LocalDateTime fim, List<String> colunas, Consumer<Avaliacao> consumidor) {
+        List<LocalDateTime> limites = storageTableRepository.limitesConsulta(inicio, fim);
+        if (limites.size() < 2) {
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        // Prefetch de 1: cada subintervalo guarda no máximo uma página à espera do consumidor
+        return Flux.range(0, limites.size() - 1)
+                .flatMap(i -> paginas(storageTableRepository.opcoesConsulta(limites.get(i), limites.get(i + 1), colunas)),
+                        storageTableRepository.getParalelismoConsulta(), 1)
+                .map(pagina -> {
+                    long quantidade = 0;
+                    for (TableEntity entity : pagina.getValue()) {
+                        consumidor.accept(storageTableRepository.fromTableEntity(entity));
+                        quantidade++;
+                    }
+                    return quantidade;
+                })
+                .reduce(0L, Long::sum)
+                .doOnSuccess(total -> LOG.infof("Total de avaliações percorridas (assíncrono) entre %s e %s: %d", inicio, fim, total))
+                .onErrorMap(e -> new RuntimeException("Erro ao percorrer avaliações", e))
+                .toFuture();
+    }
+
+    /**
+     * Salva um relatório semanal
+     * Gravado com upsert (linha identificada pelo id do relatório): uma retentativa de uma escrita já aplicada
+     * não resulta em 409, e o relatório é enviado normalmente
+     */
+    public CompletionStage<Void> salvarRelatorio(RelatorioSemanal relatorio) {
+        TableEntity entity = storageTableRepository.toTableEntity(relatorio);
+        return executar(StorageTableRepository.TABLE_RELATORIOS,
+                tableClient -> tableClient.upsertEntityWithResponse(entity, TableEntityUpdateMode.REPLACE).then())
+                .doOnSuccess(v -> LOG.infof("Relatório salvo com sucesso (assíncrono): %s", relatorio.getId()))
+                .onErrorMap(e -> new RuntimeException("Erro ao salvar relatório", e))
+                .toFuture();
+    }
+
+    /**
+     * Reserva uma chave de idempotência com inserção condicional (falha se a chave já existir)
+     * <p>
+     * Se a chave já existir, a situação é decidida pela reserva e pela avaliação referenciada nela
+     * (ver {@link #situacaoReservaAlheia}). Uma reserva abandonada, ou com a avaliação gravada sem os efeitos depois
+     * do prazo da requisição, é assumida com substituição condicional por ETag → RESERVADA ou EFEITOS_PENDENTES
+     * (com a avaliação gravada); se outra repetição a assumiu antes → EM_ANDAMENTO.
+     *
+     * @param chave        hash da chave de idempotência
+     * @param avaliacao    avaliação já inicializada (id e data/hora) que será gravada se a reserva for obtida
+     * @param expiracao    idade a partir da qual uma reserva sem avaliação gravada é considerada abandonada
+     * @param prazoEfeitos tempo máximo de uma requisição: depois dele, efeitos não concluídos não estão mais em curso
+     */
+    public CompletionStage<RegistroIdempotencia> reservarIdempotencia(String chave, String hashCorpo, Avaliacao avaliacao,
+                                                                      Duration expiracao, Duration prazoEfeitos) {
+        TableEntity avaliacaoEntity = storageTableRepository.toTableEntity(avaliacao);
+        // Identifica esta reserva: um 409/412 após retentativa pode ser a própria escrita, já aplicada
+        String token = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        TableEntity reserva = escreverReserva(new TableEntity(particaoIdempotencia(chave), chave), hashCorpo, avaliacaoEntity, token);
+        return executar(StorageTableRepository.TABLE_IDEMPOTENCIA, tableClient -> tableClient.createEntity(reserva))
+                .thenReturn(registro(reserva, RegistroIdempotencia.Situacao.RESERVADA))
+                .onErrorResume(TableServiceException.class, e -> status(e) == 409
+                        ? resolverReservaExistente(chave, hashCorpo, avaliacaoEntity, expiracao, prazoEfeitos, token)
+                        : Mono.error(e))
+                .onErrorMap(e -> new RuntimeException("Erro ao reservar chave de idempotência", e))
+                .toFuture();
+    }
+
+    /**
+     * Registra na reserva a resposta 201 e que os efeitos da avaliação (notificação e rollup) foram executados
+     * Repetições da chave passam a receber essa resposta sem executar os efeitos de novo.
+     */
+    public CompletionStage<Void> concluirIdempotencia(String chave, String resposta) {
+        TableEntity conclusao = new TableEntity(particaoIdempotencia(chave), chave)
+                .addProperty("resposta", resposta)
+                .addProperty(PROPRIEDADE_EFEITOS_CONCLUIDOS, true);
+        // Merge sem ETag: repetir a escrita não muda o resultado
+        return executar(StorageTableRepository.TABLE_IDEMPOTENCIA, tableClient -> tableClient.updateEntity(conclusao, TableEntityUpdateMode.MERGE))
+                .onErrorMap(e -> new RuntimeException("Erro ao concluir chave de idempotência", e))
+                .toFuture();
+    }
+
+    /**
+     * Remove a reserva de uma chave cuja gravação falhou, para que a repetição da requisição possa gravar
+     */
+    public CompletionStage<Void> liberarIdempotencia(String chave) {
+        return executar(StorageTableRepository.TABLE_IDEMPOTENCIA,
+                tableClient -> tableClient.deleteEntity(particaoIdempotencia(chave), chave))
+                .onErrorMap(e -> new RuntimeException("Erro ao liberar chave de idempotência", e))
+                .toFuture();
+    }
+
+    private Mono<RegistroIdempotencia> resolverReservaExistente(String chave, String hashCorpo, TableEntity avaliacaoEntity,
+                                                               Duration expiracao, Duration prazoEfeitos, String token) {
+        TableAsyncClient tabela = obterTabela(StorageTableRepository.TABLE_IDEMPOTENCIA);
+        return resiliencia.executarAsync(StorageTableRepository.TABLE_IDEMPOTENCIA,
+                        () -> tabela.getEntity(particaoIdempotencia(chave), chave))
+                .flatMap(existente -> {
+                    if (token.equals(existente.getProperty("token"))) {
+                        return Mono.just(registro(existente, RegistroIdempotencia.Situacao.RESERVADA));
+                    }
+                    if (Boolean.TRUE.equals(existente.getProperty(PROPRIEDADE_EFEITOS_CONCLUIDOS))) {
+                        return Mono.just(registro(existente, RegistroIdempotencia.Situacao.CONCLUIDA));
+                    }
+                    return avaliacaoGravada(existente)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(gravada -> resolverReservaAlheia(tabela, chave, existente, gravada, hashCorpo, avaliacaoEntity,
+                                    expiracao, prazoEfeitos, token));
+                })
+                // Reserva removida entre a inserção e a leitura (a requisição original falhou e a liberou)
+                .onErrorResume(TableServiceException.class, e -> status(e) == 404
+                        ? Mono.just(RegistroIdempotencia.builder().chave(chave).situacao(RegistroIdempotencia.Situacao.EM_ANDAMENTO).build())
+                        : Mono.error(e));
+    }
+
+    /**
+     * Reserva de outra requisição, sem os efeitos concluídos: aguarda a original ou assume a reserva
+     * (ver {@link #situacaoReservaAlheia})
+     */
+    private Mono<RegistroIdempotencia> resolverReservaAlheia(TableAsyncClient tabela, String chave, TableEntity existente,
+                                                            Optional<TableEntity> gravada, String hashCorpo, TableEntity avaliacaoEntity,
+                                                            Duration expiracao, Duration prazoEfeitos, String token) {
+        RegistroIdempotencia.Situacao situacao = situacaoReservaAlheia((Boolean) existente.getProperty(PROPRIEDADE_EFEITOS_CONCLUIDOS),
+                gravada.isPresent(), existente.getTimestamp(), OffsetDateTime.now(), expiracao, prazoEfeitos);
+        return switch (situacao) {
+            case EFEITOS_PENDENTES -> {
+                LOG.warnf("Avaliação da chave de idempotência %s gravada sem notificação e rollup; assumindo os efeitos", chave);
+                Avaliacao avaliacao = storageTableRepository.fromTableEntity(gravada.get());
+                yield assumirReserva(tabela, chave, existente.addProperty("token", token), token)
+                        .map(registro -> registro.getSituacao() == RegistroIdempotencia.Situacao.RESERVADA
+                                ? registro.toBuilder().situacao(RegistroIdempotencia.Situacao.EFEITOS_PENDENTES).avaliacao(avaliacao).build()
+                                : registro);
+            }
+            case RESERVADA -> {
+                LOG.warnf("Reserva de idempotência %s abandonada desde %s; assumindo", chave, existente.getTimestamp());
+                yield assumirReserva(tabela, chave, escreverReserva(existente, hashCorpo, avaliacaoEntity, token), token);
+            }
+            default -> Mono.just(registro(existente, situacao));
+        };
+    }
+
+    /**
+     * Situação de uma reserva gravada por outra requisição:
+     * <ul>
+     *   <li>efeitos concluídos → CONCLUIDA;</li>
+     *   <li>avaliação gravada → EM_ANDAMENTO até {@code prazoEfeitos} após a última escrita da reserva (a original
+     *       pode estar executando os efeitos) e, depois disso, EFEITOS_PENDENTES (a reserva deve ser assumida);
+     *       reservas gravadas antes do registro dos efeitos ({@code efeitosConcluidos} null) → CONCLUIDA;</li>
+     *   <li>avaliação ainda não gravada → EM_ANDAMENTO até {@code expiracao} após a última escrita e, depois disso
+     *       (ex.: a instância foi encerrada entre a reserva e a gravação), RESERVADA (a reserva deve ser assumida).</li>
+     * </ul>
+     *
+     * @param efeitosConcluidos propriedade {@value #PROPRIEDADE_EFEITOS_CONCLUIDOS} da reserva, ou null se ausente
+     * @param ultimaEscrita     Timestamp da reserva (null trata a reserva como recente)
+     */
+    static RegistroIdempotencia.Situacao situacaoReservaAlheia(Boolean efeitosConcluidos, boolean avaliacaoGravada, OffsetDateTime ultimaEscrita,
+                                                             OffsetDateTime agora, Duration expiracao, Duration prazoEfeitos) {
+        if (Boolean.TRUE.equals(efeitosConcluidos)) {
+            return RegistroIdempotencia.Situacao.CONCLUIDA;
+        }
+        if (avaliacaoGravada) {
+            if (efeitosConcluidos == null) {
+                // Reserva anterior ao registro dos efeitos: a original gravava a resposta ao reservar
+                return RegistroIdempotencia.Situacao.CONCLUIDA;
+            }
+            return recente(ultimaEscrita, agora, prazoEfeitos)
+                    ? RegistroIdempotencia.Situacao.EM_ANDAMENTO
+                    : RegistroIdempotencia.Situacao.EFEITOS_PENDENTES;
+        }
+        return recente(ultimaEscrita, agora, expiracao)
+                ? RegistroIdempotencia.Situacao.EM_ANDAMENTO
+                : RegistroIdempotencia.Situacao.RESERVADA;
+    }
+
+    private static boolean recente(OffsetDateTime escrita, OffsetDateTime agora, Duration janela) {
+        return escrita == null || escrita.isAfter(agora.minus(janela));
+    }
+
+    /**
+     * Substitui a reserva lida (condicional ao ETag) por uma com o token desta requisição
+     *
+     * @return RESERVADA se esta requisição assumiu a chave; EM_ANDAMENTO se outra assumiu antes
+     */
+    private Mono<RegistroIdempotencia> assumirReserva(TableAsyncClient tabela, String chave, TableEntity assumida, String token) {
+        return resiliencia.executarNaoIdempotenteAsync(StorageTableRepository.TABLE_IDEMPOTENCIA,
+                        () -> tabela.updateEntityWithResponse(assumida, TableEntityUpdateMode.REPLACE, true))
+                .thenReturn(registro(assumida, RegistroIdempotencia.Situacao.RESERVADA))
+                // Outra requisição assumiu antes (412) ou resultado incerto: relê e confere o token
+                .onErrorResume(e -> (e instanceof TableServiceException tse && status(tse) == 412) || ResilienciaStorage.resultadoIncerto(e)
+                        ? resiliencia.executarAsync(StorageTableRepository.TABLE_IDEMPOTENCIA, () -> tabela.getEntity(particaoIdempotencia(chave), chave))
+                                .map(atual -> registro(atual, token.equals(atual.getProperty("token"))
+                                        ? RegistroIdempotencia.Situacao.RESERVADA
+                                        : RegistroIdempotencia.Situacao.EM_ANDAMENTO))
+                        : Mono.error(e));
+    }
+
+    /**
+     * Avaliação referenciada pela reserva, ou vazio se ainda não foi gravada
+     */
+    private Mono<TableEntity> avaliacaoGravada(TableEntity reserva) {
+        TableAsyncClient avaliacoes = obterTabela(StorageTableRepository.TABLE_AVALIACOES);
+        return resiliencia.executarAsync(StorageTableRepository.TABLE_AVALIACOES, () -> avaliacoes
+                        .getEntity((String) reserva.getProperty("avaliacaoPartitionKey"), (String) reserva.getProperty("avaliacaoRowKey")))
+                .onErrorResume(TableServiceException.class, e -> status(e) == 404 ? Mono.empty() : Mono.error(e));
+    }
+
+    private static TableEntity escreverReserva(TableEntity entity, String hashCorpo, TableEntity avaliacaoEntity, String token) {
+        return entity
+                .addProperty("token", token)
+                .addProperty("hashCorpo", hashCorpo)
+                .addProperty(PROPRIEDADE_EFEITOS_CONCLUIDOS, false)
+                .addProperty("avaliacaoPartitionKey", avaliacaoEntity.getPartitionKey())
+                .addProperty("avaliacaoRowKey", avaliacaoEntity.getRowKey());
+    }
+
+    private static RegistroIdempotencia registro(TableEntity entity, RegistroIdempotencia.Situacao situacao) {
+        return RegistroIdempotencia.builder()
+                .chave(entity.getRowKey())
+                .hashCorpo((String) entity.getProperty("hashCorpo"))
+                .resposta((String) entity.getProperty("resposta"))
+                .situacao(situacao)
+                .build();
+    }
+
+    /**
+     * Partição pelos dois primeiros dígitos do hash: as reservas se distribuem em 256 partições
+     */
+    private static String particaoIdempotencia(String chave) {
+        return chave.substring(0, 2);
+    }
+
+    private static int status(TableServiceException e) {
+        return e.getResponse() != null ? e.getResponse().getStatusCode() : 0;
+    }
+
+    /**
+     * Constrói o cliente assíncrono e os clientes das tabelas na inicialização (sem requisições ao storage)
+     */
+    public void aquecer() {
+        obterTabela(StorageTableRepository.TABLE_AVALIACOES);
+        obterTabela(StorageTableRepository.TABLE_RELATORIOS);
+    }
+
+    /**
+     * Páginas de uma varredura: cada uma é pedida (com retentativas próprias) só depois que a anterior foi processada
+     */
+    private Flux<PagedResponse<TableEntity>> paginas(ListEntitiesOptions options) {
+        return pagina(options, null)
+                .expand(anterior -> anterior.getContinuationToken() == null
+                        ? Mono.<PagedResponse<TableEntity>>empty()
+                        : pagina(options, anterior.getContinuationToken()));
+    }
+
+    /**
+     * Uma página da varredura de avaliações, a partir do token de continuação (null para a primeira)
+     */
+    private Mono<PagedResponse<TableEntity>> pagina(ListEntitiesOptions options, String continuacao) {
+        return resiliencia.executarAsync(StorageTableRepository.TABLE_AVALIACOES, () -> {
+            PagedFlux<TableEntity> listagem = obterTabela(StorageTableRepository.TABLE_AVALIACOES).listEntities(options);
+            return (continuacao == null ? listagem.byPage() : listagem.byPage(continuacao)).next();
+        });
+    }
+
+    /**
+     * Executa uma operação sobre a tabela, pela camada de resiliência; se a tabela tiver sido removida
+     * em tempo de execução, recria a tabela e repete a operação uma vez (mesma política do repositório síncrono)
+     */
+    private <T> Mono<T> executar(String nome, Function<TableAsyncClient, Mono<T>> operacao) {
+        return resiliencia.executarAsync(nome, () -> executarNaTabela(nome, operacao));
+    }
+
+    private <T> Mono<T> executarNaTabela(String nome, Function<TableAsyncClient, Mono<T>> operacao) {
+        return Mono.defer(() -> operacao.apply(obterTabela(nome)))
+                .onErrorResume(TableServiceException.class, e -> {
+                    if (!StorageTableRepository.tabelaInexistente(e)) {
+                        return Mono.error(e);
+                    }
+                    LOG.warnf("Tabela %s não encontrada; reprovisionando", nome);
+                    return obterServiceClient().createTableIfNotExists(nome)
+                            .then(Mono.defer(() -> operacao.apply(obterTabela(nome))));
+                });
+    }
+
+    private TableAsyncClient obterTabela(String nome) {
+        return tabelas.computeIfAbsent(nome, n -> obterServiceClient().getTableClient(n));
+    }
+
+    private TableServiceAsyncClient obterServiceClient() {
+        if (serviceClient == null) {
+            synchronized (this) {
+                if (serviceClient == null) {
+                    serviceClient = StorageTableRepository.novoClientBuilder().buildAsyncClient();
+                }
+            }
+        }
+        return serviceClient;
+    }
+}
@@ -2,34 +2,132 @@ package br.com.fiap.techchallenge.repository;
 
 import br.com.fiap.techchallenge.model.Avaliacao;
 import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import com.azure.core.http.policy.FixedDelayOptions;
+import com.azure.core.http.policy.RetryOptions;
+import com.azure.core.http.rest.PagedIterable;
+import com.azure.core.http.rest.PagedResponse;
 import com.azure.data.tables.TableClient;
 import com.azure.data.tables.TableServiceClient;
 import com.azure.data.tables.TableServiceClientBuilder;
 import com.azure.data.tables.models.ListEntitiesOptions;
 import com.azure.data.tables.models.TableEntity;
+import com.azure.data.tables.models.TableEntityUpdateMode;
+import com.azure.data.tables.models.TableErrorCode;
+import com.azure.data.tables.models.TableServiceException;
+import com.azure.data.tables.models.TableTransactionAction;
+import com.azure.data.tables.models.TableTransactionActionType;
+import com.azure.data.tables.models.TableTransactionFailedException;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Repositório para operações no Azure Storage Tables
  * Gerencia persistência de avaliações e relatórios
+ * <p>
+ * As tabelas são provisionadas uma única vez (na inicialização ou no primeiro uso) e os
+ * {@link TableClient} de cada tabela ficam em cache; se uma tabela for removida em tempo de execução,
+ * ela é recriada e a operação repetida uma vez. Assim a gravação de uma avaliação custa uma única requisição.
+ * <p>
+ * Todas as chamadas passam pela {@link ResilienciaStorage} (disjuntor, concorrência adaptativa e retentativas);
+ * varreduras são repetidas página a página, pelo token de continuação, sem reentregar o que já foi lido.
+ * <p>
+ * As varreduras de avaliações pedem só as colunas usadas (projeção $select), em páginas de
+ * {@code avaliacoes.consulta.tamanho-pagina} entidades; períodos de mais de um dia são divididos em
+ * subintervalos diários, lidos em paralelo ({@code avaliacoes.consulta.paralelismo}).
  */
 @ApplicationScoped
 public class StorageTableRepository {
 
     private static final Logger LOG = Logger.getLogger(StorageTableRepository.class);
-    private static final String TABLE_AVALIACOES = "avaliacoes";
-    private static final String TABLE_RELATORIOS = "relatorios";
-    private static final String PARTITION_KEY_AVALIACOES = "Java";
+    static final String TABLE_AVALIACOES = "avaliacoes";
+    static final String TABLE_RELATORIOS = "relatorios";
+    static final String TABLE_IDEMPOTENCIA = "idempotencia";
+    private static final String PARTITION_KEY_LEGADA_AVALIACOES = "Java";
     private static final String PARTITION_KEY_RELATORIOS = "Semanal";
+    private static final String PARTITION_KEY_RELATORIOS_PERIODO = "Periodo";
+    private static final String PARTITION_KEY_INVALIDACOES = "Invalidacao";
+    private static final DateTimeFormatter CHAVE_PERIODO_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+    private static final int MAX_ACOES_TRANSACAO = 100;
+    private static final int MAX_TAMANHO_PAGINA = 1000;
+
+    /**
+     * Colunas de uma avaliação lidas nas varreduras (as chaves carregam o período e o ID)
+     */
+    public static final List<String> COLUNAS_AVALIACAO = List.of("PartitionKey", "RowKey", "nota", "urgencia", "dataHora", "descricao");
+
+    /**
+     * Colunas lidas quando só a descrição interessa (análise de texto sobre os rollups)
+     */
+    public static final List<String> COLUNAS_DESCRICAO = List.of("PartitionKey", "RowKey", "descricao");
+
+    @ConfigProperty(name = "avaliacoes.particionamento", defaultValue = "DIA")
+    EstrategiaParticionamento particionamento;
+
+    @ConfigProperty(name = "storage.provisionar-na-inicializacao", defaultValue = "true")
+    boolean provisionarNaInicializacao;
+
+    // Entidades por página nas varreduras de avaliações (máximo do serviço: 1000)
+    @ConfigProperty(name = "avaliacoes.consulta.tamanho-pagina", defaultValue = "1000")
+    int tamanhoPagina;
+
+    // Subintervalos diários lidos simultaneamente em uma varredura (1 = sequencial)
+    @ConfigProperty(name = "avaliacoes.consulta.paralelismo", defaultValue = "4")
+    int paralelismoConsulta;
 
     private volatile TableServiceClient tableServiceClient;
+    private final Map<String, TableClient> tabelas = new ConcurrentHashMap<>();
+    private final ResilienciaStorage resiliencia;
+
+    public StorageTableRepository(ResilienciaStorage resiliencia) {
+        this.resiliencia = resiliencia;
+    }
+
+    /**
+     * Provisiona as tabelas na inicialização da aplicação, fora do caminho das requisições
+     * Uma falha aqui (ex.: storage indisponível) não impede a inicialização: a tabela é provisionada no primeiro uso
+     */
+    void provisionar(@Observes StartupEvent evento) {
+        if (!provisionarNaInicializacao) {
+            return;
+        }
+        for (String tabela : List.of(TABLE_AVALIACOES, TABLE_RELATORIOS, TABLE_IDEMPOTENCIA, AgregadoRepository.TABLE_AGREGADOS)) {
+            try {
+                obterTabela(tabela);
+            } catch (Exception e) {
+                LOG.warnf("Não foi possível provisionar a tabela %s na inicialização: %s", tabela, e.getMessage());
+            }
+        }
+    }
 
     /**
      * Inicializa a conexão com o Azure Storage Tables
@@ -39,45 +137,128 @@ public class StorageTableRepository {
             synchronized (this) {
                 if (tableServiceClient == null) {
                     LOG.info("Inicializando conexão com Azure Storage Tables");
-                    String connectionString = System.getenv("AzureWebJobsStorage");
-                    if (connectionString == null || connectionString.isBlank()) {
-                        connectionString = System.getenv("AZURE_STORAGE_CONNECTION_STRING");
-                    }
-                    if (connectionString == null || connectionString.isBlank()) {
-                        throw new IllegalStateException("Connection string do Azure Storage não configurada. Defina AzureWebJobsStorage ou AZURE_STORAGE_CONNECTION_STRING.");
-                    }
-                    tableServiceClient = new TableServiceClientBuilder()
-                            .connectionString(connectionString)
-                            .buildClient();
+                    tableServiceClient = novoClientBuilder().buildClient();
                     LOG.info("Conexão estabelecida com sucesso");
                 }
             }
         }
     }
 
+    /**
+     * Builder dos clientes de tabela, com as retentativas do pipeline HTTP do SDK desligadas:
+     * as retentativas são feitas somente pela {@link ResilienciaStorage}
+     */
+    static TableServiceClientBuilder novoClientBuilder() {
+        return new TableServiceClientBuilder()
+                .connectionString(connectionString())
+                .retryOptions(new RetryOptions(new FixedDelayOptions(0, Duration.ZERO)));
+    }
+
+    /**
+     * Connection string do Azure Storage (AzureWebJobsStorage ou AZURE_STORAGE_CONNECTION_STRING)
+     */
+    static String connectionString() {
+        String connectionString = System.getenv("AzureWebJobsStorage");
+        if (connectionString == null || connectionString.isBlank()) {
+            connectionString = System.getenv("AZURE_STORAGE_CONNECTION_STRING");
+        }
+        if (connectionString == null || connectionString.isBlank()) {
+            throw new IllegalStateException("Connection string do Azure Storage não configurada. Defina AzureWebJobsStorage ou AZURE_STORAGE_CONNECTION_STRING.");
+        }
+        return connectionString;
+    }
+
+    /**
+     * Cliente do serviço de tabelas, inicializado sob demanda (compartilhado com os demais repositórios)
+     */
+    TableServiceClient obterServiceClient() {
+        initialize();
+        return tableServiceClient;
+    }
+
+    /**
+     * Cliente em cache de uma tabela, provisionando-a (createTableIfNotExists) apenas no primeiro acesso
+     */
+    TableClient obterTabela(String nome) {
+        TableClient tableClient = tabelas.get(nome);
+        return tableClient != null ? tableClient : tabelas.computeIfAbsent(nome, this::provisionarTabela);
+    }
+
+    /**
+     * Executa uma operação sobre a tabela, pela camada de resiliência; se a tabela tiver sido removida
+     * em tempo de execução, descarta o cliente em cache, reprovisiona a tabela e repete a operação uma vez
+     */
+    <T> T executar(String nome, Function<TableClient, T> operacao) {
+        return resiliencia.executar(nome, () -> executarNaTabela(nome, operacao));
+    }
+
+    /**
+     * Como {@link #executar(String, Function)}, para escritas que não podem ser repetidas às cegas
+     * (ver {@link ResilienciaStorage#executarNaoIdempotente(String, java.util.function.Supplier)})
+     */
+    <T> T executarNaoIdempotente(String nome, Function<TableClient, T> operacao) {
+        return resiliencia.executarNaoIdempotente(nome, () -> executarNaTabela(nome, operacao));
+    }
+
+    private <T> T executarNaTabela(String nome, Function<TableClient, T> operacao) {
+        try {
+            return operacao.apply(obterTabela(nome));
+        } catch (TableServiceException e) {
+            if (!tabelaInexistente(e)) {
+                throw e;
+            }
+            LOG.warnf("Tabela %s não encontrada; reprovisionando", nome);
+            tabelas.remove(nome);
+            return operacao.apply(obterTabela(nome));
+        }
+    }
+
+    private TableClient provisionarTabela(String nome) {
+        TableServiceClient serviceClient = obterServiceClient();
+        try {
+            serviceClient.createTableIfNotExists(nome);
+            LOG.infof("Tabela %s provisionada", nome);
+        } catch (Exception e) {
+            LOG.warnf("Tabela %s pode já existir ou erro ao criar: %s", nome, e.getMessage());
+        }
+        return serviceClient.getTableClient(nome);
+    }
+
+    /**
+     * A linha gravada tem as mesmas propriedades da entidade que se tentou inserir
+     * Uma inserção repetida pela camada de resiliência volta 409 se a tentativa anterior foi aplicada.
+     */
+    static boolean mesmoConteudo(TableEntity gravada, TableEntity nova) {
+        for (Map.Entry<String, Object> propriedade : nova.getProperties().entrySet()) {
+            if (!Objects.equals(gravada.getProperty(propriedade.getKey()), propriedade.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean tabelaInexistente(TableServiceException e) {
+        return e.getValue() != null && TableErrorCode.TABLE_NOT_FOUND.equals(e.getValue().getErrorCode());
+    }
+
     /**
      * Salva uma avaliação no Azure Storage Tables
      */
     public void salvarAvaliacao(Avaliacao avaliacao) {
         try {
-            initialize();
             LOG.infof("Salvando avaliação: %s", avaliacao.getId());
 
-            // Cria a tabela se não existir
+            TableEntity entity = toTableEntity(avaliacao);
             try {
-                tableServiceClient.createTableIfNotExists(TABLE_AVALIACOES);
-            } catch (Exception e) {
-                LOG.warnf("Tabela %s pode já existir ou erro ao criar: %s", TABLE_AVALIACOES, e.getMessage());
+                executar(TABLE_AVALIACOES, tableClient -> tableClient.createEntityWithResponse(entity, null, null));
+            } catch (TableServiceException e) {
+                // 409 após uma retentativa: a tentativa anterior pode ter gravado e só a resposta se perdeu
+                if (e.getResponse() == null || e.getResponse().getStatusCode() != 409
+                        || !mesmoConteudo(executar(TABLE_AVALIACOES, tableClient -> tableClient.getEntity(entity.getPartitionKey(), entity.getRowKey())), entity)) {
+                    throw e;
+                }
+                LOG.infof("Avaliação %s já estava gravada (inserção repetida)", avaliacao.getId());
             }
-
-            TableClient tableClient = tableServiceClient.getTableClient(TABLE_AVALIACOES);
-            TableEntity entity = new TableEntity(PARTITION_KEY_AVALIACOES, avaliacao.getId())
-                    .addProperty("descricao", avaliacao.getDescricao())
-                    .addProperty("nota", avaliacao.getNota())
-                    .addProperty("urgencia", avaliacao.getUrgencia() != null ? avaliacao.getUrgencia().toString() : "NORMAL")
-                    .addProperty("dataHora", avaliacao.getDataHora() != null ? avaliacao.getDataHora().toString() : LocalDateTime.now().toString());
-
-            tableClient.createEntity(entity);
             LOG.infof("Avaliação salva com sucesso: %s", avaliacao.getId());
         } catch (Exception e) {
             LOG.errorf("Erro ao salvar avaliação: %s", e.getMessage());
@@ -85,113 +266,564 @@ public class StorageTableRepository {
         }
     }
 
+    /**
+     * Salva um lote de avaliações usando transações do Azure Storage Tables
+     * As avaliações são agrupadas por partição em transações de até 100 entidades;
+     * uma transação é atômica, então uma falha afeta apenas as avaliações do seu grupo.
+     * <p>
+     * A transação só contém inserções e não é repetida às cegas: após uma falha transitória, a primeira
+     * avaliação do grupo é relida para saber se a transação foi aplicada (só a resposta se perdeu).
+     *
+     * @return mapa de ID da avaliação para mensagem de erro, contendo somente as que falharam
+     */
+    public Map<String, String> salvarAvaliacoesEmLote(List<Avaliacao> avaliacoes) {
+        Map<String, String> falhas = new LinkedHashMap<>();
+        if (avaliacoes.isEmpty()) {
+            return falhas;
+        }
+
+        try {
+            obterTabela(TABLE_AVALIACOES);
+            LOG.infof("Salvando lote de %d avaliações", avaliacoes.size());
+        } catch (Exception e) {
+            LOG.errorf("Erro ao preparar lote de avaliações: %s", e.getMessage());
+            avaliacoes.forEach(a -> falhas.put(a.getId(), "Erro ao salvar avaliação"));
+            return falhas;
+        }
+
+        // Agrupa por partição: transações só podem conter entidades da mesma PartitionKey
+        Map<String, List<TableTransactionAction>> porParticao = new LinkedHashMap<>();
+        for (Avaliacao avaliacao : avaliacoes) {
+            TableEntity entity = toTableEntity(avaliacao);
+            porParticao.computeIfAbsent(entity.getPartitionKey(), k -> new ArrayList<>())
+                    .add(new TableTransactionAction(TableTransactionActionType.CREATE, entity));
+        }
+
+        int transacoes = 0;
+        for (List<TableTransactionAction> acoes : porParticao.values()) {
+            for (int inicio = 0; inicio < acoes.size(); inicio += MAX_ACOES_TRANSACAO) {
+                List<TableTransactionAction> grupo = acoes.subList(inicio, Math.min(inicio + MAX_ACOES_TRANSACAO, acoes.size()));
+                transacoes++;
+                try {
+                    executarNaoIdempotente(TABLE_AVALIACOES, tableClient -> tableClient.submitTransaction(grupo));
+                } catch (TableTransactionFailedException e) {
+                    Integer indiceFalha = e.getFailedTransactionActionIndex();
+                    LOG.errorf("Transação rejeitada (ação %s): %s", indiceFalha, e.getMessage());
+                    for (int i = 0; i < grupo.size(); i++) {
+                        String id = EstrategiaParticionamento.idDoRowKey(grupo.get(i).getEntity().getRowKey());
+                        falhas.put(id, indiceFalha != null && indiceFalha == i
+                                ? "Avaliação rejeitada pelo armazenamento"
+                                : "Transação do lote revertida");
+                    }
+                } catch (Exception e) {
+                    if (ResilienciaStorage.resultadoIncerto(e) && transacaoAplicada(grupo)) {
+                        LOG.infof("Transação do lote já estava aplicada (resposta perdida: %s)", e.getMessage());
+                        continue;
+                    }
+                    LOG.errorf("Erro ao salvar transação do lote: %s", e.getMessage());
+                    grupo.forEach(acao -> falhas.put(EstrategiaParticionamento.idDoRowKey(acao.getEntity().getRowKey()), "Erro ao salvar avaliação"));
+                }
+            }
+        }
+
+        LOG.infof("Lote salvo em %d transações - %d falhas", transacoes, falhas.size());
+        return falhas;
+    }
+
+    /**
+     * Verifica se uma transação de inserções com resultado incerto foi aplicada: como ela é atômica,
+     * basta encontrar a primeira entidade do grupo gravada com o mesmo conteúdo
+     */
+    private boolean transacaoAplicada(List<TableTransactionAction> grupo) {
+        TableEntity primeira = grupo.get(0).getEntity();
+        try {
+            return mesmoConteudo(executar(TABLE_AVALIACOES, tableClient -> tableClient.getEntity(primeira.getPartitionKey(), primeira.getRowKey())), primeira);
+        } catch (TableServiceException e) {
+            if (e.getResponse() == null || e.getResponse().getStatusCode() != 404) {
+                LOG.warnf("Não foi possível verificar a transação do lote: %s", e.getMessage());
+            }
+            return false;
+        } catch (Exception e) {
+            LOG.warnf("Não foi possível verificar a transação do lote: %s", e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Busca avaliações em um período específico
+     * Consulta por intervalo de PartitionKey/RowKey: o custo acompanha o volume do período, não o tamanho da tabela
+     * Uma falha é propagada (e não convertida em lista vazia, que geraria um relatório vazio em silêncio).
      */
     public List<Avaliacao> buscarAvaliacoesPorPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        List<Avaliacao> avaliacoes = new ArrayList<>();
+        percorrerAvaliacoesPorPeriodo(inicio, fim, avaliacoes::add);
+        return avaliacoes;
+    }
+
+    /**
+     * Migra as avaliações gravadas na partição legada "Java" para as partições por período
+     * A operação é idempotente: cada linha é copiada (upsert) para a nova chave antes de ser removida
+     * As avaliações migradas não passaram pelos rollups: os dias retornados devem ser reconstruídos
+     * (ver {@code AgregadoService.reconstruirDia}).
+     *
+     * @return quantidade de avaliações migradas por dia
+     */
+    public Map<LocalDate, Integer> migrarParticaoLegada() {
         try {
-            initialize();
-            LOG.infof("Buscando avaliações entre %s e %s", inicio, fim);
+            LOG.infof("Migrando avaliações da partição legada '%s' (estratégia %s)", PARTITION_KEY_LEGADA_AVALIACOES, particionamento);
 
-            TableClient tableClient = tableServiceClient.getTableClient(TABLE_AVALIACOES);
+            TableClient tableClient = obterTabela(TABLE_AVALIACOES);
+            ListEntitiesOptions options = new ListEntitiesOptions()
+                    .setFilter(String.format("PartitionKey eq '%s'", PARTITION_KEY_LEGADA_AVALIACOES));
 
-            String filter = String.format("Timestamp ge datetime'%s' and Timestamp lt datetime'%s'",
-                    inicio.format(DateTimeFormatter.ISO_DATE_TIME),
-                    fim.format(DateTimeFormatter.ISO_DATE_TIME));
+            Map<LocalDate, Integer> migradas = new TreeMap<>();
+            for (TableEntity legada : tableClient.listEntities(options, null, null)) {
+                LocalDateTime dataHora = dataHoraDaEntidadeLegada(legada);
+                TableEntity migrada = new TableEntity(particionamento.partitionKey(dataHora), EstrategiaParticionamento.rowKey(dataHora, legada.getRowKey()))
+                        .addProperty("descricao", legada.getProperty("descricao"))
+                        .addProperty("nota", legada.getProperty("nota"))
+                        .addProperty("urgencia", legada.getProperty("urgencia"))
+                        .addProperty("dataHora", dataHora.toString());
 
-            ListEntitiesOptions options = new ListEntitiesOptions().setFilter(filter);
+                resiliencia.executarAcao(TABLE_AVALIACOES, () -> tableClient.upsertEntity(migrada));
+                resiliencia.executarAcao(TABLE_AVALIACOES, () -> tableClient.deleteEntity(legada.getPartitionKey(), legada.getRowKey()));
+                migradas.merge(dataHora.toLocalDate(), 1, Integer::sum);
+            }
 
-            List<Avaliacao> avaliacoes = tableClient.listEntities(options, null, null)
-                    .stream()
-                    .map(this::fromTableEntity)
-                    .collect(Collectors.toList());
+            LOG.infof("Migração concluída: %d avaliações movidas, em %d dias",
+                    migradas.values().stream().mapToInt(Integer::intValue).sum(), migradas.size());
+            return migradas;
+        } catch (Exception e) {
+            LOG.errorf("Erro ao migrar partição legada: %s", e.getMessage());
+            throw new RuntimeException("Erro ao migrar partição legada", e);
+        }
+    }
 
-            LOG.infof("Total de avaliações encontradas: %d", avaliacoes.size());
-            return avaliacoes;
+    /**
+     * Percorre as avaliações de um período página a página, entregando cada uma ao consumidor
+     * Nenhuma lista é materializada: a memória usada independe do volume do período
+     *
+     * @return quantidade de avaliações percorridas
+     */
+    public long percorrerAvaliacoesPorPeriodo(LocalDateTime inicio, LocalDateTime fim, Consumer<Avaliacao> consumidor) {
+        return percorrerAvaliacoesPorPeriodo(inicio, fim, COLUNAS_AVALIACAO, consumidor);
+    }
+
+    /**
+     * Percorre as avaliações de um período lendo só as colunas informadas (as demais chegam nulas/padrão)
+     * <p>
+     * Com paralelismo maior que 1, cada dia do período é varrido por uma virtual thread e as páginas são
+     * entregues ao consumidor uma de cada vez (sob lock), em ordem qualquer: o consumidor não precisa ser
+     * thread-safe, mas não deve depender da ordem cronológica.
+     *
+     * @return quantidade de avaliações percorridas
+     */
+    public long percorrerAvaliacoesPorPeriodo(LocalDateTime inicio, LocalDateTime fim, List<String> colunas, Consumer<Avaliacao> consumidor) {
+        try {
+            List<LocalDateTime> limites = limitesConsulta(inicio, fim);
+            LOG.infof("Percorrendo avaliações entre %s e %s (%d subintervalos)", inicio, fim, limites.size() - 1);
+
+            AtomicLong total = new AtomicLong();
+            AtomicInteger paginas = new AtomicInteger();
+            if (limites.size() <= 2) {
+                varrer(inicio, fim, colunas, pagina -> {
+                    pagina.forEach(consumidor);
+                    total.addAndGet(pagina.size());
+                    paginas.incrementAndGet();
+                });
+            } else {
+                varrerEmParalelo(limites, colunas, pagina -> {
+                    pagina.forEach(consumidor);
+                    total.addAndGet(pagina.size());
+                    paginas.incrementAndGet();
+                });
+            }
+
+            LOG.infof("Total de avaliações percorridas: %d em %d páginas", total.get(), paginas.get());
+            return total.get();
         } catch (Exception e) {
-            LOG.errorf("Erro ao buscar avaliações: %s", e.getMessage());
-            return new ArrayList<>();
+            LOG.errorf("Erro ao percorrer avaliações: %s", e.getMessage());
+            throw new RuntimeException("Erro ao percorrer avaliações", e);
+        }
+    }
+
+    /**
+     * Limites dos subintervalos de uma varredura: os dias do período com paralelismo, ou o período inteiro sem
+     */
+    List<LocalDateTime> limitesConsulta(LocalDateTime inicio, LocalDateTime fim) {
+        return paralelismoConsulta > 1 ? EstrategiaParticionamento.limitesDiarios(inicio, fim) : List.of(inicio, fim);
+    }
+
+    int getParalelismoConsulta() {
+        return Math.max(1, paralelismoConsulta);
+    }
+
+    /**
+     * Opções da varredura de avaliações de um período: filtro por intervalo de chaves, projeção e tamanho de página
+     */
+    ListEntitiesOptions opcoesConsulta(LocalDateTime inicio, LocalDateTime fim, List<String> colunas) {
+        return new ListEntitiesOptions()
+                .setFilter(EstrategiaParticionamento.filtroPeriodo(inicio, fim))
+                .setSelect(colunas)
+                .setTop(Math.max(1, Math.min(MAX_TAMANHO_PAGINA, tamanhoPagina)));
+    }
+
+    /**
+     * Varre um intervalo sequencialmente, entregando cada página já convertida
+     */
+    private void varrer(LocalDateTime inicio, LocalDateTime fim, List<String> colunas, Consumer<List<Avaliacao>> entregarPagina) {
+        TableClient tableClient = obterTabela(TABLE_AVALIACOES);
+        ListEntitiesOptions options = opcoesConsulta(inicio, fim, colunas);
+
+        String continuacao = null;
+        do {
+            String token = continuacao;
+            PagedResponse<TableEntity> pagina = resiliencia.executar(TABLE_AVALIACOES,
+                    () -> pagina(tableClient.listEntities(options, null, null), token));
+            if (pagina == null) {
+                break;
+            }
+            List<Avaliacao> avaliacoes = new ArrayList<>(pagina.getValue().size());
+            for (TableEntity entity : pagina.getValue()) {
+                avaliacoes.add(fromTableEntity(entity));
+            }
+            entregarPagina.accept(avaliacoes);
+            continuacao = pagina.getContinuationToken();
+        } while (continuacao != null);
+    }
+
+    /**
+     * Varre os subintervalos com até {@link #getParalelismoConsulta()} virtual threads
+     * A leitura e a conversão das páginas correm em paralelo; a entrega é serializada por um lock.
+     * Na primeira falha as demais varreduras param na página seguinte, e a falha é propagada
+     * depois que todas terminaram (nada é entregue após o retorno).
+     */
+    private void varrerEmParalelo(List<LocalDateTime> limites, List<String> colunas, Consumer<List<Avaliacao>> entregarPagina) throws Exception {
+        int subintervalos = limites.size() - 1;
+        AtomicInteger proximo = new AtomicInteger();
+        AtomicBoolean interrompida = new AtomicBoolean();
+        ReentrantLock entrega = new ReentrantLock();
+        Consumer<List<Avaliacao>> entregaSerializada = pagina -> {
+            if (interrompida.get()) {
+                throw new CancellationException("Varredura interrompida por falha em outro subintervalo");
+            }
+            entrega.lock();
+            try {
+                entregarPagina.accept(pagina);
+            } finally {
+                entrega.unlock();
+            }
+        };
+
+        List<Future<?>> varreduras = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < Math.min(getParalelismoConsulta(), subintervalos); i++) {
+                varreduras.add(executor.submit(() -> {
+                    int indice;
+                    while (!interrompida.get() && (indice = proximo.getAndIncrement()) < subintervalos) {
+                        try {
+                            varrer(limites.get(indice), limites.get(indice + 1), colunas, entregaSerializada);
+                        } catch (RuntimeException e) {
+                            interrompida.set(true);
+                            throw e;
+                        }
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        Exception falha = null;
+        for (Future<?> varredura : varreduras) {
+            try {
+                varredura.get();
+            } catch (ExecutionException e) {
+                Exception causa = e.getCause() instanceof Exception c ? c : e;
+                if (falha == null || falha instanceof CancellationException) {
+                    falha = causa;
+                }
+            }
+        }
+        if (falha != null) {
+            throw falha;
         }
     }
 
+    /**
+     * Busca uma única página de uma listagem, a partir do token de continuação (null para a primeira)
+     * Cada página é uma chamada independente, que pode ser repetida sem reler as anteriores.
+     */
+    static <T> PagedResponse<T> pagina(PagedIterable<T> listagem, String continuacao) {
+        Iterator<PagedResponse<T>> paginas = (continuacao == null ? listagem.iterableByPage() : listagem.iterableByPage(continuacao)).iterator();
+        return paginas.hasNext() ? paginas.next() : null;
+    }
+
     /**
      * Salva um relatório semanal no Azure Storage Tables
+     * A linha é identificada pelo id do relatório e gravada com upsert: repetir a escrita após uma falha
+     * transitória (que pode ter sido aplicada) não resulta em 409.
      */
     public void salvarRelatorio(RelatorioSemanal relatorio) {
         try {
-            initialize();
             LOG.infof("Salvando relatório: %s", relatorio.getId());
 
+            TableEntity entity = toTableEntity(relatorio);
+            executar(TABLE_RELATORIOS, tableClient -> tableClient.upsertEntityWithResponse(entity, TableEntityUpdateMode.REPLACE, null, null));
+            LOG.infof("Relatório salvo com sucesso: %s", relatorio.getId());
+        } catch (Exception e) {
+            LOG.errorf("Erro ao salvar relatório: %s", e.getMessage());
+            throw new RuntimeException("Erro ao salvar relatório", e);
+        }
+    }
 
-            // Cria a tabela se não existir
-            try {
-                tableServiceClient.createTableIfNotExists(TABLE_RELATORIOS);
-            } catch (Exception e) {
-                LOG.warnf("Tabela %s pode já existir ou erro ao criar: %s", TABLE_RELATORIOS, e.getMessage());
-            }
-
-            TableClient tableClient = tableServiceClient.getTableClient(TABLE_RELATORIOS);
-            TableEntity entity = new TableEntity(PARTITION_KEY_RELATORIOS, relatorio.getId())
-                    .addProperty("dataGeracao", relatorio.getDataGeracao() != null ? relatorio.getDataGeracao().toString() : LocalDateTime.now().toString())
-                    .addProperty("periodoInicio", relatorio.getPeriodoInicio() != null ? relatorio.getPeriodoInicio().toString() : "")
-                    .addProperty("periodoFim", relatorio.getPeriodoFim() != null ? relatorio.getPeriodoFim().toString() : "")
-                    .addProperty("totalAvaliacoes", relatorio.getTotalAvaliacoes())
-                    .addProperty("mediaNotas", relatorio.getMediaNotas())
-                    .addProperty("notaMaisAlta", relatorio.getNotaMaisAlta() != null ? relatorio.getNotaMaisAlta() : 0)
-                    .addProperty("notaMaisBaixa", relatorio.getNotaMaisBaixa() != null ? relatorio.getNotaMaisBaixa() : 0);
-
-            if (relatorio.getAvaliacoesPorDia() != null) {
-                StringBuilder diasJson = new StringBuilder();
-                relatorio.getAvaliacoesPorDia().forEach((dia, count) -> {
-                    if (diasJson.length() > 0) diasJson.append(",");
-                    diasJson.append(String.format("\"%s\":%d", dia, count));
-                });
-                entity.addProperty("avaliacoesPorDia", "{" + diasJson + "}");
+    /**
+     * Salva o relatório de um período encerrado, com chave derivada do período (sobrescreve o anterior)
+     * Os limites devem estar alinhados à hora.
+     * <p>
+     * O relatório foi calculado depois de ler as invalidações do período ({@link #buscarInvalidacoes}). Se um dia
+     * do período foi invalidado desde então, o cálculo pode não incluir a avaliação atrasada: a linha gravada é
+     * removida. Como a invalidação marca o dia antes de remover os relatórios, uma invalidação que não aparece
+     * na releitura remove a linha por conta própria.
+     *
+     * @param invalidacoesLidas invalidações lidas antes do cálculo
+     * @return false se o período foi invalidado durante o cálculo (nada fica gravado)
+     */
+    public boolean salvarRelatorioPorPeriodo(RelatorioSemanal relatorio, Map<LocalDate, OffsetDateTime> invalidacoesLidas) {
+        String chave = chavePeriodo(relatorio.getPeriodoInicio(), relatorio.getPeriodoFim());
+        try {
+            TableEntity entity = toTableEntity(relatorio, PARTITION_KEY_RELATORIOS_PERIODO, chave);
+            // Substitui a linha inteira: um merge manteria partes (dados_N) de uma gravação anterior maior
+            executar(TABLE_RELATORIOS, tableClient -> tableClient.upsertEntityWithResponse(entity, TableEntityUpdateMode.REPLACE, null, null));
+        } catch (Exception e) {
+            LOG.errorf("Erro ao salvar relatório do período: %s", e.getMessage());
+            throw new RuntimeException("Erro ao salvar relatório", e);
+        }
+        if (!buscarInvalidacoes(relatorio.getPeriodoInicio(), relatorio.getPeriodoFim()).equals(invalidacoesLidas)) {
+            removerRelatorioPorPeriodo(chave);
+            LOG.infof("Relatório do período %s descartado: o período foi invalidado durante o cálculo", chave);
+            return false;
+        }
+        LOG.infof("Relatório do período %s salvo", chave);
+        return true;
+    }
+
+    /**
+     * Última invalidação (timestamp do servidor) de cada dia do período [inicio, fim) que já foi invalidado
+     */
+    public Map<LocalDate, OffsetDateTime> buscarInvalidacoes(LocalDateTime inicio, LocalDateTime fim) {
+        ListEntitiesOptions options = new ListEntitiesOptions()
+                .setFilter(String.format("PartitionKey eq '%s' and RowKey ge '%s' and RowKey le '%s'",
+                        PARTITION_KEY_INVALIDACOES, inicio.toLocalDate(), fim.minusNanos(1).toLocalDate()));
+        return executar(TABLE_RELATORIOS, tableClient -> {
+            Map<LocalDate, OffsetDateTime> invalidacoes = new TreeMap<>();
+            tableClient.listEntities(options, null, null)
+                    .forEach(entity -> invalidacoes.put(LocalDate.parse(entity.getRowKey()), entity.getTimestamp()));
+            return invalidacoes;
+        });
+    }
+
+    /**
+     * Relatório já calculado de um período (leitura pontual por PartitionKey/RowKey)
+     * Uma linha gravada antes da última invalidação de um dia do período é tratada como ausente.
+     *
+     * @param invalidacoes invalidações do período ({@link #buscarInvalidacoes})
+     */
+    public Optional<RelatorioSemanal> buscarRelatorioPorPeriodo(LocalDateTime inicio, LocalDateTime fim,
+                                                                Map<LocalDate, OffsetDateTime> invalidacoes) {
+        String chave = chavePeriodo(inicio, fim);
+        try {
+            TableEntity entity = executar(TABLE_RELATORIOS, tableClient -> tableClient.getEntity(PARTITION_KEY_RELATORIOS_PERIODO, chave));
+            if (entity.getTimestamp() != null && invalidacoes.values().stream().anyMatch(invalidacao -> !entity.getTimestamp().isAfter(invalidacao))) {
+                LOG.infof("Relatório do período %s ignorado: gravado antes de uma invalidação", chave);
+                return Optional.empty();
+            }
+            return Optional.of(relatorioDeEntidade(entity));
+        } catch (TableServiceException e) {
+            if (e.getResponse() != null && e.getResponse().getStatusCode() == 404) {
+                return Optional.empty();
             }
+            throw e;
+        } catch (IllegalStateException e) {
+            // Gravado em formato ilegível: tratado como ausente, o relatório é recalculado e sobrescrito
+            LOG.warnf("Relatório do período %s ignorado: %s", chave, e.getMessage());
+            return Optional.empty();
+        }
+    }
 
-            // Adiciona contagem por urgência como propriedades separadas
-            if (relatorio.getContagemPorUrgencia() != null) {
-                relatorio.getContagemPorUrgencia().forEach((nivel, count) -> {
-                    entity.addProperty("contagem_" + nivel, count);
-                });
+    /**
+     * Relatório semanal gravado, pelo ID (leitura pontual por PartitionKey/RowKey)
+     */
+    public Optional<RelatorioSemanal> buscarRelatorio(String id) {
+        try {
+            TableEntity entity = executar(TABLE_RELATORIOS, tableClient -> tableClient.getEntity(PARTITION_KEY_RELATORIOS, id));
+            return Optional.of(relatorioDeEntidade(entity));
+        } catch (TableServiceException e) {
+            if (e.getResponse() != null && e.getResponse().getStatusCode() == 404) {
+                return Optional.empty();
             }
+            throw e;
+        }
+    }
 
-            // Adiciona palavras recorrentes (serializa como JSON string)
-            if (relatorio.getPalavrasRecorrentes() != null && !relatorio.getPalavrasRecorrentes().isEmpty()) {
-                StringBuilder palavrasJson = new StringBuilder();
-                for (java.util.Map.Entry<String, Long> entry : relatorio.getPalavrasRecorrentes().entrySet()) {
-                    if (palavrasJson.length() > 0) palavrasJson.append(",");
-                    String palavra = entry.getKey() != null ? entry.getKey() : "";
-                    Long count = entry.getValue() != null ? entry.getValue() : 0L;
-                    palavrasJson.append(String.format("\"%s\":%d", palavra.replace("\"", "\\\\\""), count.longValue()));
+    /**
+     * Relatórios semanais gravados, do mais recente para o mais antigo
+     * Linhas que não puderem ser decodificadas são ignoradas (com aviso).
+     *
+     * @param limite quantidade máxima de relatórios retornados
+     */
+    public List<RelatorioSemanal> listarRelatorios(int limite) {
+        ListEntitiesOptions options = new ListEntitiesOptions()
+                .setFilter(String.format("PartitionKey eq '%s'", PARTITION_KEY_RELATORIOS));
+        List<RelatorioSemanal> relatorios = executar(TABLE_RELATORIOS, tableClient -> {
+            List<RelatorioSemanal> lidos = new ArrayList<>();
+            for (TableEntity entity : tableClient.listEntities(options, null, null)) {
+                try {
+                    lidos.add(relatorioDeEntidade(entity));
+                } catch (IllegalStateException e) {
+                    LOG.warnf("Relatório %s ignorado: %s", entity.getRowKey(), e.getMessage());
                 }
-                entity.addProperty("palavrasRecorrentes", "{" + palavrasJson + "}");
             }
+            return lidos;
+        });
+        // RowKey é o ID (UUID), sem ordem temporal: ordena pela data de geração
+        relatorios.sort(Comparator.comparing(RelatorioSemanal::getDataGeracao, Comparator.nullsLast(Comparator.reverseOrder())));
+        return relatorios.size() > limite ? new ArrayList<>(relatorios.subList(0, limite)) : relatorios;
+    }
 
-            // Adiciona frases recorrentes (serializa como JSON string)
-            if (relatorio.getFrasesRecorrentes() != null && !relatorio.getFrasesRecorrentes().isEmpty()) {
-                StringBuilder frasesJson = new StringBuilder();
-                for (java.util.Map.Entry<String, Long> entry : relatorio.getFrasesRecorrentes().entrySet()) {
-                    if (frasesJson.length() > 0) frasesJson.append(",");
-                    String frase = entry.getKey() != null ? entry.getKey() : "";
-                    Long count = entry.getValue() != null ? entry.getValue() : 0L;
-                    frasesJson.append(String.format("\"%s\":%d", frase.replace("\"", "\\\\\""), count.longValue()));
-                }
-                entity.addProperty("frasesRecorrentes", "{" + frasesJson + "}");
+    /**
+     * Remove os relatórios de períodos que incluem o dia (uma avaliação chegou atrasada para ele)
+     * Antes, marca o dia como invalidado: cálculos em andamento não gravam o relatório e as instâncias
+     * revalidam os relatórios do período em cache (ver {@link #buscarInvalidacoes}).
+     *
+     * @return quantidade de relatórios removidos
+     */
+    public int invalidarRelatoriosDoDia(LocalDate dia) {
+        executar(TABLE_RELATORIOS, tableClient -> {
+            tableClient.upsertEntity(new TableEntity(PARTITION_KEY_INVALIDACOES, dia.toString()));
+            return null;
+        });
+        ListEntitiesOptions options = new ListEntitiesOptions()
+                .setFilter(String.format("PartitionKey eq '%s' and RowKey lt '%s' and periodoFim gt '%s'",
+                        PARTITION_KEY_RELATORIOS_PERIODO,
+                        dia.plusDays(1).atStartOfDay().format(CHAVE_PERIODO_FORMATTER),
+                        dia.atStartOfDay()))
+                .setSelect(List.of("PartitionKey", "RowKey"));
+        List<String> chaves = executar(TABLE_RELATORIOS, tableClient -> {
+            List<String> encontradas = new ArrayList<>();
+            tableClient.listEntities(options, null, null).forEach(entity -> encontradas.add(entity.getRowKey()));
+            return encontradas;
+        });
+        chaves.forEach(this::removerRelatorioPorPeriodo);
+        if (!chaves.isEmpty()) {
+            LOG.infof("%d relatórios de período invalidados pelo dia %s", chaves.size(), dia);
+        }
+        return chaves.size();
+    }
+
+    private void removerRelatorioPorPeriodo(String chave) {
+        try {
+            resiliencia.executarAcao(TABLE_RELATORIOS, () -> obterTabela(TABLE_RELATORIOS).deleteEntity(PARTITION_KEY_RELATORIOS_PERIODO, chave));
+        } catch (TableServiceException e) {
+            // Já removido (por outra invalidação ou por uma tentativa anterior cuja resposta se perdeu)
+            if (e.getResponse() == null || e.getResponse().getStatusCode() != 404) {
+                throw e;
             }
+        }
+    }
 
-            tableClient.createEntity(entity);
-            LOG.infof("Relatório salvo com sucesso: %s", relatorio.getId());
+    /**
+     * RowKey do relatório de um período: início e fim com precisão de hora (ex.: 2024-05-01T00_2024-05-08T00)
+     */
+    static String chavePeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        return inicio.format(CHAVE_PERIODO_FORMATTER) + '_' + fim.format(CHAVE_PERIODO_FORMATTER);
+    }
+
+    /**
+     * Converte RelatorioSemanal para TableEntity
+     */
+    TableEntity toTableEntity(RelatorioSemanal relatorio) {
+        return toTableEntity(relatorio, PARTITION_KEY_RELATORIOS, relatorio.getId());
+    }
+
+    private TableEntity toTableEntity(RelatorioSemanal relatorio, String partitionKey, String rowKey) {
+        TableEntity entity = new TableEntity(partitionKey, rowKey)
+                .addProperty("id", relatorio.getId())
+                .addProperty("dataGeracao", relatorio.getDataGeracao() != null ? relatorio.getDataGeracao().toString() : LocalDateTime.now().toString())
+                .addProperty("periodoInicio", relatorio.getPeriodoInicio() != null ? relatorio.getPeriodoInicio().toString() : "")
+                .addProperty("periodoFim", relatorio.getPeriodoFim() != null ? relatorio.getPeriodoFim().toString() : "")
+                .addProperty("totalAvaliacoes", relatorio.getTotalAvaliacoes())
+                .addProperty("mediaNotas", relatorio.getMediaNotas())
+                .addProperty("notaMaisAlta", relatorio.getNotaMaisAlta() != null ? relatorio.getNotaMaisAlta() : 0)
+                .addProperty("notaMaisBaixa", relatorio.getNotaMaisBaixa() != null ? relatorio.getNotaMaisBaixa() : 0);
+
+        if (relatorio.getNps() != null) {
+            entity.addProperty("nps", relatorio.getNps());
+        }
+
+        // Mapas (por dia, urgência, percentis, palavras e frases) no formato versionado
+        CodificacaoRelatorio.escrever(relatorio, entity);
+        return entity;
+    }
+
+    /**
+     * Converte TableEntity para RelatorioSemanal (formato versionado ou legado)
+     *
+     * @throws IllegalStateException se os mapas gravados não puderem ser decodificados
+     */
+    RelatorioSemanal relatorioDeEntidade(TableEntity entity) {
+        Map<String, Object> propriedades = entity.getProperties();
+        Object id = propriedades.get("id");
+        RelatorioSemanal relatorio = RelatorioSemanal.builder()
+                .id(id != null ? id.toString() : entity.getRowKey())
+                .dataGeracao(dataHora(propriedades.get("dataGeracao")))
+                .periodoInicio(dataHora(propriedades.get("periodoInicio")))
+                .periodoFim(dataHora(propriedades.get("periodoFim")))
+                .totalAvaliacoes(numero(propriedades.get("totalAvaliacoes")).longValue())
+                .mediaNotas(numero(propriedades.get("mediaNotas")).doubleValue())
+                .notaMaisAlta(numero(propriedades.get("notaMaisAlta")).intValue())
+                .notaMaisBaixa(numero(propriedades.get("notaMaisBaixa")).intValue())
+                .nps(propriedades.get("nps") instanceof Number nps ? nps.doubleValue() : null)
+                .build();
+        CodificacaoRelatorio.Mapas mapas = CodificacaoRelatorio.versionado(propriedades)
+                ? CodificacaoRelatorio.ler(propriedades)
+                : CodificacaoRelatorio.lerLegado(propriedades);
+        mapas.aplicar(relatorio);
+        relatorio.inicializar();
+        return relatorio;
+    }
+
+    private static Number numero(Object valor) {
+        return valor instanceof Number numero ? numero : 0;
+    }
+
+    private static LocalDateTime dataHora(Object valor) {
+        if (valor == null || valor.toString().isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(valor.toString());
         } catch (Exception e) {
-            LOG.errorf("Erro ao salvar relatório: %s", e.getMessage());
-            throw new RuntimeException("Erro ao salvar relatório", e);
+            LOG.warnf("Data inválida no relatório: %s", valor);
+            return null;
         }
     }
 
+    /**
+     * Converte Avaliacao para TableEntity, na partição do seu período
+     */
+    TableEntity toTableEntity(Avaliacao avaliacao) {
+        LocalDateTime dataHora = avaliacao.getDataHora() != null ? avaliacao.getDataHora() : LocalDateTime.now();
+        return new TableEntity(particionamento.partitionKey(dataHora), EstrategiaParticionamento.rowKey(dataHora, avaliacao.getId()))
+                .addProperty("descricao", avaliacao.getDescricao())
+                .addProperty("nota", avaliacao.getNota())
+                .addProperty("urgencia", avaliacao.getUrgencia() != null ? avaliacao.getUrgencia().toString() : "NORMAL")
+                .addProperty("dataHora", dataHora.toString());
+    }
+
     /**
      * Converte TableEntity para Avaliacao
      */
-    private Avaliacao fromTableEntity(TableEntity entity) {
+    Avaliacao fromTableEntity(TableEntity entity) {
         String descricao = (String) entity.getProperty("descricao");
         Integer nota = (Integer) entity.getProperty("nota");
         String urgenciaStr = (String) entity.getProperty("urgencia");
@@ -219,7 +851,7 @@ public class StorageTableRepository {
         }
 
         return Avaliacao.builder()
-                .id(entity.getRowKey())
+                .id(EstrategiaParticionamento.idDoRowKey(entity.getRowKey()))
                 .descricao(descricao != null ? descricao : "")
                 .nota(nota != null ? nota : 0)
                 .urgencia(urgencia)
@@ -227,6 +859,22 @@ public class StorageTableRepository {
                 .build();
     }
 
+    /**
+     * Obtém a data/hora de uma linha legada, recorrendo ao Timestamp do serviço quando ausente ou inválida
+     */
+    private LocalDateTime dataHoraDaEntidadeLegada(TableEntity entity) {
+        Object dataHora = entity.getProperty("dataHora");
+        if (dataHora != null) {
+            try {
+                return LocalDateTime.parse(dataHora.toString());
+            } catch (Exception e) {
+                LOG.warnf("Data inválida na linha legada %s: %s", entity.getRowKey(), dataHora);
+            }
+        }
+        OffsetDateTime timestamp = entity.getTimestamp();
+        return timestamp != null ? timestamp.toLocalDateTime() : LocalDateTime.now();
+    }
+
     /**
      * Fecha a conexão com o Azure Storage Tables
      */
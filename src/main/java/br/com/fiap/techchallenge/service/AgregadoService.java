@@ -0,0 +1,304 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.AgregadoNotas;
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.repository.AgregadoRepository;
+import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import lombok.RequiredArgsConstructor;
+import org.jboss.logging.Logger;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Serviço de rollups incrementais das avaliações (hora → dia → semana)
+ * <p>
+ * Na ingestão, cada avaliação soma sua nota ao agregado da sua hora.
+ * Na leitura de um período, semanas e dias já encerrados são lidos dos rollups semanal/diário
+ * (materializados na primeira leitura a partir das horas) e as bordas do período, das linhas horárias.
+ * No modo aproximado da análise de texto, o mesmo vale para os sketches diários de palavras e frases.
+ * <p>
+ * Avaliações gravadas sem passar pela ingestão com rollups (anteriores à ativação ou migradas da partição
+ * legada) só entram nos rollups pela reconstrução do dia ({@link #reconstruirDia(LocalDate)}).
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class AgregadoService {
+
+    private static final Logger LOG = Logger.getLogger(AgregadoService.class);
+    private static final int MAX_TENTATIVAS_RECONSTRUCAO = 5;
+
+    private final AgregadoRepository repository;
+    private final StorageTableRepository storageTableRepository;
+    private final AnaliseTextoService analiseTextoService;
+    private final Event<DiaInvalidado> diaInvalidado;
+
+    /**
+     * Evento (síncrono) disparado depois que os relatórios persistidos de um dia encerrado foram invalidados
+     */
+    public record DiaInvalidado(LocalDate dia) {
+    }
+
+    /**
+     * Atualiza o rollup horário com uma avaliação
+     */
+    public void registrar(Avaliacao avaliacao) {
+        registrarLote(List.of(avaliacao));
+    }
+
+    /**
+     * Atualiza os rollups horários com um lote de avaliações
+     * As avaliações são combinadas por hora antes da escrita: uma atualização por hora distinta do lote
+     * <p>
+     * Avaliações de dias já encerrados (atrasadas) desatualizam o que foi calculado a partir daqueles dias.
+     * Os relatórios desses dias são invalidados antes da atualização dos rollups: as avaliações já estão
+     * gravadas, e uma falha nos rollups não pode deixar um relatório persistido sem elas. Depois da atualização,
+     * os rollups diário/semanal e os relatórios são invalidados de novo, pois um relatório calculado dos rollups
+     * entre as duas etapas não inclui as avaliações.
+     */
+    public void registrarLote(List<Avaliacao> avaliacoes) {
+        Map<LocalDateTime, AgregadoNotas> porHora = new TreeMap<>();
+        for (Avaliacao avaliacao : avaliacoes) {
+            LocalDateTime dataHora = avaliacao.getDataHora() != null ? avaliacao.getDataHora() : LocalDateTime.now();
+            porHora.computeIfAbsent(dataHora.truncatedTo(ChronoUnit.HOURS), h -> new AgregadoNotas()).registrar(avaliacao);
+        }
+
+        LocalDate hoje = LocalDate.now();
+        Set<LocalDate> diasEncerrados = new TreeSet<>();
+        for (LocalDateTime hora : porHora.keySet()) {
+            if (hora.toLocalDate().isBefore(hoje)) {
+                diasEncerrados.add(hora.toLocalDate());
+            }
+        }
+        for (LocalDate dia : diasEncerrados) {
+            try {
+                invalidarRelatorios(dia);
+            } catch (Exception e) {
+                // Repetida após os rollups; se eles também falharem, a reconstrução do dia invalida os relatórios
+                LOG.warnf("Erro ao invalidar relatórios do dia %s antes dos rollups: %s", dia, e.getMessage());
+            }
+        }
+
+        porHora.forEach(repository::incrementarHora);
+        diasEncerrados.forEach(this::invalidarDerivados);
+        LOG.debugf("Rollups atualizados - %d avaliações em %d horas", avaliacoes.size(), porHora.size());
+    }
+
+    /**
+     * Reconstrói as linhas horárias de um dia encerrado a partir das avaliações gravadas
+     * <p>
+     * Necessário para avaliações que não passaram pela ingestão com rollups: gravadas antes da ativação dos
+     * rollups ou movidas pela migração da partição legada. As linhas horárias do dia são substituídas (valores
+     * absolutos, condicionais ao ETag lido; se uma avaliação atrasada chegar durante a reconstrução, o dia é
+     * relido e recalculado), e os rollups, sketches e relatórios derivados do dia são invalidados.
+     * A operação pode ser repetida sem efeito adicional.
+     *
+     * @return quantidade de avaliações do dia
+     * @throws IllegalArgumentException se o dia não estiver encerrado (ainda recebe avaliações)
+     */
+    public long reconstruirDia(LocalDate dia) {
+        if (!dia.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Só dias encerrados podem ser reconstruídos: " + dia);
+        }
+        for (int tentativa = 1; tentativa <= MAX_TENTATIVAS_RECONSTRUCAO; tentativa++) {
+            AgregadoRepository.HorasLidas lidas = repository.lerHoras(dia);
+            Map<Integer, AgregadoNotas> porHora = new TreeMap<>();
+            long total = storageTableRepository.percorrerAvaliacoesPorPeriodo(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay(),
+                    avaliacao -> porHora.computeIfAbsent(avaliacao.getDataHora() != null ? avaliacao.getDataHora().getHour() : 0,
+                            h -> new AgregadoNotas()).registrar(avaliacao));
+            if (repository.substituirHoras(lidas, porHora)) {
+                invalidarDerivados(dia);
+                LOG.infof("Rollups horários de %s reconstruídos (%d avaliações)", dia, total);
+                return total;
+            }
+            LOG.infof("Rollups de %s mudaram durante a reconstrução (tentativa %d); repetindo", dia, tentativa);
+        }
+        throw new IllegalStateException("Não foi possível reconstruir os rollups de " + dia
+                + " após " + MAX_TENTATIVAS_RECONSTRUCAO + " tentativas");
+    }
+
+    /**
+     * Invalida o que foi calculado a partir de um dia encerrado cujas linhas horárias mudaram:
+     * rollups diário/semanal, sketches de texto e relatórios persistidos e em cache de períodos que incluem o dia
+     */
+    private void invalidarDerivados(LocalDate dia) {
+        repository.invalidarDia(dia, segundaFeira(dia));
+        invalidarRelatorios(dia);
+    }
+
+    /**
+     * Invalida os relatórios persistidos e em cache de períodos que incluem um dia encerrado
+     */
+    private void invalidarRelatorios(LocalDate dia) {
+        storageTableRepository.invalidarRelatoriosDoDia(dia);
+        diaInvalidado.fire(new DiaInvalidado(dia));
+    }
+
+    /**
+     * Carrega no agregador as estatísticas do período [inicio, fim), com granularidade de hora
+     * Os limites devem estar alinhados à hora (ver {@link #alinharHora(LocalDateTime)})
+     *
+     * @return quantidade de linhas de rollup lidas
+     */
+    public int carregarPeriodo(LocalDateTime inicio, LocalDateTime fim, AgregadorAvaliacoes agregador) {
+        LocalDate hoje = LocalDate.now();
+        LocalDateTime cursor = inicio;
+        int linhasLidas = 0;
+
+        while (cursor.isBefore(fim)) {
+            LocalDate dia = cursor.toLocalDate();
+            boolean inicioDoDia = cursor.toLocalTime().equals(LocalTime.MIDNIGHT);
+
+            if (inicioDoDia && dia.getDayOfWeek() == DayOfWeek.MONDAY
+                    && !cursor.plusDays(7).isAfter(fim) && dia.plusDays(6).isBefore(hoje)) {
+                // Semana inteira encerrada
+                AgregadoRepository.AgregadoSemana semana = obterSemana(dia);
+                agregador.registrarAgregado(semana.notas());
+                for (int i = 0; i < semana.contagemPorDia().length; i++) {
+                    agregador.registrarContagemDia(dia.plusDays(i), semana.contagemPorDia()[i]);
+                }
+                cursor = cursor.plusDays(7);
+            } else if (inicioDoDia && !cursor.plusDays(1).isAfter(fim) && dia.isBefore(hoje)) {
+                // Dia inteiro encerrado
+                AgregadoNotas agregadoDia = obterDia(dia);
+                agregador.registrarAgregado(agregadoDia);
+                agregador.registrarContagemDia(dia, agregadoDia.getTotal());
+                cursor = cursor.plusDays(1);
+            } else {
+                // Horas avulsas (bordas do período ou dia corrente)
+                LocalDateTime limite = dia.plusDays(1).atStartOfDay();
+                if (limite.isAfter(fim)) {
+                    limite = fim;
+                }
+                int horaInicial = cursor.getHour();
+                int horaFinal = limite.toLocalDate().equals(dia) ? limite.getHour() : 24;
+                long totalDia = 0;
+                for (Map.Entry<Integer, AgregadoNotas> hora : repository.buscarHoras(dia).entrySet()) {
+                    if (hora.getKey() >= horaInicial && hora.getKey() < horaFinal) {
+                        agregador.registrarAgregado(hora.getValue());
+                        totalDia += hora.getValue().getTotal();
+                    }
+                }
+                agregador.registrarContagemDia(dia, totalDia);
+                cursor = limite;
+            }
+            linhasLidas++;
+        }
+
+        LOG.infof("Período %s a %s carregado de %d rollups", inicio, fim, linhasLidas);
+        return linhasLidas;
+    }
+
+    /**
+     * Soma ao acumulador (no modo aproximado) o texto das avaliações do período [inicio, fim)
+     * Dias inteiros encerrados vêm dos sketches diários (materializados na primeira leitura);
+     * as bordas do período e o dia corrente são lidos das avaliações.
+     *
+     * @return quantidade de sketches diários usados
+     */
+    public int carregarTexto(LocalDateTime inicio, LocalDateTime fim, AnaliseTextoService.AcumuladorTexto acumulador) {
+        LocalDate hoje = LocalDate.now();
+        LocalDateTime cursor = inicio;
+        int diasDeSketch = 0;
+
+        while (cursor.isBefore(fim)) {
+            LocalDate dia = cursor.toLocalDate();
+            LocalDateTime proximoDia = dia.plusDays(1).atStartOfDay();
+            if (cursor.toLocalTime().equals(LocalTime.MIDNIGHT) && !proximoDia.isAfter(fim) && dia.isBefore(hoje)) {
+                AgregadoRepository.SketchesTexto sketches = obterTextoDia(dia);
+                acumulador.adicionarSketches(sketches.palavras(), sketches.frases());
+                diasDeSketch++;
+                cursor = proximoDia;
+            } else {
+                LocalDateTime limite = proximoDia.isAfter(fim) ? fim : proximoDia;
+                storageTableRepository.percorrerAvaliacoesPorPeriodo(cursor, limite, StorageTableRepository.COLUNAS_DESCRICAO, avaliacao -> acumulador.adicionar(avaliacao.getDescricao()));
+                cursor = limite;
+            }
+        }
+
+        LOG.infof("Texto do período %s a %s carregado (%d dias de sketches)", inicio, fim, diasDeSketch);
+        return diasDeSketch;
+    }
+
+    /**
+     * Trunca um instante para o início da sua hora (granularidade dos rollups)
+     */
+    public static LocalDateTime alinharHora(LocalDateTime dataHora) {
+        return dataHora.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    /**
+     * Rollup de um dia encerrado, materializado a partir das horas na primeira leitura
+     * A gravação é condicional à linha lida: se uma avaliação atrasada invalidou o dia durante o cálculo,
+     * o valor calculado serve só a esta leitura e o dia é recalculado na próxima.
+     */
+    private AgregadoNotas obterDia(LocalDate dia) {
+        AgregadoRepository.Leitura<AgregadoNotas> lida = repository.buscarDia(dia);
+        return lida.valor().orElseGet(() -> {
+            AgregadoNotas agregadoDia = new AgregadoNotas();
+            repository.buscarHoras(dia).values().forEach(agregadoDia::combinar);
+            if (repository.salvarDia(lida, dia, agregadoDia)) {
+                LOG.infof("Rollup diário materializado: %s (%d avaliações)", dia, agregadoDia.getTotal());
+            } else {
+                LOG.infof("Rollup diário de %s não gravado: o dia mudou durante o cálculo", dia);
+            }
+            return agregadoDia;
+        });
+    }
+
+    /**
+     * Rollup de uma semana encerrada, materializado a partir dos dias na primeira leitura (gravação condicional)
+     */
+    private AgregadoRepository.AgregadoSemana obterSemana(LocalDate segunda) {
+        AgregadoRepository.Leitura<AgregadoRepository.AgregadoSemana> lida = repository.buscarSemana(segunda);
+        return lida.valor().orElseGet(() -> {
+            AgregadoNotas agregadoSemana = new AgregadoNotas();
+            long[] porDia = new long[7];
+            for (int i = 0; i < porDia.length; i++) {
+                AgregadoNotas agregadoDia = obterDia(segunda.plusDays(i));
+                agregadoSemana.combinar(agregadoDia);
+                porDia[i] = agregadoDia.getTotal();
+            }
+            AgregadoRepository.AgregadoSemana semana = new AgregadoRepository.AgregadoSemana(agregadoSemana, porDia);
+            if (repository.salvarSemana(lida, segunda, semana)) {
+                LOG.infof("Rollup semanal materializado: %s (%d avaliações)", segunda, agregadoSemana.getTotal());
+            } else {
+                LOG.infof("Rollup semanal de %s não gravado: a semana mudou durante o cálculo", segunda);
+            }
+            return semana;
+        });
+    }
+
+    /**
+     * Sketches de texto de um dia encerrado, materializados a partir das avaliações na primeira leitura (gravação condicional)
+     */
+    private AgregadoRepository.SketchesTexto obterTextoDia(LocalDate dia) {
+        AgregadoRepository.Leitura<AgregadoRepository.SketchesTexto> lida = repository.buscarTextoDia(dia);
+        return lida.valor().orElseGet(() -> {
+            AnaliseTextoService.AcumuladorTexto acumuladorDia = analiseTextoService.novoAcumulador();
+            storageTableRepository.percorrerAvaliacoesPorPeriodo(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay(), StorageTableRepository.COLUNAS_DESCRICAO,
+                    avaliacao -> acumuladorDia.adicionar(avaliacao.getDescricao()));
+            AgregadoRepository.SketchesTexto sketches = new AgregadoRepository.SketchesTexto(
+                    acumuladorDia.sketchPalavras(), acumuladorDia.sketchFrases());
+            if (repository.salvarTextoDia(lida, dia, sketches)) {
+                LOG.infof("Sketches de texto materializados: %s (%d descrições)", dia, acumuladorDia.getTotalDescricoes());
+            }
+            return sketches;
+        });
+    }
+
+    private static LocalDate segundaFeira(LocalDate dia) {
+        return dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,214 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.AgregadoNotas;
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agregador de avaliações em passagem única
+ * Consome as avaliações uma a uma (na ordem em que as páginas chegam do repositório)
+ * mantendo apenas estado primitivo: histograma de notas, contadores por urgência e por dia.
+ * As descrições vão direto para o acumulador de análise de texto.
+ * <p>
+ * A memória usada é constante em relação ao número de avaliações do período.
+ * Não é thread-safe: cada geração de relatório usa sua própria instância.
+ */
+public class AgregadorAvaliacoes {
+
+    private static final int NOTA_MAXIMA = 10;
+    private static final Avaliacao.NivelUrgencia[] NIVEIS = Avaliacao.NivelUrgencia.values();
+
+    // Percentis reportados (rótulo -> fração)
+    private static final String[] PERCENTIS_ROTULOS = {"p25", "p50", "p75", "p90"};
+    private static final double[] PERCENTIS_FRACOES = {0.25, 0.50, 0.75, 0.90};
+
+    // Faixas do NPS na escala 0-10
+    private static final int NPS_PROMOTOR_MINIMO = 9;
+    private static final int NPS_DETRATOR_MAXIMO = 6;
+
+    private final LocalDateTime inicio;
+    private final LocalDateTime fim;
+    private final long primeiroDiaEpoch;
+    private final AnaliseTextoService.AcumuladorTexto acumuladorTexto;
+
+    private final int[] histogramaNotas = new int[NOTA_MAXIMA + 1];
+    private final long[] contagemPorUrgencia = new long[NIVEIS.length];
+    private final long[] contagemPorDia;
+    // Avaliações cuja data cai fora do período (ex.: linhas sem dataHora); raras, ficam num mapa à parte
+    private final Map<Long, Long> contagemForaDoPeriodo = new TreeMap<>();
+
+    private long total;
+    private long somaNotas;
+
+    public AgregadorAvaliacoes(LocalDateTime inicio, LocalDateTime fim, AnaliseTextoService.AcumuladorTexto acumuladorTexto) {
+        this.inicio = inicio;
+        this.fim = fim;
+        this.acumuladorTexto = acumuladorTexto;
+        this.primeiroDiaEpoch = inicio.toLocalDate().toEpochDay();
+        this.contagemPorDia = new long[(int) (fim.toLocalDate().toEpochDay() - primeiroDiaEpoch) + 1];
+    }
+
+    /**
+     * Registra uma avaliação no agregado
+     */
+    public void registrar(Avaliacao avaliacao) {
+        int nota = avaliacao.getNota() != null ? avaliacao.getNota() : 0;
+        total++;
+        somaNotas += nota;
+        histogramaNotas[Math.max(0, Math.min(NOTA_MAXIMA, nota))]++;
+
+        Avaliacao.NivelUrgencia urgencia = avaliacao.getUrgencia() != null ? avaliacao.getUrgencia() : Avaliacao.NivelUrgencia.NORMAL;
+        contagemPorUrgencia[urgencia.ordinal()]++;
+
+        if (avaliacao.getDataHora() != null) {
+            registrarContagemDia(avaliacao.getDataHora().toLocalDate(), 1);
+        }
+
+        acumuladorTexto.adicionar(avaliacao.getDescricao());
+    }
+
+    /**
+     * Registra um agregado pré-calculado (rollup) de notas e urgências
+     * A contagem por dia é informada à parte, via {@link #registrarContagemDia(LocalDate, long)}
+     */
+    public void registrarAgregado(AgregadoNotas agregado) {
+        total += agregado.getTotal();
+        somaNotas += agregado.getSoma();
+        for (int nota = 0; nota <= NOTA_MAXIMA; nota++) {
+            histogramaNotas[nota] += Math.toIntExact(agregado.getHistograma(nota));
+        }
+        for (Avaliacao.NivelUrgencia nivel : NIVEIS) {
+            contagemPorUrgencia[nivel.ordinal()] += agregado.getUrgencia(nivel);
+        }
+    }
+
+    /**
+     * Soma avaliações à contagem de um dia
+     */
+    public void registrarContagemDia(LocalDate data, long quantidade) {
+        if (quantidade == 0) {
+            return;
+        }
+        long dia = data.toEpochDay();
+        int indice = (int) (dia - primeiroDiaEpoch);
+        if (indice >= 0 && indice < contagemPorDia.length) {
+            contagemPorDia[indice] += quantidade;
+        } else {
+            contagemForaDoPeriodo.merge(dia, quantidade, Long::sum);
+        }
+    }
+
+    /**
+     * Envia somente a descrição para a análise de texto (usado quando as notas vêm dos rollups)
+     */
+    public void registrarDescricao(String descricao) {
+        acumuladorTexto.adicionar(descricao);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Gera o relatório a partir do estado agregado
+     */
+    public RelatorioSemanal gerarRelatorio() {
+        Map<String, Long> urgencias = new LinkedHashMap<>();
+        for (Avaliacao.NivelUrgencia nivel : NIVEIS) {
+            if (contagemPorUrgencia[nivel.ordinal()] > 0) {
+                urgencias.put(nivel.toString(), contagemPorUrgencia[nivel.ordinal()]);
+            }
+        }
+
+        Map<String, Long> porDia = new TreeMap<>();
+        for (int i = 0; i < contagemPorDia.length; i++) {
+            if (contagemPorDia[i] > 0) {
+                porDia.put(LocalDate.ofEpochDay(primeiroDiaEpoch + i).toString(), contagemPorDia[i]);
+            }
+        }
+        contagemForaDoPeriodo.forEach((dia, count) -> porDia.merge(LocalDate.ofEpochDay(dia).toString(), count, Long::sum));
+
+        RelatorioSemanal relatorio = RelatorioSemanal.builder()
+                .periodoInicio(inicio)
+                .periodoFim(fim)
+                .totalAvaliacoes(total)
+                .mediaNotas(total > 0 ? (double) somaNotas / total : 0.0)
+                .notaMaisAlta(notaMaisAlta())
+                .notaMaisBaixa(notaMaisBaixa())
+                .contagemPorUrgencia(urgencias)
+                .percentisNotas(percentis())
+                .nps(nps())
+                .palavrasRecorrentes(acumuladorTexto.palavrasRecorrentes())
+                .frasesRecorrentes(acumuladorTexto.frasesRecorrentes())
+                .avaliacoesPorDia(new LinkedHashMap<>(porDia))
+                .build();
+
+        relatorio.inicializar();
+        return relatorio;
+    }
+
+    private int notaMaisAlta() {
+        for (int nota = NOTA_MAXIMA; nota >= 0; nota--) {
+            if (histogramaNotas[nota] > 0) {
+                return nota;
+            }
+        }
+        return 0;
+    }
+
+    private int notaMaisBaixa() {
+        for (int nota = 0; nota <= NOTA_MAXIMA; nota++) {
+            if (histogramaNotas[nota] > 0) {
+                return nota;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Percentis pelo método nearest-rank, lidos diretamente do histograma
+     */
+    private Map<String, Integer> percentis() {
+        Map<String, Integer> percentis = new LinkedHashMap<>();
+        if (total == 0) {
+            return percentis;
+        }
+        for (int p = 0; p < PERCENTIS_FRACOES.length; p++) {
+            long posicao = Math.max(1, (long) Math.ceil(PERCENTIS_FRACOES[p] * total));
+            long acumulado = 0;
+            for (int nota = 0; nota <= NOTA_MAXIMA; nota++) {
+                acumulado += histogramaNotas[nota];
+                if (acumulado >= posicao) {
+                    percentis.put(PERCENTIS_ROTULOS[p], nota);
+                    break;
+                }
+            }
+        }
+        return percentis;
+    }
+
+    /**
+     * Net Promoter Score: % de promotores (9-10) menos % de detratores (0-6), de -100 a 100
+     */
+    private Double nps() {
+        if (total == 0) {
+            return null;
+        }
+        long promotores = 0;
+        long detratores = 0;
+        for (int nota = 0; nota <= NOTA_MAXIMA; nota++) {
+            if (nota >= NPS_PROMOTOR_MINIMO) {
+                promotores += histogramaNotas[nota];
+            } else if (nota <= NPS_DETRATOR_MAXIMO) {
+                detratores += histogramaNotas[nota];
+            }
+        }
+        return 100.0 * (promotores - detratores) / total;
+    }
+}
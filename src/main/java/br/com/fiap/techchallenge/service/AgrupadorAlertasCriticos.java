@@ -0,0 +1,146 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa rajadas de alertas críticos em um único e-mail (digest)
+ * <p>
+ * O primeiro alerta após um período sem envios sai imediatamente. Os que chegam durante a janela seguinte
+ * (notificacao.agrupamento.janela-s) ficam pendentes e são enviados juntos quando a janela termina
+ * ou quando atingem notificacao.agrupamento.max-itens — no máximo um e-mail por janela.
+ * <p>
+ * O estágio devolvido por {@link #notificar(Avaliacao)} só conclui quando o e-mail que contém a avaliação
+ * foi aceito pelo SendGrid: o worker da fila aguarda esse estágio, então uma falha no digest
+ * faz todas as mensagens da janela serem reprocessadas pelo runtime (nenhum alerta é perdido).
+ */
+@ApplicationScoped
+public class AgrupadorAlertasCriticos {
+
+    private static final Logger LOG = Logger.getLogger(AgrupadorAlertasCriticos.class);
+
+    @ConfigProperty(name = "notificacao.agrupamento.janela-s", defaultValue = "60")
+    int janelaSegundos;
+
+    @ConfigProperty(name = "notificacao.agrupamento.max-itens", defaultValue = "50")
+    int maxItens;
+
+    private final EmailService emailService;
+    private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "alertas-criticos-digest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Estado da janela corrente, protegido pelo monitor da instância
+    private List<Pendente> pendentes = new ArrayList<>();
+    private Instant ultimoEnvio;
+    private ScheduledFuture<?> envioAgendado;
+
+    public AgrupadorAlertasCriticos(EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    private record Pendente(Avaliacao avaliacao, CompletableFuture<Void> envio) {
+    }
+
+    /**
+     * Notifica uma avaliação crítica, imediatamente ou no digest da janela corrente
+     *
+     * @return estágio concluído quando o e-mail com a avaliação for enviado (ou com a falha do envio)
+     */
+    public CompletableFuture<Void> notificar(Avaliacao avaliacao) {
+        Pendente pendente = new Pendente(avaliacao, new CompletableFuture<>());
+        Duration janela = Duration.ofSeconds(janelaSegundos);
+        List<Pendente> lote;
+
+        synchronized (this) {
+            Instant agora = Instant.now();
+            if (pendentes.isEmpty() && (ultimoEnvio == null || !agora.isBefore(ultimoEnvio.plus(janela)))) {
+                // Nenhum envio recente: o alerta sai imediatamente e abre uma nova janela
+                ultimoEnvio = agora;
+                lote = List.of(pendente);
+            } else {
+                pendentes.add(pendente);
+                if (pendentes.size() >= Math.max(1, maxItens)) {
+                    lote = retirarPendentes();
+                } else {
+                    if (envioAgendado == null) {
+                        long atrasoMs = Math.max(0, Duration.between(agora, ultimoEnvio.plus(janela)).toMillis());
+                        envioAgendado = agendador.schedule(this::enviarJanela, atrasoMs, TimeUnit.MILLISECONDS);
+                    }
+                    lote = List.of();
+                }
+            }
+        }
+
+        if (!lote.isEmpty()) {
+            enviar(lote);
+        }
+        return pendente.envio();
+    }
+
+    /**
+     * Envia o digest da janela que terminou
+     */
+    private void enviarJanela() {
+        List<Pendente> lote;
+        synchronized (this) {
+            envioAgendado = null;
+            lote = retirarPendentes();
+        }
+        if (!lote.isEmpty()) {
+            enviar(lote);
+        }
+    }
+
+    /**
+     * Retira os alertas pendentes e abre uma nova janela a partir de agora (chamado com o monitor adquirido)
+     */
+    private List<Pendente> retirarPendentes() {
+        List<Pendente> lote = pendentes;
+        pendentes = new ArrayList<>();
+        if (envioAgendado != null) {
+            envioAgendado.cancel(false);
+            envioAgendado = null;
+        }
+        if (!lote.isEmpty()) {
+            ultimoEnvio = Instant.now();
+        }
+        return lote;
+    }
+
+    private void enviar(List<Pendente> lote) {
+        try {
+            if (lote.size() == 1) {
+                emailService.enviarNotificacaoCritica(lote.get(0).avaliacao());
+            } else {
+                LOG.infof("Agrupando %d alertas críticos em um digest", lote.size());
+                emailService.enviarDigestCritico(lote.stream().map(Pendente::avaliacao).toList());
+            }
+            lote.forEach(p -> p.envio().complete(null));
+        } catch (Exception e) {
+            LOG.errorf("Falha ao enviar %d alertas críticos: %s", lote.size(), e.getMessage());
+            lote.forEach(p -> p.envio().completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    void encerrar() {
+        agendador.shutdown();
+        enviarJanela();
+    }
+}
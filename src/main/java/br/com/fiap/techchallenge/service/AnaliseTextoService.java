@@ -1,10 +1,16 @@
 package br.com.fiap.techchallenge.service;
 
+import br.com.fiap.techchallenge.model.SketchFrequencias;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Serviço para análise de texto e identificação de comentários recorrentes
@@ -14,25 +20,64 @@ import java.util.stream.Collectors;
 public class AnaliseTextoService {
 
     private static final Logger LOG = Logger.getLogger(AnaliseTextoService.class);
+
+    // Latência por bloco contado no pool, da combinação dos blocos e da seleção dos mais recorrentes
+    // (nunca por descrição: o custo do relógio dominaria o laço)
+    private static final HistogramaLatencia LATENCIA_BLOCO = Latencias.estagio("texto_bloco");
+    private static final HistogramaLatencia LATENCIA_COMBINACAO = Latencias.estagio("texto_combinacao");
+    private static final HistogramaLatencia LATENCIA_PALAVRAS = Latencias.estagio("texto_palavras_recorrentes");
+    private static final HistogramaLatencia LATENCIA_FRASES = Latencias.estagio("texto_frases_recorrentes");
     
     // Palavras comuns em português que devem ser ignoradas (stop words)
-    private static final Set<String> STOP_WORDS = Set.of(
+    static final Set<String> STOP_WORDS = Set.of(
             "a", "o", "e", "de", "do", "da", "em", "um", "uma", "para", "com", "não",
             "é", "que", "se", "na", "por", "mais", "as", "os", "como", "mas", "foi",
             "ao", "ele", "das", "tem", "à", "seu", "sua", "ou", "ser", "quando",
             "muito", "há", "nos", "já", "está", "eu", "também", "só", "pelo", "pela",
             "até", "isso", "ela", "entre", "era", "depois", "sem", "mesmo", "aos",
-            "ter", "seus", "suas", "numa", "pelos", "pelas", "num", "nem", "suas",
-            "meu", "às", "minha", "têm", "numa", "pelos", "pelas", "num", "nem",
-            "meu", "às", "minha", "têm", "pelos", "pelas", "num", "nem"
+            "ter", "seus", "suas", "numa", "pelos", "pelas", "num", "nem",
+            "meu", "às", "minha", "têm"
     );
 
     // Tamanho mínimo de palavra para ser considerada
-    private static final int MIN_PALAVRA_LENGTH = 3;
+    static final int MIN_PALAVRA_LENGTH = 3;
     
     // Número máximo de palavras/frases mais recorrentes a retornar
     private static final int MAX_RESULTADOS = 10;
 
+    // Ocorrências mínimas para uma frase ser considerada recorrente
+    private static final int MIN_OCORRENCIAS_FRASE = 2;
+
+    // Threads do pool de análise paralela (0 = número de processadores; 1 = sempre sequencial)
+    @ConfigProperty(name = "analise-texto.paralelismo", defaultValue = "0")
+    int paralelismo;
+
+    // Quantidade de descrições abaixo da qual a análise é sempre sequencial
+    @ConfigProperty(name = "analise-texto.limiar-paralelo", defaultValue = "20000")
+    int limiarParalelo;
+
+    // Descrições por bloco enviado ao pool
+    @ConfigProperty(name = "analise-texto.tamanho-bloco", defaultValue = "5000")
+    int tamanhoBloco;
+
+    // Modo aproximado: palavras e frases em sketches Space-Saving de memória fixa (ver SketchFrequencias)
+    @ConfigProperty(name = "analise-texto.aproximado", defaultValue = "false")
+    boolean aproximado;
+
+    // Itens monitorados por sketch no modo aproximado (erro máximo de N/capacidade ocorrências)
+    @ConfigProperty(name = "analise-texto.capacidade-sketch", defaultValue = "1000")
+    int capacidadeSketch;
+
+    private volatile ForkJoinPool pool;
+
+    /**
+     * Cria um acumulador para análise incremental de descrições
+     * Permite alimentar a análise à medida que as avaliações são lidas, sem materializar a lista de descrições
+     */
+    public AcumuladorTexto novoAcumulador() {
+        return novoAcumulador(true, true);
+    }
+
     /**
      * Analisa uma lista de descrições e retorna as palavras mais recorrentes
      * 
@@ -47,32 +92,9 @@ public class AnaliseTextoService {
 
         LOG.infof("Analisando %d descrições para identificar palavras recorrentes", descricoes.size());
 
-        // Processa todas as descrições
-        Map<String, Long> frequenciaPalavras = descricoes.stream()
-                .filter(Objects::nonNull)
-                .filter(desc -> !desc.trim().isEmpty())
-                .flatMap(desc -> extrairPalavras(desc).stream())
-                .filter(palavra -> palavra.length() >= MIN_PALAVRA_LENGTH)
-                .filter(palavra -> !STOP_WORDS.contains(palavra.toLowerCase()))
-                .map(String::toLowerCase)
-                .collect(Collectors.groupingBy(
-                        palavra -> palavra,
-                        Collectors.counting()
-                ));
-
-        // Ordena por frequência e limita aos top N
-        Map<String, Long> palavrasRecorrentes = frequenciaPalavras.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(MAX_RESULTADOS)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
-
-        LOG.infof("Identificadas %d palavras recorrentes", palavrasRecorrentes.size());
-        return palavrasRecorrentes;
+        AcumuladorTexto acumulador = novoAcumulador(true, false);
+        descricoes.forEach(acumulador::adicionar);
+        return acumulador.palavrasRecorrentes();
     }
 
     /**
@@ -90,91 +112,261 @@ public class AnaliseTextoService {
 
         LOG.infof("Analisando %d descrições para identificar frases recorrentes", descricoes.size());
 
-        // Extrai frases de 2 e 3 palavras
-        Map<String, Long> frequenciaFrases = descricoes.stream()
-                .filter(Objects::nonNull)
-                .filter(desc -> !desc.trim().isEmpty())
-                .flatMap(desc -> extrairFrases(desc).stream())
-                .filter(frase -> !frase.trim().isEmpty())
-                .map(String::toLowerCase)
-                .collect(Collectors.groupingBy(
-                        frase -> frase,
-                        Collectors.counting()
-                ));
-
-        // Filtra frases que aparecem pelo menos 2 vezes e ordena por frequência
-        Map<String, Long> frasesRecorrentes = frequenciaFrases.entrySet().stream()
-                .filter(entry -> entry.getValue() >= 2) // Mínimo 2 ocorrências
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(MAX_RESULTADOS)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
-
-        LOG.infof("Identificadas %d frases recorrentes", frasesRecorrentes.size());
-        return frasesRecorrentes;
+        AcumuladorTexto acumulador = novoAcumulador(false, true);
+        descricoes.forEach(acumulador::adicionar);
+        return acumulador.frasesRecorrentes();
     }
 
-    /**
-     * Extrai palavras de uma descrição, removendo pontuação e normalizando
-     */
-    private List<String> extrairPalavras(String texto) {
-        if (texto == null || texto.trim().isEmpty()) {
-            return Collections.emptyList();
+    @PreDestroy
+    void encerrar() {
+        if (pool != null) {
+            pool.shutdownNow();
         }
+    }
 
-        // Remove pontuação e caracteres especiais, mantém apenas letras e espaços
-        String textoLimpo = texto.replaceAll("[^\\p{L}\\s]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
+    private AcumuladorTexto novoAcumulador(boolean contarPalavras, boolean contarFrases) {
+        if (aproximado) {
+            return new AcumuladorTexto(contarPalavras, contarFrases, capacidadeSketch);
+        }
+        int threads = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        if (threads <= 1) {
+            return new AcumuladorTexto(contarPalavras, contarFrases, null, 0, 0, 0);
+        }
+        return new AcumuladorTexto(contarPalavras, contarFrases, obterPool(threads),
+                limiarParalelo, Math.max(1, tamanhoBloco), 2 * threads);
+    }
 
-        return Arrays.stream(textoLimpo.split("\\s+"))
-                .filter(palavra -> !palavra.isEmpty())
-                .collect(Collectors.toList());
+    /**
+     * Pool de análise criado na primeira análise paralela (separado do commonPool)
+     */
+    private ForkJoinPool obterPool(int threads) {
+        if (pool == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    LOG.infof("Criando pool de análise de texto com %d threads", threads);
+                    pool = new ForkJoinPool(threads);
+                }
+            }
+        }
+        return pool;
     }
 
     /**
-     * Extrai frases (bigramas e trigramas) de uma descrição
+     * Acumulador de frequências de palavras e frases
+     * Recebe uma descrição por vez; o estado cresce com o vocabulário, não com o número de descrições.
+     * Empates de frequência são desempatados pela ordem alfabética.
+     * <p>
+     * Modo paralelo: as primeiras descrições (até o limiar) são contadas na própria thread; a partir daí,
+     * são agrupadas em blocos e cada bloco é contado por uma tarefa do pool em uma {@link ContagemTexto}
+     * própria. As contagens parciais são combinadas na contagem principal, em ordem de envio, à medida
+     * que terminam (no máximo 2 blocos pendentes por thread do pool). Como a soma das frequências
+     * não depende da divisão em blocos, o resultado é idêntico ao sequencial.
+     * <p>
+     * Modo aproximado: as descrições são contadas em sketches de memória fixa ({@link ContagemTextoAproximada}),
+     * sempre na própria thread, e sketches já prontos (ex.: de dias encerrados) podem ser somados com
+     * {@link #adicionarSketches(SketchFrequencias, SketchFrequencias)}. As frequências retornadas são
+     * estimativas (limites superiores).
+     * <p>
+     * {@link #adicionar(String)} deve ser chamado por uma única thread.
      */
-    private List<String> extrairFrases(String texto) {
-        List<String> palavras = extrairPalavras(texto);
-        List<String> frases = new ArrayList<>();
-
-        if (palavras.size() < 2) {
-            return frases;
-        }
-
-        // Bigramas (2 palavras)
-        for (int i = 0; i < palavras.size() - 1; i++) {
-            String palavra1 = palavras.get(i).toLowerCase();
-            String palavra2 = palavras.get(i + 1).toLowerCase();
-            
-            // Ignora se contém stop words
-            if (!STOP_WORDS.contains(palavra1) && !STOP_WORDS.contains(palavra2)) {
-                frases.add(palavra1 + " " + palavra2);
+    public static final class AcumuladorTexto {
+
+        private final ContagemTexto contagem;
+        private final ContagemTextoAproximada contagemAproximada;
+        private final int capacidadeSketch;
+        private final List<SketchFrequencias> sketchesPalavras = new ArrayList<>();
+        private final List<SketchFrequencias> sketchesFrases = new ArrayList<>();
+        private final boolean contarPalavras;
+        private final boolean contarFrases;
+        private final ExecutorService executor;
+        private final int limiarParalelo;
+        private final int tamanhoBloco;
+        private final int maxBlocosPendentes;
+        private final Deque<Future<ContagemTexto>> blocosPendentes = new ArrayDeque<>();
+        private List<String> bloco;
+        private long totalDescricoes;
+
+        private AcumuladorTexto(boolean contarPalavras, boolean contarFrases, ExecutorService executor,
+                                int limiarParalelo, int tamanhoBloco, int maxBlocosPendentes) {
+            this.contagem = new ContagemTexto(contarPalavras, contarFrases);
+            this.contagemAproximada = null;
+            this.capacidadeSketch = 0;
+            this.contarPalavras = contarPalavras;
+            this.contarFrases = contarFrases;
+            this.executor = executor;
+            this.limiarParalelo = limiarParalelo;
+            this.tamanhoBloco = tamanhoBloco;
+            this.maxBlocosPendentes = maxBlocosPendentes;
+        }
+
+        private AcumuladorTexto(boolean contarPalavras, boolean contarFrases, int capacidadeSketch) {
+            this.contagem = null;
+            this.contagemAproximada = new ContagemTextoAproximada(contarPalavras, contarFrases, capacidadeSketch);
+            this.capacidadeSketch = capacidadeSketch;
+            this.contarPalavras = contarPalavras;
+            this.contarFrases = contarFrases;
+            this.executor = null;
+            this.limiarParalelo = 0;
+            this.tamanhoBloco = 0;
+            this.maxBlocosPendentes = 0;
+        }
+
+        /**
+         * Adiciona uma descrição à análise (nulas e vazias são ignoradas)
+         */
+        public void adicionar(String descricao) {
+            if (descricao == null || descricao.trim().isEmpty()) {
+                return;
             }
+            totalDescricoes++;
+
+            if (contagemAproximada != null) {
+                contagemAproximada.adicionar(descricao);
+            } else if (executor == null || totalDescricoes <= limiarParalelo) {
+                contagem.adicionar(descricao);
+            } else {
+                if (bloco == null) {
+                    bloco = new ArrayList<>(tamanhoBloco);
+                }
+                bloco.add(descricao);
+                if (bloco.size() == tamanhoBloco) {
+                    enviarBloco();
+                }
+            }
+        }
+
+        public long getTotalDescricoes() {
+            return totalDescricoes;
+        }
+
+        public boolean isAproximado() {
+            return contagemAproximada != null;
+        }
+
+        /**
+         * Soma à análise os sketches de outro conjunto de descrições (somente no modo aproximado)
+         */
+        public void adicionarSketches(SketchFrequencias palavras, SketchFrequencias frases) {
+            exigirModoAproximado();
+            sketchesPalavras.add(palavras);
+            sketchesFrases.add(frases);
+        }
+
+        /**
+         * Sketch das palavras de tudo o que foi adicionado (somente no modo aproximado)
+         */
+        public SketchFrequencias sketchPalavras() {
+            exigirModoAproximado();
+            return combinarSketches(contagemAproximada.palavras(), sketchesPalavras);
+        }
+
+        /**
+         * Sketch das frases de tudo o que foi adicionado (somente no modo aproximado)
+         */
+        public SketchFrequencias sketchFrases() {
+            exigirModoAproximado();
+            return combinarSketches(contagemAproximada.frases(), sketchesFrases);
+        }
+
+        /**
+         * Palavras mais recorrentes, ordenadas por frequência decrescente
+         */
+        public Map<String, Long> palavrasRecorrentes() {
+            Map<String, Long> palavrasRecorrentes;
+            if (contagemAproximada != null) {
+                SketchFrequencias sketch = sketchPalavras();
+                long inicio = System.nanoTime();
+                palavrasRecorrentes = sketch.maisFrequentes(MAX_RESULTADOS, 1);
+                LATENCIA_PALAVRAS.registrar(inicio);
+            } else {
+                concluirBlocos();
+                long inicio = System.nanoTime();
+                palavrasRecorrentes = contagem.palavrasRecorrentes(MAX_RESULTADOS);
+                LATENCIA_PALAVRAS.registrar(inicio);
+            }
+            LOG.infof("Identificadas %d palavras recorrentes", palavrasRecorrentes.size());
+            return palavrasRecorrentes;
         }
 
-        // Trigramas (3 palavras)
-        if (palavras.size() >= 3) {
-            for (int i = 0; i < palavras.size() - 2; i++) {
-                String palavra1 = palavras.get(i).toLowerCase();
-                String palavra2 = palavras.get(i + 1).toLowerCase();
-                String palavra3 = palavras.get(i + 2).toLowerCase();
-                
-                // Ignora se todas são stop words
-                if (!STOP_WORDS.contains(palavra1) || 
-                    !STOP_WORDS.contains(palavra2) || 
-                    !STOP_WORDS.contains(palavra3)) {
-                    frases.add(palavra1 + " " + palavra2 + " " + palavra3);
+        /**
+         * Frases mais recorrentes (mínimo 2 ocorrências), ordenadas por frequência decrescente
+         */
+        public Map<String, Long> frasesRecorrentes() {
+            Map<String, Long> frasesRecorrentes;
+            if (contagemAproximada != null) {
+                SketchFrequencias sketch = sketchFrases();
+                long inicio = System.nanoTime();
+                frasesRecorrentes = sketch.maisFrequentes(MAX_RESULTADOS, MIN_OCORRENCIAS_FRASE);
+                LATENCIA_FRASES.registrar(inicio);
+            } else {
+                concluirBlocos();
+                long inicio = System.nanoTime();
+                frasesRecorrentes = contagem.frasesRecorrentes(MAX_RESULTADOS, MIN_OCORRENCIAS_FRASE);
+                LATENCIA_FRASES.registrar(inicio);
+            }
+            LOG.infof("Identificadas %d frases recorrentes", frasesRecorrentes.size());
+            return frasesRecorrentes;
+        }
+
+        private void exigirModoAproximado() {
+            if (contagemAproximada == null) {
+                throw new IllegalStateException("Sketches só estão disponíveis no modo aproximado da análise de texto");
+            }
+        }
+
+        private SketchFrequencias combinarSketches(SketchFrequencias proprio, List<SketchFrequencias> adicionados) {
+            if (adicionados.isEmpty()) {
+                return proprio;
+            }
+            List<SketchFrequencias> todos = new ArrayList<>(adicionados);
+            todos.add(proprio);
+            return SketchFrequencias.combinar(todos, capacidadeSketch);
+        }
+
+        private void enviarBloco() {
+            List<String> descricoes = bloco;
+            bloco = null;
+            blocosPendentes.addLast(executor.submit(() -> {
+                long inicio = System.nanoTime();
+                ContagemTexto parcial = new ContagemTexto(contarPalavras, contarFrases);
+                descricoes.forEach(parcial::adicionar);
+                LATENCIA_BLOCO.registrar(inicio);
+                return parcial;
+            }));
+            // Limita a memória: combina o bloco mais antigo antes de enviar mais
+            if (blocosPendentes.size() > maxBlocosPendentes) {
+                long inicio = System.nanoTime();
+                while (blocosPendentes.size() > maxBlocosPendentes) {
+                    combinarMaisAntigo();
                 }
+                LATENCIA_COMBINACAO.registrar(inicio);
             }
         }
 
-        return frases;
+        private void concluirBlocos() {
+            if (bloco != null) {
+                enviarBloco();
+            }
+            if (!blocosPendentes.isEmpty()) {
+                long inicio = System.nanoTime();
+                while (!blocosPendentes.isEmpty()) {
+                    combinarMaisAntigo();
+                }
+                LATENCIA_COMBINACAO.registrar(inicio);
+            }
+        }
+
+        private void combinarMaisAntigo() {
+            try {
+                contagem.combinar(blocosPendentes.removeFirst().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                blocosPendentes.forEach(pendente -> pendente.cancel(true));
+                throw new RuntimeException("Análise de texto interrompida", e);
+            } catch (ExecutionException e) {
+                blocosPendentes.forEach(pendente -> pendente.cancel(true));
+                throw new RuntimeException("Erro ao analisar bloco de descrições", e.getCause());
+            }
+        }
     }
 }
-
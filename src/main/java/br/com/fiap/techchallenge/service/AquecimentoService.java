@@ -0,0 +1,60 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.repository.StorageTableAsyncRepository;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Aquecimento na inicialização, para que a primeira requisição após um scale-out não pague pela carga de classes
+ * <p>
+ * Executa uma vez, no StartupEvent: constrói os clientes de storage e do SendGrid, inicializa as stop words
+ * e o tokenizador e monta um e-mail de exemplo (sem envio). Os handlers HTTP são criados na inicialização
+ * ({@code @Startup}), o que já pré-carrega os leitores/escritores Jackson e os metadados de validação.
+ */
+@ApplicationScoped
+@RequiredArgsConstructor
+public class AquecimentoService {
+
+    private static final Logger LOG = Logger.getLogger(AquecimentoService.class);
+    private static final String TEXTO_AQUECIMENTO = "O atendimento foi excelente e o curso muito completo, recomendo o curso";
+
+    private final AnaliseTextoService analiseTextoService;
+    private final EmailService emailService;
+    private final StorageTableAsyncRepository asyncRepository;
+
+    @ConfigProperty(name = "inicializacao.aquecer", defaultValue = "true")
+    boolean aquecer;
+
+    void aquecer(@Observes StartupEvent evento) {
+        if (!aquecer) {
+            return;
+        }
+        long inicio = System.nanoTime();
+
+        executar("análise de texto", () -> {
+            AnaliseTextoService.AcumuladorTexto acumulador = analiseTextoService.novoAcumulador();
+            acumulador.adicionar(TEXTO_AQUECIMENTO);
+            acumulador.palavrasRecorrentes();
+            acumulador.frasesRecorrentes();
+        });
+        executar("SendGrid", emailService::aquecer);
+        executar("storage assíncrono", asyncRepository::aquecer);
+
+        LOG.infof("Aquecimento concluído em %d ms", (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Uma etapa que falha (ex.: storage indisponível) não impede a inicialização; ela será feita no primeiro uso
+     */
+    private static void executar(String etapa, Runnable acao) {
+        try {
+            acao.run();
+        } catch (Exception e) {
+            LOG.warnf("Aquecimento de %s falhou: %s", etapa, e.getMessage());
+        }
+    }
+}
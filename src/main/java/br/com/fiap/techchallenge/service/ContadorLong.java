@@ -0,0 +1,116 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.Arrays;
+
+/**
+ * Contador de frequências com chaves long não negativas
+ * Tabela de endereçamento aberto (sondagem linear) sobre arrays primitivos: sem boxing nem nós por entrada.
+ * <p>
+ * A iteração é feita por posição ({@link #capacidade()}, {@link #ocupado(int)}, {@link #chave(int)},
+ * {@link #valor(int)}) para não alocar iteradores. Não é thread-safe.
+ */
+final class ContadorLong {
+
+    private static final long LIVRE = -1L;
+
+    private long[] chaves;
+    private long[] valores;
+    private int tamanho;
+
+    ContadorLong() {
+        this(1024);
+    }
+
+    ContadorLong(int capacidadeInicial) {
+        int capacidade = Integer.highestOneBit(Math.max(16, capacidadeInicial - 1) << 1);
+        chaves = new long[capacidade];
+        valores = new long[capacidade];
+        Arrays.fill(chaves, LIVRE);
+    }
+
+    /**
+     * Soma a quantidade à contagem da chave (que deve ser >= 0)
+     */
+    void incrementar(long chave, long quantidade) {
+        int mascara = chaves.length - 1;
+        int posicao = espalhar(chave) & mascara;
+        while (true) {
+            long atual = chaves[posicao];
+            if (atual == chave) {
+                valores[posicao] += quantidade;
+                return;
+            }
+            if (atual == LIVRE) {
+                chaves[posicao] = chave;
+                valores[posicao] = quantidade;
+                if (++tamanho * 2 > chaves.length) {
+                    redimensionar();
+                }
+                return;
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+    }
+
+    long contagem(long chave) {
+        int mascara = chaves.length - 1;
+        int posicao = espalhar(chave) & mascara;
+        while (true) {
+            long atual = chaves[posicao];
+            if (atual == chave) {
+                return valores[posicao];
+            }
+            if (atual == LIVRE) {
+                return 0;
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    int capacidade() {
+        return chaves.length;
+    }
+
+    boolean ocupado(int posicao) {
+        return chaves[posicao] != LIVRE;
+    }
+
+    long chave(int posicao) {
+        return chaves[posicao];
+    }
+
+    long valor(int posicao) {
+        return valores[posicao];
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        long[] valoresAntigos = valores;
+        chaves = new long[chavesAntigas.length * 2];
+        valores = new long[chavesAntigas.length * 2];
+        Arrays.fill(chaves, LIVRE);
+        int mascara = chaves.length - 1;
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != LIVRE) {
+                int posicao = espalhar(chavesAntigas[i]) & mascara;
+                while (chaves[posicao] != LIVRE) {
+                    posicao = (posicao + 1) & mascara;
+                }
+                chaves[posicao] = chavesAntigas[i];
+                valores[posicao] = valoresAntigos[i];
+            }
+        }
+    }
+
+    /**
+     * Mistura os bits da chave (ids sequenciais empacotados têm pouca entropia nos bits baixos)
+     */
+    private static int espalhar(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,175 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contagem de frequências de palavras e frases de um conjunto de descrições
+ * <p>
+ * Os tokens são convertidos em ids pelo {@link DicionarioTokens}; palavras, bigramas e trigramas
+ * são contados em {@link ContadorLong} com os ids empacotados em uma chave long:
+ * bigrama = id1 (32 bits) | id2 (32 bits); trigrama = 3 ids de 21 bits. Trigramas com ids acima
+ * de 21 bits (vocabulário com mais de ~2 milhões de tokens) vão para um mapa de reserva.
+ * <p>
+ * Cada contagem tem seu próprio dicionário, então contagens parciais podem ser feitas em threads
+ * diferentes e depois combinadas com {@link #combinar(ContagemTexto)}. Não é thread-safe.
+ */
+final class ContagemTexto {
+
+    private static final int BITS_ID_TRIGRAMA = 21;
+    private static final int LIMITE_ID_TRIGRAMA = 1 << BITS_ID_TRIGRAMA;
+    private static final int MASCARA_ID_TRIGRAMA = LIMITE_ID_TRIGRAMA - 1;
+
+    private final boolean contarPalavras;
+    private final boolean contarFrases;
+    private final Tokenizador tokenizador = new Tokenizador();
+    private final DicionarioTokens dicionario = new DicionarioTokens(AnaliseTextoService.STOP_WORDS);
+    private final ContadorLong frequenciaPalavras = new ContadorLong();
+    private final ContadorLong frequenciaBigramas = new ContadorLong();
+    private final ContadorLong frequenciaTrigramas = new ContadorLong();
+    private final Map<String, Long> trigramasExcedentes = new HashMap<>();
+    private int[] ids = new int[64];
+
+    ContagemTexto(boolean contarPalavras, boolean contarFrases) {
+        this.contarPalavras = contarPalavras;
+        this.contarFrases = contarFrases;
+    }
+
+    /**
+     * Conta uma descrição (já filtrada: não nula e não vazia)
+     */
+    void adicionar(String descricao) {
+        // Uma única tokenização alimenta palavras, bigramas e trigramas
+        int tokens = tokenizador.tokenizar(descricao);
+        if (ids.length < tokens) {
+            ids = new int[Math.max(tokens, ids.length * 2)];
+        }
+        char[] texto = tokenizador.texto();
+        for (int i = 0; i < tokens; i++) {
+            ids[i] = dicionario.id(texto, tokenizador.inicio(i), tokenizador.fim(i));
+        }
+
+        if (contarPalavras) {
+            for (int i = 0; i < tokens; i++) {
+                if (tokenizador.tamanhoOriginal(i) >= AnaliseTextoService.MIN_PALAVRA_LENGTH && !dicionario.isStopWord(ids[i])) {
+                    frequenciaPalavras.incrementar(ids[i], 1);
+                }
+            }
+        }
+
+        if (contarFrases && tokens >= 2) {
+            // Bigramas (2 palavras): ignora se contém stop words
+            for (int i = 0; i < tokens - 1; i++) {
+                if (!dicionario.isStopWord(ids[i]) && !dicionario.isStopWord(ids[i + 1])) {
+                    frequenciaBigramas.incrementar(((long) ids[i] << 32) | ids[i + 1], 1);
+                }
+            }
+
+            // Trigramas (3 palavras): ignora se todas são stop words
+            for (int i = 0; i < tokens - 2; i++) {
+                int id1 = ids[i];
+                int id2 = ids[i + 1];
+                int id3 = ids[i + 2];
+                if (dicionario.isStopWord(id1) && dicionario.isStopWord(id2) && dicionario.isStopWord(id3)) {
+                    continue;
+                }
+                incrementarTrigrama(id1, id2, id3, 1);
+            }
+        }
+    }
+
+    /**
+     * Soma as frequências de outra contagem a esta
+     * Os ids da outra contagem são traduzidos para este dicionário pelo texto do token.
+     */
+    void combinar(ContagemTexto outra) {
+        int[] traducao = new int[outra.dicionario.tamanho()];
+        for (int id = 0; id < traducao.length; id++) {
+            traducao[id] = dicionario.id(outra.dicionario.token(id));
+        }
+
+        ContadorLong palavras = outra.frequenciaPalavras;
+        for (int i = 0; i < palavras.capacidade(); i++) {
+            if (palavras.ocupado(i)) {
+                frequenciaPalavras.incrementar(traducao[(int) palavras.chave(i)], palavras.valor(i));
+            }
+        }
+
+        ContadorLong bigramas = outra.frequenciaBigramas;
+        for (int i = 0; i < bigramas.capacidade(); i++) {
+            if (bigramas.ocupado(i)) {
+                long chave = bigramas.chave(i);
+                frequenciaBigramas.incrementar(((long) traducao[(int) (chave >>> 32)] << 32) | traducao[(int) chave], bigramas.valor(i));
+            }
+        }
+
+        ContadorLong trigramas = outra.frequenciaTrigramas;
+        for (int i = 0; i < trigramas.capacidade(); i++) {
+            if (trigramas.ocupado(i)) {
+                long chave = trigramas.chave(i);
+                incrementarTrigrama(traducao[(int) (chave >>> (2 * BITS_ID_TRIGRAMA))],
+                        traducao[(int) (chave >>> BITS_ID_TRIGRAMA) & MASCARA_ID_TRIGRAMA],
+                        traducao[(int) chave & MASCARA_ID_TRIGRAMA], trigramas.valor(i));
+            }
+        }
+
+        // Um trigrama excedente na outra contagem pode caber no empacotamento daqui (e vice-versa)
+        outra.trigramasExcedentes.forEach((frase, contagem) -> {
+            String[] partes = frase.split(" ");
+            incrementarTrigrama(dicionario.id(partes[0]), dicionario.id(partes[1]), dicionario.id(partes[2]), contagem);
+        });
+    }
+
+    /**
+     * Palavras mais recorrentes, ordenadas por frequência decrescente
+     */
+    Map<String, Long> palavrasRecorrentes(int maxResultados) {
+        SelecaoTopK topK = new SelecaoTopK(maxResultados);
+        for (int i = 0; i < frequenciaPalavras.capacidade(); i++) {
+            if (frequenciaPalavras.ocupado(i) && topK.aceitaria(frequenciaPalavras.valor(i))) {
+                topK.ofertar(dicionario.token((int) frequenciaPalavras.chave(i)), frequenciaPalavras.valor(i));
+            }
+        }
+        return topK.resultado();
+    }
+
+    /**
+     * Frases com o mínimo de ocorrências, ordenadas por frequência decrescente
+     */
+    Map<String, Long> frasesRecorrentes(int maxResultados, int minOcorrencias) {
+        SelecaoTopK topK = new SelecaoTopK(maxResultados);
+        for (int i = 0; i < frequenciaBigramas.capacidade(); i++) {
+            if (frequenciaBigramas.ocupado(i) && frequenciaBigramas.valor(i) >= minOcorrencias
+                    && topK.aceitaria(frequenciaBigramas.valor(i))) {
+                long chave = frequenciaBigramas.chave(i);
+                topK.ofertar(dicionario.token((int) (chave >>> 32)) + " " + dicionario.token((int) chave), frequenciaBigramas.valor(i));
+            }
+        }
+        for (int i = 0; i < frequenciaTrigramas.capacidade(); i++) {
+            if (frequenciaTrigramas.ocupado(i) && frequenciaTrigramas.valor(i) >= minOcorrencias
+                    && topK.aceitaria(frequenciaTrigramas.valor(i))) {
+                long chave = frequenciaTrigramas.chave(i);
+                topK.ofertar(textoTrigrama((int) (chave >>> (2 * BITS_ID_TRIGRAMA)), (int) (chave >>> BITS_ID_TRIGRAMA) & MASCARA_ID_TRIGRAMA,
+                        (int) chave & MASCARA_ID_TRIGRAMA), frequenciaTrigramas.valor(i));
+            }
+        }
+        trigramasExcedentes.forEach((frase, contagem) -> {
+            if (contagem >= minOcorrencias && topK.aceitaria(contagem)) {
+                topK.ofertar(frase, contagem);
+            }
+        });
+        return topK.resultado();
+    }
+
+    private void incrementarTrigrama(int id1, int id2, int id3, long quantidade) {
+        if (id1 < LIMITE_ID_TRIGRAMA && id2 < LIMITE_ID_TRIGRAMA && id3 < LIMITE_ID_TRIGRAMA) {
+            frequenciaTrigramas.incrementar(((long) id1 << (2 * BITS_ID_TRIGRAMA)) | ((long) id2 << BITS_ID_TRIGRAMA) | id3, quantidade);
+        } else {
+            trigramasExcedentes.merge(textoTrigrama(id1, id2, id3), quantidade, Long::sum);
+        }
+    }
+
+    private String textoTrigrama(int id1, int id2, int id3) {
+        return dicionario.token(id1) + " " + dicionario.token(id2) + " " + dicionario.token(id3);
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.SketchFrequencias;
+
+/**
+ * Contagem aproximada de palavras e frases com memória fixa
+ * Mesmas regras de tokenização e de stop words da {@link ContagemTexto}, mas as frequências vão para
+ * dois {@link SketchFrequencias} (palavras; bigramas e trigramas juntos) em vez de contadores exatos.
+ * Não há dicionário de tokens: o estado não cresce com o vocabulário. Não é thread-safe.
+ */
+final class ContagemTextoAproximada {
+
+    private final boolean contarPalavras;
+    private final boolean contarFrases;
+    private final Tokenizador tokenizador = new Tokenizador();
+    private final SketchFrequencias palavras;
+    private final SketchFrequencias frases;
+    private String[] tokens = new String[64];
+    private boolean[] stopWords = new boolean[64];
+
+    ContagemTextoAproximada(boolean contarPalavras, boolean contarFrases, int capacidade) {
+        this.contarPalavras = contarPalavras;
+        this.contarFrases = contarFrases;
+        this.palavras = new SketchFrequencias(capacidade);
+        this.frases = new SketchFrequencias(capacidade);
+    }
+
+    /**
+     * Conta uma descrição (já filtrada: não nula e não vazia)
+     */
+    void adicionar(String descricao) {
+        int quantidade = tokenizador.tokenizar(descricao);
+        if (tokens.length < quantidade) {
+            tokens = new String[Math.max(quantidade, tokens.length * 2)];
+            stopWords = new boolean[tokens.length];
+        }
+        char[] texto = tokenizador.texto();
+        for (int i = 0; i < quantidade; i++) {
+            tokens[i] = new String(texto, tokenizador.inicio(i), tokenizador.fim(i) - tokenizador.inicio(i));
+            stopWords[i] = AnaliseTextoService.STOP_WORDS.contains(tokens[i]);
+        }
+
+        if (contarPalavras) {
+            for (int i = 0; i < quantidade; i++) {
+                if (tokenizador.tamanhoOriginal(i) >= AnaliseTextoService.MIN_PALAVRA_LENGTH && !stopWords[i]) {
+                    palavras.registrar(tokens[i]);
+                }
+            }
+        }
+
+        if (contarFrases) {
+            for (int i = 0; i < quantidade - 1; i++) {
+                if (!stopWords[i] && !stopWords[i + 1]) {
+                    frases.registrar(tokens[i] + " " + tokens[i + 1]);
+                }
+            }
+            for (int i = 0; i < quantidade - 2; i++) {
+                if (!(stopWords[i] && stopWords[i + 1] && stopWords[i + 2])) {
+                    frases.registrar(tokens[i] + " " + tokens[i + 1] + " " + tokens[i + 2]);
+                }
+            }
+        }
+    }
+
+    SketchFrequencias palavras() {
+        return palavras;
+    }
+
+    SketchFrequencias frases() {
+        return frases;
+    }
+}
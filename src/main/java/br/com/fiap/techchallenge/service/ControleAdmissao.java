@@ -0,0 +1,178 @@
+package br.com.fiap.techchallenge.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Controle de admissão do endpoint de ingestão: rejeita rapidamente (429) o que passar dos limites,
+ * em vez de acumular requisições até o functionTimeout quando o storage fica lento ou limita a taxa
+ * <p>
+ * Dois limites independentes:
+ * <ul>
+ *   <li>concorrência: no máximo admissao.max-concorrentes requisições em processamento na instância;</li>
+ *   <li>taxa por cliente (opcional, admissao.taxa-por-cliente &gt; 0): token bucket por chave de API ou IP,
+ *       com rajada de admissao.rajada-por-cliente requisições.</li>
+ * </ul>
+ * Os limites e a ocupação são publicados como medidores da telemetria.
+ */
+@ApplicationScoped
+public class ControleAdmissao {
+
+    private static final long NANOS_POR_SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    @ConfigProperty(name = "admissao.habilitada", defaultValue = "true")
+    boolean habilitada;
+
+    @ConfigProperty(name = "admissao.max-concorrentes", defaultValue = "64")
+    int maxConcorrentes;
+
+    @ConfigProperty(name = "admissao.taxa-por-cliente", defaultValue = "0")
+    double taxaPorCliente;
+
+    @ConfigProperty(name = "admissao.rajada-por-cliente", defaultValue = "20")
+    int rajadaPorCliente;
+
+    @ConfigProperty(name = "admissao.max-clientes", defaultValue = "10000")
+    int maxClientes;
+
+    private final TelemetriaService telemetria;
+    private Semaphore vagas;
+    private Map<String, BaldeTokens> baldes;
+
+    public ControleAdmissao(TelemetriaService telemetria) {
+        this.telemetria = telemetria;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        vagas = new Semaphore(maxConcorrentes);
+        baldes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BaldeTokens> maisAntigo) {
+                return size() > maxClientes;
+            }
+        };
+        telemetria.medidor("AdmissaoLimiteConcorrencia", () -> maxConcorrentes);
+        telemetria.medidor("AdmissaoEmCurso", () -> maxConcorrentes - vagas.availablePermits());
+        telemetria.medidor("AdmissaoTaxaPorCliente", () -> taxaPorCliente);
+    }
+
+    /**
+     * Tenta admitir uma requisição do cliente
+     * A admissão deve ser fechada ao fim do processamento (try-with-resources), liberando a vaga de concorrência.
+     *
+     * @param cliente identificador do cliente (chave de API ou IP); null agrupa os clientes sem identificação
+     */
+    public Admissao admitir(String cliente) {
+        if (!habilitada) {
+            return Admissao.admitida(null);
+        }
+        if (taxaPorCliente > 0) {
+            long esperaNanos = balde(cliente != null ? cliente : "").consumir(System.nanoTime());
+            if (esperaNanos > 0) {
+                telemetria.contador("AdmissaoRejeitadaTaxa");
+                return Admissao.rejeitada(esperaNanos, "Limite de requisições por cliente excedido");
+            }
+        }
+        if (!vagas.tryAcquire()) {
+            telemetria.contador("AdmissaoRejeitadaConcorrencia");
+            return Admissao.rejeitada(NANOS_POR_SEGUNDO, "Servidor sobrecarregado");
+        }
+        return Admissao.admitida(vagas);
+    }
+
+    private BaldeTokens balde(String cliente) {
+        synchronized (baldes) {
+            return baldes.computeIfAbsent(cliente, c -> new BaldeTokens(taxaPorCliente, rajadaPorCliente, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Resultado de uma tentativa de admissão
+     */
+    public static final class Admissao implements AutoCloseable {
+
+        private final Semaphore vagas;
+        private final boolean admitida;
+        private final long esperaNanos;
+        private final String motivo;
+        private final AtomicBoolean liberada = new AtomicBoolean();
+
+        private Admissao(Semaphore vagas, boolean admitida, long esperaNanos, String motivo) {
+            this.vagas = vagas;
+            this.admitida = admitida;
+            this.esperaNanos = esperaNanos;
+            this.motivo = motivo;
+        }
+
+        static Admissao admitida(Semaphore vagas) {
+            return new Admissao(vagas, true, 0, null);
+        }
+
+        static Admissao rejeitada(long esperaNanos, String motivo) {
+            return new Admissao(null, false, esperaNanos, motivo);
+        }
+
+        public boolean isAdmitida() {
+            return admitida;
+        }
+
+        /**
+         * Segundos sugeridos ao cliente antes de tentar de novo (header Retry-After), no mínimo 1
+         */
+        public long getRetryAfterSegundos() {
+            return Math.max(1, (esperaNanos + NANOS_POR_SEGUNDO - 1) / NANOS_POR_SEGUNDO);
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+
+        @Override
+        public void close() {
+            if (vagas != null && liberada.compareAndSet(false, true)) {
+                vagas.release();
+            }
+        }
+    }
+
+    /**
+     * Token bucket: reabastece taxa tokens por segundo até a capacidade; cada requisição consome um token
+     */
+    static final class BaldeTokens {
+
+        private final double tokensPorNano;
+        private final double capacidade;
+        private double tokens;
+        private long ultimaRecarga;
+
+        BaldeTokens(double taxaPorSegundo, int capacidade, long agora) {
+            this.tokensPorNano = taxaPorSegundo / NANOS_POR_SEGUNDO;
+            this.capacidade = Math.max(1, capacidade);
+            this.tokens = this.capacidade;
+            this.ultimaRecarga = agora;
+        }
+
+        /**
+         * Consome um token
+         *
+         * @return 0 se havia token; caso contrário, o tempo (ns) até haver um
+         */
+        synchronized long consumir(long agora) {
+            tokens = Math.min(capacidade, tokens + (agora - ultimaRecarga) * tokensPorNano);
+            ultimaRecarga = agora;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPorNano);
+        }
+    }
+}
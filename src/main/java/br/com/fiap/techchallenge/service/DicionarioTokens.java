@@ -0,0 +1,120 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Dicionário de tokens: associa cada token distinto a um id inteiro sequencial (0, 1, 2, ...)
+ * A busca é feita diretamente sobre o intervalo de chars do buffer do {@link Tokenizador},
+ * então só tokens inéditos alocam uma String.
+ * <p>
+ * Tabela de endereçamento aberto (sondagem linear) com fator de carga máximo de 0,5.
+ * Não é thread-safe.
+ */
+final class DicionarioTokens {
+
+    private final Set<String> stopWords;
+
+    private int[] tabela = new int[1024]; // id + 1 (0 = posição livre)
+    private String[] tokens = new String[512];
+    private int[] hashes = new int[512];
+    private boolean[] stopWord = new boolean[512];
+    private int tamanho;
+
+    DicionarioTokens(Set<String> stopWords) {
+        this.stopWords = stopWords;
+    }
+
+    /**
+     * Retorna o id do token texto[inicio, fim), registrando-o se ainda não existir
+     */
+    int id(char[] texto, int inicio, int fim) {
+        int hash = hash(texto, inicio, fim);
+        int mascara = tabela.length - 1;
+        int posicao = hash & mascara;
+        while (true) {
+            int ocupante = tabela[posicao];
+            if (ocupante == 0) {
+                return registrar(new String(texto, inicio, fim - inicio), hash, posicao);
+            }
+            int id = ocupante - 1;
+            if (hashes[id] == hash && igual(tokens[id], texto, inicio, fim)) {
+                return id;
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+    }
+
+    /**
+     * Retorna o id do token, registrando-o se ainda não existir
+     */
+    int id(String token) {
+        char[] texto = token.toCharArray();
+        return id(texto, 0, texto.length);
+    }
+
+    String token(int id) {
+        return tokens[id];
+    }
+
+    boolean isStopWord(int id) {
+        return stopWord[id];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    private int registrar(String token, int hash, int posicao) {
+        if (tamanho == tokens.length) {
+            int capacidade = tamanho * 2;
+            tokens = Arrays.copyOf(tokens, capacidade);
+            hashes = Arrays.copyOf(hashes, capacidade);
+            stopWord = Arrays.copyOf(stopWord, capacidade);
+        }
+        int id = tamanho++;
+        tokens[id] = token;
+        hashes[id] = hash;
+        stopWord[id] = stopWords.contains(token);
+        tabela[posicao] = id + 1;
+
+        if (tamanho * 2 > tabela.length) {
+            redimensionar();
+        }
+        return id;
+    }
+
+    private void redimensionar() {
+        int[] nova = new int[tabela.length * 2];
+        int mascara = nova.length - 1;
+        for (int id = 0; id < tamanho; id++) {
+            int posicao = hashes[id] & mascara;
+            while (nova[posicao] != 0) {
+                posicao = (posicao + 1) & mascara;
+            }
+            nova[posicao] = id + 1;
+        }
+        tabela = nova;
+    }
+
+    private static int hash(char[] texto, int inicio, int fim) {
+        int h = 0;
+        for (int i = inicio; i < fim; i++) {
+            h = 31 * h + texto[i];
+        }
+        // Espalha os bits altos para a máscara da tabela
+        return h ^ (h >>> 16) ^ (h >>> 7);
+    }
+
+    private static boolean igual(String token, char[] texto, int inicio, int fim) {
+        if (token.length() != fim - inicio) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) != texto[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -15,18 +15,200 @@ import org.jboss.logging.Logger;
 
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * Serviço para envio de e-mails via SendGrid
  * Gerencia notificações de avaliações críticas e relatórios semanais
+ * O HTML dos e-mails vem de templates compilados uma única vez ({@link TemplateHtml}), com escape dos textos informados pelos usuários
  */
 @ApplicationScoped
 public class EmailService {
 
     private static final Logger LOG = Logger.getLogger(EmailService.class);
     private static final DateTimeFormatter BRAZIL_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final DateTimeFormatter APENAS_DATA_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final HistogramaLatencia LATENCIA_SENDGRID = Latencias.estagio("email_sendgrid");
+
+    // Templates compilados uma única vez, no carregamento da classe; valores de texto são escapados na renderização
+    private static final TemplateHtml TEMPLATE_CRITICO = TemplateHtml.compilar("""
+                    <!DOCTYPE html>
+                    <html>
+                    <head>
+                        <style>
+                            body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
+                            .container { max-width: 600px; margin: 0 auto; padding: 20px; }
+                            .header { background-color: #dc3545; color: white; padding: 20px; border-radius: 5px; }
+                            .content { background-color: #f8f9fa; padding: 20px; margin-top: 20px; border-radius: 5px; }
+                            .info { margin: 10px 0; }
+                            .label { font-weight: bold; }
+                            .urgencia { color: #dc3545; font-weight: bold; font-size: 18px; }
+                        </style>
+                    </head>
+                    <body>
+                        <div class="container">
+                            <div class="header">
+                                <h1>⚠️ Avaliação Crítica Recebida</h1>
+                            </div>
+                            <div class="content">
+                                <p>Uma nova avaliação com <span class="urgencia">urgência CRÍTICA</span> foi registrada no sistema.</p>
+                    
+                                <div class="info">
+                                    <span class="label">ID:</span> {{id}}
+                                </div>
+                                <div class="info">
+                                    <span class="label">Data/Hora:</span> {{dataHora}}
+                                </div>
+                                <div class="info">
+                                    <span class="label">Nota:</span> {{nota}}/10
+                                </div>
+                                <div class="info">
+                                    <span class="label">Urgência:</span> {{urgencia}}
+                                </div>
+                                <div class="info">
+                                    <span class="label">Descrição:</span>
+                                    <p style="background-color: white; padding: 15px; border-left: 4px solid #dc3545; margin-top: 10px;">
+                                        {{descricao}}
+                                    </p>
+                                </div>
+                    
+                                <p style="margin-top: 20px; color: #666;">
+                                    <strong>Ação Recomendada:</strong> Esta avaliação requer atenção imediata.
+                                    Por favor, entre em contato com o cliente o mais breve possível.
+                                </p>
+                            </div>
+                        </div>
+                    </body>
+                    </html>
+                    """,
+            "id", "dataHora", "nota", "urgencia", "descricao");
+
+    private static final TemplateHtml TEMPLATE_DIGEST_CRITICO = TemplateHtml.compilar("""
+                    <!DOCTYPE html>
+                    <html>
+                    <head>
+                        <style>
+                            body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
+                            .container { max-width: 800px; margin: 0 auto; padding: 20px; }
+                            .header { background-color: #dc3545; color: white; padding: 20px; border-radius: 5px; }
+                            .content { background-color: #f8f9fa; padding: 20px; margin-top: 20px; border-radius: 5px; }
+                            .urgencia { color: #dc3545; font-weight: bold; font-size: 18px; }
+                        </style>
+                    </head>
+                    <body>
+                        <div class="container">
+                            <div class="header">
+                                <h1>⚠️ {{quantidade}} Avaliações Críticas Recebidas</h1>
+                            </div>
+                            <div class="content">
+                                <p>As avaliações abaixo, com <span class="urgencia">urgência CRÍTICA</span>, foram registradas em sequência
+                                e agrupadas neste único e-mail.</p>
+                    
+                                <table style='width:100%; border-collapse: collapse; background-color: white;'>
+                                    <tr style='background-color: #f2f2f2;'>
+                                        <th style='padding: 8px; border: 1px solid #ddd; text-align: left;'>Data/Hora</th>
+                                        <th style='padding: 8px; border: 1px solid #ddd; text-align: left;'>ID</th>
+                                        <th style='padding: 8px; border: 1px solid #ddd; text-align: center;'>Nota</th>
+                                        <th style='padding: 8px; border: 1px solid #ddd; text-align: left;'>Descrição</th>
+                                    </tr>
+                                    {{linhas}}
+                                </table>
+                    
+                                <p style="margin-top: 20px; color: #666;">
+                                    <strong>Ação Recomendada:</strong> Um volume alto de avaliações críticas pode indicar um incidente.
+                                    Verifique a disponibilidade do serviço e entre em contato com os clientes o mais breve possível.
+                                </p>
+                            </div>
+                        </div>
+                    </body>
+                    </html>
+                    """,
+            "quantidade", "linhas");
+
+    private static final TemplateHtml TEMPLATE_LINHA_DIGEST = TemplateHtml.compilar(
+            "<tr><td style='padding: 8px; border: 1px solid #ddd;'>{{dataHora}}</td><td style='padding: 8px; border: 1px solid #ddd;'>{{id}}</td><td style='padding: 8px; border: 1px solid #ddd; text-align: center;'>{{nota}}/10</td><td style='padding: 8px; border: 1px solid #ddd;'>{{descricao}}</td></tr>",
+            "dataHora", "id", "nota", "descricao");
+
+    private static final TemplateHtml TEMPLATE_RELATORIO = TemplateHtml.compilar("""
+                    <html>
+                    <head>
+                        <style>
+                            body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
+                            .container { width: 80%; margin: 20px auto; border: 1px solid #eee; padding: 20px; border-radius: 8px; }
+                            .header { background-color: #007bff; color: white; padding: 10px; text-align: center; border-radius: 8px 8px 0 0; }
+                            .section { margin-top: 20px; padding-bottom: 10px; border-bottom: 1px solid #eee; }
+                            h2 { color: #007bff; font-size: 18px; }
+                            .metric-box { display: flex; justify-content: space-between; background: #f8f9fa; padding: 15px; border-radius: 5px; }
+                        </style>
+                    </head>
+                    <body>
+                        <div class="container">
+                            <div class="header">
+                                <h1>Relatório Semanal de Feedbacks</h1>
+                            </div>
+                    
+                            <div class="section">
+                                <p><strong>Período:</strong> {{inicio}} até {{fim}}</p>
+                                <p><strong>Gerado em:</strong> {{geracao}}</p>
+                            </div>
+                    
+                            <div class="section">
+                                <h2>Métricas de Desempenho</h2>
+                                <div class="metric-box">
+                                    <div><strong>Total:</strong> {{total}}</div>
+                                    <div><strong>Média:</strong> {{media}}</div>
+                                    <div><strong>Máxima:</strong> {{maxima}}</div>
+                                    <div><strong>Mínima:</strong> {{minima}}</div>
+                                </div>
+                                <p><strong>Mediana:</strong> {{mediana}} &nbsp; <strong>NPS:</strong> {{nps}}</p>
+                            </div>
+                    
+                            <div class="section">
+                                <h2>Quantidade de Avaliações por Dia</h2>
+                                {{porDia}}
+                            </div>
+                    
+                            <div class="section">
+                                <h2>Distribuição por Urgência</h2>
+                                <ul>{{urgencias}}</ul>
+                            </div>
+                    
+                            <div class="section">
+                                <h2>Análise de Texto</h2>
+                                <p><strong>Palavras-chave:</strong></p>
+                                <div>{{palavras}}</div>
+                                <p><strong>Frases Comuns:</strong></p>
+                                <ul>{{frases}}</ul>
+                            </div>
+                    
+                            <div style="font-size: 12px; color: #777; margin-top: 30px; text-align: center;">
+                                Sistema Automático de Feedbacks - Tech Challenge Fase 4
+                            </div>
+                        </div>
+                    </body>
+                    </html>
+                    """,
+            "inicio", "fim", "geracao", "total", "media", "maxima", "minima", "mediana", "nps",
+            "porDia", "urgencias", "palavras", "frases");
+
+    private static final String TABELA_DIAS_INICIO = "<table style='width:100%; border-collapse: collapse; margin-bottom: 20px;'>"
+            + "<tr style='background-color: #f2f2f2;'><th style='padding: 8px; border: 1px solid #ddd; text-align: left;'>Data</th><th style='padding: 8px; border: 1px solid #ddd; text-align: center;'>Quantidade</th></tr>";
+
+    private static final TemplateHtml TEMPLATE_LINHA_DIA = TemplateHtml.compilar(
+            "<tr><td style='padding: 8px; border: 1px solid #ddd;'>{{dia}}</td><td style='padding: 8px; border: 1px solid #ddd; text-align: center;'>{{quantidade}}</td></tr>",
+            "dia", "quantidade");
+
+    private static final TemplateHtml TEMPLATE_ITEM_URGENCIA = TemplateHtml.compilar(
+            "<li><strong>{{nivel}}:</strong> {{quantidade}}</li>", "nivel", "quantidade");
+
+    private static final TemplateHtml TEMPLATE_PALAVRA = TemplateHtml.compilar(
+            "<span style='background:#e1f5fe; padding:2px 8px; margin:2px; border-radius:10px; display:inline-block;'>{{palavra}}</span>", "palavra");
+
+    private static final TemplateHtml TEMPLATE_FRASE = TemplateHtml.compilar(
+            "<li>\"{{frase}}\"</li>", "frase");
 
     @ConfigProperty(name = "sendgrid.api.key")
     String sendGridApiKey;
@@ -37,23 +219,36 @@ public class EmailService {
     @ConfigProperty(name = "sendgrid.admin.email")
     String adminEmail;
 
+    private volatile SendGrid sendGrid;
+
     /**
      * Envia notificação de avaliação crítica para administradores
+     * Executado pelo worker da fila de notificações: a falha é propagada para que a mensagem seja reprocessada
      */
-    public void enviarNotificacaoCritica(Avaliacao avaliacao) {
-        try {
-            LOG.infof("Enviando notificação crítica para: %s", adminEmail);
+    public void enviarNotificacaoCritica(Avaliacao avaliacao) throws IOException {
+        LOG.infof("Enviando notificação crítica para: %s", adminEmail);
 
-            String subject = "⚠️ URGENTE: Nova Avaliação Crítica Recebida";
-            String body = construirEmailCritico(avaliacao);
+        String subject = "⚠️ URGENTE: Nova Avaliação Crítica Recebida";
+        String body = construirEmailCritico(avaliacao);
 
-            enviarEmail(adminEmail, subject, body);
+        enviarEmail(adminEmail, subject, body);
 
-            LOG.info("Notificação crítica enviada com sucesso");
-        } catch (Exception e) {
-            LOG.errorf("Erro ao enviar notificação crítica: %s", e.getMessage());
-            // Não lança exceção para não bloquear o fluxo principal
-        }
+        LOG.info("Notificação crítica enviada com sucesso");
+    }
+
+    /**
+     * Envia um único e-mail (digest) com todas as avaliações críticas de uma janela de agrupamento
+     * A falha é propagada para que as mensagens da janela sejam reprocessadas
+     */
+    public void enviarDigestCritico(List<Avaliacao> avaliacoes) throws IOException {
+        LOG.infof("Enviando digest de %d avaliações críticas para: %s", avaliacoes.size(), adminEmail);
+
+        String subject = String.format("⚠️ URGENTE: %d Novas Avaliações Críticas Recebidas", avaliacoes.size());
+        String body = construirEmailDigestCritico(avaliacoes);
+
+        enviarEmail(adminEmail, subject, body);
+
+        LOG.info("Digest de notificações críticas enviado com sucesso");
     }
 
     /**
@@ -75,6 +270,28 @@ public class EmailService {
         }
     }
 
+    /**
+     * Constrói o cliente do SendGrid e monta um e-mail (sem envio), carregando as classes usadas no envio
+     */
+    void aquecer() {
+        obterSendGrid();
+        new Mail(new Email(fromEmail), "aquecimento", new Email(adminEmail), new Content("text/html", "<p></p>"));
+    }
+
+    /**
+     * Cliente do SendGrid, criado uma única vez e reutilizado entre envios
+     */
+    private SendGrid obterSendGrid() {
+        if (sendGrid == null) {
+            synchronized (this) {
+                if (sendGrid == null) {
+                    sendGrid = new SendGrid(sendGridApiKey);
+                }
+            }
+        }
+        return sendGrid;
+    }
+
     /**
      * Método genérico para enviar e-mail via SendGrid
      */
@@ -84,7 +301,7 @@ public class EmailService {
         Content content = new Content("text/html", body);
         Mail mail = new Mail(from, subject, to, content);
 
-        SendGrid sg = new SendGrid(sendGridApiKey);
+        SendGrid sg = obterSendGrid();
         Request request = new Request();
 
         try {
@@ -92,11 +309,14 @@ public class EmailService {
             request.setEndpoint("mail/send");
             request.setBody(mail.build());
 
+            long inicio = System.nanoTime();
             Response response = sg.api(request);
+            LATENCIA_SENDGRID.registrar(inicio);
             LOG.infof("SendGrid Response - Status: %d", response.getStatusCode());
 
             if (response.getStatusCode() >= 400) {
                 LOG.errorf("Erro no SendGrid: %s", response.getBody());
+                throw new IOException("SendGrid retornou status " + response.getStatusCode());
             }
         } catch (IOException e) {
             LOG.errorf("Erro ao enviar e-mail: %s", e.getMessage());
@@ -108,178 +328,88 @@ public class EmailService {
      * Constrói o corpo do e-mail para avaliação crítica
      */
     private String construirEmailCritico(Avaliacao avaliacao) {
-        String dataFormatada = avaliacao.getDataHora().format(BRAZIL_FORMATTER);
-        return String.format("""
-                        <!DOCTYPE html>
-                        <html>
-                        <head>
-                            <style>
-                                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                                .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                                .header { background-color: #dc3545; color: white; padding: 20px; border-radius: 5px; }
-                                .content { background-color: #f8f9fa; padding: 20px; margin-top: 20px; border-radius: 5px; }
-                                .info { margin: 10px 0; }
-                                .label { font-weight: bold; }
-                                .urgencia { color: #dc3545; font-weight: bold; font-size: 18px; }
-                            </style>
-                        </head>
-                        <body>
-                            <div class="container">
-                                <div class="header">
-                                    <h1>⚠️ Avaliação Crítica Recebida</h1>
-                                </div>
-                                <div class="content">
-                                    <p>Uma nova avaliação com <span class="urgencia">urgência CRÍTICA</span> foi registrada no sistema.</p>
-                        
-                                    <div class="info">
-                                        <span class="label">ID:</span> %s
-                                    </div>
-                                    <div class="info">
-                                        <span class="label">Data/Hora:</span> %s
-                                    </div>
-                                    <div class="info">
-                                        <span class="label">Nota:</span> %d/10
-                                    </div>
-                                    <div class="info">
-                                        <span class="label">Urgência:</span> %s
-                                    </div>
-                                    <div class="info">
-                                        <span class="label">Descrição:</span>
-                                        <p style="background-color: white; padding: 15px; border-left: 4px solid #dc3545; margin-top: 10px;">
-                                            %s
-                                        </p>
-                                    </div>
-                        
-                                    <p style="margin-top: 20px; color: #666;">
-                                        <strong>Ação Recomendada:</strong> Esta avaliação requer atenção imediata.
-                                        Por favor, entre em contato com o cliente o mais breve possível.
-                                    </p>
-                                </div>
-                            </div>
-                        </body>
-                        </html>
-                        """,
+        String descricao = avaliacao.getDescricao();
+        return TEMPLATE_CRITICO.renderizar(128 + (descricao != null ? descricao.length() : 0),
                 avaliacao.getId(),
-                dataFormatada,
+                avaliacao.getDataHora().format(BRAZIL_FORMATTER),
                 avaliacao.getNota(),
                 avaliacao.getUrgencia(),
-                avaliacao.getDescricao()
+                descricao
         );
     }
 
     /**
-     * Constrói o corpo do e-mail para relatório semanal
+     * Constrói o corpo do e-mail de digest com as avaliações críticas de uma janela
      */
-    public String construirEmailRelatorio(RelatorioSemanal relatorio) {
-        // 1. Formatadores para datas brasileiras
-        DateTimeFormatter dataHoraFmt = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-        DateTimeFormatter apenasDataFmt = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-
-        // 2. Preparação das datas legíveis
-        String dataInicioFormatada = relatorio.getPeriodoInicio().format(apenasDataFmt);
-        String dataFimFormatada = relatorio.getPeriodoFim().format(apenasDataFmt);
-        String dataGeracaoFormatada = relatorio.getDataGeracao().format(dataHoraFmt);
-
-        // 3. Construção da Tabela de "Avaliações por Dia" (Requisito do PDF)
-        StringBuilder distribuicaoDiariaHtml = new StringBuilder();
-        if (relatorio.getAvaliacoesPorDia() != null && !relatorio.getAvaliacoesPorDia().isEmpty()) {
-            distribuicaoDiariaHtml.append("<table style='width:100%; border-collapse: collapse; margin-bottom: 20px;'>");
-            distribuicaoDiariaHtml.append("<tr style='background-color: #f2f2f2;'><th style='padding: 8px; border: 1px solid #ddd; text-align: left;'>Data</th><th style='padding: 8px; border: 1px solid #ddd; text-align: center;'>Quantidade</th></tr>");
-
-            // Ordena por data (chave) para o relatório ficar cronológico
-            relatorio.getAvaliacoesPorDia().entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .forEach(entry -> {
-                        distribuicaoDiariaHtml.append(String.format(
-                                "<tr><td style='padding: 8px; border: 1px solid #ddd;'>%s</td><td style='padding: 8px; border: 1px solid #ddd; text-align: center;'>%d</td></tr>",
-                                entry.getKey(), entry.getValue()
-                        ));
-                    });
-            distribuicaoDiariaHtml.append("</table>");
-        } else {
-            distribuicaoDiariaHtml.append("<p>Nenhuma avaliação registrada no período.</p>");
+    private String construirEmailDigestCritico(List<Avaliacao> avaliacoes) {
+        int tamanhoLinhas = 0;
+        for (Avaliacao avaliacao : avaliacoes) {
+            tamanhoLinhas += TEMPLATE_LINHA_DIGEST.getTamanhoLiterais() + 64
+                    + (avaliacao.getDescricao() != null ? avaliacao.getDescricao().length() : 0);
         }
 
-        // 4. Preparação de Urgências e Texto (Mantendo a lógica que você já possui)
-        String urgencias = relatorio.getAvaliacoesPorUrgencia().entrySet().stream()
-                .map(e -> String.format("<li><strong>%s:</strong> %d</li>", e.getKey(), e.getValue()))
-                .collect(Collectors.joining());
-
-        String palavrasHtml = relatorio.getPalavrasMaisRecorrentes().stream()
-                .map(p -> "<span style='background:#e1f5fe; padding:2px 8px; margin:2px; border-radius:10px; display:inline-block;'>" + p + "</span>")
-                .collect(Collectors.joining());
-
-        String frasesHtml = relatorio.getFrasesMaisRecorrentes().stream()
-                .map(f -> "<li>\"" + f + "\"</li>")
-                .collect(Collectors.joining());
-
-        // 5. Template Final Formatado
-        return String.format("""
-        <html>
-        <head>
-            <style>
-                body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                .container { width: 80%%; margin: 20px auto; border: 1px solid #eee; padding: 20px; border-radius: 8px; }
-                .header { background-color: #007bff; color: white; padding: 10px; text-align: center; border-radius: 8px 8px 0 0; }
-                .section { margin-top: 20px; padding-bottom: 10px; border-bottom: 1px solid #eee; }
-                h2 { color: #007bff; font-size: 18px; }
-                .metric-box { display: flex; justify-content: space-between; background: #f8f9fa; padding: 15px; border-radius: 5px; }
-            </style>
-        </head>
-        <body>
-            <div class="container">
-                <div class="header">
-                    <h1>Relatório Semanal de Feedbacks</h1>
-                </div>
-                
-                <div class="section">
-                    <p><strong>Período:</strong> %s até %s</p>
-                    <p><strong>Gerado em:</strong> %s</p>
-                </div>
-
-                <div class="section">
-                    <h2>Métricas de Desempenho</h2>
-                    <div class="metric-box">
-                        <div><strong>Total:</strong> %d</div>
-                        <div><strong>Média:</strong> %.2f</div>
-                        <div><strong>Máxima:</strong> %d</div>
-                        <div><strong>Mínima:</strong> %d</div>
-                    </div>
-                </div>
-
-                <div class="section">
-                    <h2>Quantidade de Avaliações por Dia</h2>
-                    %s
-                </div>
-
-                <div class="section">
-                    <h2>Distribuição por Urgência</h2>
-                    <ul>%s</ul>
-                </div>
-
-                <div class="section">
-                    <h2>Análise de Texto</h2>
-                    <p><strong>Palavras-chave:</strong></p>
-                    <div>%s</div>
-                    <p><strong>Frases Comuns:</strong></p>
-                    <ul>%s</ul>
-                </div>
-                
-                <div style="font-size: 12px; color: #777; margin-top: 30px; text-align: center;">
-                    Sistema Automático de Feedbacks - Tech Challenge Fase 4
-                </div>
-            </div>
-        </body>
-        </html>
-        """,
-                dataInicioFormatada,     // %s
-                dataFimFormatada,        // %s
-                dataGeracaoFormatada,    // %s
+        Consumer<StringBuilder> linhas = destino -> {
+            for (Avaliacao avaliacao : avaliacoes) {
+                TEMPLATE_LINHA_DIGEST.renderizar(destino,
+                        avaliacao.getDataHora() != null ? avaliacao.getDataHora().format(BRAZIL_FORMATTER) : "-",
+                        avaliacao.getId(),
+                        avaliacao.getNota(),
+                        avaliacao.getDescricao());
+            }
+        };
+        return TEMPLATE_DIGEST_CRITICO.renderizar(tamanhoLinhas, avaliacoes.size(), linhas);
+    }
+
+    /**
+     * Constrói o corpo do e-mail para relatório semanal
+     * Todo o HTML é escrito em um único buffer, pré-dimensionado pelo número de linhas de cada seção
+     */
+    public String construirEmailRelatorio(RelatorioSemanal relatorio) {
+        // 1. Distribuição diária, ordenada por data para o relatório ficar cronológico
+        Map<String, Long> porDia = relatorio.getAvaliacoesPorDia() != null ? new TreeMap<>(relatorio.getAvaliacoesPorDia()) : Map.of();
+        Consumer<StringBuilder> distribuicaoDiaria = destino -> {
+            if (porDia.isEmpty()) {
+                destino.append("<p>Nenhuma avaliação registrada no período.</p>");
+                return;
+            }
+            destino.append(TABELA_DIAS_INICIO);
+            porDia.forEach((dia, quantidade) -> TEMPLATE_LINHA_DIA.renderizar(destino, dia, quantidade));
+            destino.append("</table>");
+        };
+
+        // 2. Urgências e análise de texto
+        Map<String, Long> porUrgencia = relatorio.getAvaliacoesPorUrgencia();
+        Consumer<StringBuilder> urgencias = destino -> porUrgencia.forEach((nivel, quantidade) -> TEMPLATE_ITEM_URGENCIA.renderizar(destino, nivel, quantidade));
+
+        List<String> palavras = relatorio.getPalavrasMaisRecorrentes();
+        Consumer<StringBuilder> palavrasHtml = destino -> palavras.forEach(palavra -> TEMPLATE_PALAVRA.renderizar(destino, palavra));
+
+        List<String> frases = relatorio.getFrasesMaisRecorrentes();
+        Consumer<StringBuilder> frasesHtml = destino -> frases.forEach(frase -> TEMPLATE_FRASE.renderizar(destino, frase));
+
+        String mediana = relatorio.getPercentisNotas() != null && relatorio.getPercentisNotas().containsKey("p50")
+                ? String.valueOf(relatorio.getPercentisNotas().get("p50"))
+                : "-";
+        String nps = relatorio.getNps() != null ? String.format("%.1f", relatorio.getNps()) : "-";
+
+        int tamanhoSecoes = porDia.size() * (TEMPLATE_LINHA_DIA.getTamanhoLiterais() + 16) + TABELA_DIAS_INICIO.length()
+                + porUrgencia.size() * (TEMPLATE_ITEM_URGENCIA.getTamanhoLiterais() + 16)
+                + palavras.size() * (TEMPLATE_PALAVRA.getTamanhoLiterais() + 24)
+                + frases.size() * (TEMPLATE_FRASE.getTamanhoLiterais() + 48)
+                + 128;
+
+        // 3. Template final
+        return TEMPLATE_RELATORIO.renderizar(tamanhoSecoes,
+                relatorio.getPeriodoInicio().format(APENAS_DATA_FORMATTER),
+                relatorio.getPeriodoFim().format(APENAS_DATA_FORMATTER),
+                relatorio.getDataGeracao().format(BRAZIL_FORMATTER),
                 relatorio.getTotalAvaliacoes(),
-                relatorio.getMediaNotas(),
+                String.format("%.2f", relatorio.getMediaNotas()),
                 relatorio.getNotaMaisAlta(),
                 relatorio.getNotaMaisBaixa(),
-                distribuicaoDiariaHtml.toString(), // A nova tabela de avaliações por dia
+                mediana,
+                nps,
+                distribuicaoDiaria,
                 urgencias,
                 palavrasHtml,
                 frasesHtml
@@ -0,0 +1,179 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latência no estilo HDR: baldes log-lineares em microssegundos, sem lock nem alocação por registro
+ * <p>
+ * Abaixo de 64 µs cada microssegundo tem o seu balde; acima, cada oitava (potência de 2) é dividida em
+ * 32 sub-baldes, o que limita o erro relativo dos percentis a ~3% para qualquer ordem de grandeza
+ * (de µs até o teto de 1 hora) com 896 contadores.
+ * <p>
+ * Os percentis cobrem a janela recente (o intervalo corrente e o anterior, de {@link #JANELA_NANOS} cada),
+ * para que regressões de cauda apareçam logo; contagem e soma são acumuladas desde o início, como um
+ * summary do Prometheus.
+ */
+public final class HistogramaLatencia {
+
+    static final long JANELA_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static final int BITS_SUB_BALDE = 5;
+    private static final int SUB_BALDES = 1 << BITS_SUB_BALDE;
+    private static final int LIMITE_LINEAR = SUB_BALDES * 2;
+    private static final long VALOR_MAXIMO_US = TimeUnit.HOURS.toMicros(1);
+    private static final int BALDES = indice(VALOR_MAXIMO_US) + 1;
+
+    private final LongAdder contagemTotal = new LongAdder();
+    private final LongAdder somaTotalUs = new LongAdder();
+    private final AtomicReference<Intervalo> atual = new AtomicReference<>(new Intervalo(System.nanoTime()));
+    private volatile Intervalo anterior;
+
+    HistogramaLatencia() {
+    }
+
+    /**
+     * Registra a duração desde {@code inicioNanos} (obtido de {@link System#nanoTime()})
+     *
+     * @return o instante do registro, para encadear estágios sequenciais sem nova leitura do relógio
+     */
+    public long registrar(long inicioNanos) {
+        long agora = System.nanoTime();
+        registrarDuracao(agora - inicioNanos, agora);
+        return agora;
+    }
+
+    void registrarDuracao(long duracaoNanos, long agora) {
+        long us = Math.min(VALOR_MAXIMO_US, Math.max(0, duracaoNanos / 1000));
+        contagemTotal.increment();
+        somaTotalUs.add(us);
+        intervalo(agora).registrar(us);
+    }
+
+    public long getContagem() {
+        return contagemTotal.sum();
+    }
+
+    public double getSomaSegundos() {
+        return somaTotalUs.sum() / 1e6;
+    }
+
+    /**
+     * Retrato da janela recente, para o cálculo de percentis
+     */
+    public Instantaneo instantaneo() {
+        long agora = System.nanoTime();
+        long[] contagens = new long[BALDES];
+        long maximo = 0;
+        for (Intervalo intervalo : new Intervalo[]{anterior, atual.get()}) {
+            if (intervalo == null || agora - intervalo.inicio >= 2 * JANELA_NANOS) {
+                continue;
+            }
+            for (int i = 0; i < BALDES; i++) {
+                contagens[i] += intervalo.contagens.get(i);
+            }
+            maximo = Math.max(maximo, intervalo.maximo.get());
+        }
+        return new Instantaneo(contagens, maximo);
+    }
+
+    private Intervalo intervalo(long agora) {
+        Intervalo intervalo = atual.get();
+        if (agora - intervalo.inicio < JANELA_NANOS) {
+            return intervalo;
+        }
+        Intervalo novo = new Intervalo(agora);
+        if (atual.compareAndSet(intervalo, novo)) {
+            anterior = intervalo;
+            return novo;
+        }
+        return atual.get();
+    }
+
+    static int indice(long us) {
+        if (us < LIMITE_LINEAR) {
+            return (int) us;
+        }
+        int deslocamento = (63 - Long.numberOfLeadingZeros(us)) - BITS_SUB_BALDE;
+        return (deslocamento << BITS_SUB_BALDE) + (int) (us >>> deslocamento);
+    }
+
+    /**
+     * Maior valor (µs) que cai no balde
+     */
+    static long limiteSuperior(int indice) {
+        if (indice < LIMITE_LINEAR) {
+            return indice;
+        }
+        int deslocamento = (indice >>> BITS_SUB_BALDE) - 1;
+        long mantissa = (indice & (SUB_BALDES - 1)) + SUB_BALDES;
+        return ((mantissa + 1) << deslocamento) - 1;
+    }
+
+    private static final class Intervalo {
+
+        final long inicio;
+        final AtomicLongArray contagens = new AtomicLongArray(BALDES);
+        final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+        Intervalo(long inicio) {
+            this.inicio = inicio;
+        }
+
+        void registrar(long us) {
+            contagens.incrementAndGet(indice(us));
+            maximo.accumulate(us);
+        }
+    }
+
+    /**
+     * Contagens da janela recente
+     */
+    public static final class Instantaneo {
+
+        private final long[] contagens;
+        private final long total;
+        private final long maximoUs;
+
+        private Instantaneo(long[] contagens, long maximoUs) {
+            this.contagens = contagens;
+            long soma = 0;
+            for (long contagem : contagens) {
+                soma += contagem;
+            }
+            this.total = soma;
+            this.maximoUs = maximoUs;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Percentil em segundos (limite superior do balde, nunca acima do máximo observado); 0 sem registros
+         *
+         * @param quantil entre 0 e 1 (ex.: 0.99)
+         */
+        public double percentilSegundos(double quantil) {
+            if (total == 0) {
+                return 0;
+            }
+            long posicao = Math.max(1, (long) Math.ceil(quantil * total));
+            long acumulado = 0;
+            for (int i = 0; i < contagens.length; i++) {
+                acumulado += contagens[i];
+                if (acumulado >= posicao) {
+                    return Math.min(limiteSuperior(i), maximoUs) / 1e6;
+                }
+            }
+            return maximoUs / 1e6;
+        }
+
+        public double maximoSegundos() {
+            return maximoUs / 1e6;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RegistroIdempotencia;
+import br.com.fiap.techchallenge.repository.StorageTableAsyncRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Idempotência do POST /api/avaliacao (header Idempotency-Key ou id informado pelo cliente)
+ * <p>
+ * Uma repetição da mesma requisição (ex.: o cliente excedeu o próprio timeout e reenviou) recebe a resposta 201
+ * original sem nova gravação e sem nova notificação. A verificação é feita em duas camadas:
+ * <ol>
+ *   <li>um cache LRU limitado em memória (idempotencia.cache.max-itens), com as chaves concluídas nesta instância;</li>
+ *   <li>a inserção condicional da chave na tabela de idempotência, que vale entre instâncias.</li>
+ * </ol>
+ * As chaves são guardadas como SHA-256, junto com o hash do payload original: a mesma chave com outro payload
+ * é rejeitada pelo handler.
+ * <p>
+ * A reserva só é concluída (resposta registrada) depois dos efeitos da avaliação: notificação e rollup.
+ * Se a avaliação foi gravada mas a requisição original não executou os efeitos (ex.: respondeu 504 e a
+ * gravação cancelada concluiu depois), a repetição os executa antes de responder (situação EFEITOS_PENDENTES).
+ */
+@ApplicationScoped
+public class IdempotenciaService {
+
+    private static final Logger LOG = Logger.getLogger(IdempotenciaService.class);
+
+    private final StorageTableAsyncRepository repository;
+    private final Map<String, RegistroIdempotencia> concluidas;
+
+    @ConfigProperty(name = "idempotencia.reserva-expiracao-s", defaultValue = "60")
+    long expiracaoReservaSegundos;
+
+    @ConfigProperty(name = "avaliacao.prazo-ms", defaultValue = "10000")
+    long prazoRequisicaoMs;
+
+    public IdempotenciaService(StorageTableAsyncRepository repository,
+                               @ConfigProperty(name = "idempotencia.cache.max-itens", defaultValue = "5000") int maxItens) {
+        this.repository = repository;
+        this.concluidas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RegistroIdempotencia> maisAntiga) {
+                return size() > maxItens;
+            }
+        };
+    }
+
+    /**
+     * Hash da chave de idempotência, usado como identificador no cache e no storage
+     */
+    public static String hashChave(String chave) {
+        return sha256(chave);
+    }
+
+    /**
+     * Hash do conteúdo da avaliação (descrição e nota), para detectar a reutilização de uma chave com outro payload
+     * Independe da formatação do JSON enviado
+     */
+    public static String hashConteudo(Avaliacao avaliacao) {
+        return sha256(avaliacao.getDescricao() + '\u0000' + avaliacao.getNota());
+    }
+
+    /**
+     * Como responder a uma repetição da chave
+     */
+    public enum Repeticao {
+        /** A original concluiu com o mesmo payload: devolver a resposta original */
+        RESPOSTA_ORIGINAL,
+        /** A original ainda está em curso: a repetição deve ser tentada de novo depois */
+        EM_ANDAMENTO,
+        /** A chave foi usada com outro payload */
+        PAYLOAD_DIFERENTE
+    }
+
+    /**
+     * Classifica uma repetição a partir do registro da chave e do hash do payload recebido
+     * Uma original em curso tem precedência: seu payload só é conferido quando ela conclui.
+     */
+    public static Repeticao classificarRepeticao(RegistroIdempotencia registro, String hashCorpo) {
+        if (registro.getSituacao() == RegistroIdempotencia.Situacao.EM_ANDAMENTO) {
+            return Repeticao.EM_ANDAMENTO;
+        }
+        return hashCorpo.equals(registro.getHashCorpo()) ? Repeticao.RESPOSTA_ORIGINAL : Repeticao.PAYLOAD_DIFERENTE;
+    }
+
+    /**
+     * Resposta de uma chave já concluída nesta instância, sem ida ao storage
+     */
+    public Optional<RegistroIdempotencia> buscarConcluida(String chave) {
+        synchronized (concluidas) {
+            return Optional.ofNullable(concluidas.get(chave));
+        }
+    }
+
+    /**
+     * Reserva a chave no storage (inserção condicional); se ela já existir, informa a situação da requisição original
+     * Com efeitos pendentes, o registro traz a avaliação gravada pela original.
+     *
+     * @param avaliacao avaliação já inicializada (id e data/hora), que será gravada se a reserva for obtida
+     */
+    public CompletionStage<RegistroIdempotencia> reservar(String chave, String hashCorpo, Avaliacao avaliacao) {
+        return repository.reservarIdempotencia(chave, hashCorpo, avaliacao, Duration.ofSeconds(expiracaoReservaSegundos),
+                        Duration.ofMillis(prazoRequisicaoMs))
+                .thenApply(registro -> {
+                    if (registro.getSituacao() == RegistroIdempotencia.Situacao.CONCLUIDA) {
+                        guardar(registro);
+                    }
+                    return registro;
+                });
+    }
+
+    /**
+     * Conclui uma chave cuja avaliação foi gravada e cujos efeitos foram executados: registra a resposta
+     * no cache e na reserva
+     * Se a escrita da reserva falhar, uma repetição após o prazo da requisição executa os efeitos de novo.
+     */
+    public CompletionStage<Void> concluir(RegistroIdempotencia registro, String resposta) {
+        guardar(registro.toBuilder().resposta(resposta).build());
+        return repository.concluirIdempotencia(registro.getChave(), resposta);
+    }
+
+    private void guardar(RegistroIdempotencia registro) {
+        RegistroIdempotencia concluida = registro.toBuilder()
+                .situacao(RegistroIdempotencia.Situacao.CONCLUIDA)
+                .avaliacao(null)
+                .build();
+        synchronized (concluidas) {
+            concluidas.put(registro.getChave(), concluida);
+        }
+    }
+
+    /**
+     * Libera a chave de uma requisição cuja gravação falhou; uma falha aqui apenas atrasa a repetição
+     * até a reserva expirar (idempotencia.reserva-expiracao-s)
+     */
+    public void liberar(String chave) {
+        repository.liberarIdempotencia(chave).whenComplete((v, erro) -> {
+            if (erro != null) {
+                LOG.warnf("Não foi possível liberar a chave de idempotência %s: %s", chave, erro.getMessage());
+            }
+        });
+    }
+
+    private static String sha256(String valor) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(valor.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
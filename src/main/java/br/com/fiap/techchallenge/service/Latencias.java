@@ -0,0 +1,72 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registro global dos histogramas de latência por estágio
+ * <p>
+ * Estático para que qualquer componente (inclusive os instanciados fora do CDI, como nos benchmarks)
+ * guarde o seu histograma em um campo {@code static final} e registre com duas leituras de relógio:
+ * <pre>
+ * long t = System.nanoTime();
+ * parse();
+ * t = PARSE.registrar(t);
+ * validar();
+ * VALIDACAO.registrar(t);
+ * </pre>
+ */
+public final class Latencias {
+
+    static final double[] QUANTIS = {0.5, 0.99, 0.999};
+
+    private static final Map<String, HistogramaLatencia> ESTAGIOS = new ConcurrentSkipListMap<>();
+
+    private Latencias() {
+    }
+
+    /**
+     * Histograma do estágio (criado no primeiro uso)
+     *
+     * @param estagio nome em snake_case, exportado no rótulo {@code estagio}
+     */
+    public static HistogramaLatencia estagio(String estagio) {
+        return ESTAGIOS.computeIfAbsent(estagio, e -> new HistogramaLatencia());
+    }
+
+    /**
+     * Escreve os estágios como summaries no formato texto do Prometheus (0.0.4)
+     */
+    public static void exportarPrometheus(StringBuilder destino, String metrica) {
+        destino.append("# HELP ").append(metrica).append(" Latência por estágio (percentis da janela recente)\n");
+        destino.append("# TYPE ").append(metrica).append(" summary\n");
+        Map<String, HistogramaLatencia.Instantaneo> instantaneos = new LinkedHashMap<>();
+        for (Map.Entry<String, HistogramaLatencia> entrada : ESTAGIOS.entrySet()) {
+            String estagio = entrada.getKey();
+            HistogramaLatencia histograma = entrada.getValue();
+            HistogramaLatencia.Instantaneo instantaneo = histograma.instantaneo();
+            instantaneos.put(estagio, instantaneo);
+            for (double quantil : QUANTIS) {
+                destino.append(metrica).append("{estagio=\"").append(estagio)
+                        .append("\",quantile=\"").append(quantil).append("\"} ")
+                        .append(formatar(instantaneo.percentilSegundos(quantil))).append('\n');
+            }
+            destino.append(metrica).append("_sum{estagio=\"").append(estagio).append("\"} ")
+                    .append(formatar(histograma.getSomaSegundos())).append('\n');
+            destino.append(metrica).append("_count{estagio=\"").append(estagio).append("\"} ")
+                    .append(histograma.getContagem()).append('\n');
+        }
+        destino.append("# HELP ").append(metrica).append("_max Maior latência da janela recente por estágio\n");
+        destino.append("# TYPE ").append(metrica).append("_max gauge\n");
+        for (Map.Entry<String, HistogramaLatencia.Instantaneo> entrada : instantaneos.entrySet()) {
+            destino.append(metrica).append("_max{estagio=\"").append(entrada.getKey()).append("\"} ")
+                    .append(formatar(entrada.getValue().maximoSegundos())).append('\n');
+        }
+    }
+
+    static String formatar(double valor) {
+        return String.format(Locale.ROOT, "%.6f", valor);
+    }
+}
@@ -0,0 +1,216 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relatórios sob demanda (GET /api/relatorio) para períodos quaisquer
+ * <p>
+ * Os períodos são normalizados para a hora (granularidade dos rollups), e o resultado fica em um cache
+ * LRU limitado (relatorio.cache.max-itens) com expiração: relatorio.cache.ttl-s para períodos em aberto,
+ * relatorio.cache.ttl-fechado-s para períodos encerrados. Requisições simultâneas do mesmo período
+ * compartilham um único cálculo.
+ * <p>
+ * Um período encerrado (que termina antes do dia corrente) é calculado uma única vez: o relatório é gravado
+ * na tabela relatorios e lido de lá nas próximas consultas, inclusive por outras instâncias. Se uma avaliação
+ * chegar atrasada para um dia do período, o relatório gravado é removido (ver {@link AgregadoService}) e as
+ * entradas do cache que incluem o dia são descartadas nesta instância. As demais instâncias revalidam seus
+ * períodos encerrados em cache a cada relatorio.cache.ttl-s, comparando as invalidações gravadas do período.
+ * Um cálculo em andamento durante a invalidação não grava o relatório e é revalidado na próxima consulta.
+ */
+@ApplicationScoped
+public class RelatorioConsultaService {
+
+    private static final Logger LOG = Logger.getLogger(RelatorioConsultaService.class);
+
+    private final RelatorioService relatorioService;
+    private final StorageTableRepository repository;
+    private final Map<Periodo, Entrada> cache;
+
+    @ConfigProperty(name = "relatorio.cache.ttl-s", defaultValue = "300")
+    long ttlSegundos;
+
+    @ConfigProperty(name = "relatorio.cache.ttl-fechado-s", defaultValue = "3600")
+    long ttlFechadoSegundos;
+
+    public RelatorioConsultaService(RelatorioService relatorioService, StorageTableRepository repository,
+                                    @ConfigProperty(name = "relatorio.cache.max-itens", defaultValue = "256") int maxItens) {
+        this.relatorioService = relatorioService;
+        this.repository = repository;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Periodo, Entrada> maisAntiga) {
+                return size() > maxItens;
+            }
+        };
+    }
+
+    /**
+     * Período [inicio, fim) alinhado à hora, chave do cache
+     */
+    public record Periodo(LocalDateTime inicio, LocalDateTime fim) {
+
+        public static Periodo normalizado(LocalDateTime inicio, LocalDateTime fim) {
+            return new Periodo(inicio.truncatedTo(ChronoUnit.HOURS), fim.truncatedTo(ChronoUnit.HOURS));
+        }
+
+        /**
+         * Encerrado: termina antes do dia corrente, então não recebe novas avaliações (salvo atrasadas)
+         */
+        boolean encerrado() {
+            return !fim.isAfter(LocalDate.now().atStartOfDay());
+        }
+    }
+
+    /**
+     * Relatório de um período já normalizado, do cache, da tabela relatorios ou calculado
+     */
+    public RelatorioSemanal consultar(Periodo periodo) {
+        CompletableFuture<RelatorioSemanal> calculo;
+        Entrada nova = null;
+        Entrada revalidar = null;
+        synchronized (cache) {
+            Entrada entrada = cache.get(periodo);
+            long agora = System.nanoTime();
+            if (entrada != null && !entrada.expirada(agora)) {
+                calculo = entrada.relatorio;
+                if (entrada.revalidacaoPendente(agora)) {
+                    revalidar = entrada;
+                }
+            } else {
+                nova = new Entrada();
+                cache.put(periodo, nova);
+                calculo = nova.relatorio;
+            }
+        }
+
+        if (revalidar != null && !revalidar(periodo, revalidar)) {
+            // Um dia do período foi invalidado (possivelmente por outra instância): recalcula
+            synchronized (cache) {
+                cache.remove(periodo, revalidar);
+            }
+            return consultar(periodo);
+        }
+
+        if (nova != null) {
+            boolean encerrado = periodo.encerrado();
+            try {
+                RelatorioSemanal relatorio = carregar(periodo, encerrado, nova);
+                nova.expiraEm = System.nanoTime() + TimeUnit.SECONDS.toNanos(encerrado ? ttlFechadoSegundos : ttlSegundos);
+                nova.relatorio.complete(relatorio);
+            } catch (RuntimeException e) {
+                synchronized (cache) {
+                    cache.remove(periodo, nova);
+                }
+                nova.relatorio.completeExceptionally(e);
+            }
+        } else {
+            LOG.debugf("Relatório do período %s a %s servido do cache", periodo.inicio(), periodo.fim());
+        }
+
+        try {
+            return calculo.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    /**
+     * Descarta as entradas do cache cujo período inclui o dia invalidado (avaliação atrasada)
+     */
+    void aoInvalidarDia(@Observes AgregadoService.DiaInvalidado evento) {
+        LocalDateTime inicioDia = evento.dia().atStartOfDay();
+        LocalDateTime fimDia = inicioDia.plusDays(1);
+        int removidas = 0;
+        synchronized (cache) {
+            for (Iterator<Periodo> periodos = cache.keySet().iterator(); periodos.hasNext(); ) {
+                Periodo periodo = periodos.next();
+                if (periodo.inicio().isBefore(fimDia) && periodo.fim().isAfter(inicioDia)) {
+                    periodos.remove();
+                    removidas++;
+                }
+            }
+        }
+        if (removidas > 0) {
+            LOG.infof("%d relatórios em cache descartados pela invalidação do dia %s", removidas, evento.dia());
+        }
+    }
+
+    private RelatorioSemanal carregar(Periodo periodo, boolean encerrado, Entrada entrada) {
+        Map<LocalDate, OffsetDateTime> invalidacoes = null;
+        if (encerrado) {
+            // Lidas antes do cálculo: uma invalidação posterior impede a gravação e é detectada na revalidação
+            invalidacoes = repository.buscarInvalidacoes(periodo.inicio(), periodo.fim());
+            entrada.invalidacoes = invalidacoes;
+            entrada.revalidarEm = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSegundos);
+            Optional<RelatorioSemanal> salvo = repository.buscarRelatorioPorPeriodo(periodo.inicio(), periodo.fim(), invalidacoes);
+            if (salvo.isPresent()) {
+                LOG.infof("Relatório do período %s a %s lido da tabela relatorios", periodo.inicio(), periodo.fim());
+                return salvo.get();
+            }
+        }
+
+        RelatorioSemanal relatorio = relatorioService.gerarRelatorio(periodo.inicio(), periodo.fim());
+        if (encerrado) {
+            try {
+                if (!repository.salvarRelatorioPorPeriodo(relatorio, invalidacoes)) {
+                    // Calculado durante uma invalidação: serve esta consulta, mas a próxima revalida
+                    entrada.revalidarEm = System.nanoTime();
+                }
+            } catch (Exception e) {
+                // O relatório calculado continua válido; só a próxima instância/expiração recalcula
+                LOG.warnf("Não foi possível gravar o relatório do período %s a %s: %s", periodo.inicio(), periodo.fim(), e.getMessage());
+            }
+        }
+        return relatorio;
+    }
+
+    /**
+     * Confere se as invalidações do período continuam as lidas no cálculo (falha na leitura mantém a entrada)
+     */
+    private boolean revalidar(Periodo periodo, Entrada entrada) {
+        entrada.revalidarEm = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSegundos);
+        try {
+            return repository.buscarInvalidacoes(periodo.inicio(), periodo.fim()).equals(entrada.invalidacoes);
+        } catch (RuntimeException e) {
+            LOG.warnf("Não foi possível revalidar o relatório do período %s a %s: %s", periodo.inicio(), periodo.fim(), e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Resultado (possivelmente em cálculo) de um período; só expira depois de concluído
+     * Períodos encerrados guardam as invalidações lidas antes do cálculo, conferidas a cada revalidarEm.
+     */
+    private static final class Entrada {
+
+        final CompletableFuture<RelatorioSemanal> relatorio = new CompletableFuture<>();
+        volatile long expiraEm;
+        volatile Map<LocalDate, OffsetDateTime> invalidacoes;
+        volatile long revalidarEm;
+
+        boolean expirada(long agora) {
+            return relatorio.isDone() && agora - expiraEm >= 0;
+        }
+
+        boolean revalidacaoPendente(long agora) {
+            return invalidacoes != null && relatorio.isDone() && agora - revalidarEm >= 0;
+        }
+    }
+}
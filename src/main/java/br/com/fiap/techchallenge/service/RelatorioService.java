@@ -1,110 +1,154 @@
 package br.com.fiap.techchallenge.service;
 
-import br.com.fiap.techchallenge.model.Avaliacao;
 import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import br.com.fiap.techchallenge.repository.StorageTableAsyncRepository;
 import br.com.fiap.techchallenge.repository.StorageTableRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import lombok.RequiredArgsConstructor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Serviço para geração de relatórios
  * Calcula estatísticas e métricas das avaliações
+ * A duração de cada etapa (rollups, texto, leitura, conclusão) vai para os histogramas de {@link Latencias}.
  */
 @ApplicationScoped
 @RequiredArgsConstructor
 public class RelatorioService {
 
     private static final Logger LOG = Logger.getLogger(RelatorioService.class);
+    private static final HistogramaLatencia LATENCIA_ROLLUPS = Latencias.estagio("relatorio_rollups");
+    private static final HistogramaLatencia LATENCIA_TEXTO = Latencias.estagio("relatorio_texto");
+    private static final HistogramaLatencia LATENCIA_LEITURA = Latencias.estagio("relatorio_leitura");
+    private static final HistogramaLatencia LATENCIA_CONCLUSAO = Latencias.estagio("relatorio_conclusao");
+    private static final HistogramaLatencia LATENCIA_TOTAL = Latencias.estagio("relatorio_total");
 
     private final StorageTableRepository repository;
+    private final StorageTableAsyncRepository asyncRepository;
     private final AnaliseTextoService analiseTextoService;
+    private final AgregadoService agregadoService;
+
+    @ConfigProperty(name = "relatorio.usar-agregados", defaultValue = "false")
+    boolean usarAgregados;
 
     /**
      * Gera relatório semanal com estatísticas das avaliações
+     * As avaliações são agregadas em uma única passagem sobre as páginas do repositório
      */
     public RelatorioSemanal gerarRelatorioSemanal() {
         LOG.info("Iniciando geração de relatório semanal");
 
         // Define o período (últimos 7 dias)
         LocalDateTime fim = LocalDateTime.now();
-        LocalDateTime inicio = fim.minusDays(7);
+        return gerarRelatorio(fim.minusDays(7), fim);
+    }
+
+    /**
+     * Gera o relatório de um período [inicio, fim) qualquer
+     * Com os rollups, os limites são alinhados à hora (granularidade dos rollups)
+     */
+    public RelatorioSemanal gerarRelatorio(LocalDateTime inicio, LocalDateTime fim) {
+        LOG.infof("Gerando relatório do período %s a %s", inicio, fim);
+        long inicioGeracao = System.nanoTime();
+        long t = inicioGeracao;
+
+        AgregadorAvaliacoes agregador;
+        if (usarAgregados) {
+            // Notas e contagens vêm dos rollups (granularidade de hora); as avaliações são lidas só para a análise de texto
+            fim = AgregadoService.alinharHora(fim);
+            inicio = AgregadoService.alinharHora(inicio);
+            AnaliseTextoService.AcumuladorTexto acumuladorTexto = analiseTextoService.novoAcumulador();
+            agregador = new AgregadorAvaliacoes(inicio, fim, acumuladorTexto);
+            agregadoService.carregarPeriodo(inicio, fim, agregador);
+            t = LATENCIA_ROLLUPS.registrar(t);
+            if (acumuladorTexto.isAproximado()) {
+                // Dias encerrados vêm dos sketches diários de texto
+                agregadoService.carregarTexto(inicio, fim, acumuladorTexto);
+            } else {
+                repository.percorrerAvaliacoesPorPeriodo(inicio, fim, StorageTableRepository.COLUNAS_DESCRICAO,
+                        avaliacao -> agregador.registrarDescricao(avaliacao.getDescricao()));
+            }
+            t = LATENCIA_TEXTO.registrar(t);
+        } else {
+            // Agrega as avaliações do período à medida que são lidas
+            agregador = new AgregadorAvaliacoes(inicio, fim, analiseTextoService.novoAcumulador());
+            repository.percorrerAvaliacoesPorPeriodo(inicio, fim, agregador::registrar);
+            t = LATENCIA_LEITURA.registrar(t);
+        }
+        RelatorioSemanal relatorio = concluir(agregador, inicio, fim);
+        LATENCIA_CONCLUSAO.registrar(t);
+        LATENCIA_TOTAL.registrar(inicioGeracao);
+        return relatorio;
+    }
 
-        // Busca avaliações do período
-        List<Avaliacao> avaliacoes = repository.buscarAvaliacoesPorPeriodo(inicio, fim);
-        LOG.infof("Total de avaliações no período: %d", avaliacoes.size());
+    /**
+     * Versão assíncrona de {@link #gerarRelatorioSemanal()}
+     * A leitura das avaliações do período (a parte cara) é feita pelo repositório assíncrono, página a página,
+     * sem ocupar uma thread durante as idas ao storage; os rollups, poucas linhas, continuam síncronos.
+     */
+    public CompletionStage<RelatorioSemanal> gerarRelatorioSemanalAsync() {
+        LOG.info("Iniciando geração de relatório semanal (assíncrono)");
+        long inicioGeracao = System.nanoTime();
+
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime fim = usarAgregados ? AgregadoService.alinharHora(agora) : agora;
+        LocalDateTime inicio = usarAgregados ? AgregadoService.alinharHora(agora.minusDays(7)) : agora.minusDays(7);
+
+        AnaliseTextoService.AcumuladorTexto acumuladorTexto = analiseTextoService.novoAcumulador();
+        AgregadorAvaliacoes agregador = new AgregadorAvaliacoes(inicio, fim, acumuladorTexto);
+
+        CompletionStage<?> leitura;
+        HistogramaLatencia latenciaLeitura;
+        long inicioLeitura;
+        if (!usarAgregados) {
+            latenciaLeitura = LATENCIA_LEITURA;
+            inicioLeitura = inicioGeracao;
+            leitura = asyncRepository.percorrerAvaliacoesPorPeriodo(inicio, fim, agregador::registrar);
+        } else {
+            agregadoService.carregarPeriodo(inicio, fim, agregador);
+            latenciaLeitura = LATENCIA_TEXTO;
+            inicioLeitura = LATENCIA_ROLLUPS.registrar(inicioGeracao);
+            if (acumuladorTexto.isAproximado()) {
+                agregadoService.carregarTexto(inicio, fim, acumuladorTexto);
+                leitura = CompletableFuture.completedFuture(null);
+            } else {
+                leitura = asyncRepository.percorrerAvaliacoesPorPeriodo(inicio, fim, StorageTableRepository.COLUNAS_DESCRICAO,
+                        avaliacao -> agregador.registrarDescricao(avaliacao.getDescricao()));
+            }
+        }
+        return leitura.thenApply(ignorado -> {
+            long t = latenciaLeitura.registrar(inicioLeitura);
+            RelatorioSemanal relatorio = concluir(agregador, inicio, fim);
+            LATENCIA_CONCLUSAO.registrar(t);
+            LATENCIA_TOTAL.registrar(inicioGeracao);
+            return relatorio;
+        });
+    }
+
+    /**
+     * Gera o relatório a partir do agregador já alimentado com as avaliações do período
+     */
+    private RelatorioSemanal concluir(AgregadorAvaliacoes agregador, LocalDateTime inicio, LocalDateTime fim) {
+        LOG.infof("Total de avaliações no período: %d", agregador.getTotal());
 
         // Se não houver avaliações, retorna relatório vazio
-        if (avaliacoes.isEmpty()) {
+        if (agregador.getTotal() == 0) {
             LOG.warn("Nenhuma avaliação encontrada no período");
             return criarRelatorioVazio(inicio, fim);
         }
 
-        // Calcula métricas
-        long total = avaliacoes.size();
-        double media = avaliacoes.stream()
-                .mapToInt(Avaliacao::getNota)
-                .average()
-                .orElse(0.0);
-
-        Integer notaMaisAlta = avaliacoes.stream()
-                .map(Avaliacao::getNota)
-                .max(Comparator.naturalOrder())
-                .orElse(0);
-
-        Integer notaMaisBaixa = avaliacoes.stream()
-                .map(Avaliacao::getNota)
-                .min(Comparator.naturalOrder())
-                .orElse(0);
-
-        // Contagem por urgência
-        Map<String, Long> contagemPorUrgencia = avaliacoes.stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getUrgencia().toString(),
-                        Collectors.counting()
-                ));
-
-        // Análise de comentários recorrentes
-        List<String> descricoes = avaliacoes.stream()
-                .map(Avaliacao::getDescricao)
-                .filter(desc -> desc != null && !desc.trim().isEmpty())
-                .collect(Collectors.toList());
-
-        Map<String, Long> avaliacoesPorDia = avaliacoes.stream()
-                .collect(Collectors.groupingBy(
-                        a -> a.getDataHora().toLocalDate().toString(),
-                        Collectors.counting()
-                ));
-
-        Map<String, Long> palavrasRecorrentes = analiseTextoService.analisarPalavrasRecorrentes(descricoes);
-        Map<String, Long> frasesRecorrentes = analiseTextoService.analisarFrasesRecorrentes(descricoes);
+        RelatorioSemanal relatorio = agregador.gerarRelatorio();
 
         LOG.infof("Análise de texto concluída - %d palavras e %d frases recorrentes identificadas",
-                palavrasRecorrentes.size(), frasesRecorrentes.size());
-
-        // Cria relatório
-        RelatorioSemanal relatorio = RelatorioSemanal.builder()
-                .periodoInicio(inicio)
-                .periodoFim(fim)
-                .totalAvaliacoes(total)
-                .mediaNotas(media)
-                .notaMaisAlta(notaMaisAlta)
-                .notaMaisBaixa(notaMaisBaixa)
-                .contagemPorUrgencia(contagemPorUrgencia)
-                .palavrasRecorrentes(palavrasRecorrentes)
-                .frasesRecorrentes(frasesRecorrentes)
-                .avaliacoesPorDia(avaliacoesPorDia)
-                .build();
-
-        relatorio.inicializar();
-
-        LOG.infof("Relatório gerado - Média: %.2f, Total: %d", media, total);
+                relatorio.getPalavrasRecorrentes().size(), relatorio.getFrasesRecorrentes().size());
+        LOG.infof("Relatório gerado - Média: %.2f, Total: %d, NPS: %.1f",
+                relatorio.getMediaNotas(), relatorio.getTotalAvaliacoes(), relatorio.getNps());
         return relatorio;
     }
 
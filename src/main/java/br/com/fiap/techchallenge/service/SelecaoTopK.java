@@ -0,0 +1,67 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Seleção dos K itens mais frequentes com um heap de tamanho K
+ * Evita ordenar todas as entradas: custo O(n log K) e memória O(K).
+ * <p>
+ * Ordem do resultado: frequência decrescente; empates em ordem alfabética do texto.
+ * Use {@link #aceitaria(long)} antes de montar o texto do candidato para não criar Strings descartadas.
+ */
+final class SelecaoTopK {
+
+    private record Candidato(String texto, long contagem) {
+    }
+
+    // Pior candidato no topo: menor contagem e, no empate, maior texto
+    private static final Comparator<Candidato> PIOR_PRIMEIRO = Comparator
+            .comparingLong(Candidato::contagem)
+            .thenComparing(Candidato::texto, Comparator.reverseOrder());
+
+    private final int k;
+    private final PriorityQueue<Candidato> heap;
+
+    SelecaoTopK(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(k + 1, PIOR_PRIMEIRO);
+    }
+
+    /**
+     * Indica se um candidato com esta contagem pode entrar no resultado
+     */
+    boolean aceitaria(long contagem) {
+        return heap.size() < k || contagem >= heap.peek().contagem();
+    }
+
+    void ofertar(String texto, long contagem) {
+        if (k <= 0) {
+            return;
+        }
+        Candidato candidato = new Candidato(texto, contagem);
+        if (heap.size() < k) {
+            heap.add(candidato);
+        } else if (PIOR_PRIMEIRO.compare(candidato, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(candidato);
+        }
+    }
+
+    /**
+     * Resultado ordenado por frequência decrescente
+     */
+    Map<String, Long> resultado() {
+        List<Candidato> ordenados = new ArrayList<>(heap);
+        ordenados.sort(PIOR_PRIMEIRO.reversed());
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        for (Candidato candidato : ordenados) {
+            resultado.put(candidato.texto(), candidato.contagem());
+        }
+        return resultado;
+    }
+}
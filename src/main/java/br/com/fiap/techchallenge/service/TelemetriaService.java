@@ -0,0 +1,210 @@
+package br.com.fiap.techchallenge.service;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.applicationinsights.telemetry.MetricTelemetry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Telemetria compartilhada pela aplicação (um único {@link TelemetryClient})
+ * <p>
+ * Métricas não são enviadas a cada chamada: são pré-agregadas em memória por intervalo
+ * (contagem, soma, mínimo, máximo e histograma) com contadores striped sem lock, e cada métrica
+ * vira um único item agregado por intervalo. Assim o custo de telemetria é constante em relação ao RPS
+ * e a amostragem do host (maxTelemetryItemsPerSecond) não descarta medições.
+ * Ocorrências por requisição usam {@link #contador(String)}; eventos raros e exceções seguem direto para o cliente.
+ * Estados correntes (limites, ocupação) são registrados como {@link #medidor(String, DoubleSupplier) medidores},
+ * lidos uma vez por intervalo.
+ */
+@ApplicationScoped
+public class TelemetriaService {
+
+    private static final Logger LOG = Logger.getLogger(TelemetriaService.class);
+
+    // Limites superiores (inclusivos) dos baldes do histograma; o último balde recebe o que passar de todos
+    static final double[] LIMITES_HISTOGRAMA = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    @ConfigProperty(name = "telemetria.intervalo-s", defaultValue = "60")
+    int intervaloSegundos;
+
+    private final Map<String, AtomicReference<Janela>> metricas = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> medidores = new ConcurrentHashMap<>();
+    private TelemetryClient telemetryClient;
+    private ScheduledExecutorService agendador;
+
+    @PostConstruct
+    void iniciar() {
+        telemetryClient = new TelemetryClient();
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "telemetria-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleAtFixedRate(this::publicar, intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        agendador.shutdown();
+        publicar();
+        telemetryClient.flush();
+    }
+
+    /**
+     * Registra uma medição; acumulada em memória e publicada agregada ao fim do intervalo
+     */
+    public void metrica(String nome, double valor) {
+        metricas.computeIfAbsent(nome, n -> new AtomicReference<>(new Janela()))
+                .get()
+                .registrar(valor);
+    }
+
+    /**
+     * Conta uma ocorrência de alta frequência (por requisição) como métrica agregada, em vez de um evento por chamada
+     */
+    public void contador(String nome) {
+        metrica(nome, 1);
+    }
+
+    /**
+     * Registra um medidor: o valor é lido no fim de cada intervalo e publicado como medição da métrica
+     */
+    public void medidor(String nome, DoubleSupplier leitura) {
+        medidores.put(nome, leitura);
+    }
+
+    /**
+     * Leitura corrente de cada medidor (para exposição fora do Application Insights)
+     */
+    public Map<String, Double> lerMedidores() {
+        Map<String, Double> leituras = new TreeMap<>();
+        for (Map.Entry<String, DoubleSupplier> medidor : medidores.entrySet()) {
+            try {
+                leituras.put(medidor.getKey(), medidor.getValue().getAsDouble());
+            } catch (Exception e) {
+                LOG.warnf("Erro ao ler medidor %s: %s", medidor.getKey(), e.getMessage());
+            }
+        }
+        return leituras;
+    }
+
+    public void evento(String nome) {
+        telemetryClient.trackEvent(nome);
+    }
+
+    public void excecao(Exception e) {
+        telemetryClient.trackException(e);
+    }
+
+    /**
+     * Publica a janela corrente de cada métrica e inicia uma nova
+     * Uma medição concorrente com a troca de janela pode cair na janela já publicada e ser descartada;
+     * a perda é limitada às escritas em curso no instante da troca.
+     */
+    void publicar() {
+        for (Map.Entry<String, DoubleSupplier> medidor : medidores.entrySet()) {
+            try {
+                metrica(medidor.getKey(), medidor.getValue().getAsDouble());
+            } catch (Exception e) {
+                LOG.warnf("Erro ao ler medidor %s: %s", medidor.getKey(), e.getMessage());
+            }
+        }
+        int publicadas = 0;
+        for (Map.Entry<String, AtomicReference<Janela>> entrada : metricas.entrySet()) {
+            Janela janela = entrada.getValue().getAndSet(new Janela());
+            long contagem = janela.contagem.sum();
+            if (contagem == 0) {
+                continue;
+            }
+            try {
+                telemetryClient.trackMetric(janela.paraTelemetria(entrada.getKey(), contagem));
+                publicadas++;
+            } catch (Exception e) {
+                LOG.warnf("Erro ao publicar métrica %s: %s", entrada.getKey(), e.getMessage());
+            }
+        }
+        if (publicadas > 0) {
+            LOG.debugf("Telemetria: %d métricas agregadas publicadas", publicadas);
+        }
+    }
+
+    /**
+     * Acumuladores de uma métrica em um intervalo
+     */
+    static final class Janela {
+
+        final LongAdder contagem = new LongAdder();
+        final DoubleAdder soma = new DoubleAdder();
+        final DoubleAdder somaQuadrados = new DoubleAdder();
+        final DoubleAccumulator minimo = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        final DoubleAccumulator maximo = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        final LongAdder[] histograma = new LongAdder[LIMITES_HISTOGRAMA.length + 1];
+
+        Janela() {
+            for (int i = 0; i < histograma.length; i++) {
+                histograma[i] = new LongAdder();
+            }
+        }
+
+        void registrar(double valor) {
+            contagem.increment();
+            soma.add(valor);
+            somaQuadrados.add(valor * valor);
+            minimo.accumulate(valor);
+            maximo.accumulate(valor);
+            histograma[balde(valor)].increment();
+        }
+
+        MetricTelemetry paraTelemetria(String nome, long contagem) {
+            double total = soma.sum();
+            double media = total / contagem;
+            double variancia = Math.max(0, somaQuadrados.sum() / contagem - media * media);
+
+            MetricTelemetry telemetria = new MetricTelemetry(nome, total);
+            telemetria.setCount((int) Math.min(Integer.MAX_VALUE, contagem));
+            telemetria.setMin(minimo.get());
+            telemetria.setMax(maximo.get());
+            telemetria.setStandardDeviation(Math.sqrt(variancia));
+
+            Map<String, String> propriedades = telemetria.getProperties();
+            long acumulado = 0;
+            for (int i = 0; i < histograma.length; i++) {
+                long quantidade = histograma[i].sum();
+                acumulado += quantidade;
+                if (quantidade > 0) {
+                    String limite = i < LIMITES_HISTOGRAMA.length ? formatar(LIMITES_HISTOGRAMA[i]) : "inf";
+                    propriedades.put("le_" + limite, Long.toString(acumulado));
+                }
+            }
+            return telemetria;
+        }
+
+        private static int balde(double valor) {
+            for (int i = 0; i < LIMITES_HISTOGRAMA.length; i++) {
+                if (valor <= LIMITES_HISTOGRAMA[i]) {
+                    return i;
+                }
+            }
+            return LIMITES_HISTOGRAMA.length;
+        }
+
+        private static String formatar(double limite) {
+            return limite == Math.rint(limite) ? Long.toString((long) limite) : Double.toString(limite);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Template HTML compilado uma única vez: o texto é quebrado em trechos literais e posições de variáveis
+ * <p>
+ * Variáveis são escritas como {@code {{nome}}} e declaradas na compilação, na ordem em que os valores
+ * serão passados a {@link #renderizar(StringBuilder, Object...)}. A renderização escreve direto no buffer
+ * informado, sem formatação nem cópias intermediárias:
+ * <ul>
+ *   <li>texto (qualquer objeto) é escapado para HTML;</li>
+ *   <li>números e enums são escritos como estão;</li>
+ *   <li>um {@link Consumer} de {@link StringBuilder} escreve um trecho já em HTML (ex.: linhas de tabela
+ *       renderizadas por outro template) no mesmo buffer.</li>
+ * </ul>
+ * Imutável e thread-safe.
+ */
+public final class TemplateHtml {
+
+    private static final String ABRE = "{{";
+    private static final String FECHA = "}}";
+
+    // literais.length == posicoes.length + 1: literal, variável, literal, ..., literal
+    private final String[] literais;
+    private final int[] posicoes;
+    private final int tamanhoLiterais;
+
+    private TemplateHtml(String[] literais, int[] posicoes) {
+        this.literais = literais;
+        this.posicoes = posicoes;
+        this.tamanhoLiterais = Arrays.stream(literais).mapToInt(String::length).sum();
+    }
+
+    /**
+     * Compila um template
+     *
+     * @param fonte     texto com variáveis {@code {{nome}}}
+     * @param variaveis nomes das variáveis, na ordem dos valores de renderização
+     * @throws IllegalArgumentException se o template usar uma variável não declarada ou tiver chaves sem fechamento
+     */
+    public static TemplateHtml compilar(String fonte, String... variaveis) {
+        List<String> nomes = Arrays.asList(variaveis);
+        List<String> literais = new ArrayList<>();
+        List<Integer> posicoes = new ArrayList<>();
+
+        int cursor = 0;
+        int abre;
+        while ((abre = fonte.indexOf(ABRE, cursor)) >= 0) {
+            int fecha = fonte.indexOf(FECHA, abre + ABRE.length());
+            if (fecha < 0) {
+                throw new IllegalArgumentException("Variável sem fechamento na posição " + abre);
+            }
+            String nome = fonte.substring(abre + ABRE.length(), fecha).trim();
+            int posicao = nomes.indexOf(nome);
+            if (posicao < 0) {
+                throw new IllegalArgumentException("Variável não declarada no template: " + nome);
+            }
+            literais.add(fonte.substring(cursor, abre));
+            posicoes.add(posicao);
+            cursor = fecha + FECHA.length();
+        }
+        literais.add(fonte.substring(cursor));
+
+        return new TemplateHtml(literais.toArray(String[]::new), posicoes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Tamanho do texto fixo do template, base para pré-dimensionar o buffer de saída
+     */
+    public int getTamanhoLiterais() {
+        return tamanhoLiterais;
+    }
+
+    /**
+     * Renderiza o template em um novo buffer pré-dimensionado
+     *
+     * @param tamanhoVariaveis estimativa do tamanho total dos valores
+     */
+    public String renderizar(int tamanhoVariaveis, Object... valores) {
+        StringBuilder destino = new StringBuilder(tamanhoLiterais + tamanhoVariaveis);
+        renderizar(destino, valores);
+        return destino.toString();
+    }
+
+    /**
+     * Renderiza o template ao final do buffer informado
+     */
+    @SuppressWarnings("unchecked")
+    public void renderizar(StringBuilder destino, Object... valores) {
+        for (int i = 0; i < posicoes.length; i++) {
+            destino.append(literais[i]);
+            Object valor = valores[posicoes[i]];
+            if (valor instanceof Consumer<?> trecho) {
+                ((Consumer<StringBuilder>) trecho).accept(destino);
+            } else if (valor instanceof Number || valor instanceof Enum<?>) {
+                destino.append(valor);
+            } else if (valor != null) {
+                escapar(valor.toString(), destino);
+            }
+        }
+        destino.append(literais[posicoes.length]);
+    }
+
+    /**
+     * Escreve o texto no buffer escapando os caracteres especiais de HTML (conteúdo e atributos)
+     */
+    public static void escapar(CharSequence texto, StringBuilder destino) {
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&' -> destino.append("&amp;");
+                case '<' -> destino.append("&lt;");
+                case '>' -> destino.append("&gt;");
+                case '"' -> destino.append("&quot;");
+                case '\'' -> destino.append("&#39;");
+                default -> destino.append(c);
+            }
+        }
+    }
+}
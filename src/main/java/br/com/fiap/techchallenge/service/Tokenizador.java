@@ -0,0 +1,126 @@
+package br.com.fiap.techchallenge.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizador de descrições em passagem única
+ * Percorre o texto uma vez, reconhece sequências de letras Unicode (equivalente a \p{L})
+ * e grava cada token já em minúsculas em um buffer reutilizável, registrando o intervalo de cada um.
+ * <p>
+ * Produz os mesmos tokens que a limpeza por regex ({@code [^\p{L}\s]} → espaço, split em {@code \s+})
+ * seguida de {@code toLowerCase()}: os casos especiais de minúsculas (İ, Σ final, caracteres suplementares
+ * e locales tr/az/lt) caem no {@link String#toLowerCase()} do próprio token.
+ * <p>
+ * Não é thread-safe: cada contagem usa sua própria instância.
+ */
+final class Tokenizador {
+
+    private static final Set<String> LOCALES_ESPECIAIS = Set.of("tr", "az", "lt");
+
+    private final boolean localeEspecial = LOCALES_ESPECIAIS.contains(Locale.getDefault().getLanguage());
+
+    private char[] texto = new char[256];
+    private int[] inicios = new int[32];
+    private int[] fins = new int[32];
+    private int[] tamanhosOriginais = new int[32];
+    private int quantidade;
+
+    /**
+     * Tokeniza a descrição, substituindo o resultado anterior
+     *
+     * @return quantidade de tokens encontrados
+     */
+    int tokenizar(String descricao) {
+        quantidade = 0;
+        int n = descricao.length();
+        garantirTexto(n);
+
+        int escrita = 0;
+        int i = 0;
+        while (i < n) {
+            int cp = descricao.codePointAt(i);
+            if (!Character.isLetter(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+
+            int inicioOriginal = i;
+            int inicioToken = escrita;
+            boolean especial = localeEspecial;
+            while (i < n) {
+                cp = descricao.codePointAt(i);
+                if (!Character.isLetter(cp)) {
+                    break;
+                }
+                if (cp < 0x80) {
+                    texto[escrita++] = (char) (cp >= 'A' && cp <= 'Z' ? cp + ('a' - 'A') : cp);
+                } else if (cp == '\u0130' || cp == '\u03A3' || Character.isSupplementaryCodePoint(cp)) {
+                    especial = true;
+                    escrita += Character.toChars(cp, texto, escrita);
+                } else {
+                    texto[escrita++] = Character.toLowerCase((char) cp);
+                }
+                i += Character.charCount(cp);
+            }
+
+            if (especial) {
+                // Casos em que a minúscula depende de contexto ou muda o tamanho: delega ao String.toLowerCase
+                String minusculo = descricao.substring(inicioOriginal, i).toLowerCase();
+                escrita = inicioToken;
+                garantirTexto(escrita + minusculo.length() + (n - i));
+                minusculo.getChars(0, minusculo.length(), texto, escrita);
+                escrita += minusculo.length();
+            }
+
+            adicionarToken(inicioToken, escrita, i - inicioOriginal);
+        }
+        return quantidade;
+    }
+
+    int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Tamanho do token no texto original (antes da conversão para minúsculas)
+     */
+    int tamanhoOriginal(int indice) {
+        return tamanhosOriginais[indice];
+    }
+
+    int inicio(int indice) {
+        return inicios[indice];
+    }
+
+    int fim(int indice) {
+        return fins[indice];
+    }
+
+    /**
+     * Buffer com os tokens em minúsculas (válido até a próxima chamada de {@link #tokenizar(String)})
+     */
+    char[] texto() {
+        return texto;
+    }
+
+    private void adicionarToken(int inicio, int fim, int tamanhoOriginal) {
+        if (quantidade == inicios.length) {
+            int capacidade = quantidade * 2;
+            inicios = Arrays.copyOf(inicios, capacidade);
+            fins = Arrays.copyOf(fins, capacidade);
+            tamanhosOriginais = Arrays.copyOf(tamanhosOriginais, capacidade);
+        }
+        inicios[quantidade] = inicio;
+        fins[quantidade] = fim;
+        tamanhosOriginais[quantidade] = tamanhoOriginal;
+        quantidade++;
+    }
+
+    private void garantirTexto(int capacidade) {
+        if (texto.length < capacidade) {
+            texto = Arrays.copyOf(texto, Math.max(capacidade, texto.length * 2));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package br.com.fiap.techchallenge.functions;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeitorAvaliacaoTest {
+
+    private static ObjectReader leitorCompleto;
+    private static Validator validator;
+    private static LeitorAvaliacao leitor;
+
+    @BeforeAll
+    static void criar() {
+        // Mesma configuração do AvaliacaoFunction
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        validator = Validation.byDefaultProvider().configure()
+                .messageInterpolator(new ParameterMessageInterpolator())
+                .buildValidatorFactory()
+                .getValidator();
+        leitorCompleto = objectMapper.readerFor(Avaliacao.class);
+        leitor = new LeitorAvaliacao(objectMapper, validator);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // Formato usual (caminho rápido)
+            "{\"descricao\": \"Aula muito boa\", \"nota\": 8}",
+            "{\"nota\": 2, \"descricao\": \"Áudio com \\\"chiado\\\" \\u00e9 ruim\"}",
+            "{\"descricao\": null, \"nota\": null}",
+            "{\"descricao\": \"\", \"nota\": -1}",
+            "{\"descricao\": \"   \", \"nota\": 11}",
+            "{}",
+            "{\"nota\": 7}",
+            "{\"descricao\": \"repetida\", \"descricao\": \"última\", \"nota\": 1, \"nota\": 9}",
+            // Outras formas (relidas pelo ObjectReader)
+            "{\"descricao\": \"com id\", \"nota\": 5, \"id\": \"abc\"}",
+            "{\"descricao\": \"com data\", \"nota\": 5, \"dataHora\": \"2024-05-10T14:03:27\"}",
+            "{\"descricao\": \"nota texto\", \"nota\": \"8\"}",
+            "{\"descricao\": \"nota decimal\", \"nota\": 8.0}",
+            "{\"descricao\": 42, \"nota\": 8}",
+            "{\"descricao\": \"conteúdo extra\", \"nota\": 8} {\"nota\": 1}",
+            "  {\"descricao\": \"espaços\", \"nota\": 3}  "
+    })
+    void mesmaAvaliacaoQueOObjectReader(String json) throws Exception {
+        assertEquals(leitorCompleto.readValue(json), leitor.ler(json));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"descricao\": \"campo desconhecido\", \"nota\": 8, \"extra\": true}",
+            "{\"descricao\": \"nota fora do int\", \"nota\": 99999999999}",
+            "{\"descricao\": \"nota inválida\", \"nota\": \"oito\"}",
+            "{\"descricao\": \"sem fechar\", \"nota\": 8",
+            "{\"descricao\": \"vírgula sobrando\", \"nota\": 8,}",
+            "[{\"descricao\": \"lista\", \"nota\": 8}]",
+            "nada",
+            ""
+    })
+    void mesmaExcecaoQueOObjectReader(String json) {
+        Exception esperada = capturar(() -> leitorCompleto.readValue(json));
+        Exception obtida = capturar(() -> leitor.ler(json));
+
+        assertEquals(esperada.getClass(), obtida.getClass());
+        assertEquals(esperada.getMessage(), obtida.getMessage());
+    }
+
+    @Test
+    void validacaoRapidaAceitaAsMesmasAvaliacoesQueOValidator() {
+        for (String descricao : Arrays.asList(null, "", "   ", "\t\n", "ok", " texto ")) {
+            for (Integer nota : Arrays.asList(null, -1, 0, 5, 10, 11, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                Avaliacao avaliacao = Avaliacao.builder().descricao(descricao).nota(nota).build();
+                String erro = leitor.validar(avaliacao);
+                if (validator.validate(avaliacao).isEmpty()) {
+                    assertNull(erro, avaliacao.toString());
+                } else {
+                    assertEquals(mensagens(avaliacao), Set.of(erro.split(", ")), avaliacao.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void escreveDatasEmIso8601() throws Exception {
+        Avaliacao avaliacao = Avaliacao.builder()
+                .id("abc")
+                .descricao("Aula boa")
+                .nota(9)
+                .urgencia(Avaliacao.NivelUrgencia.NORMAL)
+                .dataHora(LocalDateTime.of(2024, 5, 10, 14, 3, 27))
+                .build();
+
+        String json = leitor.escrever(avaliacao);
+
+        assertTrue(json.contains("\"dataHora\":\"2024-05-10T14:03:27\""), json);
+        assertEquals(avaliacao, leitorCompleto.readValue(json));
+    }
+
+    private static Set<String> mensagens(Avaliacao avaliacao) {
+        return validator.validate(avaliacao).stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toSet());
+    }
+
+    private interface Leitura {
+        Object ler() throws Exception;
+    }
+
+    private static Exception capturar(Leitura leitura) {
+        try {
+            leitura.ler();
+        } catch (Exception e) {
+            return e;
+        }
+        throw new AssertionError("Exceção esperada");
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.fiap.techchallenge.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgregadoNotasTest {
+
+    @Test
+    void combinarEquivaleARegistrarTodasAsAvaliacoes() {
+        AgregadoNotas primeiraHora = agregado(3, 9, 10);
+        AgregadoNotas segundaHora = agregado(0, 5);
+
+        AgregadoNotas dia = new AgregadoNotas();
+        dia.combinar(primeiraHora);
+        dia.combinar(segundaHora);
+
+        assertEquals(agregado(3, 9, 10, 0, 5).toString(), dia.toString());
+        assertEquals(5, dia.getTotal());
+        assertEquals(27, dia.getSoma());
+        assertEquals(0, dia.getMinimo());
+        assertEquals(10, dia.getMaximo());
+        assertEquals(1, dia.getHistograma(9));
+        assertEquals(2, dia.getUrgencia(Avaliacao.NivelUrgencia.CRITICO));
+        assertEquals(1, dia.getUrgencia(Avaliacao.NivelUrgencia.ALTO));
+        assertEquals(2, dia.getUrgencia(Avaliacao.NivelUrgencia.NORMAL));
+    }
+
+    @Test
+    void combinarAgregadoVazioNaoAlteraMinimoNemMaximo() {
+        AgregadoNotas agregado = agregado(4, 7);
+        agregado.combinar(new AgregadoNotas());
+        agregado.combinar(AgregadoNotas.restaurar(0, 0, 0, 0, new long[11], new long[3]));
+
+        assertEquals(2, agregado.getTotal());
+        assertEquals(4, agregado.getMinimo());
+        assertEquals(7, agregado.getMaximo());
+    }
+
+    @Test
+    void agregadoVazioTemMinimoEMaximoZero() {
+        AgregadoNotas vazio = new AgregadoNotas();
+        vazio.combinar(new AgregadoNotas());
+
+        assertTrue(vazio.isVazio());
+        assertEquals(0, vazio.getMinimo());
+        assertEquals(0, vazio.getMaximo());
+    }
+
+    @Test
+    void restaurarComTotalZeroNaoContaminaOMinimoDaCombinacao() {
+        // Linha horária zerada pela reconstrução: mínimo/máximo persistidos como 0
+        AgregadoNotas zerado = AgregadoNotas.restaurar(0, 0, 0, 0, new long[11], new long[3]);
+        zerado.combinar(agregado(8));
+
+        assertEquals(8, zerado.getMinimo());
+        assertEquals(8, zerado.getMaximo());
+    }
+
+    @Test
+    void restaurarPreservaOsValoresPersistidos() {
+        AgregadoNotas original = agregado(1, 6, 6, 10);
+        long[] histograma = new long[AgregadoNotas.NOTA_MAXIMA + 1];
+        for (int nota = 0; nota < histograma.length; nota++) {
+            histograma[nota] = original.getHistograma(nota);
+        }
+        long[] urgencias = new long[Avaliacao.NivelUrgencia.values().length];
+        for (Avaliacao.NivelUrgencia nivel : Avaliacao.NivelUrgencia.values()) {
+            urgencias[nivel.ordinal()] = original.getUrgencia(nivel);
+        }
+
+        AgregadoNotas restaurado = AgregadoNotas.restaurar(original.getTotal(), original.getSoma(),
+                original.getMinimo(), original.getMaximo(), histograma, urgencias);
+
+        assertEquals(original.toString(), restaurado.toString());
+    }
+
+    private static AgregadoNotas agregado(int... notas) {
+        AgregadoNotas agregado = new AgregadoNotas();
+        for (int nota : notas) {
+            Avaliacao avaliacao = Avaliacao.builder().nota(nota).build();
+            avaliacao.calcularUrgencia(3);
+            agregado.registrar(avaliacao);
+        }
+        return agregado;
+    }
+}
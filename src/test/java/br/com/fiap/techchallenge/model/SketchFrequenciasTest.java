@@ -0,0 +1,161 @@
+package br.com.fiap.techchallenge.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SketchFrequenciasTest {
+
+    private static final int CAPACIDADE = 50;
+
+    @Test
+    void contagemExataQuandoOsItensCabemNoResumo() {
+        SketchFrequencias sketch = new SketchFrequencias(CAPACIDADE);
+        Map<String, Long> reais = registrar(sketch, fluxo(1_000, 30, 1));
+
+        assertEquals(reais.size(), sketch.getTamanho());
+        assertEquals(0, sketch.getLimiteAusentes());
+        for (SketchFrequencias.Item item : sketch.itens()) {
+            assertEquals(reais.get(item.texto()), item.contagem(), item.texto());
+            assertEquals(0, item.erro(), item.texto());
+        }
+    }
+
+    @Test
+    void limitesDeErroEmUmUnicoFluxo() {
+        SketchFrequencias sketch = new SketchFrequencias(CAPACIDADE);
+        Map<String, Long> reais = registrar(sketch, fluxo(100_000, 5_000, 2));
+
+        verificarLimites(sketch, reais);
+        long limiteErro = sketch.getTotal() / CAPACIDADE;
+        for (SketchFrequencias.Item item : sketch.itens()) {
+            assertTrue(item.erro() <= limiteErro, item.toString());
+        }
+        // Todo item com frequência real acima de N/k é monitorado
+        List<String> monitorados = sketch.itens().stream().map(SketchFrequencias.Item::texto).toList();
+        reais.forEach((item, real) -> assertTrue(real <= limiteErro || monitorados.contains(item), item));
+    }
+
+    @Test
+    void limitesDeErroAposCombinarResumos() {
+        Map<String, Long> reais = new HashMap<>();
+        List<SketchFrequencias> diarios = new ArrayList<>();
+        for (int dia = 0; dia < 7; dia++) {
+            SketchFrequencias diario = new SketchFrequencias(CAPACIDADE);
+            registrar(diario, fluxo(20_000, 3_000, 10 + dia)).forEach((item, real) -> reais.merge(item, real, Long::sum));
+            diarios.add(diario);
+        }
+
+        SketchFrequencias semana = SketchFrequencias.combinar(diarios, CAPACIDADE);
+
+        assertEquals(140_000, semana.getTotal());
+        assertTrue(semana.getTamanho() <= CAPACIDADE);
+        verificarLimites(semana, reais);
+        for (SketchFrequencias.Item item : semana.itens()) {
+            assertTrue(item.erro() <= semana.getTotal() / CAPACIDADE, item.toString());
+        }
+    }
+
+    @Test
+    void maisFrequentesOrdenadosComEmpatesEmOrdemAlfabetica() {
+        SketchFrequencias sketch = new SketchFrequencias(CAPACIDADE);
+        for (String item : List.of("b", "a", "c", "a", "b", "d", "a")) {
+            sketch.registrar(item);
+        }
+
+        assertEquals(List.of("a", "b", "c", "d"), List.copyOf(sketch.maisFrequentes(10, 1).keySet()));
+        assertEquals(Map.of("a", 3L, "b", 2L), sketch.maisFrequentes(10, 2));
+        assertEquals(List.of("a"), List.copyOf(sketch.maisFrequentes(1, 1).keySet()));
+    }
+
+    @Test
+    void serializacaoIdaEVolta() {
+        SketchFrequencias original = new SketchFrequencias(CAPACIDADE);
+        registrar(original, fluxo(10_000, 800, 3));
+
+        SketchFrequencias lido = SketchFrequencias.desserializar(original.serializar());
+
+        assertEquals(original.getCapacidade(), lido.getCapacidade());
+        assertEquals(original.getTotal(), lido.getTotal());
+        assertEquals(original.getLimiteAusentes(), lido.getLimiteAusentes());
+        assertEquals(original.itens(), lido.itens());
+
+        // O heap é reconstruído: continuar registrando dá o mesmo resultado nos dois
+        List<String> continuacao = fluxo(5_000, 800, 4);
+        continuacao.forEach(original::registrar);
+        continuacao.forEach(lido::registrar);
+        assertEquals(original.itens(), lido.itens());
+        assertEquals(original.getLimiteAusentes(), lido.getLimiteAusentes());
+    }
+
+    @Test
+    void serializacaoDeResumoVazio() {
+        SketchFrequencias lido = SketchFrequencias.desserializar(new SketchFrequencias(3).serializar());
+
+        assertEquals(0, lido.getTamanho());
+        assertEquals(0, lido.getTotal());
+    }
+
+    @Test
+    void rejeitaVersaoDesconhecida() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(SketchFrequencias.VERSAO_FORMATO + 1);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> SketchFrequencias.desserializar(bytes.toByteArray()));
+    }
+
+    @Test
+    void rejeitaCapacidadeNaoPositiva() {
+        assertThrows(IllegalArgumentException.class, () -> new SketchFrequencias(0));
+    }
+
+    /**
+     * Contagem estimada é limite superior, contagem - erro é limite inferior e ausentes ficam abaixo do limite
+     */
+    private static void verificarLimites(SketchFrequencias sketch, Map<String, Long> reais) {
+        Map<String, SketchFrequencias.Item> monitorados = new HashMap<>();
+        sketch.itens().forEach(item -> monitorados.put(item.texto(), item));
+        reais.forEach((texto, real) -> {
+            SketchFrequencias.Item item = monitorados.get(texto);
+            if (item == null) {
+                assertTrue(real <= sketch.getLimiteAusentes(), texto + ": " + real + " > " + sketch.getLimiteAusentes());
+            } else {
+                assertTrue(item.contagem() >= real, item + " < " + real);
+                assertTrue(item.contagem() - item.erro() <= real, item + " > " + real);
+            }
+        });
+    }
+
+    private static Map<String, Long> registrar(SketchFrequencias sketch, List<String> itens) {
+        Map<String, Long> reais = new HashMap<>();
+        for (String item : itens) {
+            sketch.registrar(item);
+            reais.merge(item, 1L, Long::sum);
+        }
+        return reais;
+    }
+
+    /**
+     * Fluxo com distribuição enviesada (poucos itens frequentes e cauda longa)
+     */
+    private static List<String> fluxo(int tamanho, int distintos, long semente) {
+        Random random = new Random(semente);
+        return random.doubles(tamanho)
+                .mapToObj(x -> "item" + (int) (distintos * Math.pow(x, 3)))
+                .toList();
+    }
+}
@@ -0,0 +1,155 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import com.azure.data.tables.models.TableEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodificacaoRelatorioTest {
+
+    @Test
+    void mapasPequenosFicamEmJsonSemCompressao() {
+        CodificacaoRelatorio.Mapas mapas = new CodificacaoRelatorio.Mapas(Map.of("2024-05-10", 3L), null, null,
+                Map.of("p50", 8), Map.of("CRITICO", 1L));
+
+        byte[] dados = CodificacaoRelatorio.codificar(mapas);
+
+        assertEquals(1, dados[0]);
+        assertTrue(dados.length < CodificacaoRelatorio.LIMIAR_COMPRESSAO);
+        assertEquals(mapas, CodificacaoRelatorio.decodificar(dados));
+    }
+
+    @Test
+    void mapasGrandesSaoComprimidosEPreservamAOrdem() {
+        CodificacaoRelatorio.Mapas mapas = new CodificacaoRelatorio.Mapas(contagens("dia", 400), contagens("palavra", 500),
+                contagens("frase com aspas \" e barra \\", 300), Map.of("p90", 10), Map.of());
+
+        byte[] dados = CodificacaoRelatorio.codificar(mapas);
+        CodificacaoRelatorio.Mapas lidos = CodificacaoRelatorio.decodificar(dados);
+
+        assertEquals(2, dados[0]);
+        assertEquals(mapas.avaliacoesPorDia(), lidos.avaliacoesPorDia());
+        assertEquals(List.copyOf(mapas.palavrasRecorrentes().keySet()), List.copyOf(lidos.palavrasRecorrentes().keySet()));
+        assertEquals(mapas.frasesRecorrentes(), lidos.frasesRecorrentes());
+        // Mapas vazios não são gravados (NON_EMPTY)
+        assertNull(lidos.contagemPorUrgencia());
+    }
+
+    @Test
+    void escreverELerAVersaoAtualDaEntidade() {
+        RelatorioSemanal relatorio = new RelatorioSemanal();
+        relatorio.setAvaliacoesPorDia(contagens("2024-05-", 7));
+        relatorio.setPalavrasRecorrentes(contagens("palavra", 5_000));
+        relatorio.setFrasesRecorrentes(contagens("frase", 10));
+        relatorio.setPercentisNotas(Map.of("p50", 7, "p90", 9));
+        relatorio.setContagemPorUrgencia(Map.of("NORMAL", 10L));
+        TableEntity entity = new TableEntity("Periodo", "2024-05-01T00_2024-05-08T00");
+
+        CodificacaoRelatorio.escrever(relatorio, entity);
+        Map<String, Object> propriedades = new HashMap<>(entity.getProperties());
+
+        assertTrue(CodificacaoRelatorio.versionado(propriedades));
+        assertEquals(CodificacaoRelatorio.VERSAO, propriedades.get(CodificacaoRelatorio.PROPRIEDADE_VERSAO));
+        RelatorioSemanal lido = new RelatorioSemanal();
+        CodificacaoRelatorio.ler(propriedades).aplicar(lido);
+        assertEquals(relatorio.getAvaliacoesPorDia(), lido.getAvaliacoesPorDia());
+        assertEquals(relatorio.getPalavrasRecorrentes(), lido.getPalavrasRecorrentes());
+        assertEquals(relatorio.getFrasesRecorrentes(), lido.getFrasesRecorrentes());
+        assertEquals(relatorio.getPercentisNotas(), lido.getPercentisNotas());
+        assertEquals(relatorio.getContagemPorUrgencia(), lido.getContagemPorUrgencia());
+    }
+
+    @Test
+    void dadosAcimaDe64KbContinuamEmPropriedadesNumeradas() {
+        Map<String, Object> propriedades = new HashMap<>();
+        byte[] dados = CodificacaoRelatorio.codificar(new CodificacaoRelatorio.Mapas(null, aleatorias(20_000), null, null, null));
+        assertTrue(dados.length > 64 * 1024, "dados: " + dados.length);
+        int parte = 0;
+        for (int inicio = 0; inicio < dados.length; inicio += 64 * 1024, parte++) {
+            propriedades.put(parte == 0 ? "dados" : "dados_" + parte,
+                    Arrays.copyOfRange(dados, inicio, Math.min(dados.length, inicio + 64 * 1024)));
+        }
+        propriedades.put(CodificacaoRelatorio.PROPRIEDADE_VERSAO, CodificacaoRelatorio.VERSAO);
+
+        assertEquals(CodificacaoRelatorio.decodificar(dados), CodificacaoRelatorio.ler(propriedades));
+    }
+
+    @Test
+    void versaoDesconhecidaOuDadosCorrompidos() {
+        assertThrows(IllegalStateException.class, () -> CodificacaoRelatorio.ler(Map.of(CodificacaoRelatorio.PROPRIEDADE_VERSAO, 3)));
+        assertThrows(IllegalStateException.class, () -> CodificacaoRelatorio.decodificar(new byte[]{9, 1, 2}));
+        assertThrows(IllegalStateException.class, () -> CodificacaoRelatorio.decodificar(new byte[]{2, 1, 2}));
+        assertThrows(IllegalStateException.class, () -> CodificacaoRelatorio.decodificar(new byte[]{1, '{', 'x'}));
+    }
+
+    @Test
+    void versaoAtualSemDadosTemMapasVazios() {
+        RelatorioSemanal relatorio = new RelatorioSemanal();
+
+        CodificacaoRelatorio.ler(Map.of(CodificacaoRelatorio.PROPRIEDADE_VERSAO, CodificacaoRelatorio.VERSAO)).aplicar(relatorio);
+
+        assertTrue(relatorio.getPalavrasRecorrentes().isEmpty());
+        assertTrue(relatorio.getPercentisNotas().isEmpty());
+    }
+
+    @Test
+    void lerFormatoLegado() {
+        Map<String, Object> propriedades = new HashMap<>();
+        propriedades.put("avaliacoesPorDia", "{\"2024-05-10\":3,\"2024-05-11\":1}");
+        propriedades.put("palavrasRecorrentes", "{\"aula\":5}");
+        propriedades.put("percentil_p50", 7);
+        propriedades.put("percentil_p90", 9L);
+        propriedades.put("contagem_CRITICO", 2L);
+        propriedades.put("contagem_NORMAL", 4);
+        propriedades.put("totalAvaliacoes", 6L);
+
+        assertFalse(CodificacaoRelatorio.versionado(propriedades));
+        RelatorioSemanal relatorio = new RelatorioSemanal();
+        CodificacaoRelatorio.lerLegado(propriedades).aplicar(relatorio);
+
+        assertEquals(Map.of("2024-05-10", 3L, "2024-05-11", 1L), relatorio.getAvaliacoesPorDia());
+        assertEquals(Map.of("aula", 5L), relatorio.getPalavrasRecorrentes());
+        assertTrue(relatorio.getFrasesRecorrentes().isEmpty());
+        assertEquals(Map.of("p50", 7, "p90", 9), relatorio.getPercentisNotas());
+        assertEquals(Map.of("CRITICO", 2L, "NORMAL", 4L), relatorio.getContagemPorUrgencia());
+    }
+
+    @Test
+    void legadoComJsonInvalidoResultaEmMapaVazio() {
+        // O escape antigo de aspas gerava JSON inválido
+        RelatorioSemanal relatorio = new RelatorioSemanal();
+
+        CodificacaoRelatorio.lerLegado(Map.of("frasesRecorrentes", "{\"disse \"ótimo\"\":2}")).aplicar(relatorio);
+
+        assertTrue(relatorio.getFrasesRecorrentes().isEmpty());
+    }
+
+    private static Map<String, Long> contagens(String prefixo, int quantidade) {
+        Map<String, Long> contagens = new LinkedHashMap<>();
+        for (int i = quantidade; i > 0; i--) {
+            contagens.put(prefixo + i, (long) i);
+        }
+        return contagens;
+    }
+
+    private static Map<String, Long> aleatorias(int quantidade) {
+        Random random = new Random(1);
+        Map<String, Long> contagens = new LinkedHashMap<>();
+        for (int i = 0; i < quantidade; i++) {
+            contagens.put(Long.toHexString(random.nextLong()), random.nextLong());
+        }
+        return contagens;
+    }
+}
@@ -0,0 +1,104 @@
+package br.com.fiap.techchallenge.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DisjuntorTest {
+
+    private static final long ABERTURA = 1_000;
+
+    @Test
+    void abreAposOLimiteDeFalhasConsecutivas() {
+        Disjuntor disjuntor = new Disjuntor(3, ABERTURA);
+
+        assertFalse(disjuntor.falha(0));
+        assertFalse(disjuntor.falha(0));
+        assertEquals(Disjuntor.Estado.FECHADO, disjuntor.getEstado());
+        assertTrue(disjuntor.falha(100));
+
+        assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado());
+        assertFalse(disjuntor.permitir(600));
+        assertEquals(500, disjuntor.restanteNanos(600));
+    }
+
+    @Test
+    void respostaDoStorageZeraAsFalhasConsecutivas() {
+        Disjuntor disjuntor = new Disjuntor(3, ABERTURA);
+        disjuntor.falha(0);
+        disjuntor.falha(0);
+        disjuntor.sucesso();
+        disjuntor.falha(0);
+        disjuntor.falha(0);
+
+        assertEquals(Disjuntor.Estado.FECHADO, disjuntor.getEstado());
+        assertTrue(disjuntor.permitir(0));
+        assertEquals(0, disjuntor.restanteNanos(0));
+    }
+
+    @Test
+    void semiabertoDeixaPassarUmaUnicaSondaESucessoFecha() {
+        Disjuntor disjuntor = aberto();
+
+        assertTrue(disjuntor.permitir(ABERTURA));
+        assertEquals(Disjuntor.Estado.SEMIABERTO, disjuntor.getEstado());
+        assertFalse(disjuntor.permitir(ABERTURA));
+
+        disjuntor.sucesso();
+        assertEquals(Disjuntor.Estado.FECHADO, disjuntor.getEstado());
+        assertTrue(disjuntor.permitir(ABERTURA));
+        assertTrue(disjuntor.permitir(ABERTURA));
+    }
+
+    @Test
+    void falhaDaSondaReabrePorOutroPeriodo() {
+        Disjuntor disjuntor = aberto();
+        disjuntor.permitir(ABERTURA);
+
+        assertTrue(disjuntor.falha(ABERTURA));
+
+        assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado());
+        assertFalse(disjuntor.permitir(2 * ABERTURA - 1));
+        assertTrue(disjuntor.permitir(2 * ABERTURA));
+    }
+
+    @Test
+    void sondaCanceladaLiberaAVagaParaOutraSonda() {
+        Disjuntor disjuntor = aberto();
+        disjuntor.permitir(ABERTURA);
+
+        disjuntor.cancelado();
+
+        assertEquals(Disjuntor.Estado.SEMIABERTO, disjuntor.getEstado());
+        assertTrue(disjuntor.permitir(ABERTURA));
+        assertFalse(disjuntor.permitir(ABERTURA));
+    }
+
+    @Test
+    void prazoDeAberturaSobreviveAoEstouroDoRelogio() {
+        // System.nanoTime pode estourar: o prazo é comparado pela diferença
+        Disjuntor disjuntor = new Disjuntor(1, ABERTURA);
+        long agora = Long.MAX_VALUE - 10;
+        disjuntor.falha(agora);
+
+        assertFalse(disjuntor.permitir(Long.MAX_VALUE));
+        assertEquals(ABERTURA - 10, disjuntor.restanteNanos(Long.MAX_VALUE));
+        assertTrue(disjuntor.permitir(agora + ABERTURA));
+    }
+
+    @Test
+    void limiteDeFalhasMinimoEUm() {
+        Disjuntor disjuntor = new Disjuntor(0, ABERTURA);
+
+        assertTrue(disjuntor.falha(0));
+        assertEquals(Disjuntor.Estado.ABERTO, disjuntor.getEstado());
+    }
+
+    private static Disjuntor aberto() {
+        Disjuntor disjuntor = new Disjuntor(1, ABERTURA);
+        disjuntor.falha(0);
+        return disjuntor;
+    }
+}
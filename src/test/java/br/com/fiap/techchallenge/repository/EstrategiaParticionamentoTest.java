@@ -0,0 +1,99 @@
+package br.com.fiap.techchallenge.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EstrategiaParticionamentoTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 10, 8, 30);
+
+    @Test
+    void filtroComFimAMeiaNoiteNaoPercorreAsParticoesDoDiaDoFim() {
+        String filtro = EstrategiaParticionamento.filtroPeriodo(INICIO, LocalDateTime.of(2024, 5, 11, 0, 0));
+
+        assertEquals("PartitionKey ge '2024-05-10' and PartitionKey lt '2024-05-11'"
+                + " and RowKey ge '2024-05-10T08:30:00.000' and RowKey lt '2024-05-11T00:00:00.000'", filtro);
+    }
+
+    @Test
+    void filtroComFimNoMeioDoDiaIncluiAsParticoesDoDiaDoFim() {
+        String filtro = EstrategiaParticionamento.filtroPeriodo(INICIO, LocalDateTime.of(2024, 5, 11, 0, 0, 1));
+
+        assertTrue(filtro.startsWith("PartitionKey ge '2024-05-10' and PartitionKey lt '2024-05-12'"), filtro);
+        assertTrue(filtro.endsWith("RowKey lt '2024-05-11T00:00:01.000'"), filtro);
+    }
+
+    @Test
+    void limitesDoDiaCobremAsParticoesDiariasEHorarias() {
+        // Partições de estratégias diferentes convivem na tabela: todas as do dia ficam entre os limites
+        String inicioDia = "2024-05-10";
+        String fimDia = "2024-05-11";
+        for (String partitionKey : List.of(
+                EstrategiaParticionamento.DIA.partitionKey(LocalDateTime.of(2024, 5, 10, 0, 0)),
+                EstrategiaParticionamento.HORA.partitionKey(LocalDateTime.of(2024, 5, 10, 0, 0)),
+                EstrategiaParticionamento.HORA.partitionKey(LocalDateTime.of(2024, 5, 10, 23, 59)))) {
+            assertTrue(partitionKey.compareTo(inicioDia) >= 0 && partitionKey.compareTo(fimDia) < 0, partitionKey);
+        }
+        assertTrue(EstrategiaParticionamento.HORA.partitionKey(LocalDateTime.of(2024, 5, 11, 0, 0)).compareTo(fimDia) >= 0);
+    }
+
+    @Test
+    void rowKeyPreservaAOrdemCronologicaEOId() {
+        String anterior = EstrategiaParticionamento.rowKey(LocalDateTime.of(2024, 5, 10, 9, 5, 7, 120_000_000), "b");
+        String posterior = EstrategiaParticionamento.rowKey(LocalDateTime.of(2024, 5, 10, 10, 0), "a");
+
+        assertEquals("2024-05-10T09:05:07.120_b", anterior);
+        assertTrue(anterior.compareTo(posterior) < 0);
+        assertEquals("b", EstrategiaParticionamento.idDoRowKey(anterior));
+        assertEquals("d3b07384-legado", EstrategiaParticionamento.idDoRowKey("d3b07384-legado"));
+    }
+
+    @Test
+    void limitesDiariosDeUmPeriodoDentroDoDia() {
+        LocalDateTime fim = INICIO.plusHours(3);
+
+        assertEquals(List.of(INICIO, fim), EstrategiaParticionamento.limitesDiarios(INICIO, fim));
+    }
+
+    @Test
+    void limitesDiariosDividemNaMeiaNoite() {
+        LocalDateTime fim = LocalDateTime.of(2024, 5, 12, 14, 0);
+
+        assertEquals(List.of(INICIO,
+                        LocalDateTime.of(2024, 5, 11, 0, 0),
+                        LocalDateTime.of(2024, 5, 12, 0, 0),
+                        fim),
+                EstrategiaParticionamento.limitesDiarios(INICIO, fim));
+    }
+
+    @Test
+    void limitesDiariosNaoRepetemFimAMeiaNoite() {
+        LocalDateTime inicio = LocalDateTime.of(2024, 5, 10, 0, 0);
+        LocalDateTime fim = LocalDateTime.of(2024, 5, 12, 0, 0);
+
+        assertEquals(List.of(inicio, LocalDateTime.of(2024, 5, 11, 0, 0), fim),
+                EstrategiaParticionamento.limitesDiarios(inicio, fim));
+    }
+
+    @Test
+    void limitesDiariosDePeriodoVazio() {
+        assertEquals(List.of(INICIO), EstrategiaParticionamento.limitesDiarios(INICIO, INICIO));
+        assertEquals(List.of(INICIO), EstrategiaParticionamento.limitesDiarios(INICIO, INICIO.minusDays(2)));
+    }
+
+    @Test
+    void subintervalosDiariosCabemNoFiltroDeUmUnicoDia() {
+        List<LocalDateTime> limites = EstrategiaParticionamento.limitesDiarios(INICIO, LocalDateTime.of(2024, 5, 13, 0, 0));
+        for (int i = 0; i < limites.size() - 1; i++) {
+            String filtro = EstrategiaParticionamento.filtroPeriodo(limites.get(i), limites.get(i + 1));
+            String dia = limites.get(i).toLocalDate().toString();
+            String seguinte = limites.get(i).toLocalDate().plusDays(1).toString();
+            assertTrue(filtro.startsWith("PartitionKey ge '" + dia + "' and PartitionKey lt '" + seguinte + "'"), filtro);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.fiap.techchallenge.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteAdaptativoTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void limiteInicialFicaEntreOMinimoEOMaximo() {
+        assertEquals(10, new LimiteAdaptativo(100, 2, 10).getLimite());
+        assertEquals(2, new LimiteAdaptativo(0, 2, 10).getLimite());
+        assertEquals(1, new LimiteAdaptativo(0, 0, 0).getLimite());
+    }
+
+    @Test
+    void vagasSaoLimitadasPeloLimite() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(2, 1, 10);
+
+        assertTrue(limite.tentarAdquirir());
+        assertTrue(limite.tentarAdquirir());
+        assertFalse(limite.tentarAdquirir());
+
+        limite.liberar();
+        assertEquals(1, limite.getEmCurso());
+        assertTrue(limite.tentarAdquirir());
+    }
+
+    @Test
+    void aumentoAditivoDeCercaDeUmaVagaPorJanelaDeChamadas() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(4, 1, 10);
+        ocupar(limite, 4);
+
+        for (int i = 0; i < 4; i++) {
+            limite.aumentar();
+        }
+        assertTrue(limite.getLimite() > 4.9 && limite.getLimite() < 5, String.valueOf(limite.getLimite()));
+        assertFalse(limite.tentarAdquirir());
+
+        limite.aumentar();
+        assertTrue(limite.getLimite() >= 5);
+        assertTrue(limite.tentarAdquirir());
+    }
+
+    @Test
+    void limiteOciosoNaoCresce() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(8, 1, 16);
+        ocupar(limite, 2);
+
+        limite.aumentar();
+
+        assertEquals(8, limite.getLimite());
+    }
+
+    @Test
+    void aumentoNaoPassaDoMaximo() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(3, 1, 3);
+        ocupar(limite, 3);
+
+        limite.aumentar();
+
+        assertEquals(3, limite.getLimite());
+    }
+
+    @Test
+    void reducaoMultiplicativaUmaVezPorIntervalo() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(8, 3, 16);
+        long agora = System.nanoTime();
+
+        assertTrue(limite.reduzir(agora));
+        assertEquals(4, limite.getLimite());
+
+        // Rajada de 429 no mesmo intervalo: um único sinal
+        assertFalse(limite.reduzir(agora + SEGUNDO / 2));
+        assertEquals(4, limite.getLimite());
+
+        assertTrue(limite.reduzir(agora + SEGUNDO));
+        assertEquals(3, limite.getLimite());
+    }
+
+    @Test
+    void reducaoNaoCancelaAsChamadasEmCursoMasBloqueiaNovas() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(4, 1, 16);
+        ocupar(limite, 3);
+
+        limite.reduzir(System.nanoTime());
+
+        assertEquals(3, limite.getEmCurso());
+        assertFalse(limite.tentarAdquirir());
+        limite.liberar();
+        limite.liberar();
+        assertTrue(limite.tentarAdquirir());
+    }
+
+    @Test
+    void adquirirEsperaPorUmaVagaAteOPrazo() throws Exception {
+        LimiteAdaptativo limite = new LimiteAdaptativo(1, 1, 1);
+        ocupar(limite, 1);
+
+        assertFalse(limite.adquirir(0));
+        assertFalse(limite.adquirir(TimeUnit.MILLISECONDS.toNanos(20)));
+
+        CompletableFuture<Boolean> espera = CompletableFuture.supplyAsync(() -> limite.adquirir(TimeUnit.SECONDS.toNanos(5)));
+        Thread.sleep(50);
+        limite.liberar();
+
+        assertTrue(espera.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limite.getEmCurso());
+    }
+
+    private static void ocupar(LimiteAdaptativo limite, int vagas) {
+        for (int i = 0; i < vagas; i++) {
+            assertTrue(limite.tentarAdquirir());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.fiap.techchallenge.repository;
+
+import br.com.fiap.techchallenge.model.RegistroIdempotencia.Situacao;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StorageTableAsyncRepositoryTest {
+
+    private static final OffsetDateTime AGORA = OffsetDateTime.of(2024, 5, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final Duration EXPIRACAO = Duration.ofSeconds(60);
+    private static final Duration PRAZO_EFEITOS = Duration.ofSeconds(10);
+
+    @Test
+    void efeitosConcluidosDevolvemAResposta() {
+        assertEquals(Situacao.CONCLUIDA, situacao(true, true, AGORA.minusHours(1)));
+        assertEquals(Situacao.CONCLUIDA, situacao(true, false, AGORA));
+    }
+
+    @Test
+    void avaliacaoGravadaAguardaAOriginalDentroDoPrazoDaRequisicao() {
+        assertEquals(Situacao.EM_ANDAMENTO, situacao(false, true, AGORA.minusSeconds(9)));
+    }
+
+    @Test
+    void avaliacaoGravadaSemEfeitosAposOPrazoAssumeOsEfeitos() {
+        // A original respondeu 504 e a gravação concluiu depois: a repetição executa notificação e rollup
+        assertEquals(Situacao.EFEITOS_PENDENTES, situacao(false, true, AGORA.minusSeconds(11)));
+    }
+
+    @Test
+    void reservaAnteriorAoRegistroDosEfeitosComAvaliacaoGravadaEstaConcluida() {
+        assertEquals(Situacao.CONCLUIDA, situacao(null, true, AGORA.minusHours(1)));
+    }
+
+    @Test
+    void avaliacaoAusenteAguardaAOriginalAteAReservaExpirar() {
+        assertEquals(Situacao.EM_ANDAMENTO, situacao(false, false, AGORA.minusSeconds(30)));
+        assertEquals(Situacao.EM_ANDAMENTO, situacao(null, false, AGORA.minusSeconds(30)));
+    }
+
+    @Test
+    void reservaExpiradaSemAvaliacaoGravadaEAssumida() {
+        assertEquals(Situacao.RESERVADA, situacao(false, false, AGORA.minusSeconds(61)));
+        assertEquals(Situacao.RESERVADA, situacao(null, false, AGORA.minusSeconds(61)));
+    }
+
+    @Test
+    void reservaSemTimestampETratadaComoRecente() {
+        assertEquals(Situacao.EM_ANDAMENTO, situacao(false, true, null));
+        assertEquals(Situacao.EM_ANDAMENTO, situacao(false, false, null));
+    }
+
+    private static Situacao situacao(Boolean efeitosConcluidos, boolean avaliacaoGravada, OffsetDateTime ultimaEscrita) {
+        return StorageTableAsyncRepository.situacaoReservaAlheia(efeitosConcluidos, avaliacaoGravada, ultimaEscrita,
+                AGORA, EXPIRACAO, PRAZO_EFEITOS);
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.AgregadoNotas;
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.repository.AgregadoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgregadoServiceTest {
+
+    private static final LocalDate HOJE = LocalDate.now();
+    private static final LocalDate SEGUNDA = HOJE.minusWeeks(3).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+    private final RepositorioEmMemoria repository = new RepositorioEmMemoria();
+    private final AgregadoService agregadoService = new AgregadoService(repository, null, null, null);
+
+    @Test
+    void semanaEncerradaDiasInteirosEHorasDaBordaFinal() {
+        for (int i = 0; i <= 9; i++) {
+            repository.registrar(SEGUNDA.plusDays(i).atTime(10, 0), 8);
+        }
+        repository.registrar(SEGUNDA.plusDays(9).atTime(13, 0), 2);
+        repository.registrar(SEGUNDA.plusDays(9).atTime(14, 0), 5);
+
+        AgregadorAvaliacoes agregador = novoAgregador(SEGUNDA.atStartOfDay(), SEGUNDA.plusDays(9).atTime(14, 0));
+        int linhas = agregadoService.carregarPeriodo(SEGUNDA.atStartOfDay(), SEGUNDA.plusDays(9).atTime(14, 0), agregador);
+
+        // Semana, dois dias inteiros (a segunda seguinte não completa outra semana) e as horas do último dia
+        assertEquals(4, linhas);
+        assertEquals(List.of("semana " + SEGUNDA), repository.leituras("semana"));
+        assertEquals(9, repository.leituras("dia").size());
+        assertTrue(repository.leituras("dia").contains("dia " + SEGUNDA.plusDays(8)));
+        assertEquals(11, agregador.getTotal());
+        assertEquals(2L, agregador.gerarRelatorio().getAvaliacoesPorDia().get(SEGUNDA.plusDays(9).toString()));
+        assertEquals(1L, agregador.gerarRelatorio().getAvaliacoesPorDia().get(SEGUNDA.plusDays(3).toString()));
+    }
+
+    @Test
+    void bordasDoPeriodoSaoLidasDasHorasEOMeioDoRollupDiario() {
+        LocalDate dia = SEGUNDA.plusDays(1);
+        repository.registrar(dia.atTime(9, 0), 7);
+        repository.registrar(dia.atTime(10, 0), 9);
+        repository.registrar(dia.plusDays(1).atTime(12, 0), 4);
+        repository.registrar(dia.plusDays(2).atTime(5, 0), 10);
+        repository.registrar(dia.plusDays(2).atTime(6, 0), 1);
+
+        LocalDateTime inicio = dia.atTime(10, 0);
+        LocalDateTime fim = dia.plusDays(2).atTime(6, 0);
+        AgregadorAvaliacoes agregador = novoAgregador(inicio, fim);
+        int linhas = agregadoService.carregarPeriodo(inicio, fim, agregador);
+
+        assertEquals(3, linhas);
+        assertEquals(List.of("dia " + dia.plusDays(1)), repository.leituras("dia"));
+        assertTrue(repository.leituras("semana").isEmpty());
+        assertEquals(3, agregador.getTotal());
+        assertEquals(Map.of("p25", 4, "p50", 9, "p75", 10, "p90", 10), agregador.gerarRelatorio().getPercentisNotas());
+    }
+
+    @Test
+    void diaCorrenteNuncaUsaORollupDiario() {
+        repository.registrar(HOJE.atStartOfDay(), 6);
+
+        AgregadorAvaliacoes agregador = novoAgregador(HOJE.atStartOfDay(), HOJE.plusDays(1).atStartOfDay());
+        int linhas = agregadoService.carregarPeriodo(HOJE.atStartOfDay(), HOJE.plusDays(1).atStartOfDay(), agregador);
+
+        assertEquals(1, linhas);
+        assertTrue(repository.leituras("dia").isEmpty());
+        assertEquals(List.of("horas " + HOJE), repository.leituras("horas"));
+        assertEquals(1, agregador.getTotal());
+    }
+
+    @Test
+    void diaMaterializadoCombinaAsHorasDoDia() {
+        LocalDate dia = SEGUNDA.plusDays(2);
+        repository.registrar(dia.atTime(0, 0), 3);
+        repository.registrar(dia.atTime(23, 0), 9);
+
+        AgregadorAvaliacoes agregador = novoAgregador(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay());
+        agregadoService.carregarPeriodo(dia.atStartOfDay(), dia.plusDays(1).atStartOfDay(), agregador);
+
+        AgregadoNotas materializado = repository.diasSalvos.get(dia);
+        assertEquals(2, materializado.getTotal());
+        assertEquals(3, materializado.getMinimo());
+        assertEquals(9, materializado.getMaximo());
+    }
+
+    private static AgregadorAvaliacoes novoAgregador(LocalDateTime inicio, LocalDateTime fim) {
+        AnaliseTextoService analiseTextoService = new AnaliseTextoService();
+        analiseTextoService.paralelismo = 1;
+        return new AgregadorAvaliacoes(inicio, fim, analiseTextoService.novoAcumulador());
+    }
+
+    /**
+     * Rollups horários em memória; dias e semanas nunca estão materializados (cada leitura os recalcula das horas)
+     */
+    private static final class RepositorioEmMemoria extends AgregadoRepository {
+
+        private final Map<LocalDate, Map<Integer, AgregadoNotas>> horas = new HashMap<>();
+        private final Map<LocalDate, AgregadoNotas> diasSalvos = new HashMap<>();
+        private final List<String> leituras = new ArrayList<>();
+
+        RepositorioEmMemoria() {
+            super(null, null);
+        }
+
+        void registrar(LocalDateTime dataHora, int nota) {
+            Avaliacao avaliacao = Avaliacao.builder().nota(nota).dataHora(dataHora).build();
+            avaliacao.calcularUrgencia(3);
+            horas.computeIfAbsent(dataHora.toLocalDate(), d -> new TreeMap<>())
+                    .computeIfAbsent(dataHora.getHour(), h -> new AgregadoNotas())
+                    .registrar(avaliacao);
+        }
+
+        List<String> leituras(String tipo) {
+            return leituras.stream().filter(leitura -> leitura.startsWith(tipo + " ")).toList();
+        }
+
+        @Override
+        public Map<Integer, AgregadoNotas> buscarHoras(LocalDate dia) {
+            leituras.add("horas " + dia);
+            return horas.getOrDefault(dia, Map.of());
+        }
+
+        @Override
+        public Leitura<AgregadoNotas> buscarDia(LocalDate dia) {
+            leituras.add("dia " + dia);
+            return Leitura.ausente();
+        }
+
+        @Override
+        public boolean salvarDia(Leitura<AgregadoNotas> lida, LocalDate dia, AgregadoNotas agregado) {
+            diasSalvos.put(dia, agregado);
+            return true;
+        }
+
+        @Override
+        public Leitura<AgregadoSemana> buscarSemana(LocalDate segunda) {
+            leituras.add("semana " + segunda);
+            return Leitura.ausente();
+        }
+
+        @Override
+        public boolean salvarSemana(Leitura<AgregadoSemana> lida, LocalDate segunda, AgregadoSemana semana) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.AgregadoNotas;
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgregadorAvaliacoesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 6, 0, 0);
+    private static final LocalDateTime FIM = LocalDateTime.of(2024, 5, 12, 23, 59, 59);
+
+    @Test
+    void percentisPeloMetodoNearestRank() {
+        AgregadorAvaliacoes agregador = novoAgregador();
+        for (int nota = 1; nota <= 10; nota++) {
+            agregador.registrar(avaliacao(nota, INICIO.plusHours(nota)));
+        }
+
+        RelatorioSemanal relatorio = agregador.gerarRelatorio();
+
+        // 10 notas: posições ceil(0,25*10)=3, 5, ceil(7,5)=8 e 9
+        assertEquals(Map.of("p25", 3, "p50", 5, "p75", 8, "p90", 9), relatorio.getPercentisNotas());
+        assertEquals(5.5, relatorio.getMediaNotas(), 1e-9);
+        assertEquals(10, relatorio.getNotaMaisAlta());
+        assertEquals(1, relatorio.getNotaMaisBaixa());
+    }
+
+    @Test
+    void percentisComUmaUnicaAvaliacaoUsamAPrimeiraPosicao() {
+        AgregadorAvaliacoes agregador = novoAgregador();
+        agregador.registrar(avaliacao(7, INICIO));
+
+        assertEquals(Map.of("p25", 7, "p50", 7, "p75", 7, "p90", 7), agregador.gerarRelatorio().getPercentisNotas());
+    }
+
+    @Test
+    void npsSubtraiDetratoresDosPromotoresEIgnoraNeutros() {
+        AgregadorAvaliacoes agregador = novoAgregador();
+        // 3 promotores (9-10), 2 neutros (7-8), 5 detratores (0-6)
+        for (int nota : new int[]{10, 9, 9, 8, 7, 6, 5, 3, 0, 0}) {
+            agregador.registrar(avaliacao(nota, INICIO));
+        }
+
+        assertEquals(-20.0, agregador.gerarRelatorio().getNps(), 1e-9);
+    }
+
+    @Test
+    void relatorioSemAvaliacoesNaoTemPercentisNemNps() {
+        RelatorioSemanal relatorio = novoAgregador().gerarRelatorio();
+
+        assertTrue(relatorio.getPercentisNotas().isEmpty());
+        assertNull(relatorio.getNps());
+        assertEquals(0.0, relatorio.getMediaNotas());
+    }
+
+    @Test
+    void agregadoPreCalculadoEquivaleAsAvaliacoesIndividuais() {
+        AgregadorAvaliacoes individual = novoAgregador();
+        AgregadoNotas rollup = new AgregadoNotas();
+        for (int nota : new int[]{2, 4, 6, 8, 9, 10, 10}) {
+            Avaliacao avaliacao = avaliacao(nota, INICIO.plusDays(1));
+            avaliacao.calcularUrgencia(3);
+            individual.registrar(avaliacao);
+            rollup.registrar(avaliacao);
+        }
+        AgregadorAvaliacoes porRollup = novoAgregador();
+        porRollup.registrarAgregado(rollup);
+        porRollup.registrarContagemDia(INICIO.toLocalDate().plusDays(1), rollup.getTotal());
+
+        RelatorioSemanal esperado = individual.gerarRelatorio();
+        RelatorioSemanal obtido = porRollup.gerarRelatorio();
+
+        assertEquals(esperado.getPercentisNotas(), obtido.getPercentisNotas());
+        assertEquals(esperado.getNps(), obtido.getNps());
+        assertEquals(esperado.getMediaNotas(), obtido.getMediaNotas(), 1e-9);
+        assertEquals(esperado.getContagemPorUrgencia(), obtido.getContagemPorUrgencia());
+        assertEquals(esperado.getAvaliacoesPorDia(), obtido.getAvaliacoesPorDia());
+    }
+
+    @Test
+    void contagemPorDiaIncluiDiasForaDoPeriodo() {
+        AgregadorAvaliacoes agregador = novoAgregador();
+        agregador.registrar(avaliacao(8, INICIO.plusDays(2)));
+        agregador.registrarContagemDia(LocalDate.of(2024, 5, 1), 2);
+
+        assertEquals(Map.of("2024-05-01", 2L, "2024-05-08", 1L), agregador.gerarRelatorio().getAvaliacoesPorDia());
+    }
+
+    private static AgregadorAvaliacoes novoAgregador() {
+        AnaliseTextoService analiseTextoService = new AnaliseTextoService();
+        analiseTextoService.paralelismo = 1;
+        return new AgregadorAvaliacoes(INICIO, FIM, analiseTextoService.novoAcumulador());
+    }
+
+    private static Avaliacao avaliacao(int nota, LocalDateTime dataHora) {
+        return Avaliacao.builder()
+                .descricao("atendimento demorado")
+                .nota(nota)
+                .dataHora(dataHora)
+                .build();
+    }
+}
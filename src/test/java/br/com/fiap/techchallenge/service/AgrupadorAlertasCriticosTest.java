@@ -0,0 +1,121 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgrupadorAlertasCriticosTest {
+
+    private final EmailEmMemoria emailService = new EmailEmMemoria();
+
+    @Test
+    void primeiroAlertaSaiImediatamente() {
+        AgrupadorAlertasCriticos agrupador = novoAgrupador(3600, 50);
+
+        CompletableFuture<Void> envio = agrupador.notificar(avaliacao("a"));
+
+        assertTrue(envio.isDone());
+        assertEquals(List.of("a"), emailService.individuais);
+        assertTrue(emailService.digests.isEmpty());
+    }
+
+    @Test
+    void alertasDaJanelaSaemJuntosQuandoElaTermina() throws Exception {
+        AgrupadorAlertasCriticos agrupador = novoAgrupador(1, 50);
+        agrupador.notificar(avaliacao("a"));
+
+        CompletableFuture<Void> b = agrupador.notificar(avaliacao("b"));
+        CompletableFuture<Void> c = agrupador.notificar(avaliacao("c"));
+        assertFalse(b.isDone());
+
+        CompletableFuture.allOf(b, c).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("a"), emailService.individuais);
+        assertEquals(List.of(List.of("b", "c")), emailService.digests);
+    }
+
+    @Test
+    void maxItensEnviaODigestAntesDoFimDaJanelaEAbreOutra() {
+        AgrupadorAlertasCriticos agrupador = novoAgrupador(3600, 2);
+        agrupador.notificar(avaliacao("a"));
+
+        CompletableFuture<Void> b = agrupador.notificar(avaliacao("b"));
+        CompletableFuture<Void> c = agrupador.notificar(avaliacao("c"));
+        CompletableFuture<Void> d = agrupador.notificar(avaliacao("d"));
+
+        assertTrue(b.isDone() && c.isDone());
+        assertEquals(List.of(List.of("b", "c")), emailService.digests);
+        // O digest abriu uma nova janela: o próximo alerta espera por ela
+        assertFalse(d.isDone());
+    }
+
+    @Test
+    void falhaNoDigestFalhaOEstagioDeTodosOsAlertasDoLote() {
+        AgrupadorAlertasCriticos agrupador = novoAgrupador(3600, 2);
+        agrupador.notificar(avaliacao("a"));
+        emailService.falhar = true;
+
+        CompletableFuture<Void> b = agrupador.notificar(avaliacao("b"));
+        CompletableFuture<Void> c = agrupador.notificar(avaliacao("c"));
+
+        assertThrows(CompletionException.class, b::join);
+        assertThrows(CompletionException.class, c::join);
+    }
+
+    @Test
+    void encerrarEnviaOsAlertasPendentes() {
+        AgrupadorAlertasCriticos agrupador = novoAgrupador(3600, 50);
+        agrupador.notificar(avaliacao("a"));
+        CompletableFuture<Void> b = agrupador.notificar(avaliacao("b"));
+
+        agrupador.encerrar();
+
+        assertTrue(b.isDone());
+        // Um único pendente sai como notificação individual
+        assertEquals(List.of("a", "b"), emailService.individuais);
+    }
+
+    private AgrupadorAlertasCriticos novoAgrupador(int janelaSegundos, int maxItens) {
+        AgrupadorAlertasCriticos agrupador = new AgrupadorAlertasCriticos(emailService);
+        agrupador.janelaSegundos = janelaSegundos;
+        agrupador.maxItens = maxItens;
+        return agrupador;
+    }
+
+    private static Avaliacao avaliacao(String id) {
+        return Avaliacao.builder().id(id).descricao("sistema fora do ar").nota(1).build();
+    }
+
+    private static final class EmailEmMemoria extends EmailService {
+
+        private final List<String> individuais = new ArrayList<>();
+        private final List<List<String>> digests = new ArrayList<>();
+        private volatile boolean falhar;
+
+        @Override
+        public synchronized void enviarNotificacaoCritica(Avaliacao avaliacao) throws IOException {
+            if (falhar) {
+                throw new IOException("SendGrid indisponível");
+            }
+            individuais.add(avaliacao.getId());
+        }
+
+        @Override
+        public synchronized void enviarDigestCritico(List<Avaliacao> avaliacoes) throws IOException {
+            if (falhar) {
+                throw new IOException("SendGrid indisponível");
+            }
+            digests.add(avaliacoes.stream().map(Avaliacao::getId).toList());
+        }
+    }
+}
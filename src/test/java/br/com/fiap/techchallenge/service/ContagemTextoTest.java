@@ -0,0 +1,148 @@
+package br.com.fiap.techchallenge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ContagemTextoTest {
+
+    private static final int TODOS = 100_000;
+
+    private static final List<String> DESCRICOES = List.of(
+            "Aula muito boa, professor excelente!",
+            "A aula foi muito boa e o material é claro.",
+            "Professor excelente; material claro e aula boa",
+            "Não gostei do áudio da aula, o áudio falhou",
+            "o áudio falhou de novo, não gostei",
+            "de a o e",
+            "Ótima aula. Ótima aula! ÓTIMA AULA?",
+            "İstanbul İstanbul ΟΔΟΣ ΟΔΟΣ 𝐀𝐁𝐂 𝐀𝐁𝐂",
+            "nota 10 para o curso, 10/10 curso recomendado",
+            "curso recomendado para quem é iniciante");
+
+    @Test
+    void palavrasIguaisAsDoCaminhoPorRegex() {
+        ContagemTexto contagem = contar(DESCRICOES);
+
+        assertEquals(palavrasRegex(DESCRICOES), contagem.palavrasRecorrentes(TODOS));
+        assertFalse(contagem.palavrasRecorrentes(TODOS).isEmpty());
+    }
+
+    @Test
+    void frasesIguaisAsDoCaminhoPorRegex() {
+        ContagemTexto contagem = contar(DESCRICOES);
+
+        assertEquals(frasesRegex(DESCRICOES, 1), contagem.frasesRecorrentes(TODOS, 1));
+        assertEquals(frasesRegex(DESCRICOES, 2), contagem.frasesRecorrentes(TODOS, 2));
+    }
+
+    @Test
+    void topKOrdenadoPorFrequenciaEDepoisAlfabeticamente() {
+        List<String> descricoes = aleatorias(2_000, 42);
+        ContagemTexto contagem = contar(descricoes);
+
+        assertEquals(List.copyOf(topK(palavrasRegex(descricoes), 10).entrySet()),
+                List.copyOf(contagem.palavrasRecorrentes(10).entrySet()));
+        assertEquals(List.copyOf(topK(frasesRegex(descricoes, 2), 10).entrySet()),
+                List.copyOf(contagem.frasesRecorrentes(10, 2).entrySet()));
+    }
+
+    @Test
+    void combinarContagensParciaisEquivaleAContarTudo() {
+        List<String> descricoes = aleatorias(3_000, 7);
+        ContagemTexto total = contar(descricoes);
+
+        ContagemTexto combinada = contar(descricoes.subList(0, 1_000));
+        combinada.combinar(contar(descricoes.subList(1_000, 2_200)));
+        combinada.combinar(contar(descricoes.subList(2_200, descricoes.size())));
+
+        assertEquals(total.palavrasRecorrentes(TODOS), combinada.palavrasRecorrentes(TODOS));
+        assertEquals(total.frasesRecorrentes(TODOS, 1), combinada.frasesRecorrentes(TODOS, 1));
+    }
+
+    private static ContagemTexto contar(List<String> descricoes) {
+        ContagemTexto contagem = new ContagemTexto(true, true);
+        descricoes.forEach(contagem::adicionar);
+        return contagem;
+    }
+
+    /**
+     * Contagem de palavras da implementação anterior (regex + streams)
+     */
+    private static Map<String, Long> palavrasRegex(List<String> descricoes) {
+        Map<String, Long> frequencias = new HashMap<>();
+        for (String descricao : descricoes) {
+            for (String original : TokenizadorTest.palavrasRegex(descricao)) {
+                // A implementação anterior media o tamanho antes da conversão para minúsculas
+                String palavra = original.toLowerCase();
+                if (original.length() >= AnaliseTextoService.MIN_PALAVRA_LENGTH && !stopWord(palavra)) {
+                    frequencias.merge(palavra, 1L, Long::sum);
+                }
+            }
+        }
+        return frequencias;
+    }
+
+    /**
+     * Contagem de bigramas e trigramas da implementação anterior
+     */
+    private static Map<String, Long> frasesRegex(List<String> descricoes, int minimo) {
+        Map<String, Long> frequencias = new HashMap<>();
+        for (String descricao : descricoes) {
+            List<String> palavras = TokenizadorTest.tokensRegex(descricao);
+            for (int i = 0; i < palavras.size() - 1; i++) {
+                if (!stopWord(palavras.get(i)) && !stopWord(palavras.get(i + 1))) {
+                    frequencias.merge(palavras.get(i) + " " + palavras.get(i + 1), 1L, Long::sum);
+                }
+            }
+            for (int i = 0; i < palavras.size() - 2; i++) {
+                if (!stopWord(palavras.get(i)) || !stopWord(palavras.get(i + 1)) || !stopWord(palavras.get(i + 2))) {
+                    frequencias.merge(palavras.get(i) + " " + palavras.get(i + 1) + " " + palavras.get(i + 2), 1L, Long::sum);
+                }
+            }
+        }
+        frequencias.values().removeIf(contagem -> contagem < minimo);
+        return frequencias;
+    }
+
+    private static boolean stopWord(String palavra) {
+        return AnaliseTextoService.STOP_WORDS.contains(palavra);
+    }
+
+    private static Map<String, Long> topK(Map<String, Long> frequencias, int k) {
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        frequencias.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(k)
+                .forEach(entrada -> resultado.put(entrada.getKey(), entrada.getValue()));
+        return resultado;
+    }
+
+    private static List<String> aleatorias(int quantidade, long semente) {
+        String[] vocabulario = {"aula", "boa", "professor", "excelente", "material", "claro", "áudio", "falhou",
+                "não", "gostei", "de", "a", "o", "e", "curso", "recomendado", "ótima", "prática", "exercícios",
+                "Aula", "BOA", "é", "muito", "que", "para", "vídeo", "travou", "conteúdo", "atualizado"};
+        Random random = new Random(semente);
+        List<String> descricoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            StringBuilder descricao = new StringBuilder();
+            int palavras = 1 + random.nextInt(12);
+            for (int j = 0; j < palavras; j++) {
+                // Distribuição enviesada para produzir repetições
+                descricao.append(vocabulario[(int) (vocabulario.length * Math.pow(random.nextDouble(), 2))]);
+                descricao.append(random.nextInt(5) == 0 ? ", " : " ");
+            }
+            descricoes.add(descricao.toString());
+        }
+        return descricoes;
+    }
+}
@@ -0,0 +1,63 @@
+package br.com.fiap.techchallenge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ControleAdmissaoTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void baldeAdmiteARajadaESuspendeEmSeguida() {
+        ControleAdmissao.BaldeTokens balde = new ControleAdmissao.BaldeTokens(10, 5, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, balde.consumir(0), "requisição " + i);
+        }
+        // Sem tokens: a 10/s, o próximo chega em 100 ms
+        assertEquals(SEGUNDO / 10, balde.consumir(0), 1);
+    }
+
+    @Test
+    void baldeReabasteceNaTaxaConfigurada() {
+        ControleAdmissao.BaldeTokens balde = new ControleAdmissao.BaldeTokens(10, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            balde.consumir(0);
+        }
+
+        long reabastecido = SEGUNDO / 10 + 1_000;
+        assertEquals(0, balde.consumir(reabastecido));
+        // Meio token depois de 50 ms: falta o outro meio
+        assertEquals(SEGUNDO / 20, balde.consumir(reabastecido + SEGUNDO / 20), 1_000);
+    }
+
+    @Test
+    void baldeNaoAcumulaAlemDaCapacidade() {
+        ControleAdmissao.BaldeTokens balde = new ControleAdmissao.BaldeTokens(10, 3, 0);
+        long depois = TimeUnit.HOURS.toNanos(1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, balde.consumir(depois));
+        }
+        assertTrue(balde.consumir(depois) > 0);
+    }
+
+    @Test
+    void baldeComCapacidadeMinimaDeUmToken() {
+        ControleAdmissao.BaldeTokens balde = new ControleAdmissao.BaldeTokens(1, 0, 0);
+
+        assertEquals(0, balde.consumir(0));
+        assertEquals(SEGUNDO, balde.consumir(0), 1);
+    }
+
+    @Test
+    void retryAfterArredondadoParaCimaComMinimoDeUmSegundo() {
+        assertEquals(1, ControleAdmissao.Admissao.rejeitada(SEGUNDO / 10, "limite").getRetryAfterSegundos());
+        assertEquals(2, ControleAdmissao.Admissao.rejeitada(SEGUNDO + 1, "limite").getRetryAfterSegundos());
+        assertEquals(1, ControleAdmissao.Admissao.admitida(null).getRetryAfterSegundos());
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.fiap.techchallenge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramaLatenciaTest {
+
+    private static final long MAXIMO_US = TimeUnit.HOURS.toMicros(1);
+
+    @Test
+    void baldesLinearesAte64Microssegundos() {
+        for (long us = 0; us < 64; us++) {
+            assertEquals(us, HistogramaLatencia.indice(us));
+            assertEquals(us, HistogramaLatencia.limiteSuperior((int) us));
+        }
+        assertEquals(64, HistogramaLatencia.indice(64));
+        assertEquals(65, HistogramaLatencia.limiteSuperior(64));
+    }
+
+    @Test
+    void limiteSuperiorEOMaiorValorDoBalde() {
+        int ultimo = HistogramaLatencia.indice(MAXIMO_US);
+        for (int indice = 0; indice < ultimo; indice++) {
+            long limite = HistogramaLatencia.limiteSuperior(indice);
+            assertEquals(indice, HistogramaLatencia.indice(limite), "limite " + limite);
+            assertEquals(indice + 1, HistogramaLatencia.indice(limite + 1), "limite " + limite);
+        }
+    }
+
+    @Test
+    void indiceCrescenteComErroRelativoLimitado() {
+        int anterior = -1;
+        for (long us = 0; us <= MAXIMO_US; us = us < 1_000 ? us + 1 : us + us / 97) {
+            int indice = HistogramaLatencia.indice(us);
+            assertTrue(indice >= anterior, "us " + us);
+            long limite = HistogramaLatencia.limiteSuperior(indice);
+            assertTrue(limite >= us, "us " + us);
+            // 32 sub-baldes por oitava: erro relativo de no máximo 1/32
+            assertTrue(limite - us <= Math.max(0, us / 32), "us " + us + " limite " + limite);
+            anterior = indice;
+        }
+    }
+
+    @Test
+    void percentisDaJanelaRecente() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        long agora = System.nanoTime();
+        for (int ms = 1; ms <= 100; ms++) {
+            histograma.registrarDuracao(TimeUnit.MILLISECONDS.toNanos(ms), agora);
+        }
+
+        HistogramaLatencia.Instantaneo instantaneo = histograma.instantaneo();
+
+        assertEquals(100, instantaneo.getTotal());
+        assertEquals(100, histograma.getContagem());
+        assertEquals(5.05, histograma.getSomaSegundos(), 1e-9);
+        assertEquals(0.050, instantaneo.percentilSegundos(0.5), 0.050 / 32);
+        assertEquals(0.099, instantaneo.percentilSegundos(0.99), 0.099 / 32);
+        assertEquals(0.100, instantaneo.percentilSegundos(1.0), 1e-9);
+        assertEquals(0.100, instantaneo.maximoSegundos(), 1e-9);
+    }
+
+    @Test
+    void duracoesForaDaFaixaSaoLimitadas() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        long agora = System.nanoTime();
+        histograma.registrarDuracao(-5, agora);
+        histograma.registrarDuracao(TimeUnit.HOURS.toNanos(3), agora);
+
+        HistogramaLatencia.Instantaneo instantaneo = histograma.instantaneo();
+
+        assertEquals(0, instantaneo.percentilSegundos(0.5));
+        assertEquals(3600, instantaneo.percentilSegundos(1.0), 1e-9);
+    }
+
+    @Test
+    void semRegistrosPercentilZero() {
+        assertEquals(0, new HistogramaLatencia().instantaneo().percentilSegundos(0.99));
+    }
+}
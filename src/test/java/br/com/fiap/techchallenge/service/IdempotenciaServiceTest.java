@@ -0,0 +1,126 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import br.com.fiap.techchallenge.model.RegistroIdempotencia;
+import br.com.fiap.techchallenge.model.RegistroIdempotencia.Situacao;
+import br.com.fiap.techchallenge.repository.StorageTableAsyncRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotenciaServiceTest {
+
+    private static final String HASH = IdempotenciaService.hashConteudo(Avaliacao.builder().descricao("ótimo").nota(9).build());
+
+    private final RepositorioEmMemoria repository = new RepositorioEmMemoria();
+    private final IdempotenciaService idempotencia = new IdempotenciaService(repository, 2);
+
+    @Test
+    void repeticaoConcluidaComOMesmoPayloadRecebeARespostaOriginal() {
+        assertEquals(IdempotenciaService.Repeticao.RESPOSTA_ORIGINAL,
+                IdempotenciaService.classificarRepeticao(registro("a", Situacao.CONCLUIDA, HASH), HASH));
+    }
+
+    @Test
+    void repeticaoComOutroPayloadEDiferenciada() {
+        String outroHash = IdempotenciaService.hashConteudo(Avaliacao.builder().descricao("ótimo").nota(8).build());
+
+        assertEquals(IdempotenciaService.Repeticao.PAYLOAD_DIFERENTE,
+                IdempotenciaService.classificarRepeticao(registro("a", Situacao.CONCLUIDA, HASH), outroHash));
+        assertEquals(IdempotenciaService.Repeticao.PAYLOAD_DIFERENTE,
+                IdempotenciaService.classificarRepeticao(registro("a", Situacao.EFEITOS_PENDENTES, HASH), outroHash));
+    }
+
+    @Test
+    void originalEmCursoTemPrecedenciaSobreOPayload() {
+        // Reserva removida entre a inserção e a leitura: registro sem hash
+        assertEquals(IdempotenciaService.Repeticao.EM_ANDAMENTO,
+                IdempotenciaService.classificarRepeticao(registro("a", Situacao.EM_ANDAMENTO, null), HASH));
+        assertEquals(IdempotenciaService.Repeticao.EM_ANDAMENTO,
+                IdempotenciaService.classificarRepeticao(registro("a", Situacao.EM_ANDAMENTO, "outro"), HASH));
+    }
+
+    @Test
+    void hashDoConteudoIgnoraIdEDataHora() {
+        Avaliacao primeira = Avaliacao.builder().id("1").descricao("ótimo").nota(9).build();
+        Avaliacao repetida = Avaliacao.builder().id("2").descricao("ótimo").nota(9).build();
+        repetida.inicializar();
+
+        assertEquals(IdempotenciaService.hashConteudo(primeira), IdempotenciaService.hashConteudo(repetida));
+        assertEquals(64, IdempotenciaService.hashChave("chave:abc").length());
+    }
+
+    @Test
+    void somenteChavesConcluidasVaoParaOCache() {
+        repository.proximas.add(registro("concluida", Situacao.CONCLUIDA, HASH));
+        repository.proximas.add(registro("pendente", Situacao.EFEITOS_PENDENTES, HASH).toBuilder().avaliacao(new Avaliacao()).build());
+        repository.proximas.add(registro("reservada", Situacao.RESERVADA, HASH));
+
+        idempotencia.reservar("concluida", HASH, new Avaliacao());
+        idempotencia.reservar("pendente", HASH, new Avaliacao());
+        idempotencia.reservar("reservada", HASH, new Avaliacao());
+
+        assertTrue(idempotencia.buscarConcluida("concluida").isPresent());
+        assertTrue(idempotencia.buscarConcluida("pendente").isEmpty());
+        assertTrue(idempotencia.buscarConcluida("reservada").isEmpty());
+    }
+
+    @Test
+    void concluirRegistraARespostaNoCacheENaReserva() {
+        RegistroIdempotencia pendente = registro("a", Situacao.EFEITOS_PENDENTES, HASH).toBuilder().avaliacao(new Avaliacao()).build();
+
+        idempotencia.concluir(pendente, "{\"id\":\"1\"}");
+
+        RegistroIdempotencia concluida = idempotencia.buscarConcluida("a").orElseThrow();
+        assertEquals(Situacao.CONCLUIDA, concluida.getSituacao());
+        assertEquals("{\"id\":\"1\"}", concluida.getResposta());
+        assertNull(concluida.getAvaliacao());
+        assertEquals(List.of("a={\"id\":\"1\"}"), repository.conclusoes);
+    }
+
+    @Test
+    void cacheDescartaAChaveMenosUsadaRecentemente() {
+        idempotencia.concluir(registro("a", Situacao.RESERVADA, HASH), "a");
+        idempotencia.concluir(registro("b", Situacao.RESERVADA, HASH), "b");
+        idempotencia.buscarConcluida("a");
+        idempotencia.concluir(registro("c", Situacao.RESERVADA, HASH), "c");
+
+        assertTrue(idempotencia.buscarConcluida("a").isPresent());
+        assertTrue(idempotencia.buscarConcluida("b").isEmpty());
+        assertTrue(idempotencia.buscarConcluida("c").isPresent());
+    }
+
+    private static RegistroIdempotencia registro(String chave, Situacao situacao, String hashCorpo) {
+        return RegistroIdempotencia.builder().chave(chave).situacao(situacao).hashCorpo(hashCorpo).build();
+    }
+
+    private static final class RepositorioEmMemoria extends StorageTableAsyncRepository {
+
+        private final List<RegistroIdempotencia> proximas = new ArrayList<>();
+        private final List<String> conclusoes = new ArrayList<>();
+
+        RepositorioEmMemoria() {
+            super(null, null);
+        }
+
+        @Override
+        public CompletionStage<RegistroIdempotencia> reservarIdempotencia(String chave, String hashCorpo, Avaliacao avaliacao,
+                                                                          Duration expiracao, Duration prazoEfeitos) {
+            return CompletableFuture.completedFuture(proximas.remove(0));
+        }
+
+        @Override
+        public CompletionStage<Void> concluirIdempotencia(String chave, String resposta) {
+            conclusoes.add(chave + "=" + resposta);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
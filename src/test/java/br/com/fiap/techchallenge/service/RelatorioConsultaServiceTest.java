@@ -0,0 +1,252 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.RelatorioSemanal;
+import br.com.fiap.techchallenge.repository.StorageTableRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RelatorioConsultaServiceTest {
+
+    private static final LocalDate HOJE = LocalDate.now();
+    private static final RelatorioConsultaService.Periodo ENCERRADO =
+            new RelatorioConsultaService.Periodo(HOJE.minusDays(10).atStartOfDay(), HOJE.minusDays(3).atStartOfDay());
+    private static final RelatorioConsultaService.Periodo OUTRO_ENCERRADO =
+            new RelatorioConsultaService.Periodo(HOJE.minusDays(20).atStartOfDay(), HOJE.minusDays(13).atStartOfDay());
+    private static final RelatorioConsultaService.Periodo EM_ABERTO =
+            new RelatorioConsultaService.Periodo(HOJE.minusDays(2).atStartOfDay(), HOJE.plusDays(1).atStartOfDay());
+
+    private final RelatorioEmMemoria relatorioService = new RelatorioEmMemoria();
+    private final RepositorioEmMemoria repository = new RepositorioEmMemoria();
+
+    @Test
+    void periodoNormalizadoParaAHora() {
+        RelatorioConsultaService.Periodo periodo = RelatorioConsultaService.Periodo.normalizado(
+                LocalDateTime.of(2024, 5, 6, 9, 41, 7), LocalDateTime.of(2024, 5, 13, 0, 59));
+
+        assertEquals(new RelatorioConsultaService.Periodo(LocalDateTime.of(2024, 5, 6, 9, 0), LocalDateTime.of(2024, 5, 13, 0, 0)), periodo);
+    }
+
+    @Test
+    void periodoEmAbertoFicaEmCacheAteOTtl() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 10);
+
+        RelatorioSemanal primeiro = consulta.consultar(EM_ABERTO);
+
+        assertSame(primeiro, consulta.consultar(EM_ABERTO));
+        assertEquals(1, relatorioService.calculos);
+        // Período em aberto não é gravado nem lido da tabela relatorios
+        assertEquals(0, repository.leiturasInvalidacoes);
+        assertEquals(0, repository.gravacoes);
+    }
+
+    @Test
+    void entradaExpiradaERecalculada() {
+        RelatorioConsultaService consulta = novaConsulta(0, 0, 10);
+
+        RelatorioSemanal primeiro = consulta.consultar(EM_ABERTO);
+
+        assertNotSame(primeiro, consulta.consultar(EM_ABERTO));
+        assertEquals(2, relatorioService.calculos);
+    }
+
+    @Test
+    void cacheDescartaOPeriodoMenosUsadoRecentemente() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 2);
+        consulta.consultar(EM_ABERTO);
+        consulta.consultar(ENCERRADO);
+        consulta.consultar(EM_ABERTO);
+
+        consulta.consultar(OUTRO_ENCERRADO);
+        assertEquals(3, relatorioService.calculos);
+
+        consulta.consultar(EM_ABERTO);
+        assertEquals(3, relatorioService.calculos);
+        consulta.consultar(ENCERRADO);
+        // Lido da tabela relatorios, onde o primeiro cálculo o gravou
+        assertEquals(3, relatorioService.calculos);
+        assertEquals(3, repository.leiturasSalvos);
+    }
+
+    @Test
+    void periodoEncerradoEGravadoELidoDaTabelaPorOutraInstancia() {
+        RelatorioSemanal calculado = novaConsulta(300, 3600, 10).consultar(ENCERRADO);
+
+        RelatorioSemanal lido = novaConsulta(300, 3600, 10).consultar(ENCERRADO);
+
+        assertSame(calculado, lido);
+        assertEquals(1, relatorioService.calculos);
+        assertEquals(1, repository.gravacoes);
+    }
+
+    @Test
+    void revalidacaoMantemAEntradaSemNovasInvalidacoes() {
+        RelatorioConsultaService consulta = novaConsulta(0, 3600, 10);
+        RelatorioSemanal primeiro = consulta.consultar(ENCERRADO);
+
+        assertSame(primeiro, consulta.consultar(ENCERRADO));
+        assertEquals(1, relatorioService.calculos);
+        assertEquals(2, repository.leiturasInvalidacoes);
+    }
+
+    @Test
+    void revalidacaoDescartaAEntradaQuandoOutraInstanciaInvalidouUmDia() {
+        RelatorioConsultaService consulta = novaConsulta(0, 3600, 10);
+        RelatorioSemanal primeiro = consulta.consultar(ENCERRADO);
+
+        // Avaliação atrasada recebida por outra instância: o relatório gravado é removido
+        repository.invalidar(ENCERRADO.inicio().toLocalDate().plusDays(1));
+
+        RelatorioSemanal segundo = consulta.consultar(ENCERRADO);
+        assertNotSame(primeiro, segundo);
+        assertEquals(2, relatorioService.calculos);
+    }
+
+    @Test
+    void periodoEncerradoSemRevalidacaoAteOTtl() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 10);
+        consulta.consultar(ENCERRADO);
+
+        repository.invalidar(ENCERRADO.inicio().toLocalDate());
+        consulta.consultar(ENCERRADO);
+
+        assertEquals(1, relatorioService.calculos);
+        assertEquals(1, repository.leiturasInvalidacoes);
+    }
+
+    @Test
+    void relatorioCalculadoDuranteUmaInvalidacaoERevalidadoNaProximaConsulta() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 10);
+        repository.gravacaoRecusada = true;
+        consulta.consultar(ENCERRADO);
+
+        consulta.consultar(ENCERRADO);
+
+        assertEquals(2, repository.leiturasInvalidacoes);
+        assertEquals(1, relatorioService.calculos);
+    }
+
+    @Test
+    void invalidacaoDoDiaDescartaSoOsPeriodosQueOIncluem() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 10);
+        consulta.consultar(ENCERRADO);
+        consulta.consultar(OUTRO_ENCERRADO);
+        repository.salvos.clear();
+
+        consulta.aoInvalidarDia(new AgregadoService.DiaInvalidado(ENCERRADO.fim().toLocalDate().minusDays(1)));
+        consulta.consultar(ENCERRADO);
+        consulta.consultar(OUTRO_ENCERRADO);
+
+        assertEquals(3, relatorioService.calculos);
+    }
+
+    @Test
+    void diaSeguinteAoFimNaoInvalidaOPeriodo() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 10);
+        consulta.consultar(ENCERRADO);
+
+        consulta.aoInvalidarDia(new AgregadoService.DiaInvalidado(ENCERRADO.fim().toLocalDate()));
+        consulta.consultar(ENCERRADO);
+
+        assertEquals(1, relatorioService.calculos);
+    }
+
+    @Test
+    void falhaNoCalculoNaoFicaEmCache() {
+        RelatorioConsultaService consulta = novaConsulta(300, 3600, 10);
+        relatorioService.falhar = true;
+
+        assertThrows(IllegalStateException.class, () -> consulta.consultar(EM_ABERTO));
+
+        relatorioService.falhar = false;
+        consulta.consultar(EM_ABERTO);
+        assertEquals(2, relatorioService.calculos);
+    }
+
+    private RelatorioConsultaService novaConsulta(long ttlSegundos, long ttlFechadoSegundos, int maxItens) {
+        RelatorioConsultaService consulta = new RelatorioConsultaService(relatorioService, repository, maxItens);
+        consulta.ttlSegundos = ttlSegundos;
+        consulta.ttlFechadoSegundos = ttlFechadoSegundos;
+        return consulta;
+    }
+
+    private static final class RelatorioEmMemoria extends RelatorioService {
+
+        private int calculos;
+        private boolean falhar;
+
+        RelatorioEmMemoria() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public RelatorioSemanal gerarRelatorio(LocalDateTime inicio, LocalDateTime fim) {
+            calculos++;
+            if (falhar) {
+                throw new IllegalStateException("storage indisponível");
+            }
+            return RelatorioSemanal.builder().periodoInicio(inicio).periodoFim(fim).totalAvaliacoes(calculos).build();
+        }
+    }
+
+    /**
+     * Tabela relatorios e invalidações em memória, compartilhadas entre as "instâncias" do teste
+     */
+    private static final class RepositorioEmMemoria extends StorageTableRepository {
+
+        private final Map<LocalDate, OffsetDateTime> invalidacoes = new HashMap<>();
+        private final Map<LocalDateTime, RelatorioSemanal> salvos = new HashMap<>();
+        private int leiturasInvalidacoes;
+        private int leiturasSalvos;
+        private int gravacoes;
+        private boolean gravacaoRecusada;
+
+        RepositorioEmMemoria() {
+            super(null);
+        }
+
+        void invalidar(LocalDate dia) {
+            invalidacoes.put(dia, OffsetDateTime.now());
+            salvos.keySet().removeIf(inicio -> !inicio.toLocalDate().isAfter(dia));
+        }
+
+        @Override
+        public Map<LocalDate, OffsetDateTime> buscarInvalidacoes(LocalDateTime inicio, LocalDateTime fim) {
+            leiturasInvalidacoes++;
+            Map<LocalDate, OffsetDateTime> doPeriodo = new HashMap<>();
+            invalidacoes.forEach((dia, instante) -> {
+                if (!dia.atStartOfDay().isBefore(inicio) && dia.atStartOfDay().isBefore(fim)) {
+                    doPeriodo.put(dia, instante);
+                }
+            });
+            return doPeriodo;
+        }
+
+        @Override
+        public Optional<RelatorioSemanal> buscarRelatorioPorPeriodo(LocalDateTime inicio, LocalDateTime fim,
+                                                                    Map<LocalDate, OffsetDateTime> invalidacoes) {
+            leiturasSalvos++;
+            return Optional.ofNullable(salvos.get(inicio));
+        }
+
+        @Override
+        public boolean salvarRelatorioPorPeriodo(RelatorioSemanal relatorio, Map<LocalDate, OffsetDateTime> invalidacoesLidas) {
+            if (gravacaoRecusada) {
+                return false;
+            }
+            gravacoes++;
+            salvos.put(relatorio.getPeriodoInicio(), relatorio);
+            return true;
+        }
+    }
+}
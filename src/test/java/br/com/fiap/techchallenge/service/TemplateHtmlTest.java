@@ -0,0 +1,66 @@
+package br.com.fiap.techchallenge.service;
+
+import br.com.fiap.techchallenge.model.Avaliacao;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemplateHtmlTest {
+
+    @Test
+    void escaparTrocaOsCaracteresEspeciaisDeHtml() {
+        StringBuilder destino = new StringBuilder("<p>");
+
+        TemplateHtml.escapar("<script>alert(\"x\" & 'y')</script> ação", destino);
+
+        assertEquals("<p>&lt;script&gt;alert(&quot;x&quot; &amp; &#39;y&#39;)&lt;/script&gt; ação", destino.toString());
+    }
+
+    @Test
+    void renderizarEscapaTextoMasNaoNumerosEnumsETrechosHtml() {
+        TemplateHtml template = TemplateHtml.compilar(
+                "<td>{{descricao}}</td><td>{{ nota }}</td><td>{{urgencia}}</td>{{linhas}}{{ausente}}!",
+                "nota", "descricao", "urgencia", "linhas", "ausente");
+        Consumer<StringBuilder> linhas = destino -> destino.append("<tr><td>1</td></tr>");
+
+        String html = template.renderizar(0, 7, "<b>ruim</b>", Avaliacao.NivelUrgencia.ALTO, linhas, null);
+
+        assertEquals("<td>&lt;b&gt;ruim&lt;/b&gt;</td><td>7</td><td>ALTO</td><tr><td>1</td></tr>!", html);
+    }
+
+    @Test
+    void variavelRepetidaUsaOMesmoValor() {
+        TemplateHtml template = TemplateHtml.compilar("{{a}}-{{a}}", "a");
+
+        assertEquals("x-x", template.renderizar(0, "x"));
+        assertEquals(1, template.getTamanhoLiterais());
+    }
+
+    @Test
+    void compilarRejeitaVariavelNaoDeclarada() {
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class,
+                () -> TemplateHtml.compilar("<p>{{nome}} {{email}}</p>", "nome"));
+
+        assertTrue(erro.getMessage().contains("email"), erro.getMessage());
+    }
+
+    @Test
+    void compilarRejeitaChavesSemFechamento() {
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class,
+                () -> TemplateHtml.compilar("<p>{{nome}}</p><p>{{nome</p>", "nome"));
+
+        assertEquals("Variável sem fechamento na posição 18", erro.getMessage());
+    }
+
+    @Test
+    void templateSemVariaveisRenderizaOTextoFixo() {
+        TemplateHtml template = TemplateHtml.compilar("<hr/> { chaves simples }");
+
+        assertEquals("<hr/> { chaves simples }", template.renderizar(0));
+        assertEquals(24, template.getTamanhoLiterais());
+    }
+}
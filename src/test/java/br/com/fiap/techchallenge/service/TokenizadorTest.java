@@ -0,0 +1,75 @@
+package br.com.fiap.techchallenge.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenizadorTest {
+
+    /**
+     * Palavras da limpeza por regex usada antes do tokenizador em passagem única (antes das minúsculas)
+     */
+    static List<String> palavrasRegex(String descricao) {
+        String limpo = descricao.replaceAll("[^\\p{L}\\s]", " ").replaceAll("\\s+", " ").trim();
+        return Arrays.stream(limpo.split("\\s+"))
+                .filter(palavra -> !palavra.isEmpty())
+                .toList();
+    }
+
+    static List<String> tokensRegex(String descricao) {
+        return palavrasRegex(descricao).stream().map(String::toLowerCase).toList();
+    }
+
+    static List<String> tokens(Tokenizador tokenizador, String descricao) {
+        int quantidade = tokenizador.tokenizar(descricao);
+        List<String> tokens = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            tokens.add(new String(tokenizador.texto(), tokenizador.inicio(i), tokenizador.fim(i) - tokenizador.inicio(i)));
+        }
+        return tokens;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Aula MUITO boa, professor excelente!",
+            "   espaços\tduplicados\n\ne quebras   ",
+            "pontuação...sem-espaço;entre(palavras)",
+            "números 123 e símbolos #@% no meio: nota10",
+            "acentuação: ÇÃO, Ênfase, Ü, à às",
+            "İstanbul e İSTANBUL",
+            "ΟΔΟΣ ΣΟΦΟΣ λόγος",
+            "letras suplementares 𝐀𝐁𝐂 e 𝔘𝔫𝔦𝔠𝔬𝔡𝔢",
+            "combinando é com acento separado",
+            "emoji 👍 entre palavras👏fim",
+            "",
+            "!!! ... ???",
+            "x"
+    })
+    void produzOsMesmosTokensQueALimpezaPorRegex(String descricao) {
+        assertEquals(tokensRegex(descricao), tokens(new Tokenizador(), descricao));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Aula", "ÇÃO", "İstanbul", "𝐀𝐁𝐂"})
+    void registraOTamanhoOriginalDoToken(String palavra) {
+        Tokenizador tokenizador = new Tokenizador();
+
+        assertEquals(1, tokenizador.tokenizar("  " + palavra + "!"));
+        assertEquals(palavra.length(), tokenizador.tamanhoOriginal(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40, 1000})
+    void reutilizaOsBuffersEntreDescricoes(int repeticoes) {
+        Tokenizador tokenizador = new Tokenizador();
+        String longa = "palavra Grande ".repeat(repeticoes);
+
+        assertEquals(tokensRegex(longa), tokens(tokenizador, longa));
+        assertEquals(List.of("curta"), tokens(tokenizador, "Curta"));
+    }
+}